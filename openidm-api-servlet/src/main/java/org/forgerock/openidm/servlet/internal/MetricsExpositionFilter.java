@@ -0,0 +1,62 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.servlet.internal;
+
+import org.forgerock.http.Filter;
+import org.forgerock.http.Handler;
+import org.forgerock.http.protocol.Form;
+import org.forgerock.http.protocol.Request;
+import org.forgerock.http.protocol.Response;
+import org.forgerock.http.routing.UriRouterContext;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * Serves the metrics endpoint in the Prometheus text exposition format by default.
+ * <p>
+ * A read of {@code /openidm/metrics} without the {@code _fields} or {@code _mimeType} parameter is turned into a
+ * read of the exposition field as {@value #CONTENT_TYPE}, which is what Prometheus scrapes. Passing either
+ * parameter, e.g. {@code ?_fields=exposition}, still returns the JSON resource.
+ */
+class MetricsExpositionFilter implements Filter {
+
+    /** The content type of the Prometheus text exposition format */
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+    private static final String METRICS_PATH = "metrics";
+    private static final String EXPOSITION = "exposition";
+    private static final String PARAM_FIELDS = "_fields";
+    private static final String PARAM_MIME_TYPE = "_mimeType";
+
+    @Override
+    public Promise<Response, NeverThrowsException> filter(Context context, Request request, Handler next) {
+        if ("GET".equals(request.getMethod()) && isMetrics(context)) {
+            Form form = new Form().fromRequestQuery(request);
+            if (!form.containsKey(PARAM_FIELDS) && !form.containsKey(PARAM_MIME_TYPE)) {
+                form.putSingle(PARAM_FIELDS, EXPOSITION);
+                form.putSingle(PARAM_MIME_TYPE, CONTENT_TYPE);
+                form.toRequestQuery(request);
+            }
+        }
+        return next.handle(context, request);
+    }
+
+    private static boolean isMetrics(Context context) {
+        return context.containsContext(UriRouterContext.class)
+                && METRICS_PATH.equals(context.asContext(UriRouterContext.class).getRemainingUri());
+    }
+}
@@ -77,7 +77,8 @@ import io.swagger.models.Swagger;
  * 1) listens on /openidm,
  * 2) dispatches to the HttpApplication, that is composed of
  *    a) the auth filter
- *    b) the JSON resource HTTP Handler, that
+ *    b) the filter serving the metrics as text by default
+ *    c) the JSON resource HTTP Handler, that
  *       i) converts CHF Requests to CREST requests, and
  *       ii) routes them on the CREST router using the external ConnectionFactory.
  */
@@ -186,7 +187,8 @@ public class ServletComponent implements EventHandler {
 
                     @Override
                     public Handler start() throws HttpApplicationException {
-                        return Handlers.chainOf(handler, authFilter, new OpenApiRequestFilter());
+                        return Handlers.chainOf(handler, authFilter, new OpenApiRequestFilter(),
+                                new MetricsExpositionFilter());
                     }
 
                     @Override
@@ -0,0 +1,73 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.servlet.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+
+import org.forgerock.http.Handler;
+import org.forgerock.http.protocol.Form;
+import org.forgerock.http.protocol.Request;
+import org.forgerock.http.routing.UriRouterContext;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.testng.annotations.Test;
+
+public class MetricsExpositionFilterTest {
+
+    private final MetricsExpositionFilter filter = new MetricsExpositionFilter();
+
+    @Test
+    public void testReadsExpositionAsTextByDefault() throws Exception {
+        Request request = new Request().setMethod("GET").setUri("http://localhost/openidm/metrics");
+        Handler next = mock(Handler.class);
+        Context context = routed("metrics");
+
+        filter.filter(context, request, next);
+
+        Form form = new Form().fromRequestQuery(request);
+        assertThat(form.getFirst("_fields")).isEqualTo("exposition");
+        assertThat(form.getFirst("_mimeType")).isEqualTo(MetricsExpositionFilter.CONTENT_TYPE);
+        verify(next).handle(context, request);
+    }
+
+    @Test
+    public void testKeepsExplicitFields() throws Exception {
+        Request request = new Request().setMethod("GET")
+                .setUri("http://localhost/openidm/metrics?_fields=exposition");
+
+        filter.filter(routed("metrics"), request, mock(Handler.class));
+
+        assertThat(new Form().fromRequestQuery(request).containsKey("_mimeType")).isFalse();
+    }
+
+    @Test
+    public void testIgnoresOtherResources() throws Exception {
+        Request request = new Request().setMethod("GET").setUri("http://localhost/openidm/config");
+
+        filter.filter(routed("config"), request, mock(Handler.class));
+
+        assertThat(request.getUri().getRawQuery()).isNull();
+    }
+
+    private static Context routed(String remainingUri) {
+        return new UriRouterContext(new RootContext(), "openidm", remainingUri,
+                Collections.<String, String>emptyMap());
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.auth;
+
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.json.resource.ResourcePath;
+import org.forgerock.json.resource.ResourceResponse;
+
+/**
+ * Remembers the users recently authenticated by a {@link ResourceQueryAuthenticator}, so that a client sending the
+ * same credentials on every request is not queried and verified again each time.
+ * <p>
+ * An entry holds the user resource and a salted SHA-256 digest of the password it was authenticated with, never the
+ * password itself. The salt is random and only known to this cache. An entry expires after the time to live, and is
+ * invalidated as soon as the user resource, or any of its sub-resources, is written to. The number of entries is
+ * bounded.
+ */
+class AuthenticationCache {
+
+    /** Prefix of the path the repository is routed at */
+    private static final String REPO_PREFIX = "repo";
+
+    /** A user authenticated, with the digest of the password */
+    private static final class Entry {
+        private final byte[] digest;
+        private final ResourceResponse resource;
+        private final long expires;
+
+        private Entry(byte[] digest, ResourceResponse resource, long expires) {
+            this.digest = digest;
+            this.resource = resource;
+            this.expires = expires;
+        }
+    }
+
+    private final ResourcePath resourcePath;
+    private final ResourcePath repoResourcePath;
+    private final long timeToLive;
+    private final long timeToLiveNanos;
+    private final int maxEntries;
+    private final byte[] salt = new byte[16];
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    /** Incremented on every invalidation, so that a user read before a write is not cached after it */
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache of the users of a resource.
+     *
+     * @param queryOnResource the resource the users are queried on
+     * @param timeToLive the time in milliseconds a user stays authenticated
+     * @param maxEntries the number of users kept
+     */
+    AuthenticationCache(String queryOnResource, long timeToLive, int maxEntries) {
+        this.resourcePath = ResourcePath.valueOf(queryOnResource);
+        this.repoResourcePath = resourcePath.isEmpty() || REPO_PREFIX.equals(resourcePath.get(0))
+                ? null
+                : ResourcePath.valueOf(REPO_PREFIX).concat(resourcePath);
+        this.timeToLive = Math.max(0, timeToLive);
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(this.timeToLive);
+        this.maxEntries = Math.max(1, maxEntries);
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * Tells whether this cache was created with the given settings.
+     *
+     * @param timeToLive the time in milliseconds a user stays authenticated
+     * @param maxEntries the number of users kept
+     * @return true if the settings are the ones of this cache
+     */
+    boolean hasSettings(long timeToLive, int maxEntries) {
+        return this.timeToLive == Math.max(0, timeToLive) && this.maxEntries == Math.max(1, maxEntries);
+    }
+
+    /**
+     * @return the current generation, to pass to {@link #put} once the user is authenticated
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Gets the user authenticated with the given credentials.
+     *
+     * @param username the username
+     * @param password the password
+     * @return a copy of the user resource, or null if the user was not authenticated with these credentials
+     */
+    ResourceResponse get(String username, String password) {
+        Entry entry = entries.get(username);
+        if (entry != null) {
+            if (System.nanoTime() - entry.expires >= 0) {
+                entries.remove(username, entry);
+            } else if (MessageDigest.isEqual(entry.digest, digest(username, password))) {
+                hits.increment();
+                return copyOf(entry.resource);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Remembers a user authenticated, unless the users were invalidated since the given generation.
+     *
+     * @param username the username
+     * @param password the password the user was authenticated with
+     * @param resource the user resource
+     * @param readGeneration the {@link #generation} before the user was read
+     */
+    void put(String username, String password, ResourceResponse resource, long readGeneration) {
+        if (readGeneration != generation.get()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (entries.size() >= maxEntries && !entries.containsKey(username)) {
+            evict(now);
+        }
+        entries.put(username, new Entry(digest(username, password), copyOf(resource), now + timeToLiveNanos));
+        // an invalidation may have happened while putting the entry
+        if (readGeneration != generation.get()) {
+            entries.remove(username);
+        }
+    }
+
+    /**
+     * Invalidates the users written to by a request on the given path.
+     *
+     * @param path the path of the request
+     */
+    void invalidate(ResourcePath path) {
+        ResourcePath base = resourcePath;
+        if (!path.startsWith(base)) {
+            if (repoResourcePath == null || !path.startsWith(repoResourcePath)) {
+                return;
+            }
+            base = repoResourcePath;
+        }
+        generation.incrementAndGet();
+        if (path.size() == base.size()) {
+            entries.clear();
+            return;
+        }
+        String id = path.get(base.size());
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (id.equals(iterator.next().resource.getId())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Forgets all the users.
+     */
+    void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * @return the resource the users are queried on
+     */
+    ResourcePath getResourcePath() {
+        return resourcePath;
+    }
+
+    /**
+     * @return the number of users kept
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of authentications served from the cache
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of authentications that had to query and verify the user
+     */
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /** Removes the expired entries and, if still full, an arbitrary entry */
+    private void evict(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().expires >= 0) {
+                iterator.remove();
+            }
+        }
+        iterator = entries.values().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private byte[] digest(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required of every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ResourceResponse copyOf(ResourceResponse resource) {
+        return newResourceResponse(resource.getId(), resource.getRevision(), resource.getContent().copy());
+    }
+}
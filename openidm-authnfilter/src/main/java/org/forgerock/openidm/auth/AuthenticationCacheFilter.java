@@ -0,0 +1,124 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.auth;
+
+import java.util.Collection;
+
+import org.forgerock.json.resource.ActionRequest;
+import org.forgerock.json.resource.ActionResponse;
+import org.forgerock.json.resource.CreateRequest;
+import org.forgerock.json.resource.DeleteRequest;
+import org.forgerock.json.resource.Filter;
+import org.forgerock.json.resource.PatchRequest;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.QueryResponse;
+import org.forgerock.json.resource.ReadRequest;
+import org.forgerock.json.resource.Request;
+import org.forgerock.json.resource.RequestHandler;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourcePath;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.UpdateRequest;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * Router filter invalidating the {@link AuthenticationCache authentication caches} on every request that may write
+ * to a user. The users are invalidated when the request starts, so that a user read while it runs is not cached,
+ * and again once it completes, in case a user was cached in between.
+ */
+class AuthenticationCacheFilter implements Filter {
+
+    private final Collection<AuthenticationCache> caches;
+
+    /**
+     * Creates a filter invalidating the given caches.
+     *
+     * @param caches the caches, a live view as the authenticators are configured
+     */
+    AuthenticationCacheFilter(Collection<AuthenticationCache> caches) {
+        this.caches = caches;
+    }
+
+    @Override
+    public Promise<ActionResponse, ResourceException> filterAction(Context context, ActionRequest actionRequest,
+            RequestHandler handler) {
+        Runnable invalidation = invalidate(actionRequest);
+        return handler.handleAction(context, actionRequest).thenAlways(invalidation);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterCreate(Context context, CreateRequest createRequest,
+            RequestHandler handler) {
+        Runnable invalidation = invalidate(createRequest);
+        return handler.handleCreate(context, createRequest).thenAlways(invalidation);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterDelete(Context context, DeleteRequest deleteRequest,
+            RequestHandler handler) {
+        Runnable invalidation = invalidate(deleteRequest);
+        return handler.handleDelete(context, deleteRequest).thenAlways(invalidation);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterPatch(Context context, PatchRequest patchRequest,
+            RequestHandler handler) {
+        Runnable invalidation = invalidate(patchRequest);
+        return handler.handlePatch(context, patchRequest).thenAlways(invalidation);
+    }
+
+    @Override
+    public Promise<QueryResponse, ResourceException> filterQuery(Context context, QueryRequest queryRequest,
+            QueryResourceHandler queryResourceHandler, RequestHandler handler) {
+        return handler.handleQuery(context, queryRequest, queryResourceHandler);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterRead(Context context, ReadRequest readRequest,
+            RequestHandler handler) {
+        return handler.handleRead(context, readRequest);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterUpdate(Context context, UpdateRequest updateRequest,
+            RequestHandler handler) {
+        Runnable invalidation = invalidate(updateRequest);
+        return handler.handleUpdate(context, updateRequest).thenAlways(invalidation);
+    }
+
+    /**
+     * Invalidates the users the request may write to, and returns a callback to invalidate them again once the
+     * request completes.
+     */
+    private Runnable invalidate(Request request) {
+        final ResourcePath path = request.getResourcePathObject();
+        invalidate(path);
+        return new Runnable() {
+            @Override
+            public void run() {
+                invalidate(path);
+            }
+        };
+    }
+
+    private void invalidate(ResourcePath path) {
+        for (AuthenticationCache cache : caches) {
+            cache.invalidate(path);
+        }
+    }
+}
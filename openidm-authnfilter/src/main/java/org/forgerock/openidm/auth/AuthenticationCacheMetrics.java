@@ -0,0 +1,75 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.auth;
+
+import java.util.Collection;
+
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.MetricsRegistry;
+import org.forgerock.openidm.metrics.MetricsWriter;
+
+/**
+ * Writes the hits and misses of the authentication caches.
+ * <p>
+ * The metrics package is an optional import of this bundle; this is the only class referring to it besides the
+ * reference to the {@link MetricsRegistry}, and it is only loaded once a registry is bound.
+ */
+class AuthenticationCacheMetrics implements Collector {
+
+    private final Collection<AuthenticationCache> caches;
+
+    /**
+     * @param caches the authentication caches, a live view
+     */
+    AuthenticationCacheMetrics(Collection<AuthenticationCache> caches) {
+        this.caches = caches;
+    }
+
+    /**
+     * @param metricsRegistry the registry to register the metrics with
+     */
+    void register(MetricsRegistry metricsRegistry) {
+        metricsRegistry.register(this);
+    }
+
+    /**
+     * @param metricsRegistry the registry to unregister the metrics from
+     */
+    void unregister(MetricsRegistry metricsRegistry) {
+        metricsRegistry.unregister(this);
+    }
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        writer.family("openidm_authentication_cache_hits_total", "counter",
+                "Authentications served from the authentication cache");
+        for (AuthenticationCache cache : caches) {
+            writer.sample("openidm_authentication_cache_hits_total", cache.getHits(),
+                    "resource", cache.getResourcePath().toString());
+        }
+        writer.family("openidm_authentication_cache_misses_total", "counter",
+                "Authentications not found in the authentication cache");
+        for (AuthenticationCache cache : caches) {
+            writer.sample("openidm_authentication_cache_misses_total", cache.getMisses(),
+                    "resource", cache.getResourcePath().toString());
+        }
+        writer.family("openidm_authentication_cache_entries", "gauge", "Users in the authentication cache");
+        for (AuthenticationCache cache : caches) {
+            writer.sample("openidm_authentication_cache_entries", cache.size(),
+                    "resource", cache.getResourcePath().toString());
+        }
+    }
+}
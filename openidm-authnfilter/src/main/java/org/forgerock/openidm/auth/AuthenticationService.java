@@ -101,7 +101,9 @@ import org.forgerock.openidm.idp.impl.IdentityProviderServiceException;
 import org.forgerock.openidm.idp.impl.ProviderConfigMapper;
 import org.forgerock.openidm.idp.impl.api.IdentityProviderServiceResourceWithNoSecret;
 import org.forgerock.openidm.keystore.SharedKeyService;
+import org.forgerock.openidm.metrics.MetricsRegistry;
 import org.forgerock.openidm.router.IDMConnectionFactory;
+import org.forgerock.openidm.router.RouterFilterRegistration;
 import org.forgerock.openidm.util.HeaderUtil;
 import org.forgerock.openidm.util.JettyPropertyUtil;
 import org.forgerock.script.ScriptRegistry;
@@ -285,6 +287,67 @@ public class AuthenticationService implements SingletonResourceProvider, Identit
     private final AuthenticatorFactory toAuthenticatorFromProperties =
             new AuthenticatorFactory(connectionFactoryProvider, cryptoServiceProvider);
 
+    /** A router filter invalidating the authentication caches of the authenticators on writes to the users */
+    private final AuthenticationCacheFilter authenticationCacheFilter =
+            new AuthenticationCacheFilter(toAuthenticatorFromProperties.getAuthenticationCaches());
+
+    /** Writes the hits and misses of the authentication caches, created once a metrics registry is bound */
+    private volatile AuthenticationCacheMetrics metrics;
+
+    /**
+     * Adds the router filter invalidating the authentication caches.
+     *
+     * @param filterRegistration the router filter registration
+     */
+    @Reference(
+            name = "RouterFilterRegistration",
+            service = RouterFilterRegistration.class,
+            unbind = "unbindRouterFilterRegistration",
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC)
+    void bindRouterFilterRegistration(RouterFilterRegistration filterRegistration) {
+        filterRegistration.addFilter(authenticationCacheFilter);
+    }
+
+    /**
+     * Removes the router filter invalidating the authentication caches.
+     *
+     * @param filterRegistration the router filter registration
+     */
+    void unbindRouterFilterRegistration(RouterFilterRegistration filterRegistration) {
+        filterRegistration.removeFilter(authenticationCacheFilter);
+    }
+
+    /**
+     * Registers the authentication cache metrics.
+     *
+     * @param metricsRegistry the metrics registry
+     */
+    @Reference(
+            name = "MetricsRegistry",
+            service = MetricsRegistry.class,
+            unbind = "unbindMetricsRegistry",
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC)
+    void bindMetricsRegistry(MetricsRegistry metricsRegistry) {
+        // Not created before, the metrics package is an optional import
+        if (metrics == null) {
+            metrics = new AuthenticationCacheMetrics(toAuthenticatorFromProperties.getAuthenticationCaches());
+        }
+        metrics.register(metricsRegistry);
+    }
+
+    /**
+     * Unregisters the authentication cache metrics.
+     *
+     * @param metricsRegistry the metrics registry
+     */
+    void unbindMetricsRegistry(MetricsRegistry metricsRegistry) {
+        if (metrics != null) {
+            metrics.unregister(metricsRegistry);
+        }
+    }
+
     /** A {@link Predicate} that returns whether the auth module is enabled */
     private static final Predicate<JsonValue> enabledAuthModules =
             new Predicate<JsonValue>() {
@@ -510,6 +573,7 @@ public class AuthenticationService implements SingletonResourceProvider, Identit
         // filter enabled module configs and get their properties;
         // then filter those with valid auth properties, and build an authenticator
         authenticators.clear();
+        clearAuthenticationCaches();
         authenticators.addAll(FluentIterable.from(authModuleConfig)
                 .filter(enabledAuthModules)
                 .transform(toModuleProperties)
@@ -542,6 +606,7 @@ public class AuthenticationService implements SingletonResourceProvider, Identit
         logger.debug("OpenIDM Config for Authentication {} is deactivated.", config.get(Constants.SERVICE_PID));
         config = null;
         authenticators.clear();
+        clearAuthenticationCaches();
 
         // remove CAF filter from CHF filter wrapper
         if (authFilterWrapper != null) {
@@ -553,6 +618,15 @@ public class AuthenticationService implements SingletonResourceProvider, Identit
         }
     }
 
+    /**
+     * Forgets the users authenticated, as the authenticators may now read them differently.
+     */
+    private void clearAuthenticationCaches() {
+        for (AuthenticationCache cache : toAuthenticatorFromProperties.getAuthenticationCaches()) {
+            cache.clear();
+        }
+    }
+
     /**
      * Configures the commons Authentication Filter with the given configuration.
      *
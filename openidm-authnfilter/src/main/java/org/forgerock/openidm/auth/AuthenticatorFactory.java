@@ -16,6 +16,10 @@
 
 package org.forgerock.openidm.auth;
 
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import javax.inject.Provider;
 
 import org.forgerock.guava.common.base.Function;
@@ -40,9 +44,13 @@ public class AuthenticatorFactory implements Function<JsonValue, Authenticator>
     private static final String USERNAME_PROPERTY = "username";
     /** property for the password if using static authentication */
     private static final String PASSWORD_PROPERTY = "password";
+    /** property for the authentication cache of a query authenticator */
+    private static final String AUTHENTICATION_CACHE_PROPERTY = "authenticationCache";
 
     private final Provider<ConnectionFactory> connectionFactoryProvider;
     private final Provider<CryptoService> cryptoServiceProvider;
+    /** the authentication caches of the query authenticators, by resource and query id */
+    private final ConcurrentMap<String, AuthenticationCache> caches = new ConcurrentHashMap<>();
 
     public AuthenticatorFactory(final Provider<ConnectionFactory> connectionFactoryProvider,
             final Provider<CryptoService> cryptoServiceProvider) {
@@ -60,12 +68,15 @@ public class AuthenticatorFactory implements Function<JsonValue, Authenticator>
     @Override
     public Authenticator apply(JsonValue jsonValue) {
         if (!jsonValue.get(QUERY_ID).isNull()) {
+            final String queryOnResource = jsonValue.get(QUERY_ON_RESOURCE).required().asString();
+            final String queryId = jsonValue.get(QUERY_ID).required().asString();
             return new ResourceQueryAuthenticator(cryptoServiceProvider, connectionFactoryProvider,
-                    jsonValue.get(QUERY_ON_RESOURCE).required().asString(),
-                    jsonValue.get(QUERY_ID).required().asString(),
+                    queryOnResource,
+                    queryId,
                     jsonValue.get(PROPERTY_MAPPING).get(AUTHENTICATION_ID).required().asString(),
                     jsonValue.get(PROPERTY_MAPPING).get(USER_CREDENTIAL).required().asString(),
-                    jsonValue.get(PROPERTY_MAPPING).get(USER_ROLES).asString());
+                    jsonValue.get(PROPERTY_MAPPING).get(USER_ROLES).asString(),
+                    newAuthenticationCache(queryOnResource, queryId, jsonValue.get(AUTHENTICATION_CACHE_PROPERTY)));
         } else if (!jsonValue.get(USERNAME_PROPERTY).isNull()
                 && !jsonValue.get(PASSWORD_PROPERTY).isNull()) {
             return new StaticAuthenticator(
@@ -76,4 +87,38 @@ public class AuthenticatorFactory implements Function<JsonValue, Authenticator>
                     jsonValue.get(QUERY_ON_RESOURCE).required().asString());
         }
     }
+
+    /**
+     * Gets the authentication cache of a query authenticator, replacing the cache of the authenticator it was
+     * configured with before if the settings changed.
+     *
+     * @param queryOnResource the resource the users are queried on
+     * @param queryId the query id
+     * @param config the authentication cache configuration; enabled, maxEntries and timeToLive in milliseconds
+     * @return the cache, or null if not enabled
+     */
+    private AuthenticationCache newAuthenticationCache(String queryOnResource, String queryId, JsonValue config) {
+        final String key = queryOnResource + "?" + queryId;
+        if (!config.get("enabled").defaultTo(false).asBoolean()) {
+            caches.remove(key);
+            return null;
+        }
+        final long timeToLive = config.get("timeToLive").defaultTo(5000L).asLong();
+        final int maxEntries = config.get("maxEntries").defaultTo(1000).asInteger();
+        final AuthenticationCache current = caches.get(key);
+        if (current != null && current.hasSettings(timeToLive, maxEntries)) {
+            // the authenticators of an auth module, and of its re-authentication, share the cache
+            return current;
+        }
+        final AuthenticationCache cache = new AuthenticationCache(queryOnResource, timeToLive, maxEntries);
+        caches.put(key, cache);
+        return cache;
+    }
+
+    /**
+     * @return the authentication caches of the query authenticators, a live view
+     */
+    Collection<AuthenticationCache> getAuthenticationCaches() {
+        return caches.values();
+    }
 }
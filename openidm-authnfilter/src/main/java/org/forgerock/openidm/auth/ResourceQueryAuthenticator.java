@@ -52,6 +52,7 @@ class ResourceQueryAuthenticator implements Authenticator {
     private final String userRolesProperty;
     private final String authenticationIdProperty;
     private final String userCredentialProperty;
+    private final AuthenticationCache cache;
 
     /**
      * Constructs an instance of the ResourceQueryAuthenticator.
@@ -65,6 +66,24 @@ class ResourceQueryAuthenticator implements Authenticator {
      */
     public ResourceQueryAuthenticator(Provider<CryptoService> cryptoService, Provider<ConnectionFactory> connectionFactory,
             String queryOnResource, String queryId,  String authenticationIdProperty, String userCredentialProperty, String userRolesProperty) {
+        this(cryptoService, connectionFactory, queryOnResource, queryId, authenticationIdProperty,
+                userCredentialProperty, userRolesProperty, null);
+    }
+
+    /**
+     * Constructs an instance of the ResourceQueryAuthenticator remembering the users authenticated.
+     * @param cryptoService The CryptoService.
+     * @param connectionFactory The ConnectionFactory.
+     * @param queryOnResource The query resource.
+     * @param queryId The query id.
+     * @param authenticationIdProperty The user id property.
+     * @param userCredentialProperty The user credential property.
+     * @param userRolesProperty The property for reading authorization roles
+     * @param cache The users recently authenticated, or null to always query and verify the user.
+     */
+    ResourceQueryAuthenticator(Provider<CryptoService> cryptoService, Provider<ConnectionFactory> connectionFactory,
+            String queryOnResource, String queryId,  String authenticationIdProperty, String userCredentialProperty,
+            String userRolesProperty, AuthenticationCache cache) {
 
         Reject.ifNull(cryptoService, "CryptoService is null");
         Reject.ifNull(connectionFactory, "ConnectionFactory is null");
@@ -80,6 +99,7 @@ class ResourceQueryAuthenticator implements Authenticator {
         this.authenticationIdProperty = authenticationIdProperty;
         this.userCredentialProperty = userCredentialProperty;
         this.userRolesProperty = userRolesProperty;
+        this.cache = cache;
     }
 
     /**
@@ -95,6 +115,24 @@ class ResourceQueryAuthenticator implements Authenticator {
         Reject.ifNull(username, "Provided username was null");
         Reject.ifNull(context, "Router context was null");
 
+        if (cache == null || password == null) {
+            return authenticateUser(username, password, context);
+        }
+        final ResourceResponse cached = cache.get(username, password);
+        if (cached != null) {
+            logger.debug("Authentication succeeded for {} from the authentication cache", username);
+            return AuthenticatorResult.authenticationSuccess(cached);
+        }
+        final long generation = cache.generation();
+        final AuthenticatorResult result = authenticateUser(username, password, context);
+        if (result.isAuthenticated() && result.getResource() != null) {
+            cache.put(username, password, result.getResource(), generation);
+        }
+        return result;
+    }
+
+    private AuthenticatorResult authenticateUser(String username, String password, Context context)
+            throws ResourceException {
         final CryptoService cryptoService = cryptoServiceProvider.get();
         if (cryptoService == null) {
             throw new InternalServerErrorException("No CryptoService available");
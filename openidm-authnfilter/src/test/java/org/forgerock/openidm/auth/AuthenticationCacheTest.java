@@ -0,0 +1,169 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Requests.newUpdateRequest;
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import javax.inject.Provider;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.Connection;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.RequestHandler;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourcePath;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.UpdateRequest;
+import org.forgerock.openidm.crypto.CryptoService;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.forgerock.util.promise.Promises;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+public class AuthenticationCacheTest {
+
+    private static final ResourceResponse USER = newResourceResponse("bjensen-id", "1",
+            json(object(field("userName", "bjensen"), field("password", "{hashed}"))));
+
+    @Test
+    public void testHitWithSameCredentials() {
+        AuthenticationCache cache = new AuthenticationCache("managed/user", 60000L, 10);
+        cache.put("bjensen", "Passw0rd", USER, cache.generation());
+
+        ResourceResponse cached = cache.get("bjensen", "Passw0rd");
+
+        assertThat(cached.getId()).isEqualTo("bjensen-id");
+        assertThat(cached.getContent().isEqualTo(USER.getContent())).isTrue();
+        assertThat(cache.get("bjensen", "wrong")).isNull();
+        assertThat(cache.get("scarter", "Passw0rd")).isNull();
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void testExpiredEntryIsMissed() {
+        AuthenticationCache cache = new AuthenticationCache("managed/user", 0L, 10);
+        cache.put("bjensen", "Passw0rd", USER, cache.generation());
+
+        assertThat(cache.get("bjensen", "Passw0rd")).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testWriteToUserInvalidatesEntry() {
+        AuthenticationCache cache = new AuthenticationCache("managed/user", 60000L, 10);
+        cache.put("bjensen", "Passw0rd", USER, cache.generation());
+        cache.put("scarter", "Passw0rd", newResourceResponse("scarter-id", "1", json(object())), cache.generation());
+
+        cache.invalidate(ResourcePath.valueOf("managed/role/admin"));
+        assertThat(cache.size()).isEqualTo(2);
+
+        cache.invalidate(ResourcePath.valueOf("repo/managed/user/bjensen-id"));
+        assertThat(cache.get("bjensen", "Passw0rd")).isNull();
+        assertThat(cache.get("scarter", "Passw0rd")).isNotNull();
+
+        cache.invalidate(ResourcePath.valueOf("managed/user"));
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testUserReadBeforeInvalidationIsNotCached() {
+        AuthenticationCache cache = new AuthenticationCache("repo/internal/user", 60000L, 10);
+        long generation = cache.generation();
+
+        cache.invalidate(ResourcePath.valueOf("repo/internal/user/openidm-admin/password"));
+        cache.put("bjensen", "Passw0rd", USER, generation);
+
+        assertThat(cache.get("bjensen", "Passw0rd")).isNull();
+    }
+
+    @Test
+    public void testNumberOfEntriesIsBounded() {
+        AuthenticationCache cache = new AuthenticationCache("managed/user", 60000L, 3);
+        for (int i = 0; i < 10; i++) {
+            cache.put("user" + i, "Passw0rd", USER, cache.generation());
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(3);
+        assertThat(cache.get("user9", "Passw0rd")).isNotNull();
+    }
+
+    @Test
+    public void testAuthenticatorQueriesUserOncePerWrite() throws Exception {
+        final CryptoService cryptoService = mock(CryptoService.class);
+        when(cryptoService.isHashed(any(JsonValue.class))).thenReturn(true);
+        when(cryptoService.matches(anyString(), any(JsonValue.class))).thenReturn(true);
+        final ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        final Connection connection = mock(Connection.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        doAnswer(new Answer<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object answer(InvocationOnMock invocation) {
+                ((Collection<ResourceResponse>) invocation.getArguments()[2]).add(USER);
+                return null;
+            }
+        }).when(connection).query(any(Context.class), any(QueryRequest.class), any(Collection.class));
+
+        AuthenticationCache cache = new AuthenticationCache("managed/user", 60000L, 10);
+        ResourceQueryAuthenticator authenticator = new ResourceQueryAuthenticator(
+                new Provider<CryptoService>() {
+                    @Override
+                    public CryptoService get() {
+                        return cryptoService;
+                    }
+                },
+                new Provider<ConnectionFactory>() {
+                    @Override
+                    public ConnectionFactory get() {
+                        return connectionFactory;
+                    }
+                },
+                "managed/user", "credential-query", "userName", "password", null, cache);
+        AuthenticationCacheFilter filter = new AuthenticationCacheFilter(Collections.singleton(cache));
+
+        assertThat(authenticator.authenticate("bjensen", "Passw0rd", new RootContext()).isAuthenticated()).isTrue();
+        assertThat(authenticator.authenticate("bjensen", "Passw0rd", new RootContext()).isAuthenticated()).isTrue();
+        verify(connection, times(1)).query(any(Context.class), any(QueryRequest.class), any(Collection.class));
+
+        RequestHandler handler = mock(RequestHandler.class);
+        when(handler.handleUpdate(any(Context.class), any(UpdateRequest.class)))
+                .thenReturn(Promises.<ResourceResponse, ResourceException>newResultPromise(USER));
+        filter.filterUpdate(new RootContext(), newUpdateRequest("managed/user/bjensen-id", json(object())), handler);
+        assertThat(authenticator.authenticate("bjensen", "Passw0rd", new RootContext()).isAuthenticated()).isTrue();
+        verify(connection, times(2)).query(any(Context.class), any(QueryRequest.class), any(Collection.class));
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+}
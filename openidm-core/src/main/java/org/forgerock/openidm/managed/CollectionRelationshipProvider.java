@@ -141,6 +141,19 @@ class CollectionRelationshipProvider extends RelationshipProvider implements Col
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected JsonValue toRelationshipValue(final String resourceFullPath,
+            final List<ResourceResponse> relationships) {
+        final JsonValue buf = json(array());
+
+        for (ResourceResponse relationship : relationships) {
+            buf.add(formatRelationship(resourceFullPath, relationship).getContent().getObject());
+        }
+
+        return buf;
+    }
+
     @Override
     public Promise<JsonValue, ResourceException> setRelationshipValueForResource(final boolean clearExisting, Context context, String resourceId,
             JsonValue relationships) {
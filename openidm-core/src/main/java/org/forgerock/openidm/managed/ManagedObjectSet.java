@@ -70,6 +70,7 @@ import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.json.resource.SortKey;
 import org.forgerock.json.resource.UpdateRequest;
 import org.forgerock.openidm.audit.util.ActivityLogger;
+import org.forgerock.openidm.audit.util.QueryResultSummary;
 import org.forgerock.openidm.audit.util.RouterActivityLogger;
 import org.forgerock.openidm.audit.util.Status;
 import org.forgerock.openidm.core.IdentityServer;
@@ -82,6 +83,7 @@ import org.forgerock.openidm.smartevent.EventEntry;
 import org.forgerock.openidm.smartevent.Name;
 import org.forgerock.openidm.smartevent.Publisher;
 import org.forgerock.openidm.sync.SyncContext;
+import org.forgerock.openidm.sync.impl.SyncQueue;
 import org.forgerock.openidm.sync.impl.SynchronizationService;
 import org.forgerock.openidm.util.ContextUtil;
 import org.forgerock.openidm.util.RelationshipUtil;
@@ -194,6 +196,15 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
     /** Flag for indicating if policy enforcement is enabled */
     private final boolean enforcePolicies;
 
+    /** The number of query results to fetch the relationship fields of at once */
+    private final int relationshipBatchSize;
+
+    /** Whether query results are logged, the activity log only logs them with full objects */
+    private final boolean logQueryResults;
+
+    /** Whether logged query results are summarized rather than logged in full */
+    private final boolean summarizeQueryResults;
+
     private final JsonValue config;
 
     /**
@@ -274,6 +285,12 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
 
         enforcePolicies = Boolean.parseBoolean(IdentityServer.getInstance()
                 .getProperty("openidm.policy.enforcement.enabled", "true"));
+        relationshipBatchSize = Math.max(1, Integer.parseInt(IdentityServer.getInstance()
+                .getProperty("openidm.managed.relationships.batchsize", "100")));
+        logQueryResults = Boolean.parseBoolean(IdentityServer.getInstance()
+                .getProperty(RouterActivityLogger.OPENIDM_AUDIT_LOG_FULL_OBJECTS, "false"));
+        summarizeQueryResults = Boolean.parseBoolean(IdentityServer.getInstance()
+                .getProperty(QueryResultSummary.OPENIDM_AUDIT_SUMMARIZE_QUERY_RESULTS, "false"));
         logger.debug("Instantiated managed object set: {}", name);
     }
 
@@ -893,36 +910,17 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
         try {
             final JsonValue joined = json(object());
 
-            /*
-             * Create set only containing the head of request fields
-             * Allows for a relationship to be fetched when only an expansion is requested.
-             * ie. a field of foo/name will retrieve the foo relationship
-             */
-            final Set<JsonPointer> fieldHeads = new HashSet<>();
-            for (JsonPointer field : requestFields) {
-                // A blank _fields param can yield a single '/' (empty) pointer
-                if (!field.isEmpty()) {
-                    fieldHeads.add(new JsonPointer(field.get(0)));
-                }
-            }
-
-            for (Map.Entry<JsonPointer, RelationshipProvider> entry : relationshipProviders.entrySet()) {
+            for (Map.Entry<JsonPointer, RelationshipProvider> entry
+                    : getRequestedRelationshipProviders(requestFields).entrySet()) {
                 final JsonPointer field = entry.getKey();
                 final RelationshipProvider provider = entry.getValue();
 
-                if (requestFields.contains(SchemaField.FIELD_ALL_RELATIONSHIPS)
-                        || provider.getSchemaField().isReturnedByDefault()
-                        || fieldHeads.contains(field)) { // only check head of request fields (see above)
-                    try {
-                        joined.put(field, provider.getRelationshipValueForResource(context,
-                                resourceId).getOrThrow().getObject());
-                    } catch (NotFoundException e) {
-                        logger.debug("No {} relationships found for {}", field, resourceId);
-                        joined.put(field, null);
-                    }
-                } else {
-                    // relationship was not requested or set to return by default
-                    logger.debug("Relationship field {} skipped", field);
+                try {
+                    joined.put(field, provider.getRelationshipValueForResource(context,
+                            resourceId).getOrThrow().getObject());
+                } catch (NotFoundException e) {
+                    logger.debug("No {} relationships found for {}", field, resourceId);
+                    joined.put(field, null);
                 }
             }
 
@@ -932,6 +930,83 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
         }
     }
 
+    /**
+     * Fetch the current relationship(s) of several resources, as {@link #fetchRelationshipFields} does for a single
+     * resource, and add them to the resources. The relationships of each field are fetched for all the resources at
+     * once.
+     *
+     * @param context The current context
+     * @param resources The resources to fetch and add relationships of
+     * @param requestFields The fields requested in the initial request
+     * @throws ResourceException if fetching the relationships failed
+     */
+    private void populateRelationshipFields(final Context context, final List<ResourceResponse> resources,
+            final List<JsonPointer> requestFields) throws ResourceException {
+        final List<String> resourceIds = new ArrayList<>(resources.size());
+        for (ResourceResponse resource : resources) {
+            resourceIds.add(resource.getId());
+        }
+        EventEntry measure = Publisher.start(Name.get("openidm/internal/managed/set/populateRelationshipFields"),
+                resourceIds, context);
+
+        try {
+            for (Map.Entry<JsonPointer, RelationshipProvider> entry
+                    : getRequestedRelationshipProviders(requestFields).entrySet()) {
+                final JsonPointer field = entry.getKey();
+                final Map<String, JsonValue> values =
+                        entry.getValue().getRelationshipValuesForResources(context, resourceIds);
+
+                for (ResourceResponse resource : resources) {
+                    final JsonValue value = values.get(resource.getId());
+                    resource.getContent().put(field, value != null ? value.getObject() : null);
+                }
+            }
+        } finally {
+            measure.end();
+        }
+    }
+
+    /**
+     * Returns the providers of the relationship fields set to be returned by default or specified in the request
+     * fields.
+     *
+     * @param requestFields The fields requested in the initial request
+     * @return the requested relationship fields and their providers
+     */
+    private Map<JsonPointer, RelationshipProvider> getRequestedRelationshipProviders(
+            final List<JsonPointer> requestFields) {
+        final Map<JsonPointer, RelationshipProvider> requested = new LinkedHashMap<>();
+
+        /*
+         * Create set only containing the head of request fields
+         * Allows for a relationship to be fetched when only an expansion is requested.
+         * ie. a field of foo/name will retrieve the foo relationship
+         */
+        final Set<JsonPointer> fieldHeads = new HashSet<>();
+        for (JsonPointer field : requestFields) {
+            // A blank _fields param can yield a single '/' (empty) pointer
+            if (!field.isEmpty()) {
+                fieldHeads.add(new JsonPointer(field.get(0)));
+            }
+        }
+
+        for (Map.Entry<JsonPointer, RelationshipProvider> entry : relationshipProviders.entrySet()) {
+            final JsonPointer field = entry.getKey();
+            final RelationshipProvider provider = entry.getValue();
+
+            if (requestFields.contains(SchemaField.FIELD_ALL_RELATIONSHIPS)
+                    || provider.getSchemaField().isReturnedByDefault()
+                    || fieldHeads.contains(field)) { // only check head of request fields (see above)
+                requested.put(field, provider);
+            } else {
+                // relationship was not requested or set to return by default
+                logger.debug("Relationship field {} skipped", field);
+            }
+        }
+
+        return requested;
+    }
+
     /**
      * This will traverse the jsonValue and validate that all relationship references are valid and available for
      * assignment.
@@ -1254,7 +1329,9 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
         // The onRetrieve script should only be run queries that return full managed objects
         final boolean onRetrieve = executeOnRetrieve != null && Boolean.parseBoolean(executeOnRetrieve);
 
-        final List<Map<String,Object>> results = new ArrayList<Map<String,Object>>();
+        final QueryResultLog results = new QueryResultLog();
+        // Results waiting for their relationship fields to be populated
+        final List<ResourceResponse> window = new ArrayList<>();
         final ResourceException[] ex = new ResourceException[]{null};
         try {
             // Create new QueryRequest to send to the repository
@@ -1276,7 +1353,6 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
             		new QueryResourceHandler() {
                 @Override
                 public boolean handleResource(ResourceResponse resource) {
-                    ResourceResponse resourceResponse = null;
                     // Check if the onRetrieve script should be run
                     if (onRetrieve) {
                         try {
@@ -1288,33 +1364,34 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
                     }
                     if (ServerConstants.QUERY_ALL_IDS.equals(request.getQueryId())) {
                         // Don't populate relationships if this is a query-all-ids query.
-                        resourceResponse = resource;    
-                    } else {
-                        // Populate the relationship fields
-                        try {
-                            JsonValue relationships = fetchRelationshipFields(managedContext, resource.getId(), request.getFields());
-                            resource.getContent().asMap().putAll(relationships.asMap());
-                            resourceResponse = prepareResponse(managedContext, resource, request.getFields());
-                        } catch (ResourceException e) {
-                            ex[0] = e;
-                            return false;
-                        } catch (Exception e) {
-                            ex[0] = new InternalServerErrorException(e.getMessage(), e);
-                            return false;
-                        }
+                        results.add(resource);
+                        return handler.handleResource(prepareResponse(managedContext, resource, request.getFields()));
+                    }
+                    // Populate the relationship fields once the window is full
+                    window.add(resource);
+                    if (window.size() < relationshipBatchSize) {
+                        return true;
+                    }
+                    try {
+                        return handleQueryResults(managedContext, request, window, results, handler);
+                    } catch (ResourceException e) {
+                        ex[0] = e;
+                        return false;
+                    } catch (Exception e) {
+                        ex[0] = new InternalServerErrorException(e.getMessage(), e);
+                        return false;
                     }
-                    results.add(resourceResponse.getContent().asMap());
-                    return handler.handleResource(prepareResponse(managedContext, resourceResponse, request.getFields()));
                 }
             });
         	
         	if(ex[0] != null) {
             	return ex[0].asPromise();
         	}
+        	handleQueryResults(managedContext, request, window, results, handler);
         	
             activityLogger.log(managedContext, request, 
             		"query: " + request.getQueryId() + ", parameters: " + request.getAdditionalParameters(), 
-            		request.getQueryId(), null, new JsonValue(results), Status.SUCCESS);
+            		request.getQueryId(), null, results.toJsonValue(), Status.SUCCESS);
             
         	return queryResponse.asPromise();
 
@@ -1325,6 +1402,35 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
         }
     }
 
+    /**
+     * Populates the relationship fields of a window of query results and passes them on to the query handler.
+     *
+     * @param context The current context
+     * @param request The query request
+     * @param window The query results waiting for their relationship fields, cleared when handled
+     * @param results The results handled so far, for the activity log
+     * @param handler The query handler
+     * @return false if the query handler does not accept any more results
+     * @throws ResourceException if fetching the relationships failed
+     */
+    private boolean handleQueryResults(final Context context, final QueryRequest request,
+            final List<ResourceResponse> window, final QueryResultLog results,
+            final QueryResourceHandler handler) throws ResourceException {
+        try {
+            populateRelationshipFields(context, window, request.getFields());
+            for (ResourceResponse resource : window) {
+                ResourceResponse resourceResponse = prepareResponse(context, resource, request.getFields());
+                results.add(resourceResponse);
+                if (!handler.handleResource(prepareResponse(context, resourceResponse, request.getFields()))) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            window.clear();
+        }
+    }
+
     @Override
     public Promise<ActionResponse, ResourceException> actionInstance(Context context, String resourceId,
     		ActionRequest request) {
@@ -1746,6 +1852,11 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
                 logger.debug("onSync script not defined or not active");
                 return;
             }
+            if (success && details.get(SyncQueue.QUEUED).defaultTo(false).asBoolean()) {
+                // The synchronization is performed later by the queue, without a result to report here
+                logger.debug("onSync script not supported for queued {} of {}", action.name(), resourceId);
+                return;
+            }
 
             try {
             	// Execute the sync script
@@ -1846,4 +1957,30 @@ class ManagedObjectSet implements CollectionResourceProvider, ScriptListener, Ma
         }
         return false;
     }
+
+    /**
+     * The results of a query kept for the activity log: none unless full objects are logged, the results in full,
+     * or a summary of them if {@value QueryResultSummary#OPENIDM_AUDIT_SUMMARIZE_QUERY_RESULTS} is set.
+     */
+    private final class QueryResultLog {
+        private final List<Map<String, Object>> results =
+                logQueryResults && !summarizeQueryResults ? new ArrayList<Map<String, Object>>() : null;
+        private final QueryResultSummary summary =
+                logQueryResults && summarizeQueryResults ? new QueryResultSummary() : null;
+
+        void add(ResourceResponse resource) {
+            if (results != null) {
+                results.add(resource.getContent().asMap());
+            } else if (summary != null) {
+                summary.add(resource.getId(), resource.getContent().asMap());
+            }
+        }
+
+        JsonValue toJsonValue() {
+            if (results != null) {
+                return new JsonValue(results);
+            }
+            return summary != null ? summary.toJsonValue() : null;
+        }
+    }
 }
@@ -31,10 +31,13 @@ import static org.forgerock.util.promise.Promises.newResultPromise;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.forgerock.http.routing.UriRouterContext;
@@ -48,8 +51,11 @@ import org.forgerock.json.resource.ConnectionFactory;
 import org.forgerock.json.resource.CreateRequest;
 import org.forgerock.json.resource.DeleteRequest;
 import org.forgerock.json.resource.InternalServerErrorException;
+import org.forgerock.json.resource.NotFoundException;
 import org.forgerock.json.resource.PatchRequest;
 import org.forgerock.json.resource.PreconditionFailedException;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
 import org.forgerock.json.resource.ReadRequest;
 import org.forgerock.json.resource.Request;
 import org.forgerock.json.resource.RequestHandler;
@@ -106,6 +112,12 @@ public abstract class RelationshipProvider {
     /** An optimized relationship query ID */
     protected static final String RELATIONSHIP_QUERY_ID = "find-relationships-for-resource";
     
+    /** A relationship query ID finding the relationships of several resources at once */
+    protected static final String RELATIONSHIP_BATCH_QUERY_ID = "find-relationships-for-resources";
+
+    /** A query field representing the comma separated full paths of several managed object instances */
+    protected static final String QUERY_FIELD_RESOURCE_PATHS = "fullResourceIds";
+
     /** A query field representing the full path of the managed object instance of this relationship field  */
     protected static final String QUERY_FIELD_RESOURCE_PATH = "fullResourceId";
     
@@ -205,43 +217,55 @@ public abstract class RelationshipProvider {
                 
                 @Override
                 public ResourceResponse apply(final ResourceResponse raw) {
-                    final JsonValue rawContent = raw.getContent();
-                    final JsonValue formatted = json(object());
-                    final Map<String, Object> properties = new LinkedHashMap<>();
-                    final Map<String, Object> repoProperties = rawContent.get(REPO_FIELD_PROPERTIES).asMap();
-                    final String ref;
-
-                    // set the field reference
-                    if (schemaField.isReverseRelationship()
-                            && !rawContent.get(REPO_FIELD_FIRST_ID).asString().equals(resourceFullPath)) {
-                        ref = rawContent.get(REPO_FIELD_FIRST_ID).asString();
-                    } else {
-                        ref = rawContent.get(REPO_FIELD_SECOND_ID).asString();
-                    }
-
-                    if (repoProperties != null) {
-                        properties.putAll(repoProperties);
-                    }
-
-                    properties.put(FIELD_CONTENT_ID, raw.getId());
-                    properties.put(FIELD_CONTENT_REVISION, raw.getRevision());
-
-                    formatted.put(SchemaField.FIELD_REFERENCE, ref);
-                    formatted.put(SchemaField.FIELD_PROPERTIES, properties);
-
-                    // If has error, append error flag and message.
-                    if (rawContent.get(REFERENCE_ERROR).defaultTo(false).asBoolean()) {
-                        formatted.put(REFERENCE_ERROR, true);
-                        formatted.put(REFERENCE_ERROR_MESSAGE,
-                                rawContent.get(REFERENCE_ERROR_MESSAGE).defaultTo("").asString());
-                    }
-
-                    // Return the resource without _id or _rev
-                    return newResourceResponse(null, null, formatted);
+                    return formatRelationship(resourceFullPath, raw);
                 }
             };
     }
 
+    /**
+     * Formats a relationship from the repository for the given resource.
+     *
+     * @param resourceFullPath The full path of the resource the relationship is read for
+     * @param raw The relationship from the repository
+     * @return The relationship in the format expected by the provider consumer
+     * @see #formatResponseNoException(Context, Request)
+     */
+    protected ResourceResponse formatRelationship(final String resourceFullPath, final ResourceResponse raw) {
+        final JsonValue rawContent = raw.getContent();
+        final JsonValue formatted = json(object());
+        final Map<String, Object> properties = new LinkedHashMap<>();
+        final Map<String, Object> repoProperties = rawContent.get(REPO_FIELD_PROPERTIES).asMap();
+        final String ref;
+
+        // set the field reference
+        if (schemaField.isReverseRelationship()
+                && !rawContent.get(REPO_FIELD_FIRST_ID).asString().equals(resourceFullPath)) {
+            ref = rawContent.get(REPO_FIELD_FIRST_ID).asString();
+        } else {
+            ref = rawContent.get(REPO_FIELD_SECOND_ID).asString();
+        }
+
+        if (repoProperties != null) {
+            properties.putAll(repoProperties);
+        }
+
+        properties.put(FIELD_CONTENT_ID, raw.getId());
+        properties.put(FIELD_CONTENT_REVISION, raw.getRevision());
+
+        formatted.put(SchemaField.FIELD_REFERENCE, ref);
+        formatted.put(SchemaField.FIELD_PROPERTIES, properties);
+
+        // If has error, append error flag and message.
+        if (rawContent.get(REFERENCE_ERROR).defaultTo(false).asBoolean()) {
+            formatted.put(REFERENCE_ERROR, true);
+            formatted.put(REFERENCE_ERROR_MESSAGE,
+                    rawContent.get(REFERENCE_ERROR_MESSAGE).defaultTo("").asString());
+        }
+
+        // Return the resource without _id or _rev
+        return newResourceResponse(null, null, formatted);
+    }
+
     /**
      * On a create of a relationship, this will sync the referenced object after the update is completed.
      */
@@ -339,6 +363,119 @@ public abstract class RelationshipProvider {
     public abstract Promise<JsonValue, ResourceException> getRelationshipValueForResource(Context context, 
             String resourceId);
 
+    /**
+     * Get the full relationship representations for this provider of several resources, using a single repo query
+     * for all of them. Resources are fetched one at a time if the repo does not define the
+     * {@value #RELATIONSHIP_BATCH_QUERY_ID} query, or if their ids can not be passed as a list query parameter.
+     *
+     * @param context Context of this request
+     * @param resourceIds Ids of the resources to fetch relationships on
+     *
+     * @return A map of resource ids to the full representation of their relationship, without an entry for
+     *         resources the relationship is not found on
+     * @throws ResourceException if an error occurred
+     */
+    public Map<String, JsonValue> getRelationshipValuesForResources(final Context context,
+            final Collection<String> resourceIds) throws ResourceException {
+        final Map<String, JsonValue> values = new HashMap<>();
+        final Map<String, String> batched = new LinkedHashMap<>();
+
+        for (String resourceId : resourceIds) {
+            if (resourceIds.size() > 1 && resourceId.indexOf(',') < 0) {
+                batched.put(resourceContainer.child(resourceId).toString(), resourceId);
+            } else {
+                putRelationshipValue(values, context, resourceId);
+            }
+        }
+        if (batched.isEmpty()) {
+            return values;
+        }
+
+        final Map<String, Map<String, ResourceResponse>> relationships;
+        try {
+            relationships = queryRelationships(context, batched.keySet());
+        } catch (BadRequestException e) {
+            logger.debug("Unable to query {}, fetching relationships per resource: {}",
+                    RELATIONSHIP_BATCH_QUERY_ID, e.getMessage());
+            for (String resourceId : batched.values()) {
+                putRelationshipValue(values, context, resourceId);
+            }
+            return values;
+        }
+
+        for (Map.Entry<String, Map<String, ResourceResponse>> entry : relationships.entrySet()) {
+            final JsonValue value = toRelationshipValue(entry.getKey(),
+                    new ArrayList<ResourceResponse>(entry.getValue().values()));
+            if (value != null) {
+                values.put(batched.get(entry.getKey()), value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Converts the relationships of a resource, as found in the repo by the {@value #RELATIONSHIP_BATCH_QUERY_ID}
+     * query, to the value returned by {@link #getRelationshipValueForResource(Context, String)}.
+     *
+     * @param resourceFullPath The full path of the resource
+     * @param relationships The relationships of the resource in the repo, possibly empty
+     * @return The full representation of the relationship, or null if it is not found
+     */
+    protected abstract JsonValue toRelationshipValue(String resourceFullPath, List<ResourceResponse> relationships);
+
+    /**
+     * Fetches the relationship of a single resource into the given map, if it is found.
+     */
+    private void putRelationshipValue(final Map<String, JsonValue> values, final Context context,
+            final String resourceId) throws ResourceException {
+        try {
+            values.put(resourceId, getRelationshipValueForResource(context, resourceId).getOrThrowUninterruptibly());
+        } catch (NotFoundException e) {
+            logger.debug("No {} relationships found for {}", schemaField.getName(), resourceId);
+        }
+    }
+
+    /**
+     * Queries the relationships of this provider's field on several resources.
+     *
+     * @param context Context of this request
+     * @param resourcePaths The full paths of the resources
+     * @return A map of the resource paths to their relationships in the repo, keyed by relationship id
+     * @throws ResourceException if the query failed
+     */
+    private Map<String, Map<String, ResourceResponse>> queryRelationships(final Context context,
+            final Set<String> resourcePaths) throws ResourceException {
+        final QueryRequest queryRequest = Requests.newQueryRequest(REPO_RESOURCE_PATH)
+                .setQueryId(RELATIONSHIP_BATCH_QUERY_ID)
+                .setAdditionalParameter(QUERY_FIELD_RESOURCE_PATHS, StringUtils.join(resourcePaths, ','))
+                .setAdditionalParameter(QUERY_FIELD_FIELD_NAME, schemaField.getName());
+        final Map<String, Map<String, ResourceResponse>> relationships = new LinkedHashMap<>();
+        for (String resourcePath : resourcePaths) {
+            relationships.put(resourcePath, new LinkedHashMap<String, ResourceResponse>());
+        }
+
+        getConnection().query(context, queryRequest, new QueryResourceHandler() {
+            @Override
+            public boolean handleResource(ResourceResponse relationship) {
+                // A relationship may be found on either end, and on both ends of a reverse relationship
+                final JsonValue content = relationship.getContent();
+                addRelationship(content.get(REPO_FIELD_FIRST_ID).asString(),
+                        content.get(REPO_FIELD_FIRST_PROPERTY_NAME).asString(), relationship);
+                addRelationship(content.get(REPO_FIELD_SECOND_ID).asString(),
+                        content.get(REPO_FIELD_SECOND_PROPERTY_NAME).asString(), relationship);
+                return true;
+            }
+
+            private void addRelationship(String resourcePath, String propertyName, ResourceResponse relationship) {
+                final Map<String, ResourceResponse> found = relationships.get(resourcePath);
+                if (found != null && schemaField.getName().equals(propertyName)) {
+                    found.put(relationship.getId(), relationship);
+                }
+            }
+        });
+        return relationships;
+    }
+
     /**
      * Set the supplied {@link JsonValue} as the current state of this relationship. This will support updating any 
      * existing relationship (_id is present) and remove any relationship not present in the value from the repository.
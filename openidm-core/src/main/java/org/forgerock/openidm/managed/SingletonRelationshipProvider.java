@@ -108,6 +108,16 @@ class SingletonRelationshipProvider extends RelationshipProvider implements Sing
         }
     }
     
+    /** {@inheritDoc} */
+    @Override
+    protected JsonValue toRelationshipValue(final String resourceFullPath,
+            final List<ResourceResponse> relationships) {
+        if (relationships.isEmpty()) {
+            return null;
+        }
+        return formatRelationship(resourceFullPath, singleRelationship(resourceFullPath, relationships)).getContent();
+    }
+
     /**
      * Queries relationships, returning the relationship associated with this providers resource path and the specified 
      * relationship field.
@@ -131,32 +141,45 @@ class SingletonRelationshipProvider extends RelationshipProvider implements Sing
 
             if (relationships.isEmpty()) {
                 return new NotFoundException().asPromise();
-            } else if (relationships.size() == 1) {
-                return newResultPromise(formatResponse(context, queryRequest).apply(relationships.get(0)));
-            } else {
-                // This is a singleton relationship with more than 1 reference - this is an error.
-                // Collect all the erroneous references and add them to the error message.
-                List<String> errorReferences = new ArrayList<>();
-                for (ResourceResponse relationship : relationships) {
-                    JsonValue content = relationship.getContent();
-                    if (schemaField.isReverseRelationship() &&
-                            content.get(REPO_FIELD_FIRST_ID).defaultTo("").asString().equals(resourceFullPath)) {
-                        errorReferences.add(content.get(REPO_FIELD_SECOND_ID).asString());
-                    } else {
-                        errorReferences.add(content.get(REPO_FIELD_FIRST_ID).asString());
-                    }
-                }
-                ResourceResponse relationship = relationships.get(0);
-                relationship.getContent().add(RelationshipUtil.REFERENCE_ERROR, true);
-                relationship.getContent().add(RelationshipUtil.REFERENCE_ERROR_MESSAGE,
-                        "Multiple references found for singleton relationship " + errorReferences);
-                return newResultPromise(formatResponse(context, queryRequest).apply(relationship));
             }
+            return newResultPromise(formatResponse(context, queryRequest)
+                    .apply(singleRelationship(resourceFullPath, relationships)));
         } catch (ResourceException e) {
             return e.asPromise();
         }
     }
 
+    /**
+     * Returns the relationship of a resource. A singleton relationship with more than 1 reference is an error,
+     * the first relationship is then returned with the erroneous references in its error message.
+     *
+     * @param resourceFullPath The full path of the resource
+     * @param relationships The non-empty relationships of the resource in the repo
+     * @return the relationship of the resource
+     */
+    private ResourceResponse singleRelationship(final String resourceFullPath,
+            final List<ResourceResponse> relationships) {
+        if (relationships.size() == 1) {
+            return relationships.get(0);
+        }
+        // Collect all the erroneous references and add them to the error message.
+        List<String> errorReferences = new ArrayList<>();
+        for (ResourceResponse relationship : relationships) {
+            JsonValue content = relationship.getContent();
+            if (schemaField.isReverseRelationship() &&
+                    content.get(REPO_FIELD_FIRST_ID).defaultTo("").asString().equals(resourceFullPath)) {
+                errorReferences.add(content.get(REPO_FIELD_SECOND_ID).asString());
+            } else {
+                errorReferences.add(content.get(REPO_FIELD_FIRST_ID).asString());
+            }
+        }
+        ResourceResponse relationship = relationships.get(0);
+        relationship.getContent().add(RelationshipUtil.REFERENCE_ERROR, true);
+        relationship.getContent().add(RelationshipUtil.REFERENCE_ERROR_MESSAGE,
+                "Multiple references found for singleton relationship " + errorReferences);
+        return relationship;
+    }
+
     @Override
     public Promise<JsonValue, ResourceException> setRelationshipValueForResource(final boolean clearExisting,
             final Context context, final String resourceId, final JsonValue value) {
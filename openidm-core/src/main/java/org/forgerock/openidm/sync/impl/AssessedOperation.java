@@ -0,0 +1,42 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import org.forgerock.openidm.audit.util.Status;
+
+/**
+ * A reconciliation sync operation whose situation and action have been assessed, handed from the
+ * assessment stage to the action stage of a pipelined reconciliation.
+ */
+class AssessedOperation {
+
+    /** The sync operation */
+    final SyncOperation op;
+
+    /** The audit event to log once the operation completes */
+    final ReconAuditEventLogger auditEvent;
+
+    /** The status of the operation so far */
+    Status status = Status.SUCCESS;
+
+    /** Whether the operation already failed, in which case its action must not be performed */
+    boolean failed = false;
+
+    AssessedOperation(SyncOperation op, ReconAuditEventLogger auditEvent) {
+        this.op = op;
+        this.auditEvent = auditEvent;
+    }
+}
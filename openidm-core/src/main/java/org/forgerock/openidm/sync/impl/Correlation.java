@@ -163,6 +163,38 @@ class Correlation {
         }
     }
 
+    /**
+     * Evaluates the correlation query of the given link qualifier without executing it, so that the
+     * queries of several sources can be combined.
+     *
+     * @param scope the scope to use for the correlation query script
+     * @param linkQualifier the link qualifier
+     * @param context Context
+     * @param reconContext Recon context or {@code null}
+     * @return the query parameters, or null if no correlation query is configured for the link qualifier
+     * @throws SynchronizationException if there was an error evaluating the correlation query
+     */
+    JsonValue getCorrelationQueryParameters(Map<String, Object> scope, String linkQualifier, Context context,
+            ReconciliationContext reconContext) throws SynchronizationException {
+        if (type != CorrelationType.correlationQuery || correlationQueries.get(linkQualifier) == null) {
+            return null;
+        }
+        scope.put("linkQualifier", linkQualifier);
+        final long startNanoTime = ObjectMapping.startNanoTime(reconContext);
+        try {
+            return execScript(type.toString(), correlationQueries.get(linkQualifier), scope, context);
+        } catch (ScriptThrownException ste) {
+            String errorMessage = objectMapping.getName() + " " + type + " script encountered exception";
+            LOGGER.debug(errorMessage, ste);
+            throw new SynchronizationException(ste.toResourceException(ResourceException.INTERNAL_ERROR, errorMessage));
+        } catch (ScriptException se) {
+            LOGGER.debug("{} {} script encountered exception", objectMapping.getName(), type.toString(), se);
+            throw new SynchronizationException(se);
+        } finally {
+            ObjectMapping.addDuration(reconContext, ReconciliationStatistic.DurationMetric.correlationQuery, startNanoTime);
+        }
+    }
+
     /**
      * Executes a script of a given type with the given scope.
      *
@@ -187,17 +219,43 @@ class Correlation {
 
             QueryRequest request = RequestUtil.buildQueryRequestFromParameterMap(objectMapping.getTargetObjectSet(),
                     queryParameters);
-            objectMapping.getConnectionFactory().getConnection().query(ObjectSetContext.get(), request,
-                    new QueryResourceHandler() {
-                        @Override
-                        public boolean handleResource(ResourceResponse resource) {
-                            list.add(resource.getContent().asMap());
-                            return true;
-                        }
-                    });
+            list.addAll(queryTargetObjectSet(request));
             return result;
         } catch (ResourceException ose) {
             throw new SynchronizationException(ose);
         }
     }
+
+    /**
+     * Queries the target object set.
+     *
+     * @param request the query request
+     * @return the contents of the matching target objects
+     * @throws ResourceException if the query failed
+     */
+    Collection<Object> queryTargetObjectSet(QueryRequest request) throws ResourceException {
+        final Collection<Object> list = new ArrayList<>();
+        queryTargetObjectSet(request, list);
+        return list;
+    }
+
+    /**
+     * Queries the target object set.
+     *
+     * @param request the query request
+     * @param results the collection to add the contents of the matching target objects to
+     * @return the response of the query, telling whether results remain
+     * @throws ResourceException if the query failed
+     */
+    QueryResponse queryTargetObjectSet(QueryRequest request, final Collection<Object> results)
+            throws ResourceException {
+        return objectMapping.getConnectionFactory().getConnection().query(ObjectSetContext.get(), request,
+                new QueryResourceHandler() {
+                    @Override
+                    public boolean handleResource(ResourceResponse resource) {
+                        results.add(resource.getContent().asMap());
+                        return true;
+                    }
+                });
+    }
 }
@@ -0,0 +1,378 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.forgerock.json.JsonValue.json;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.forgerock.json.JsonPointer;
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.BadRequestException;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResponse;
+import org.forgerock.json.resource.Requests;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.openidm.filter.JsonValueFilterVisitor;
+import org.forgerock.openidm.sync.SynchronizationException;
+import org.forgerock.openidm.util.RequestUtil;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.query.QueryFilter;
+import org.forgerock.util.query.QueryFilterVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Correlates the sources of one reconciliation page in batches rather than one query per source.
+ * <p>
+ * The page is split into chunks of the configured batch size. The first source operation of a chunk that
+ * needs correlating evaluates the correlation query of every source in the chunk and runs the query filters
+ * OR'ed together as a single target query. Each source's own filter is then evaluated against the returned
+ * targets.
+ * <p>
+ * A source is only answered from the batch when its in-memory result is known to be what its own query would
+ * return; otherwise it falls back to its individual correlation query. The target may compare values ignoring
+ * case or accents, which the in-memory evaluation does not, so only filters of equality assertions joined by
+ * {@code and} are batched, and each is also evaluated loosely, ignoring case and accents. A source whose strict
+ * and loose matches differ, or that has no match, is correlated individually. The whole chunk is correlated
+ * individually when the combined query may have been truncated, or returned a target no filter matches even
+ * loosely, as the target semantics are then not the ones evaluated here.
+ */
+class CorrelationBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CorrelationBatcher.class);
+
+    private static final JsonValueFilterVisitor FILTER_VISITOR = new JsonValueFilterVisitor();
+
+    private static final LooseFilterVisitor LOOSE_FILTER_VISITOR = new LooseFilterVisitor();
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /** The number of targets per source the combined query is sized for, more are treated as truncated. */
+    private static final int MAX_TARGETS_PER_SOURCE = 10;
+
+    private final ObjectMapping objectMapping;
+    private final Correlation correlation;
+    private final Map<String, Chunk> chunksBySourceId = new HashMap<>();
+
+    /**
+     * @param objectMapping the mapping being reconciled
+     * @param entries the source entries of the current page; entries without a pre-queried value are not batched
+     * @param batchSize the maximum number of sources to correlate with one target query
+     */
+    CorrelationBatcher(ObjectMapping objectMapping, Iterable<ResultEntry> entries, int batchSize) {
+        this(objectMapping, objectMapping.getScripts().correlation, entries, batchSize);
+    }
+
+    CorrelationBatcher(ObjectMapping objectMapping, Correlation correlation, Iterable<ResultEntry> entries,
+            int batchSize) {
+        this.objectMapping = objectMapping;
+        this.correlation = correlation;
+        Chunk chunk = null;
+        for (ResultEntry entry : entries) {
+            if (entry.getValue() == null || entry.getValue().isNull()) {
+                continue;
+            }
+            if (chunk == null || chunk.entries.size() >= batchSize) {
+                chunk = new Chunk();
+            }
+            chunk.entries.add(entry);
+            chunksBySourceId.put(normalizeSourceId(entry.getId()), chunk);
+        }
+    }
+
+    /**
+     * Returns the batched correlation results of a source, if the batch found any.
+     *
+     * @param sourceId the id of the source being correlated, normalized or not
+     * @param linkQualifier the link qualifier
+     * @param context the current context
+     * @param reconContext the recon context
+     * @return the correlated targets, or null if the source has to be correlated individually
+     */
+    JsonValue correlate(String sourceId, String linkQualifier, Context context, ReconciliationContext reconContext) {
+        String normalizedSourceId = normalizeSourceId(sourceId);
+        Chunk chunk = chunksBySourceId.get(normalizedSourceId);
+        return chunk == null ? null : chunk.take(normalizedSourceId, linkQualifier, context, reconContext);
+    }
+
+    /**
+     * The source ids of the page may be normalized by the source query, the results are looked up by the
+     * id of the source object of the sync operation; both are keyed by the normalized id.
+     */
+    private String normalizeSourceId(String sourceId) {
+        return objectMapping.getLinkType().normalizeSourceId(sourceId);
+    }
+
+    /**
+     * Correlates all sources of a chunk with a single query.
+     *
+     * @return the non-empty correlation results, by normalized source id
+     */
+    private Map<String, JsonValue> correlateChunk(List<ResultEntry> entries, String linkQualifier, Context context,
+            ReconciliationContext reconContext) {
+        Map<String, QueryFilter<JsonPointer>> filters = new LinkedHashMap<>();
+        Map<String, QueryFilter<JsonPointer>> looseFilters = new HashMap<>();
+        for (ResultEntry entry : entries) {
+            Map<String, Object> scope = new HashMap<>();
+            scope.put("source", entry.getValue().asMap());
+            try {
+                QueryFilter<JsonPointer> filter = getBatchableFilter(
+                        correlation.getCorrelationQueryParameters(scope, linkQualifier, context, reconContext));
+                QueryFilter<JsonPointer> looseFilter = filter == null
+                        ? null
+                        : filter.accept(LOOSE_FILTER_VISITOR, null);
+                if (looseFilter != null) {
+                    filters.put(normalizeSourceId(entry.getId()), filter);
+                    looseFilters.put(normalizeSourceId(entry.getId()), looseFilter);
+                }
+            } catch (SynchronizationException e) {
+                // Leave it to the individual correlation of the source to report
+                LOGGER.debug("Correlation query of source {} not batched", entry.getId(), e);
+            }
+        }
+        Map<String, JsonValue> results = new HashMap<>();
+        if (filters.isEmpty()) {
+            return results;
+        }
+
+        int pageSize = filters.size() * MAX_TARGETS_PER_SOURCE;
+        QueryRequest request = Requests.newQueryRequest(objectMapping.getTargetObjectSet())
+                .setQueryFilter(QueryFilter.or(new ArrayList<>(filters.values())))
+                .setPageSize(pageSize);
+        List<Object> targets = new ArrayList<>();
+        QueryResponse response;
+        final long startNanoTime = ObjectMapping.startNanoTime(reconContext);
+        try {
+            response = correlation.queryTargetObjectSet(request, targets);
+        } catch (ResourceException e) {
+            // The target may not support the combined filter, correlate the chunk individually
+            LOGGER.debug("Batched correlation query failed, correlating {} sources individually",
+                    filters.size(), e);
+            return results;
+        } finally {
+            ObjectMapping.addDuration(reconContext, ReconciliationStatistic.DurationMetric.correlationQuery,
+                    startNanoTime);
+        }
+
+        if (targets.size() >= pageSize
+                || response.getPagedResultsCookie() != null
+                || response.getRemainingPagedResults() > 0) {
+            LOGGER.debug("Batched correlation query may be truncated, correlating {} sources individually",
+                    filters.size());
+            return results;
+        }
+
+        List<JsonValue> looseTargets = new ArrayList<>(targets.size());
+        for (Object target : targets) {
+            looseTargets.add(json(loosen(target)));
+        }
+        Set<Integer> looselyMatched = new HashSet<>();
+        for (Map.Entry<String, QueryFilter<JsonPointer>> filter : filters.entrySet()) {
+            QueryFilter<JsonPointer> looseFilter = looseFilters.get(filter.getKey());
+            List<Object> matches = new ArrayList<>();
+            boolean complete = true;
+            for (int i = 0; i < targets.size(); i++) {
+                boolean match = filter.getValue().accept(FILTER_VISITOR, json(targets.get(i)));
+                boolean looseMatch = looseFilter.accept(FILTER_VISITOR, looseTargets.get(i));
+                if (match) {
+                    matches.add(targets.get(i));
+                }
+                if (looseMatch) {
+                    looselyMatched.add(i);
+                }
+                // The target may well match what the in-memory evaluation does not
+                complete &= match == looseMatch;
+            }
+            if (complete && !matches.isEmpty()) {
+                results.put(filter.getKey(), json(matches));
+            }
+        }
+        if (looselyMatched.size() < targets.size()) {
+            LOGGER.debug("Batched correlation query returned unmatched targets, correlating {} sources individually",
+                    filters.size());
+            results.clear();
+            return results;
+        }
+        LOGGER.debug("Batched correlation of {} sources returned {} targets, matched {} sources",
+                entries.size(), targets.size(), results.size());
+        return results;
+    }
+
+    /**
+     * @param params the evaluated correlation query parameters
+     * @return the query filter of the parameters, or null if they are not a plain query filter
+     */
+    private QueryFilter<JsonPointer> getBatchableFilter(JsonValue params) {
+        if (params == null || !params.isMap()) {
+            return null;
+        }
+        try {
+            QueryRequest request = RequestUtil.buildQueryRequestFromParameterMap(
+                    objectMapping.getTargetObjectSet(), params.asMap());
+            if (request.getQueryFilter() == null
+                    || request.getQueryId() != null
+                    || request.getQueryExpression() != null
+                    || !request.getAdditionalParameters().isEmpty()) {
+                return null;
+            }
+            return request.getQueryFilter();
+        } catch (BadRequestException | IllegalArgumentException e) {
+            // Leave it to the individual correlation query to report
+            return null;
+        }
+    }
+
+    /**
+     * Loosens a value of a target object, or of an equality assertion, the way the target may compare it.
+     *
+     * @param value the value
+     * @return the value with strings, nested or not, lower-cased and stripped of accents
+     */
+    @SuppressWarnings("unchecked")
+    private static Object loosen(Object value) {
+        if (value instanceof String) {
+            String decomposed = Normalizer.normalize((String) value, Normalizer.Form.NFD);
+            return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+        } else if (value instanceof Map) {
+            Map<String, Object> loose = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                loose.put(entry.getKey(), loosen(entry.getValue()));
+            }
+            return loose;
+        } else if (value instanceof Collection) {
+            List<Object> loose = new ArrayList<>();
+            for (Object element : (Collection<Object>) value) {
+                loose.add(loosen(element));
+            }
+            return loose;
+        }
+        return value;
+    }
+
+    /**
+     * Builds the loose counterpart of a filter of equality assertions joined by {@code and}, for any other
+     * filter returns null, as whether the target evaluates it as in memory cannot be told.
+     */
+    private static final class LooseFilterVisitor
+            implements QueryFilterVisitor<QueryFilter<JsonPointer>, Void, JsonPointer> {
+
+        @Override
+        public QueryFilter<JsonPointer> visitAndFilter(Void p, List<QueryFilter<JsonPointer>> subFilters) {
+            List<QueryFilter<JsonPointer>> looseFilters = new ArrayList<>(subFilters.size());
+            for (QueryFilter<JsonPointer> subFilter : subFilters) {
+                QueryFilter<JsonPointer> looseFilter = subFilter.accept(this, p);
+                if (looseFilter == null) {
+                    return null;
+                }
+                looseFilters.add(looseFilter);
+            }
+            return QueryFilter.and(looseFilters);
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitBooleanLiteralFilter(Void p, boolean value) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitContainsFilter(Void p, JsonPointer field, Object valueAssertion) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitEqualsFilter(Void p, JsonPointer field, Object valueAssertion) {
+            return QueryFilter.equalTo(field, loosen(valueAssertion));
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitExtendedMatchFilter(Void p, JsonPointer field, String operator,
+                Object valueAssertion) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitGreaterThanFilter(Void p, JsonPointer field, Object valueAssertion) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitGreaterThanOrEqualToFilter(Void p, JsonPointer field,
+                Object valueAssertion) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitLessThanFilter(Void p, JsonPointer field, Object valueAssertion) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitLessThanOrEqualToFilter(Void p, JsonPointer field,
+                Object valueAssertion) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitNotFilter(Void p, QueryFilter<JsonPointer> subFilter) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitOrFilter(Void p, List<QueryFilter<JsonPointer>> subFilters) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitPresentFilter(Void p, JsonPointer field) {
+            return null;
+        }
+
+        @Override
+        public QueryFilter<JsonPointer> visitStartsWithFilter(Void p, JsonPointer field, Object valueAssertion) {
+            return null;
+        }
+    }
+
+    /**
+     * The sources correlated by one batched query, with the results not yet taken, per link qualifier.
+     */
+    private final class Chunk {
+        private final List<ResultEntry> entries = new ArrayList<>();
+        private final Map<String, Map<String, JsonValue>> resultsByQualifier = new HashMap<>();
+
+        synchronized JsonValue take(String sourceId, String linkQualifier, Context context,
+                ReconciliationContext reconContext) {
+            Map<String, JsonValue> results = resultsByQualifier.get(linkQualifier);
+            if (results == null) {
+                results = correlateChunk(entries, linkQualifier, context, reconContext);
+                resultsByQualifier.put(linkQualifier, results);
+            }
+            // Each source is correlated once per link qualifier, release the results as they are taken
+            return results.remove(sourceId);
+        }
+    }
+}
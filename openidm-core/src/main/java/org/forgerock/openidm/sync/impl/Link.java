@@ -117,7 +117,7 @@ class Link {
      * @param id the local (unqualified) link identifier
      * @return the qualified id, qualified to the repository
      */
-    private static String linkId(String id) {
+    static String linkId(String id) {
         //StringBuilder sb = new StringBuilder("repo/link/").append(mapping.getLinkType().getName());
         StringBuilder sb = new StringBuilder("repo/link");
         if (id != null) {
@@ -326,6 +326,58 @@ class Link {
         return sourceIdToLink;
     }
 
+    /**
+     * Queries the links of a mapping for the given source identifiers only, indexed by the source identifier.
+     * <p>
+     * Used by streaming reconciliation to pre-fetch the links of one page of source ids at a time rather
+     * than all links of the mapping. The ids are queried in batches of {@code batchSize} to keep the
+     * individual query filters reasonably small.
+     *
+     * @param mapping the mapping to look up the links for
+     * @param linkQualifier the link qualifier
+     * @param sourceIds the (unnormalized) source identifiers to fetch the links for
+     * @param batchSize the maximum number of source identifiers per link query
+     * @throws SynchronizationException if the query could not be performed.
+     * @return the mapping from source identifier to the link object for it
+     */
+    public static Map<String, Link> getLinksForSourceIds(ObjectMapping mapping, String linkQualifier,
+            Collection<String> sourceIds, int batchSize) throws SynchronizationException {
+        Map<String, Link> sourceIdToLink = new ConcurrentHashMap<String, Link>();
+        if (mapping == null || sourceIds.isEmpty()) {
+            return sourceIdToLink;
+        }
+        final String idField = mapping.getLinkType().useReverse() ? "/secondId" : "/firstId";
+        final List<QueryFilter<String>> idFilters = new ArrayList<>();
+        for (String sourceId : sourceIds) {
+            idFilters.add(QueryFilter.equalTo(idField, mapping.getLinkType().normalizeSourceId(sourceId)));
+            if (idFilters.size() >= batchSize) {
+                queryLinksForSourceIds(mapping, linkQualifier, idFilters, sourceIdToLink);
+                idFilters.clear();
+            }
+        }
+        if (!idFilters.isEmpty()) {
+            queryLinksForSourceIds(mapping, linkQualifier, idFilters, sourceIdToLink);
+        }
+        return sourceIdToLink;
+    }
+
+    private static void queryLinksForSourceIds(ObjectMapping mapping, String linkQualifier,
+            List<QueryFilter<String>> idFilters, Map<String, Link> sourceIdToLink)
+            throws SynchronizationException {
+        JsonValue query = new JsonValue(new HashMap<String, Object>());
+        query.put(FIELD_QUERY_FILTER,
+                QueryFilter.and(Arrays.asList(
+                        QueryFilter.equalTo("/linkType", mapping.getLinkType().getName()),
+                        QueryFilter.equalTo("/linkQualifier", linkQualifier),
+                        QueryFilter.or(idFilters)))
+                        .toString());
+        for (JsonValue entry : linkQuery(mapping.getConnectionFactory(), ObjectSetContext.get(), query)) {
+            Link link = new Link(mapping);
+            link.fromJsonValue(entry);
+            sourceIdToLink.put(link.sourceId, link);
+        }
+    }
+
     /** Compares the given Id to the current targetId,
      * taking into account the settings for case sensitivity
      * @param compareTargetId The target id to compare
@@ -357,6 +409,19 @@ class Link {
         }
     }
 
+    /**
+     * Assigns the identifier of a link that is to be created as part of a {@link LinkBatch}.
+     *
+     * @return the content of the link to create, including its identifier
+     */
+    JsonValue prepareCreate() {
+        _id = UUID.randomUUID().toString(); // client-assigned identifier
+        JsonValue jv = toJsonValue();
+        jv.put("_id", _id);
+        this.initialized = true;
+        return jv;
+    }
+
     void delete(Context context) throws SynchronizationException {
         if (_id != null) { // forgiving delete
             try {
@@ -0,0 +1,234 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Requests.newActionRequest;
+import static org.forgerock.json.resource.Requests.newCreateRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ActionResponse;
+import org.forgerock.json.resource.NotSupportedException;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.openidm.sync.SynchronizationException;
+import org.forgerock.services.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the links created during a reconciliation and writes them to the repository in batches, with
+ * one {@code batch} action (one transaction) per batch instead of one create request per link.
+ * <p>
+ * Links are written to the repository only when their batch is flushed. The recon flushes the
+ * remaining links at the end of each phase, so the target phase sees all links of the source phase.
+ * Until then the pending links are visible through {@link #getPendingLinkForTarget(String, String)}, and a
+ * second link for the source or target of a pending link is rejected, as the repository would reject it.
+ * <p>
+ * A batch that the repository rejects is retried link by link so only the offending links are lost. The
+ * outcome of each link is reported to the {@link Completion} registered with {@link #whenWritten}, which lets
+ * the recon report the operation that created the link as failed.
+ */
+class LinkBatch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LinkBatch.class);
+
+    /** The repository action creating many objects in one transaction */
+    static final String ACTION_BATCH = "batch";
+
+    /**
+     * Receives the outcome of writing a batched link.
+     */
+    interface Completion {
+
+        /**
+         * Called once the link has been written, or could not be written.
+         *
+         * @param failure the reason the link could not be created, or null if it was created
+         */
+        void linkWritten(ResourceException failure);
+    }
+
+    private final ObjectMapping mapping;
+    private final int batchSize;
+    private final Map<String, Link> pending = new LinkedHashMap<>();
+    private final List<Object> pendingContent = new ArrayList<>();
+    private final Map<String, Link> pendingBySource = new HashMap<>();
+    private final Map<String, Link> pendingByTarget = new HashMap<>();
+    private final Map<String, Completion> completions = new HashMap<>();
+    /** The failures of written links whose completion is not registered yet, by link id */
+    private final Map<String, ResourceException> unclaimedFailures = new HashMap<>();
+    private volatile boolean batchSupported = true;
+
+    /**
+     * @param mapping the mapping whose links are created
+     * @param batchSize the number of links to write per batch
+     */
+    LinkBatch(ObjectMapping mapping, int batchSize) {
+        this.mapping = mapping;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Adds a link to create, writing the batch if it is full.
+     *
+     * @param link the link to create
+     * @param context the context to write the batch in
+     * @throws SynchronizationException if a link for the same source or target is already pending
+     */
+    void add(Link link, Context context) throws SynchronizationException {
+        final boolean full;
+        synchronized (this) {
+            String sourceKey = key(link.linkQualifier, mapping.getLinkType().normalizeSourceId(link.sourceId));
+            String targetKey = key(link.linkQualifier, mapping.getLinkType().normalizeTargetId(link.targetId));
+            if (pendingBySource.containsKey(sourceKey) || pendingByTarget.containsKey(targetKey)) {
+                throw new SynchronizationException("A link for source " + link.sourceId + " or target "
+                        + link.targetId + " is already pending for mapping " + mapping.getName());
+            }
+            JsonValue content = link.prepareCreate();
+            pending.put(link._id, link);
+            pendingContent.add(content.getObject());
+            pendingBySource.put(sourceKey, link);
+            pendingByTarget.put(targetKey, link);
+            full = pending.size() >= batchSize;
+        }
+        if (full) {
+            flush(context);
+        }
+    }
+
+    /**
+     * Looks up a link that has been added to the batch but not written yet.
+     *
+     * @param linkQualifier the link qualifier of the link
+     * @param targetId the target id of the link
+     * @return the pending link, or null if no link for the target is pending
+     */
+    synchronized Link getPendingLinkForTarget(String linkQualifier, String targetId) {
+        return pendingByTarget.get(key(linkQualifier, mapping.getLinkType().normalizeTargetId(targetId)));
+    }
+
+    /**
+     * Registers the completion to call once a link added to the batch has been written. If the link has
+     * already been written, the completion is called right away.
+     *
+     * @param link the link added to the batch
+     * @param completion the completion to call with the outcome of the link
+     */
+    void whenWritten(Link link, Completion completion) {
+        final ResourceException failure;
+        synchronized (this) {
+            if (pending.containsKey(link._id)) {
+                completions.put(link._id, completion);
+                return;
+            }
+            failure = unclaimedFailures.remove(link._id);
+        }
+        completion.linkWritten(failure);
+    }
+
+    /**
+     * Writes the pending links and reports their outcome to the registered completions.
+     *
+     * @param context the context to write the batch in
+     * @return the reasons of the links that could not be created, by link id
+     */
+    Map<String, ResourceException> flush(Context context) {
+        final Map<String, ResourceException> failures;
+        final Map<Completion, ResourceException> outcomes = new LinkedHashMap<>();
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return new HashMap<>();
+            }
+            failures = write(context);
+            for (String id : pending.keySet()) {
+                Completion completion = completions.remove(id);
+                if (completion != null) {
+                    outcomes.put(completion, failures.get(id));
+                } else if (failures.containsKey(id)) {
+                    unclaimedFailures.put(id, failures.get(id));
+                }
+            }
+            pending.clear();
+            pendingContent.clear();
+            pendingBySource.clear();
+            pendingByTarget.clear();
+        }
+        // Report outside of the lock, the completions log audit events
+        for (Map.Entry<Completion, ResourceException> outcome : outcomes.entrySet()) {
+            outcome.getKey().linkWritten(outcome.getValue());
+        }
+        return failures;
+    }
+
+    private Map<String, ResourceException> write(Context context) {
+        if (batchSupported) {
+            try {
+                createBatch(context);
+                return new HashMap<>();
+            } catch (NotSupportedException e) {
+                LOGGER.info("Repository does not support batched link creation, creating links individually");
+                batchSupported = false;
+            } catch (ResourceException e) {
+                LOGGER.debug("Batch of {} links rejected, creating links individually", pending.size(), e);
+            }
+        }
+        return createIndividually(context);
+    }
+
+    private void createBatch(Context context) throws ResourceException {
+        ActionResponse response = mapping.getConnectionFactory().getConnection().action(context,
+                newActionRequest(Link.linkId(null), ACTION_BATCH)
+                        .setContent(json(object(field("create", pendingContent)))));
+        for (JsonValue created : response.getJsonContent().get("create")) {
+            Link link = pending.get(created.get("_id").asString());
+            if (link != null) {
+                link._rev = created.get("_rev").asString();
+            }
+        }
+        LOGGER.debug("Created batch of {} links for mapping {}", pending.size(), mapping.getName());
+    }
+
+    private Map<String, ResourceException> createIndividually(Context context) {
+        Map<String, ResourceException> failures = new HashMap<>();
+        for (Object content : pendingContent) {
+            JsonValue link = json(content);
+            String id = link.get("_id").asString();
+            link.remove("_id");
+            try {
+                ResourceResponse resource = mapping.getConnectionFactory().getConnection().create(context,
+                        newCreateRequest(Link.linkId(null), id, link));
+                pending.get(id)._rev = resource.getRevision();
+            } catch (ResourceException e) {
+                LOGGER.warn("Failed to create link {} for mapping {}: {}", link, mapping.getName(), e.getMessage());
+                failures.put(id, e);
+            }
+        }
+        return failures;
+    }
+
+    private static String key(String linkQualifier, String id) {
+        return linkQualifier + "/" + id;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.forgerock.json.JsonValue.array;
+import static org.forgerock.json.JsonValue.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.openidm.sync.SynchronizationException;
+import org.forgerock.openidm.sync.impl.SynchronizationService.MappingSyncResult;
+import org.forgerock.openidm.sync.impl.SynchronizationService.SyncAction;
+import org.forgerock.services.context.Context;
+
+/**
+ * Synchronizes a source object to the mappings it is a source of, concurrently when an executor is given.
+ * <p>
+ * The mappings are synchronized with the semantics of synchronizing them in turn: once a mapping failed, the
+ * mappings not started yet are skipped, and a mapping declaring a dependency on a mapping configured before it is
+ * only started once that mapping succeeded. The outcomes are returned in the order of the mappings.
+ * <p>
+ * A synchronization may trigger another one in the thread synchronizing a mapping, for example when a target is a
+ * managed object with mappings of its own. Such a nested fan-out synchronizes its mappings in turn: waiting for
+ * tasks queued behind the very tasks of the pool that are waiting would deadlock a bounded pool.
+ */
+class MappingFanOut {
+
+    /** The outcome of synchronizing a source object to a mapping */
+    static final class Outcome {
+        final ObjectMapping mapping;
+        MappingSyncResult result = MappingSyncResult.SKIPPED;
+        /** The results of the mapping, one per target */
+        JsonValue results = json(array());
+        /** The failure of the mapping, if it failed */
+        SynchronizationException failure;
+
+        private Outcome(ObjectMapping mapping) {
+            this.mapping = mapping;
+        }
+    }
+
+    /** Marks the threads synchronizing a mapping of a concurrent fan-out */
+    private static final ThreadLocal<Boolean> WORKER = new ThreadLocal<>();
+
+    private final ExecutorService executor;
+
+    /**
+     * Creates a fan-out on the given executor.
+     *
+     * @param executor the executor, or null to synchronize the mappings in turn in the calling thread; the
+     *      mappings are also synchronized in turn when called from a thread synchronizing a mapping
+     */
+    MappingFanOut(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Synchronizes a source object to the given mappings.
+     *
+     * @param context the context of the synchronization
+     * @param action the synchronization to perform on each mapping
+     * @param mappings the mappings, in the order they are configured
+     * @return the outcomes, in the order of the mappings
+     * @throws SynchronizationException if interrupted while waiting for the mappings
+     */
+    List<Outcome> sync(Context context, SyncAction action, List<ObjectMapping> mappings)
+            throws SynchronizationException {
+        final List<Outcome> outcomes = new ArrayList<>(mappings.size());
+        for (ObjectMapping mapping : mappings) {
+            outcomes.add(new Outcome(mapping));
+        }
+        if (executor == null || mappings.size() < 2 || WORKER.get() != null) {
+            boolean failed = false;
+            for (Outcome outcome : outcomes) {
+                if (!failed) {
+                    failed = !sync(context, action, outcome);
+                }
+            }
+        } else {
+            syncConcurrently(context, action, outcomes);
+        }
+        return outcomes;
+    }
+
+    private void syncConcurrently(final Context context, final SyncAction action, final List<Outcome> outcomes)
+            throws SynchronizationException {
+        final int size = outcomes.size();
+        final boolean[] started = new boolean[size];
+        final boolean[] done = new boolean[size];
+        final Context parentContext = ObjectSetContext.get();
+        final CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+        boolean failed = false;
+        int remaining = size;
+        int running = 0;
+        while (remaining > 0) {
+            // the mappings only depend on mappings before them, done in this pass if not started before
+            for (int i = 0; i < size; i++) {
+                if (started[i] || !isReady(outcomes, done, i)) {
+                    continue;
+                }
+                started[i] = true;
+                if (failed || !succeededDependencies(outcomes, i)) {
+                    // skipped, as it would have been in turn
+                    done[i] = true;
+                    remaining--;
+                    continue;
+                }
+                final int index = i;
+                final Outcome outcome = outcomes.get(index);
+                try {
+                    completion.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            if (parentContext != null) {
+                                ObjectSetContext.push(parentContext);
+                            }
+                            WORKER.set(Boolean.TRUE);
+                            try {
+                                sync(context, action, outcome);
+                            } finally {
+                                WORKER.remove();
+                                if (parentContext != null) {
+                                    ObjectSetContext.pop();
+                                }
+                            }
+                            return index;
+                        }
+                    });
+                    running++;
+                } catch (RejectedExecutionException e) {
+                    // the executor is being replaced
+                    failed |= !sync(context, action, outcome);
+                    done[index] = true;
+                    remaining--;
+                }
+            }
+            if (running == 0) {
+                continue;
+            }
+            try {
+                final int index = completion.take().get();
+                running--;
+                done[index] = true;
+                remaining--;
+                failed |= outcomes.get(index).result == MappingSyncResult.FAILED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SynchronizationException("Interrupted while synchronizing the mappings", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new SynchronizationException(e.getCause());
+            }
+        }
+    }
+
+    /** Tells whether the mappings a mapping depends on are done */
+    private static boolean isReady(List<Outcome> outcomes, boolean[] done, int index) {
+        final ObjectMapping mapping = outcomes.get(index).mapping;
+        for (int i = 0; i < index; i++) {
+            if (!done[i] && mapping.dependsOn(outcomes.get(i).mapping)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Tells whether the mappings a mapping depends on succeeded */
+    private static boolean succeededDependencies(List<Outcome> outcomes, int index) {
+        final ObjectMapping mapping = outcomes.get(index).mapping;
+        for (int i = 0; i < index; i++) {
+            if (outcomes.get(i).result != MappingSyncResult.SUCCESSFUL && mapping.dependsOn(outcomes.get(i).mapping)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Synchronizes a source object to a mapping.
+     *
+     * @return false if the mapping failed
+     */
+    private static boolean sync(Context context, SyncAction action, Outcome outcome) {
+        try {
+            // This operation returns a list which will contain more than one result if
+            // there are multiple targets to sync the source to
+            outcome.results = action.sync(context, outcome.mapping);
+            outcome.result = MappingSyncResult.SUCCESSFUL;
+            return true;
+        } catch (SynchronizationException e) {
+            // failed to sync; store the exception and mark as failed
+            outcome.failure = new SynchronizationException(e.getMessage(), e.getCause());
+            // the exception detail contains the mapping result
+            JsonValue failedResult = e.getDetail();
+            failedResult.put("cause", outcome.failure.toJsonValue().getObject());
+            outcome.results = json(array());
+            outcome.results.add(failedResult);
+            outcome.result = MappingSyncResult.FAILED;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.script.ScriptException;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.JsonValueException;
+import org.forgerock.openidm.condition.Condition;
+import org.forgerock.openidm.condition.Conditions;
+import org.forgerock.openidm.sync.PropertyMapping;
+import org.forgerock.openidm.util.Script;
+import org.forgerock.openidm.util.Scripts;
+import org.forgerock.script.source.SourceUnit;
+import org.forgerock.services.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The scripts, conditions, property mappings, policies and correlation of a mapping.
+ * <p>
+ * They are taken from the script registry once per mapping and shared by all the sync operations of the mapping,
+ * rather than for every source and target object. A script is compiled on its first execution, {@link #compile}
+ * compiles them all up front so that the threads of a reconciliation do not all start by compiling them.
+ */
+class MappingScripts {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappingScripts.class);
+
+    final Script validSource;
+    final Script validTarget;
+    final Condition sourceCondition;
+    final Script onCreateScript;
+    final Script onUpdateScript;
+    final Script onDeleteScript;
+    final Script onLinkScript;
+    final Script onUnlinkScript;
+    final Script defaultMapping;
+    final Script postMapping;
+    final List<PropertyMapping> properties;
+    final Map<String, List<Policy>> policies;
+    final Correlation correlation;
+
+    private final JsonValue config;
+
+    /**
+     * Takes the scripts of a mapping from the script registry.
+     *
+     * @param objectMapping the mapping
+     * @throws JsonValueException if the configuration of the mapping is invalid
+     */
+    MappingScripts(ObjectMapping objectMapping) throws JsonValueException {
+        config = objectMapping.getConfig();
+        validSource = Scripts.newScript(config.get("validSource"));
+        validTarget = Scripts.newScript(config.get("validTarget"));
+        sourceCondition = Conditions.newCondition(config.get("sourceCondition"));
+        onCreateScript = Scripts.newScript(config.get("onCreate"));
+        onUpdateScript = Scripts.newScript(config.get("onUpdate"));
+        onDeleteScript = Scripts.newScript(config.get("onDelete"));
+        onLinkScript = Scripts.newScript(config.get("onLink"));
+        onUnlinkScript = Scripts.newScript(config.get("onUnlink"));
+        defaultMapping = Scripts.newScript(config.get("defaultMapping").defaultTo(
+                json(object(field(SourceUnit.ATTR_TYPE, "text/javascript"),
+                        field(SourceUnit.ATTR_NAME, "roles/defaultMapping.js")))));
+        postMapping = Scripts.newScript(config.get("postMapping").defaultTo(
+                json(object(field(SourceUnit.ATTR_TYPE, "groovy"),
+                        field(SourceUnit.ATTR_NAME, "roles/defaultPostMapping.groovy")))));
+
+        List<PropertyMapping> propertyMappings = new ArrayList<>();
+        for (JsonValue jv : config.get("properties").expect(List.class)) {
+            propertyMappings.add(new PropertyMapping(jv));
+        }
+        properties = Collections.unmodifiableList(propertyMappings);
+
+        Map<String, List<Policy>> situationPolicies = new HashMap<>();
+        for (JsonValue jv : config.get("policies").expect(List.class)) {
+            String situation = jv.get("situation").asString();
+            if (!situationPolicies.containsKey(situation)) {
+                situationPolicies.put(situation, new ArrayList<Policy>());
+            }
+            situationPolicies.get(situation).add(new Policy(jv));
+        }
+        policies = Collections.unmodifiableMap(situationPolicies);
+
+        correlation = new Correlation(objectMapping);
+    }
+
+    /**
+     * Compiles the scripts of the mapping that are not compiled yet. A script failing to compile is logged, it
+     * fails again when the mapping executes it.
+     *
+     * @param context the context of the compilation
+     * @return the number of scripts compiled
+     */
+    int compile(Context context) {
+        List<JsonValue> scriptConfigs = new ArrayList<>();
+        // The scripts held by the mapping itself, and by the conditions, property mappings, policies and correlation
+        for (String key : new String[] { "linkQualifiers", "onRecon", "result", "sourceCondition", "properties",
+                "policies", "correlationQuery", "correlationScript" }) {
+            collectScriptConfigs(config.get(key), scriptConfigs);
+        }
+        List<Script> scripts = new ArrayList<>();
+        for (Script script : new Script[] { validSource, validTarget, onCreateScript, onUpdateScript, onDeleteScript,
+                onLinkScript, onUnlinkScript, defaultMapping, postMapping }) {
+            if (script != null) {
+                scripts.add(script);
+            }
+        }
+        int compiled = 0;
+        for (JsonValue scriptConfig : scriptConfigs) {
+            try {
+                scripts.add(Scripts.newScript(scriptConfig));
+            } catch (JsonValueException e) {
+                LOGGER.warn("Failed to take script {} of mapping {}", scriptConfig.getPointer(), getName(), e);
+            }
+        }
+        for (Script script : scripts) {
+            try {
+                script.compile(context);
+                compiled++;
+            } catch (ScriptException | RuntimeException e) {
+                LOGGER.warn("Failed to compile a script of mapping {}", getName(), e);
+            }
+        }
+        return compiled;
+    }
+
+    private String getName() {
+        return config.get("name").asString();
+    }
+
+    private static void collectScriptConfigs(JsonValue value, List<JsonValue> scriptConfigs) {
+        if (value.isMap()) {
+            if (value.get(SourceUnit.ATTR_TYPE).isString()
+                    && (value.get(SourceUnit.ATTR_SOURCE).isString() || value.get("file").isString()
+                            || value.get(SourceUnit.ATTR_NAME).isString())) {
+                scriptConfigs.add(value);
+                return;
+            }
+            for (String key : value.keys()) {
+                collectScriptConfigs(value.get(key), scriptConfigs);
+            }
+        } else if (value.isList()) {
+            for (JsonValue item : value) {
+                collectScriptConfigs(item, scriptConfigs);
+            }
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.forgerock.openidm.sync.impl;
 
+import java.util.concurrent.ExecutorService;
+
 import org.forgerock.json.JsonValue;
 import org.forgerock.openidm.sync.SynchronizationException;
 
@@ -37,4 +39,10 @@ public interface Mappings extends Iterable<ObjectMapping> {
      * @return the mapping instance
      */
     ObjectMapping createMapping(JsonValue mappingConfig);
+
+    /**
+     * Get the executor synchronizing a source object to its mappings concurrently
+     * @return the executor, or null if the mappings are synchronized in turn
+     */
+    ExecutorService getSyncExecutor();
 }
@@ -0,0 +1,165 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.forgerock.openidm.sync.impl.ReconciliationStatistic.DurationMetric;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.forgerock.openidm.sync.SynchronizationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Feeds the target phase of a sorted merge-join reconciliation.
+ * <p>
+ * Pages through the target object set in ascending id order and walks the (sorted) ids handled during
+ * the source phase alongside it, yielding only the target entries that were not handled. Neither side
+ * is ever held in memory beyond the current page, and pre-queried target values are kept for the page.
+ * <p>
+ * The merge requires the target to return ids in the same order as their normalized form compares in
+ * Java ({@link String#compareTo}), which a case-insensitive or locale-aware collation of the target, or
+ * the lower-casing of the ids of a case-insensitive target, does not keep. Once an id is out of order,
+ * the remaining targets are found as by a streaming reconciliation instead: all target ids are spooled,
+ * and the ids handled so far, including the targets already yielded, are left out.
+ */
+class MergeJoinTargetIterator implements Iterator<ResultEntry> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MergeJoinTargetIterator.class);
+
+    private final ReconciliationContext reconContext;
+    private final int pageSize;
+    private final SpooledIdSet targetIds;
+    private final Iterator<String> handledIds;
+
+    private String nextHandledId;
+    private Iterator<ResultEntry> page;
+    private String pagingCookie;
+    private boolean lastPage = false;
+    private String lastTargetId;
+    private ResultEntry next;
+    /** The remaining targets once the target ids were found out of order, null while merging */
+    private Iterator<ResultEntry> unsorted;
+
+    /**
+     * @param reconContext the reconciliation context
+     * @param pageSize the target query page size
+     * @param targetIds the spool of the normalized target ids handled during the source phase
+     */
+    MergeJoinTargetIterator(ReconciliationContext reconContext, int pageSize, SpooledIdSet targetIds) {
+        this.reconContext = reconContext;
+        this.pageSize = pageSize;
+        this.targetIds = targetIds;
+        this.handledIds = targetIds.removedIds();
+        this.nextHandledId = handledIds.hasNext() ? handledIds.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public ResultEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ResultEntry result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private ResultEntry advance() {
+        while (true) {
+            if (unsorted != null) {
+                return unsorted.hasNext() ? unsorted.next() : null;
+            }
+            while (page != null && page.hasNext()) {
+                ResultEntry entry = page.next();
+                String id = entry.getId();
+                if (lastTargetId != null && id.compareTo(lastTargetId) <= 0) {
+                    LOGGER.warn("Target query for merge-join reconciliation {} did not return ids in ascending order "
+                            + "({} after {}), the target ids are not sorted as Java strings; reconciling the "
+                            + "remaining targets without merge-join", reconContext.getReconId(), id, lastTargetId);
+                    unsorted = queryUnsortedTargets();
+                    break;
+                }
+                lastTargetId = id;
+                while (nextHandledId != null && nextHandledId.compareTo(id) < 0) {
+                    nextHandledId = handledIds.hasNext() ? handledIds.next() : null;
+                }
+                if (nextHandledId == null || !nextHandledId.equals(id)) {
+                    // left out of the remaining targets, should the merge be given up
+                    targetIds.remove(id);
+                    return entry;
+                }
+            }
+            if (unsorted != null) {
+                continue;
+            }
+            if (lastPage) {
+                return null;
+            }
+            queryNextPage();
+        }
+    }
+
+    /**
+     * Spools all the target ids and returns the targets neither handled during the source phase nor yielded.
+     */
+    private Iterator<ResultEntry> queryUnsortedTargets() {
+        // the rest of the handled ids are not merged, reading them to the end closes the spool files
+        while (handledIds.hasNext()) {
+            handledIds.next();
+        }
+        page = null;
+        final long targetQueryStart = ObjectMapping.startNanoTime(reconContext);
+        try {
+            reconContext.checkCanceled();
+            reconContext.queryTargetIds(targetIds);
+        } catch (SynchronizationException e) {
+            throw new IllegalStateException("Failed to query target ids for reconciliation", e);
+        } finally {
+            reconContext.getStatistics().addDuration(DurationMetric.targetQuery, targetQueryStart);
+        }
+        return targetIds.resultEntries();
+    }
+
+    private void queryNextPage() {
+        final long targetQueryStart = ObjectMapping.startNanoTime(reconContext);
+        try {
+            reconContext.checkCanceled();
+            LOGGER.debug("Querying next page of sorted target ids");
+            ReconQueryResult result = reconContext.getReconHandler().queryTargetPage(pageSize, pagingCookie);
+            page = result.getIterator();
+            pagingCookie = result.getPagingCookie();
+            lastPage = pagingCookie == null;
+        } catch (SynchronizationException e) {
+            throw new IllegalStateException("Failed to query target page for merge-join reconciliation", e);
+        } finally {
+            reconContext.getStatistics().addDuration(DurationMetric.targetQuery, targetQueryStart);
+        }
+    }
+}
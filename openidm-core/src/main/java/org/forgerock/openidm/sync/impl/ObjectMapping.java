@@ -25,6 +25,7 @@ import static org.forgerock.json.JsonValue.object;
 import static org.forgerock.json.JsonValueFunctions.enumConstant;
 import static org.forgerock.openidm.sync.impl.ReconciliationStatistic.DurationMetric;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -84,6 +85,8 @@ class ObjectMapping {
      * Event names for monitoring Reconciliation behavior
      */
     static final Name EVENT_RECON = Name.get("openidm/internal/discovery-engine/reconciliation");
+    static final Name EVENT_RECON_SCRIPT_WARMUP = Name.get(
+            "openidm/internal/discovery-engine/reconciliation/script-warmup-phase");
     static final Name EVENT_RECON_ID_QUERIES = Name.get("openidm/internal/discovery-engine/reconciliation/id-queries-phase");
     static final Name EVENT_RECON_SOURCE = Name.get("openidm/internal/discovery-engine/reconciliation/source-phase");
     static final Name EVENT_RECON_TARGET = Name.get(
@@ -92,6 +95,12 @@ class ObjectMapping {
     /** Default number of executor threads to process ReconTasks */
     private static final int DEFAULT_TASK_THREADS = 10;
 
+    /** The number of ids a reconciliation keeps in memory per situation when sampling them */
+    private static final int DEFAULT_RECON_SITUATION_SAMPLE_SIZE = 100;
+
+    /** Maximum number of source ids per link query when streaming recon pre-fetches links per page */
+    private static final int LINK_QUERY_BATCH_SIZE = 200;
+
     /** Logger */
     private static final Logger LOGGER = LoggerFactory.getLogger(ObjectMapping.class);
 
@@ -139,6 +148,45 @@ class ObjectMapping {
      */
     private int reconSourceQueryPageSize;
 
+    /**
+     * Whether reconciliation should stream through the data set with bounded memory rather than holding
+     * all target ids and links on the heap. Remaining target ids are spooled to disk and links are
+     * pre-fetched per source page. Implies source query paging unless explicitly disabled.
+     */
+    private final boolean streamingRecon;
+
+    /**
+     * The number of ids a streaming reconciliation buffers in memory before spilling them to disk.
+     */
+    private final int reconSpoolChunkSize;
+
+    /**
+     * Whether the target phase should merge-join the target object set, paged in ascending id order,
+     * against the (sorted) target ids handled during the source phase, instead of querying all target ids
+     * up front. Implies streaming recon; requires the target to support sorting and paging by {@code _id}.
+     * The target must sort the ids as Java compares their (normalized) strings, which a case-insensitive
+     * or locale-aware collation of a database, or a case-insensitive target, may not; the target phase
+     * then falls back to spooling all target ids once it finds an id out of order.
+     */
+    private final boolean mergeJoinRecon;
+
+    /**
+     * A page size for the sorted target queries of a merge-join reconciliation.
+     */
+    private final int reconTargetQueryPageSize;
+
+    /**
+     * The number of sources of a recon page to correlate with one OR'ed target query, or 0 to run the
+     * correlation query of each source individually.
+     */
+    private final int correlationBatchSize;
+
+    /**
+     * The number of links a reconciliation collects before writing them to the repository in one batch,
+     * or 0 to create each link individually.
+     */
+    private final int linkBatchSize;
+
     /**
      * A {@link List} containing the configured link qualifiers.
      */
@@ -155,6 +203,9 @@ class ObjectMapping {
     /** a script to execute on each mapping event regardless of the operation */
     private Script resultScript;
 
+    /** The scripts of the sync operations, taken from the script registry on first use */
+    private volatile MappingScripts scripts;
+
     /**
      * Whether existing links should be fetched in one go along with the source and target id lists.
      * false indicates links should be retrieved individually as they are needed.
@@ -179,6 +230,15 @@ class ObjectMapping {
     /** Whether synchronization (automatic propagation of changes as they are detected) is enabled on that mapping */
     private final boolean syncEnabled;
 
+    /** How the ids processed by a reconciliation are kept, per situation */
+    private final PhaseStatistic.SituationIds reconSituationIds;
+
+    /** The number of ids a reconciliation keeps in memory per situation, unless it keeps all of them */
+    private final int reconSituationSampleSize;
+
+    /** The names of the mappings a source object is synchronized to before this mapping */
+    private final Set<String> dependsOn;
+
     /**
      * Reconcile a given source ID
      */
@@ -224,14 +284,46 @@ class ObjectMapping {
         taskThreads = config.get("taskThreads").defaultTo(DEFAULT_TASK_THREADS).asInteger();
         feedSize = config.get("feedSize").defaultTo(ReconFeeder.DEFAULT_FEED_SIZE).asInteger();
         syncEnabled = config.get("enableSync").defaultTo(true).asBoolean();
+        dependsOn = new HashSet<>(config.get("dependsOn").defaultTo(Collections.emptyList()).asList(String.class));
         linkingEnabled = config.get("enableLinking").defaultTo(true).asBoolean();
-        reconSourceQueryPaging = config.get("reconSourceQueryPaging").defaultTo(false).asBoolean();
+        mergeJoinRecon = config.get("mergeJoinRecon").defaultTo(false).asBoolean();
+        streamingRecon = mergeJoinRecon || config.get("streamingRecon").defaultTo(false).asBoolean();
+        reconSpoolChunkSize = config.get("reconSpoolChunkSize").defaultTo(ReconIdSpool.DEFAULT_CHUNK_SIZE).asInteger();
+        reconSourceQueryPaging = config.get("reconSourceQueryPaging").defaultTo(streamingRecon).asBoolean();
         reconSourceQueryPageSize = config.get("reconSourceQueryPageSize")
                 .defaultTo(reconSourceQueryPaging ? ReconFeeder.DEFAULT_FEED_SIZE : 0).asInteger();
+        reconTargetQueryPageSize = config.get("reconTargetQueryPageSize")
+                .defaultTo(ReconFeeder.DEFAULT_FEED_SIZE).asInteger();
+        correlationBatchSize = config.get("correlationBatchSize").defaultTo(0).asInteger();
+        linkBatchSize = config.get("linkBatchSize").defaultTo(0).asInteger();
+        reconSituationIds = config.get("reconSituationIds").defaultTo(PhaseStatistic.SituationIds.all.name())
+                .as(enumConstant(PhaseStatistic.SituationIds.class));
+        reconSituationSampleSize = config.get("reconSituationSampleSize")
+                .defaultTo(DEFAULT_RECON_SITUATION_SAMPLE_SIZE).asInteger();
 
         LOGGER.debug("Instantiated {}", name);
     }
 
+    /**
+     * Returns the scripts of the sync operations of this mapping, shared by all of them.
+     *
+     * @return the scripts of the mapping
+     * @throws JsonValueException if the configuration of the mapping is invalid
+     */
+    MappingScripts getScripts() throws JsonValueException {
+        MappingScripts result = scripts;
+        if (result == null) {
+            synchronized (this) {
+                result = scripts;
+                if (result == null) {
+                    result = new MappingScripts(this);
+                    scripts = result;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Return whether synchronization is enabled for this mapping.
      *
@@ -241,6 +333,18 @@ class ObjectMapping {
         return syncEnabled;
     }
 
+    /**
+     * Tells whether a source object is to be synchronized to another mapping before this mapping. Only the
+     * mappings configured before this one are waited for, as the mappings are synchronized in order when they are
+     * not synchronized concurrently.
+     *
+     * @param mapping the other mapping
+     * @return whether this mapping declares a dependency on the other mapping
+     */
+    boolean dependsOn(ObjectMapping mapping) {
+        return dependsOn.contains(mapping.getName());
+    }
+
     /**
      * Return whether linking is enabled for this mapping.
      *
@@ -699,9 +803,11 @@ class ObjectMapping {
         final ReconciliationStatistic stats = reconContext.getStatistics();
         stats.reconStart();
         String reconId = reconContext.getReconId();
+        warmupScripts(reconId, ObjectSetContext.get());
         EventEntry measureIdQueries = Publisher.start(EVENT_RECON_ID_QUERIES, reconId, null);
         reconContext.setStage(ReconStage.ACTIVE_QUERY_ENTRIES);
         Context context = ObjectSetContext.get();
+        SpooledIdSet spooledTargetIds = null;
         try {
             // Execute onRecon script.
             executeOnRecon(context, reconContext);
@@ -730,24 +836,35 @@ class ObjectMapping {
             }
 
             // If we will handle a target phase, pre-load all relevant target identifiers
-            Set<String> remainingTargetIds = new LinkedHashSet<>();
+            Set<String> remainingTargetIdSet = Collections.synchronizedSet(new LinkedHashSet<String>());
+            RemainingTargetIds remainingTargetIds = new RemainingTargetIds.InSet(remainingTargetIdSet);
             ResultIterable targetIterable =
                     new ResultIterable(Collections.<String>emptyList(), Collections.<JsonValue>emptyList());
             if (reconContext.getReconHandler().isRunTargetPhase()) {
                 stats.targetQueryStart();
                 final long targetQueryStart = startNanoTime(reconContext);
 
-                targetIterable = reconContext.queryTarget();
-                remainingTargetIds.addAll(targetIterable.getAllIds());
-                remainingTargetIds = Collections.synchronizedSet(remainingTargetIds);
+                if (mergeJoinRecon) {
+                    // Targets are paged in sorted order during the target phase; only the handled ids get spooled
+                    spooledTargetIds = new SpooledIdSet(name, reconSpoolChunkSize);
+                    remainingTargetIds = spooledTargetIds;
+                } else if (streamingRecon) {
+                    // Spool the target ids to disk; the target phase reads back whatever the source phase left
+                    spooledTargetIds = new SpooledIdSet(name, reconSpoolChunkSize);
+                    reconContext.queryTargetIds(spooledTargetIds);
+                    remainingTargetIds = spooledTargetIds;
+                } else {
+                    targetIterable = reconContext.queryTarget();
+                    remainingTargetIdSet.addAll(targetIterable.getAllIds());
+                }
 
                 stats.addDuration(DurationMetric.targetQuery, targetQueryStart);
                 stats.targetQueryEnd();
             }
 
-            // Optionally get all links up front as well
+            // Optionally get all links up front as well; streaming recon fetches them per source page instead
             Map<String, Map<String, Link>> allLinks = null;
-            if (prefetchLinks) {
+            if (prefetchLinks && !streamingRecon) {
                 allLinks = new HashMap<>();
                 int totalLinkEntries = 0;
                 stats.linkQueryStart();
@@ -768,6 +885,10 @@ class ObjectMapping {
             EventEntry measureSource = Publisher.start(EVENT_RECON_SOURCE, reconId, null);
             reconContext.setStage(ReconStage.ACTIVE_RECONCILING_SOURCE);
 
+            if (linkBatchSize > 0 && linkingEnabled) {
+                reconContext.setLinkBatch(new LinkBatch(this, linkBatchSize));
+            }
+
             stats.sourcePhaseStart();
             final long sourcePhaseStart = startNanoTime(reconContext);
 
@@ -784,6 +905,13 @@ class ObjectMapping {
                     sourceIter = sourceQueryResult.getIterator();
                     stats.addDuration(DurationMetric.sourceQuery, pagedSourceQueryStart);
                 }
+                if (prefetchLinks && streamingRecon) {
+                    allLinks = getLinksForSourcePage(sourceQueryResult.getAllIds(), context, reconContext);
+                }
+                if (correlationBatchSize > 0) {
+                    reconContext.setCorrelationBatcher(new CorrelationBatcher(this,
+                            sourceQueryResult.getResultIterable(), correlationBatchSize));
+                }
                 // Perform source recon phase on current set of source ids
                 ReconPhase sourcePhase =
                         new ReconPhase(sourceIter, reconContext, context, allLinks, remainingTargetIds, sourceRecon);
@@ -792,6 +920,9 @@ class ObjectMapping {
                 queryNextPage = true;
             } while (reconSourceQueryPaging && sourceQueryResult.getPagingCookie() != null); // If paging, loop through next pages
 
+            reconContext.setCorrelationBatcher(null);
+            // Make the links of the source phase visible to the target phase
+            flushLinkBatch(reconContext, context);
             stats.addDuration(DurationMetric.sourcePhase, sourcePhaseStart);
             stats.sourcePhaseEnd();
             measureSource.end();
@@ -802,17 +933,30 @@ class ObjectMapping {
                 EventEntry measureTarget = Publisher.start(EVENT_RECON_TARGET, reconId, null);
                 final long targetPhaseStart = startNanoTime(reconContext);
                 reconContext.setStage(ReconStage.ACTIVE_RECONCILING_TARGET);
-                targetIterable = targetIterable.removeNotMatchingEntries(remainingTargetIds);
+                Iterator<ResultEntry> targetIter;
+                if (spooledTargetIds != null) {
+                    // The cached source ids only cover the last page, check source existence on demand instead
+                    reconContext.clearSourceIds();
+                    allLinks = null;
+                    targetIter = mergeJoinRecon
+                            ? new MergeJoinTargetIterator(reconContext, reconTargetQueryPageSize, spooledTargetIds)
+                            : spooledTargetIds.resultEntries();
+                } else {
+                    targetIterable = targetIterable.removeNotMatchingEntries(remainingTargetIdSet);
+                    targetIter = targetIterable.iterator();
+                }
                 stats.targetPhaseStart();
-                ReconPhase targetPhase = new ReconPhase(targetIterable.iterator(), reconContext, context,
+                ReconPhase targetPhase = new ReconPhase(targetIter, reconContext, context,
                         allLinks, null, targetRecon);
                 targetPhase.setFeedSize(feedSize);
                 targetPhase.execute();
+                flushLinkBatch(reconContext, context);
                 stats.addDuration(DurationMetric.targetPhase, targetPhaseStart);
                 stats.targetPhaseEnd();
                 measureTarget.end();
             }
 
+            stats.flushSituationIds(context);
             stats.reconEnd();
             reconContext.setStage(ReconStage.ACTIVE_PROCESSING_RESULTS);
             doResults(reconContext, context);
@@ -828,11 +972,13 @@ class ObjectMapping {
                 reconContext.setStage(ReconStage.COMPLETED_FAILED);
                 syncException = new SynchronizationException("Interrupted execution of reconciliation", ex);
             }
+            flushPending(reconContext, context);
             doResults(reconContext, context);
             throw syncException;
         } catch (SynchronizationException e) {
             // Make sure that the error did not occur within doResults or last logging for completed success case
             reconContext.setStage(ReconStage.COMPLETED_FAILED);
+            flushPending(reconContext, context);
             if ( reconContext.getStage() != ReconStage.ACTIVE_PROCESSING_RESULTS
                     && reconContext.getStage() != ReconStage.COMPLETED_SUCCESS ) {
                 doResults(reconContext, context);
@@ -842,12 +988,17 @@ class ObjectMapping {
             throw new SynchronizationException("Synchronization failed", e);
         } catch (Exception e) {
             reconContext.setStage(ReconStage.COMPLETED_FAILED);
+            flushPending(reconContext, context);
             doResults(reconContext, context);
             stats.reconEnd();
             logReconEndFailure(reconContext, context);
             throw new SynchronizationException("Synchronization failed", e);
         } finally {
             ObjectSetContext.pop(); // pop the TriggerContext
+            reconContext.setLinkBatch(null);
+            if (spooledTargetIds != null) {
+                spooledTargetIds.close();
+            }
             if (!stats.hasEnded()) {
                 stats.reconEnd();
             }
@@ -856,6 +1007,78 @@ class ObjectMapping {
 // TODO: cleanup orphan link objects (no matching source or target) here
     }
 
+    /**
+     * Compiles the scripts of the mapping before the reconciliation threads start executing them.
+     *
+     * @param reconId the id of the reconciliation
+     * @param context the current context
+     */
+    private void warmupScripts(String reconId, Context context) {
+        EventEntry measure = Publisher.start(EVENT_RECON_SCRIPT_WARMUP, reconId, null);
+        try {
+            long start = System.currentTimeMillis();
+            int compiled = getScripts().compile(context);
+            LOGGER.debug("Compiled {} scripts of mapping {} in {} ms", compiled, name,
+                    System.currentTimeMillis() - start);
+        } catch (JsonValueException e) {
+            // Reported by the sync operations
+            LOGGER.debug("Failed to take the scripts of mapping {}", name, e);
+        } finally {
+            measure.end();
+        }
+    }
+
+    /**
+     * Fetch the links of one page of source ids, for all link qualifiers.
+     *
+     * @param sourceIds the source ids of the current page
+     * @param context the current context
+     * @param reconContext the recon context
+     * @return the links of the page, by link qualifier and normalized source id
+     * @throws SynchronizationException if the link queries failed
+     */
+    private Map<String, Map<String, Link>> getLinksForSourcePage(Collection<String> sourceIds, Context context,
+            ReconciliationContext reconContext) throws SynchronizationException {
+        Map<String, Map<String, Link>> pageLinks = new HashMap<>();
+        for (String linkQualifier : getAllLinkQualifiers(context, reconContext)) {
+            final long linkQueryStart = startNanoTime(reconContext);
+            pageLinks.put(linkQualifier,
+                    Link.getLinksForSourceIds(this, linkQualifier, sourceIds, LINK_QUERY_BATCH_SIZE));
+            addDuration(reconContext, DurationMetric.linkQuery, linkQueryStart);
+        }
+        return pageLinks;
+    }
+
+    /**
+     * Writes the links collected by the recon's link batch, if it batches links.
+     *
+     * @param reconContext the recon context
+     * @param context the current context
+     */
+    private void flushLinkBatch(ReconciliationContext reconContext, Context context) {
+        LinkBatch linkBatch = reconContext.getLinkBatch();
+        if (linkBatch != null) {
+            // The operations that created the failed links are reported as failed by the batch
+            int failures = linkBatch.flush(context).size();
+            if (failures > 0) {
+                LOGGER.warn("{} links of recon {} on mapping {} could not be created",
+                        failures, reconContext.getReconId(), name);
+            }
+        }
+    }
+
+    /**
+     * Writes what a failed or canceled recon collected so far, before its results are processed.
+     * Links of targets that were created before the failure must not get lost.
+     *
+     * @param reconContext the recon context
+     * @param context the current context
+     */
+    private void flushPending(ReconciliationContext reconContext, Context context) {
+        flushLinkBatch(reconContext, context);
+        reconContext.getStatistics().flushSituationIds(context);
+    }
+
     private void executeOnRecon(Context context, final ReconciliationContext reconContext) throws SynchronizationException {
         if (onReconScript != null) {
             Map<String, Object> scope = new HashMap<>();
@@ -915,6 +1138,20 @@ class ObjectMapping {
         return taskThreads;
     }
 
+    /**
+     * @return how the ids processed by a reconciliation are kept, per situation
+     */
+    PhaseStatistic.SituationIds getReconSituationIds() {
+        return reconSituationIds;
+    }
+
+    /**
+     * @return the number of ids a reconciliation keeps in memory per situation, unless it keeps all of them
+     */
+    int getReconSituationSampleSize() {
+        return Math.max(0, reconSituationSampleSize);
+    }
+
     /**
      * Creates an entry in the audit log.
      *
@@ -23,12 +23,15 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.forgerock.openidm.core.ServerConstants;
 import org.forgerock.openidm.util.DateUtil;
+import org.forgerock.services.context.Context;
 
 /**
  * Holds the (source/target) Phase specific statistics
@@ -39,13 +42,66 @@ public class PhaseStatistic {
     static DateUtil dateUtil = DateUtil.getDateUtil(ServerConstants.TIME_ZONE_UTC);
 
     public enum Phase { SOURCE, TARGET }
-    
+
+    /** How the ids processed are kept, per situation */
+    public enum SituationIds {
+        /** All the ids are kept in memory */
+        all,
+        /** Only a sample of the ids is kept in memory */
+        sample,
+        /** A sample of the ids is kept in memory, and all the ids are appended to the repository */
+        repo
+    }
+
+    /** The key of the ids not valid */
+    static final String NOTVALID = "NOTVALID";
+
+    /** The ids of a situation */
+    private final class Ids {
+        private final String key;
+        private final LongAdder count = new LongAdder();
+        private final List<String> ids = Collections.synchronizedList(new ArrayList<String>());
+        /** The number of ids reserved in the sample */
+        private final AtomicInteger sampled = new AtomicInteger();
+
+        private Ids(String key) {
+            this.key = key;
+        }
+
+        private void add(String id) {
+            count.increment();
+            if (sampleSize < 0) {
+                ids.add(id);
+            } else if (sampled.get() < sampleSize && sampled.getAndIncrement() < sampleSize) {
+                ids.add(id);
+            }
+            if (store != null) {
+                store.append(key, id, ObjectSetContext.get());
+            }
+        }
+
+        private int size() {
+            return count.intValue();
+        }
+
+        private Map<String, Object> asMap() {
+            Map<String, Object> res = new HashMap<String, Object>();
+            res.put("count", size());
+            res.put("ids", ids);
+            return res;
+        }
+    }
+
     private ReconciliationStatistic parentStat;
     Phase phase;
     private String name;
-    private Map<Situation, List<String>> ids = Collections.synchronizedMap(new EnumMap<Situation, List<String>>(Situation.class));
-    private AtomicLong processedEntries = new AtomicLong();
-    private List<String> notValid;
+    private final Map<Situation, Ids> ids = new EnumMap<Situation, Ids>(Situation.class);
+    private final LongAdder processedEntries = new LongAdder();
+    private final Ids notValid;
+    /** The number of ids kept in memory per situation, negative to keep all of them */
+    private final int sampleSize;
+    /** The store all the ids are appended to, if any */
+    private final ReconResultStore store;
 
     long queryStartTime;
     long queryEndTime;
@@ -54,21 +110,40 @@ public class PhaseStatistic {
     long phaseEndTime;
 
     public PhaseStatistic(ReconciliationStatistic parentStat, Phase phase, String name) {
+        this(parentStat, phase, name, -1, null);
+    }
+
+    /**
+     * Creates the statistics of a phase keeping a sample of the ids processed per situation.
+     *
+     * @param parentStat the statistics of the reconciliation
+     * @param phase the phase
+     * @param name the object set of the phase
+     * @param sampleSize the number of ids kept in memory per situation, negative to keep all of them
+     * @param store the store to append all the ids to, or null to only keep them in memory
+     */
+    PhaseStatistic(ReconciliationStatistic parentStat, Phase phase, String name, int sampleSize,
+            ReconResultStore store) {
         this.parentStat = parentStat;
         this.phase = phase;
         this.name = name;
-        ids.put(Situation.CONFIRMED, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.FOUND, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.ABSENT, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.AMBIGUOUS, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.MISSING, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.UNQUALIFIED, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.UNASSIGNED, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.SOURCE_MISSING, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.SOURCE_IGNORED, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.TARGET_IGNORED, Collections.synchronizedList(new ArrayList<String>()));
-        ids.put(Situation.FOUND_ALREADY_LINKED, Collections.synchronizedList(new ArrayList<String>()));
-        notValid = Collections.synchronizedList(new ArrayList<String>());
+        this.sampleSize = sampleSize;
+        this.store = store;
+        // read only once constructed, so that the threads processing the phase only contend on the ids kept
+        for (Situation situation : new Situation[] { Situation.CONFIRMED, Situation.FOUND, Situation.ABSENT,
+                Situation.AMBIGUOUS, Situation.MISSING, Situation.UNQUALIFIED, Situation.UNASSIGNED,
+                Situation.SOURCE_MISSING, Situation.SOURCE_IGNORED, Situation.TARGET_IGNORED,
+                Situation.FOUND_ALREADY_LINKED }) {
+            ids.put(situation, new Ids(situation.name()));
+        }
+        notValid = new Ids(NOTVALID);
+    }
+
+    /**
+     * @return the name of the phase, as the ids stored are keyed
+     */
+    static String phaseName(Phase phase) {
+        return phase.name().toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -92,11 +167,11 @@ public class PhaseStatistic {
         }
         parentStat.processed(sourceId, targetId, linkExisted, linkId, linkCreated, situation, action);
         if (id != null) {
-            processedEntries.incrementAndGet();
+            processedEntries.increment();
             if (situation != null) {
-                List<String> situationIds = ids.get(situation);
+                Ids situationIds = ids.get(situation);
                 if (situationIds != null) {
-                    situationIds.add(id); // TODO: option to not keep all results in memory
+                    situationIds.add(id);
                 }
             }
         }
@@ -109,7 +184,29 @@ public class PhaseStatistic {
     }
 
     public long getProcessed() {
-        return processedEntries.get();
+        return processedEntries.sum();
+    }
+
+    /**
+     * Writes the ids not stored yet, once the phase is done.
+     *
+     * @param context the context to write the ids in
+     */
+    void flush(Context context) {
+        if (store != null) {
+            store.flush(context);
+        }
+    }
+
+    /**
+     * Deletes the ids stored, once the reconciliation is forgotten.
+     *
+     * @param context the context to delete the ids in
+     */
+    void deleteStored(Context context) {
+        if (store != null) {
+            store.delete(context);
+        }
     }
 
     public Map<String, Object> asMap() {
@@ -121,19 +218,12 @@ public class PhaseStatistic {
         results.put("duration", parentStat.getDuration(phaseStartTime, phaseEndTime));
         results.put("entryListDuration", parentStat.getDuration(queryStartTime, queryEndTime));
         results.put("processed", getProcessed());
-
-        Map<String, Object> nv = new HashMap<String, Object>();
-        nv.put("count", notValid.size());
-        nv.put("ids", notValid);
-        results.put("NOTVALID", nv);
+        results.put(NOTVALID, notValid.asMap());
 
         int entries = 0;
-        for (Entry<Situation, List<String>> e : ids.entrySet()) {
-            Map<String, Object> res = new HashMap<String, Object>();
+        for (Entry<Situation, Ids> e : ids.entrySet()) {
             entries += e.getValue().size();
-            res.put("count", e.getValue().size());
-            res.put("ids", e.getValue());
-            results.put(e.getKey().name(), res);
+            results.put(e.getKey().name(), e.getValue().asMap());
         }
         results.put("entries", entries);
 
@@ -141,7 +231,7 @@ public class PhaseStatistic {
     }
 
     public void updateSummary(Map<String, Integer> simpleSummary) {
-        for (Entry<Situation, List<String>> e : ids.entrySet()) {
+        for (Entry<Situation, Ids> e : ids.entrySet()) {
             String key = e.getKey().name();
             Integer existing = simpleSummary.get(key);
             if (existing == null) {
@@ -16,7 +16,7 @@
 
 package org.forgerock.openidm.sync.impl;
 
-import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.forgerock.json.JsonValue;
@@ -36,9 +36,39 @@ interface Recon {
      * @param reconContext reconciliation context
      * @param rootContext json resource root ctx
      * @param allLinks all links if pre-queried, or null for on-demand link querying
-     * @param remainingIds The set to update/remove any targets that were matched
+     * @param remainingIds the target ids to remove any targets that were matched from
      * @throws SynchronizationException if there is a failure reported in reconciling this id
      */
     void recon(String id, JsonValue entry, ReconciliationContext reconContext, Context rootContext,
-            Map<String, Map<String, Link>> allLinks, Collection<String> remainingIds) throws SynchronizationException;
+            Map<String, Map<String, Link>> allLinks, RemainingTargetIds remainingIds) throws SynchronizationException;
+
+    /**
+     * First half of reconciling a given object ID, as run by the assessment stage of a pipelined recon:
+     * prepares the sync operation for each link qualifier, then assesses the situation and determines
+     * the action, without performing it. Failures of an individual operation are recorded on it rather
+     * than thrown, so they can be reported by {@link #act}.
+     *
+     * @param id the object id to reconcile
+     * @param entry an optional value if the given entry was pre-loaded, or null if not
+     * @param reconContext reconciliation context
+     * @param rootContext json resource root ctx
+     * @param allLinks all links if pre-queried, or null for on-demand link querying
+     * @return the assessed operations, one per link qualifier
+     * @throws SynchronizationException if preparing the operations failed
+     */
+    List<AssessedOperation> assess(String id, JsonValue entry, ReconciliationContext reconContext,
+            Context rootContext, Map<String, Map<String, Link>> allLinks) throws SynchronizationException;
+
+    /**
+     * Second half of reconciling a given object ID, as run by the action stage of a pipelined recon:
+     * performs the actions of the operations returned by {@link #assess}, then updates the statistics
+     * and audit log.
+     *
+     * @param operations the assessed operations
+     * @param reconContext reconciliation context
+     * @param remainingIds the target ids to remove any targets that were matched from
+     * @throws SynchronizationException if there is a failure reported in reconciling this id
+     */
+    void act(List<AssessedOperation> operations, ReconciliationContext reconContext,
+            RemainingTargetIds remainingIds) throws SynchronizationException;
 }
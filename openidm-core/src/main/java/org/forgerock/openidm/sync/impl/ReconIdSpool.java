@@ -0,0 +1,340 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only, disk backed spool of (normalized) identifiers.
+ * <p>
+ * Identifiers are buffered in memory up to a bounded chunk size; each full chunk is sorted and
+ * written out as a run file. Iterating the spool merges all runs back together in sorted,
+ * de-duplicated order. Heap use is therefore bounded by the chunk size, independent of the
+ * total number of identifiers spooled.
+ */
+class ReconIdSpool implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReconIdSpool.class);
+
+    /** The default number of identifiers buffered in memory before a run is written out */
+    static final int DEFAULT_CHUNK_SIZE = 100000;
+
+    private static final String FILE_PREFIX = "recon-";
+    private static final String FILE_SUFFIX = ".ids";
+
+    /** The directory of the spool files, null for the default temporary-file directory */
+    private static File directory;
+
+    private final String name;
+    private final int chunkSize;
+    private final List<Run> runs = new ArrayList<>();
+    private List<String> chunk = new ArrayList<>();
+    private long count = 0;
+
+    /**
+     * Creates an empty spool.
+     *
+     * @param name a name used to identify the spool files
+     * @param chunkSize the number of identifiers to buffer in memory before spilling to disk
+     */
+    ReconIdSpool(String name, int chunkSize) {
+        this.name = name;
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * Sets the directory to write the spool files to, once, and deletes the spool files a previous run of
+     * the server left in it, as the spools of a reconciliation that did not complete are never closed.
+     *
+     * @param spoolDirectory the directory of the spool files of this server
+     */
+    static synchronized void initDirectory(File spoolDirectory) {
+        if (directory != null) {
+            return;
+        }
+        if (!spoolDirectory.isDirectory() && !spoolDirectory.mkdirs()) {
+            LOGGER.warn("Failed to create recon id spool directory {}", spoolDirectory);
+            return;
+        }
+        File[] leftovers = spoolDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+            }
+        });
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                if (!leftover.delete()) {
+                    LOGGER.warn("Failed to delete recon id spool file {}", leftover);
+                }
+            }
+            if (leftovers.length > 0) {
+                LOGGER.info("Deleted {} recon id spool files left over in {}", leftovers.length, spoolDirectory);
+            }
+        }
+        directory = spoolDirectory;
+    }
+
+    private static synchronized File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Appends an identifier to the spool.
+     *
+     * @param id the identifier to append
+     * @throws IOException if spilling the in-memory chunk to disk failed
+     */
+    synchronized void add(String id) throws IOException {
+        chunk.add(id);
+        count++;
+        if (chunk.size() >= chunkSize) {
+            flush();
+        }
+    }
+
+    /**
+     * @return the number of identifiers appended, including duplicates
+     */
+    synchronized long size() {
+        return count;
+    }
+
+    /**
+     * Returns an iterator over all spooled identifiers in natural (sorted) order, skipping duplicates.
+     * The identifiers appended while iterating are not returned.
+     *
+     * @return the sorted, de-duplicated identifiers
+     * @throws IOException if the spool files could not be read
+     */
+    synchronized Iterator<String> sortedIterator() throws IOException {
+        flush();
+        return new MergeIterator(runs);
+    }
+
+    /**
+     * Removes all spool files.
+     */
+    @Override
+    public synchronized void close() {
+        for (Run run : runs) {
+            if (!run.file.delete() && run.file.exists()) {
+                LOGGER.warn("Failed to delete recon id spool file {}", run.file);
+            }
+        }
+        runs.clear();
+        chunk = new ArrayList<>();
+    }
+
+    /**
+     * Sorts the current in-memory chunk and writes it out as a new run.
+     */
+    private void flush() throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Collections.sort(chunk);
+        File file = File.createTempFile(FILE_PREFIX + name + "-", FILE_SUFFIX, getDirectory());
+        int written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            String last = null;
+            for (String id : chunk) {
+                if (!id.equals(last)) {
+                    // length-prefixed rather than writeUTF, which is limited to 65535 bytes
+                    byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    written++;
+                    last = id;
+                }
+            }
+        }
+        runs.add(new Run(file, written));
+        LOGGER.debug("Spooled {} ids to {}", written, file);
+        chunk = new ArrayList<>();
+    }
+
+    /**
+     * Iterates the ids of {@code all} that are not contained in {@code excluded}.
+     * Both iterators must be in sorted, de-duplicated order, as returned by {@link #sortedIterator()}.
+     *
+     * @param all the sorted ids to iterate
+     * @param excluded the sorted ids to leave out
+     * @return the sorted difference of the two id streams
+     */
+    static Iterator<String> difference(final Iterator<String> all, final Iterator<String> excluded) {
+        return new Iterator<String>() {
+            private String nextExcluded = excluded.hasNext() ? excluded.next() : null;
+            private String next = advance();
+
+            private String advance() {
+                while (all.hasNext()) {
+                    String candidate = all.next();
+                    while (nextExcluded != null && nextExcluded.compareTo(candidate) < 0) {
+                        nextExcluded = excluded.hasNext() ? excluded.next() : null;
+                    }
+                    if (nextExcluded == null || !nextExcluded.equals(candidate)) {
+                        return candidate;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                String result = next;
+                next = advance();
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * A sorted run of identifiers written to disk.
+     */
+    private static final class Run {
+        private final File file;
+        private final int size;
+
+        private Run(File file, int size) {
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Reads a single run sequentially.
+     */
+    private static final class RunReader implements Comparable<RunReader> {
+        private final DataInputStream in;
+        private int remaining;
+        private String current;
+
+        private RunReader(Run run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run.file)));
+            this.remaining = run.size;
+        }
+
+        private boolean advance() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                in.close();
+                return false;
+            }
+            remaining--;
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            current = new String(bytes, StandardCharsets.UTF_8);
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return current.compareTo(other.current);
+        }
+    }
+
+    /**
+     * A k-way merge over all runs, de-duplicating equal identifiers across runs.
+     */
+    private static final class MergeIterator implements Iterator<String> {
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        private String last;
+        private String next;
+
+        private MergeIterator(List<Run> runs) throws IOException {
+            for (Run run : runs) {
+                RunReader reader = new RunReader(run);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            next = advance();
+        }
+
+        private String advance() throws IOException {
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                String candidate = reader.current;
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+                if (!candidate.equals(last)) {
+                    last = candidate;
+                    return candidate;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            try {
+                next = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read recon id spool", e);
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
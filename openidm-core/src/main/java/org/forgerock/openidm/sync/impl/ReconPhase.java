@@ -16,7 +16,6 @@
 
 package org.forgerock.openidm.sync.impl;
 
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -30,17 +29,32 @@ import org.forgerock.services.context.Context;
 class ReconPhase extends ReconFeeder {
     private final Context parentContext;
     private final Map<String, Map<String, Link>> allLinks;
-    private final Collection<String> remainingIds;
+    private final RemainingTargetIds remainingIds;
     private final Recon reconById;
 
     ReconPhase(Iterator<ResultEntry> resultIter, ReconciliationContext reconContext, Context parentContext,
-            Map<String, Map<String, Link>> allLinks, Collection<String> remainingIds, Recon reconById) {
+            Map<String, Map<String, Link>> allLinks, RemainingTargetIds remainingIds, Recon reconById) {
         super(resultIter, reconContext);
         this.parentContext = parentContext;
         this.allLinks = allLinks;
         this.remainingIds = remainingIds;
         this.reconById = reconById;
     }
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runs the phase through the reconciliation's staged pipeline, if one is configured.
+     */
+    @Override
+    void execute() throws SynchronizationException, InterruptedException {
+        ReconPipeline pipeline = reconContext.getPipeline();
+        if (pipeline != null) {
+            pipeline.execute(entriesIter, reconById, parentContext, allLinks, remainingIds);
+        } else {
+            super.execute();
+        }
+    }
+
     @Override
     Callable<Void> createTask(ResultEntry objectEntry) throws SynchronizationException {
         return new ReconTask(objectEntry, reconContext, parentContext,
@@ -0,0 +1,160 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.openidm.sync.SynchronizationException;
+import org.forgerock.services.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A staged, back-pressured execution of a reconciliation phase.
+ * <p>
+ * The thread feeding the phase iterates the (possibly paged) query results and hands each entry to the
+ * assessment stage, which loads the object, its link and correlated targets and determines the action.
+ * Assessed operations are handed on to the action stage, which performs the actions against the target
+ * and writes the audit entries. Each stage has its own thread pool and bounded queue, so a slow target
+ * only fills the action queue rather than stalling correlation, and each stage can be sized separately.
+ * <p>
+ * Configured per mapping through {@code "reconPipeline": {"assessThreads": 10, "actionThreads": 10,
+ * "queueSize": 1000}}.
+ */
+class ReconPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReconPipeline.class);
+
+    /** Default number of threads per stage */
+    static final int DEFAULT_STAGE_THREADS = 10;
+
+    private final ReconciliationContext reconContext;
+    private final ReconPipelineStage assessStage;
+    private final ReconPipelineStage actionStage;
+
+    /**
+     * Creates the pipeline stages from the mapping's {@code reconPipeline} configuration.
+     *
+     * @param reconContext the reconciliation context
+     * @param config the pipeline configuration
+     */
+    ReconPipeline(ReconciliationContext reconContext, JsonValue config) {
+        this.reconContext = reconContext;
+        int queueSize = config.get("queueSize").defaultTo(ReconFeeder.DEFAULT_FEED_SIZE).asInteger();
+        this.assessStage = new ReconPipelineStage("assess",
+                config.get("assessThreads").defaultTo(DEFAULT_STAGE_THREADS).asInteger(), queueSize);
+        this.actionStage = new ReconPipelineStage("action",
+                config.get("actionThreads").defaultTo(DEFAULT_STAGE_THREADS).asInteger(), queueSize);
+    }
+
+    /**
+     * Runs a reconciliation phase through the pipeline and waits for all its entries to complete.
+     *
+     * @param entriesIter the entries to reconcile
+     * @param recon the reconciliation to apply to each entry
+     * @param parentContext the context to reconcile in
+     * @param allLinks all links if pre-queried, or null for on-demand link querying
+     * @param remainingIds the target ids to remove any targets that were matched from
+     * @throws SynchronizationException if reconciling any entry failed
+     * @throws InterruptedException if interrupted while waiting for the stages
+     */
+    void execute(Iterator<ResultEntry> entriesIter, final Recon recon, final Context parentContext,
+            final Map<String, Map<String, Link>> allLinks, final RemainingTargetIds remainingIds)
+            throws SynchronizationException, InterruptedException {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            while (entriesIter.hasNext() && failure.get() == null) {
+                reconContext.checkCanceled();
+                final ResultEntry entry = entriesIter.next();
+                assessStage.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (failure.get() != null) {
+                            return;
+                        }
+                        ObjectSetContext.push(parentContext);
+                        try {
+                            final List<AssessedOperation> operations = recon.assess(entry.getId(), entry.getValue(),
+                                    reconContext, parentContext, allLinks);
+                            actionStage.submit(new Runnable() {
+                                @Override
+                                public void run() {
+                                    if (failure.get() != null) {
+                                        return;
+                                    }
+                                    ObjectSetContext.push(parentContext);
+                                    try {
+                                        recon.act(operations, reconContext, remainingIds);
+                                    } catch (Throwable t) {
+                                        failure.compareAndSet(null, t);
+                                    } finally {
+                                        ObjectSetContext.pop();
+                                    }
+                                }
+                            });
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            failure.compareAndSet(null, e);
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            ObjectSetContext.pop();
+                        }
+                    }
+                });
+            }
+        } catch (SynchronizationException | InterruptedException | RuntimeException e) {
+            // Let the queued tasks drain without doing further work
+            failure.compareAndSet(null, e);
+            throw e;
+        } finally {
+            // Assessment tasks hand over to the action stage before completing, so drain in stage order
+            assessStage.awaitDrained();
+            actionStage.awaitDrained();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof SynchronizationException) {
+            throw (SynchronizationException) t;
+        } else if (t != null) {
+            throw new SynchronizationException("Exception in executing recon task: " + t.getMessage(), t);
+        }
+        LOGGER.debug("Pipelined recon phase completed: {}", getStatistics());
+    }
+
+    /**
+     * @return the per-stage statistics, keyed by stage name
+     */
+    Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put(assessStage.getName(), assessStage.asMap());
+        stats.put(actionStage.getName(), actionStage.asMap());
+        return stats;
+    }
+
+    /**
+     * Stops the stage threads.
+     */
+    void shutdown() {
+        assessStage.shutdown();
+        actionStage.shutdown();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One stage of a pipelined reconciliation: a fixed pool of worker threads fed through a bounded queue.
+ * <p>
+ * Submitting blocks while the stage holds as many tasks as its threads plus its queue capacity, which
+ * propagates back-pressure to the previous stage instead of buffering an unbounded amount of work.
+ */
+class ReconPipelineStage {
+
+    private final String name;
+    private final int threads;
+    private final int capacity;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore permits;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private volatile long firstSubmitNanos = -1;
+    private volatile long lastCompletedNanos = -1;
+
+    /**
+     * @param name the stage name, as reported in the statistics
+     * @param threads the number of worker threads
+     * @param queueSize the number of tasks that may wait for a worker thread
+     */
+    ReconPipelineStage(String name, int threads, int queueSize) {
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        this.capacity = this.threads + Math.max(0, queueSize);
+        this.permits = new Semaphore(capacity);
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+    }
+
+    /**
+     * @return the stage name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Submits a task to this stage, blocking while the stage is full.
+     *
+     * @param task the task to run
+     * @throws InterruptedException if interrupted while waiting for room in the stage
+     */
+    void submit(final Runnable task) throws InterruptedException {
+        permits.acquire();
+        if (firstSubmitNanos < 0) {
+            firstSubmitNanos = System.nanoTime();
+        }
+        submitted.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final long start = System.nanoTime();
+                    try {
+                        task.run();
+                    } finally {
+                        lastCompletedNanos = System.nanoTime();
+                        busyNanos.addAndGet(lastCompletedNanos - start);
+                        completed.incrementAndGet();
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            submitted.decrementAndGet();
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until all tasks submitted to this stage have completed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitDrained() throws InterruptedException {
+        permits.acquire(capacity);
+        permits.release(capacity);
+    }
+
+    /**
+     * @return the number of tasks waiting for a worker thread
+     */
+    int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops the worker threads once the submitted tasks have completed.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return the stage statistics: threads, queue depth, in-flight and completed tasks, throughput
+     * (completed tasks per second since the first submission) and worker utilization
+     */
+    Map<String, Object> asMap() {
+        final long done = completed.get();
+        final long end = lastCompletedNanos > 0 ? lastCompletedNanos : System.nanoTime();
+        final long elapsedNanos = firstSubmitNanos < 0 ? 0 : end - firstSubmitNanos;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", threads);
+        stats.put("capacity", capacity);
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("active", executor.getActiveCount());
+        stats.put("submitted", submitted.get());
+        stats.put("completed", done);
+        stats.put("throughput", elapsedNanos > 0 ? done * 1e9 / elapsedNanos : 0d);
+        stats.put("utilization", elapsedNanos > 0 ? (double) busyNanos.get() / (elapsedNanos * threads) : 0d);
+        return stats;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Requests.newCreateRequest;
+import static org.forgerock.json.resource.Requests.newDeleteRequest;
+import static org.forgerock.json.resource.Requests.newQueryRequest;
+import static org.forgerock.json.resource.Requests.newReadRequest;
+import static org.forgerock.util.query.QueryFilter.and;
+import static org.forgerock.util.query.QueryFilter.equalTo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.json.JsonPointer;
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.NotFoundException;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.query.QueryFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only store of the ids a reconciliation phase processed, per situation.
+ * <p>
+ * The ids are appended in chunks, one repository object per chunk of up to {@link #CHUNK_SIZE} ids, so that a
+ * reconciliation of millions of objects writes a few thousand objects rather than keeping all the ids on the heap.
+ * A chunk is identified by the reconciliation, the phase, the situation and its index, and the ids are read back
+ * chunk by chunk from the first one until a chunk is not found.
+ * <p>
+ * The chunks are deleted by querying the chunks of the reconciliation rather than from what this instance wrote, and
+ * each chunk records the node that wrote it, so that the chunks of the reconciliations a node forgot by restarting
+ * can be purged with {@link #purge(ConnectionFactory, Collection, Context)}.
+ */
+class ReconResultStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReconResultStore.class);
+
+    /** The repository path of the chunks */
+    static final String RESULTS_PATH = "repo/recon/results";
+
+    /** The number of ids per chunk */
+    static final int CHUNK_SIZE = 1000;
+
+    /** Fields of a chunk */
+    static final String RECON_ID = "reconId";
+    static final String PHASE = "phase";
+    static final String NODE = "node";
+    static final String IDS = "ids";
+
+    /** The node writing the chunks */
+    private static volatile String nodeId;
+
+    /** The chunk of a situation being filled */
+    private static final class Chunk {
+        private List<String> ids = new ArrayList<>();
+        private int index;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final String reconId;
+    private final String phase;
+    private final Map<String, Chunk> chunks = new HashMap<>();
+
+    /**
+     * Creates the store of a reconciliation phase.
+     *
+     * @param connectionFactory the factory of the connections to the repository
+     * @param reconId the id of the reconciliation
+     * @param phase the name of the phase
+     */
+    ReconResultStore(ConnectionFactory connectionFactory, String reconId, String phase) {
+        this.connectionFactory = connectionFactory;
+        this.reconId = reconId;
+        this.phase = phase;
+    }
+
+    /**
+     * Appends an id, writing the chunk of the situation once full.
+     *
+     * @param situation the situation
+     * @param id the id processed
+     * @param context the context to write the chunk in
+     */
+    void append(String situation, String id, Context context) {
+        final List<String> full;
+        final int index;
+        synchronized (chunks) {
+            Chunk chunk = chunks.get(situation);
+            if (chunk == null) {
+                chunk = new Chunk();
+                chunks.put(situation, chunk);
+            }
+            chunk.ids.add(id);
+            if (chunk.ids.size() < CHUNK_SIZE) {
+                return;
+            }
+            full = chunk.ids;
+            index = chunk.index++;
+            chunk.ids = new ArrayList<>();
+        }
+        write(situation, index, full, context);
+    }
+
+    /**
+     * Writes the chunks not full yet, once the phase is done.
+     *
+     * @param context the context to write the chunks in
+     */
+    void flush(Context context) {
+        final Map<String, Chunk> remaining = new HashMap<>();
+        synchronized (chunks) {
+            for (Map.Entry<String, Chunk> entry : chunks.entrySet()) {
+                Chunk chunk = entry.getValue();
+                if (!chunk.ids.isEmpty()) {
+                    Chunk flushed = new Chunk();
+                    flushed.ids = chunk.ids;
+                    flushed.index = chunk.index++;
+                    chunk.ids = new ArrayList<>();
+                    remaining.put(entry.getKey(), flushed);
+                }
+            }
+        }
+        for (Map.Entry<String, Chunk> entry : remaining.entrySet()) {
+            write(entry.getKey(), entry.getValue().index, entry.getValue().ids, context);
+        }
+    }
+
+    /**
+     * Reads a chunk of ids of a reconciliation.
+     *
+     * @param connectionFactory the factory of the connections to the repository
+     * @param reconId the id of the reconciliation
+     * @param phase the name of the phase
+     * @param situation the situation
+     * @param index the index of the chunk
+     * @param context the context to read the chunk in
+     * @return the ids, or null if there is no such chunk
+     * @throws ResourceException if the chunk could not be read
+     */
+    static List<String> read(ConnectionFactory connectionFactory, String reconId, String phase, String situation,
+            int index, Context context) throws ResourceException {
+        try {
+            return connectionFactory.getConnection()
+                    .read(context, newReadRequest(RESULTS_PATH, chunkId(reconId, phase, situation, index)))
+                    .getContent().get(IDS).asList(String.class);
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sets the node writing the chunks, once per JVM.
+     *
+     * @param node the id of the node
+     */
+    static void setNodeId(String node) {
+        nodeId = node;
+    }
+
+    /**
+     * Deletes the chunks of the phase, once the reconciliation is forgotten.
+     *
+     * @param context the context to delete the chunks in
+     */
+    void delete(Context context) {
+        final List<String> chunkIds = new ArrayList<>();
+        try {
+            for (ResourceResponse chunk : queryChunks(connectionFactory,
+                    and(equalTo(new JsonPointer(RECON_ID), reconId),
+                            equalTo(new JsonPointer(PHASE), phase)), context)) {
+                chunkIds.add(chunk.getId());
+            }
+        } catch (ResourceException e) {
+            LOGGER.warn("Failed to query the {} ids of recon {}", phase, reconId, e);
+            return;
+        }
+        deleteChunks(connectionFactory, chunkIds, context);
+    }
+
+    /**
+     * Deletes the chunks this node wrote for reconciliations it does not know, that is the reconciliations it forgot
+     * by restarting.
+     *
+     * @param connectionFactory the factory of the connections to the repository
+     * @param knownReconIds the ids of the reconciliations known to the node, which may still be read
+     * @param context the context to delete the chunks in
+     * @return the number of chunks deleted
+     * @throws ResourceException if the chunks could not be queried
+     */
+    static int purge(ConnectionFactory connectionFactory, Collection<String> knownReconIds, Context context)
+            throws ResourceException {
+        if (nodeId == null) {
+            return 0;
+        }
+        final List<ResourceResponse> chunks =
+                queryChunks(connectionFactory, equalTo(new JsonPointer(NODE), nodeId), context);
+        final List<String> chunkIds = new ArrayList<>();
+        for (ResourceResponse chunk : chunks) {
+            // a recon started since must keep its chunks
+            if (!knownReconIds.contains(chunk.getContent().get(RECON_ID).asString())) {
+                chunkIds.add(chunk.getId());
+            }
+        }
+        deleteChunks(connectionFactory, chunkIds, context);
+        return chunkIds.size();
+    }
+
+    private static List<ResourceResponse> queryChunks(ConnectionFactory connectionFactory,
+            QueryFilter<JsonPointer> filter, Context context) throws ResourceException {
+        final List<ResourceResponse> chunks = new ArrayList<>();
+        // collected before deleting, the repository must not be called back while streaming the results
+        connectionFactory.getConnection().query(context,
+                newQueryRequest(RESULTS_PATH).setQueryFilter(filter).addField(RECON_ID),
+                new QueryResourceHandler() {
+                    @Override
+                    public boolean handleResource(ResourceResponse resource) {
+                        return chunks.add(resource);
+                    }
+                });
+        return chunks;
+    }
+
+    private static void deleteChunks(ConnectionFactory connectionFactory, List<String> chunkIds, Context context) {
+        for (String chunkId : chunkIds) {
+            try {
+                connectionFactory.getConnection().delete(context, newDeleteRequest(RESULTS_PATH, chunkId));
+            } catch (NotFoundException e) {
+                // deleted concurrently
+            } catch (ResourceException e) {
+                LOGGER.warn("Failed to delete the recon ids {}", chunkId, e);
+                return;
+            }
+        }
+    }
+
+    private void write(String situation, int index, List<String> ids, Context context) {
+        final JsonValue content = json(object(
+                field(RECON_ID, reconId),
+                field(PHASE, phase),
+                field(NODE, nodeId),
+                field("situation", situation),
+                field("chunk", index),
+                field(IDS, ids)));
+        try {
+            connectionFactory.getConnection().create(context,
+                    newCreateRequest(RESULTS_PATH, chunkId(reconId, phase, situation, index), content));
+        } catch (ResourceException e) {
+            // the statistics must not fail the recon
+            LOGGER.warn("Failed to store {} {} ids of recon {}", ids.size(), situation, reconId, e);
+        }
+    }
+
+    private static String chunkId(String reconId, String phase, String situation, int index) {
+        return reconId + "-" + phase + "-" + situation + "-" + index;
+    }
+}
@@ -34,6 +34,7 @@ import org.forgerock.json.resource.QueryResourceHandler;
 import org.forgerock.json.resource.QueryResponse;
 import org.forgerock.json.resource.ResourceException;
 import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.SortKey;
 import org.forgerock.openidm.core.ServerConstants;
 import org.forgerock.openidm.sync.SynchronizationException;
 import org.forgerock.openidm.util.RequestUtil;
@@ -228,6 +229,45 @@ public abstract class ReconTypeBase implements ReconTypeHandler {
     protected ReconQueryResult query(final String objectSet, final JsonValue query, final ReconciliationContext reconContext, 
             final Collection<String> collectionToPopulate, final boolean caseSensitive, final QuerySide querySide,
             int pageSize, String pagingCookie) throws SynchronizationException {
+        return query(objectSet, query, reconContext, collectionToPopulate, caseSensitive, querySide, pageSize,
+                pagingCookie, false);
+    }
+
+    /**
+     * Execute the specified query, optionally ordering the results by id.
+     *
+     * @param   objectSet
+     *          The object set to query.
+     * @param   query
+     *          The query parameters.
+     * @param   collectionToPopulate
+     *          The collection to populate with results.
+     * @param   caseSensitive
+     *          Whether the collection should be populated in case-sensitive
+     *          fashion; or, {@code false} it populates as lower case only.
+     * @param   pageSize
+     *          The page size if paging.
+     * @param   pagingCookie
+     *          The cookie to use if paging; {@code null} for the first page.
+     * @param   reconContext
+     *          The {@link ReconciliationContext} object associated with this
+     *          recon.
+     * @param   querySide
+     *          An indicator for which side of a reconciliation (source or
+     *          target) a query is for.
+     * @param   sortById
+     *          Whether the results should be requested in ascending
+     *          {@code _id} order.
+     *
+     * @return  A {@link ReconQueryResult} containing the collection of
+     *          (unqualified) ids.
+     *
+     * @throws  SynchronizationException
+     *          If retrieving or processing the ids failed
+     */
+    protected ReconQueryResult query(final String objectSet, final JsonValue query, final ReconciliationContext reconContext,
+            final Collection<String> collectionToPopulate, final boolean caseSensitive, final QuerySide querySide,
+            int pageSize, String pagingCookie, final boolean sortById) throws SynchronizationException {
         final Collection<String> ids = collectionToPopulate;
         final JsonValue objList = new JsonValue(new LinkedList<>());
         final ReconQueryResult reconQueryResult = new ReconQueryResult();
@@ -235,6 +275,9 @@ public abstract class ReconTypeBase implements ReconTypeHandler {
             QueryRequest request = RequestUtil.buildQueryRequestFromParameterMap(objectSet, query.asMap());
             request.setPageSize(pageSize);
             request.setPagedResultsCookie(pagingCookie);
+            if (sortById) {
+                request.addSortKey(SortKey.ascendingOrder(ResourceResponse.FIELD_CONTENT_ID));
+            }
             QueryResponse queryResponse = reconContext.getService().getConnectionFactory().getConnection().query(
             		reconContext.getService().getContext(), request,
             		new QueryResourceHandler() {
@@ -276,6 +319,54 @@ public abstract class ReconTypeBase implements ReconTypeHandler {
         return reconQueryResult;
     }
     
+    /**
+     * Execute the specified query, spooling the ids it returns without retaining any full entries.
+     *
+     * @param   objectSet
+     *          The object set to query.
+     * @param   query
+     *          The query parameters.
+     * @param   reconContext
+     *          The {@link ReconciliationContext} object associated with this
+     *          recon.
+     * @param   ids
+     *          The spool to add the ids to.
+     * @param   caseSensitive
+     *          Whether the ids should be spooled in case-sensitive fashion;
+     *          or, {@code false} they are spooled as lower case only.
+     *
+     * @throws  SynchronizationException
+     *          If retrieving or processing the ids failed
+     */
+    protected void queryIds(final String objectSet, final JsonValue query, final ReconciliationContext reconContext,
+            final SpooledIdSet ids, final boolean caseSensitive) throws SynchronizationException {
+        try {
+            QueryRequest request = RequestUtil.buildQueryRequestFromParameterMap(objectSet, query.asMap());
+            reconContext.getService().getConnectionFactory().getConnection().query(
+                    reconContext.getService().getContext(), request,
+                    new QueryResourceHandler() {
+                        @Override
+                        public boolean handleResource(ResourceResponse resource) {
+                            if (resource.getId() == null) {
+                                // do not add null values to the spool
+                                logger.warn("Resource {} id is null!", resource);
+                            } else {
+                                // duplicate ids are dropped when the spool is read back
+                                ids.add(caseSensitive
+                                        ? resource.getId()
+                                        : reconContext.getObjectMapping().getLinkType().normalizeId(resource.getId()));
+                            }
+                            return true;
+                        }
+                    });
+        } catch (JsonValueException jve) {
+            throw new SynchronizationException(jve);
+        } catch (ResourceException ose) {
+            throw new SynchronizationException(ose);
+        }
+        reconContext.checkCanceled(); // Throws an exception if reconciliation was canceled
+    }
+
     /**
      * Whether the query (source or target side query of a reconciliation)
      * returns full entry data, or just ids
@@ -332,6 +423,13 @@ public abstract class ReconTypeBase implements ReconTypeHandler {
     @Override
     public abstract ResultIterable queryTarget() throws SynchronizationException;
 
+    @Override
+    public abstract void queryTargetIds(SpooledIdSet targetIds) throws SynchronizationException;
+
+    @Override
+    public abstract ReconQueryResult queryTargetPage(int pageSize, String pagingCookie)
+            throws SynchronizationException;
+
     @Override
     public abstract JsonValue getReconParameters();
 }
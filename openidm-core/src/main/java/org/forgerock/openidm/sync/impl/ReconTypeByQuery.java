@@ -86,6 +86,26 @@ public class ReconTypeByQuery extends ReconTypeBase {
         ).getResultIterable();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void queryTargetIds(SpooledIdSet targetIds) throws SynchronizationException {
+        queryIds(targetQuery.get("resourceName").asString(), targetQuery, reconContext, targetIds,
+                reconContext.getObjectMapping().getLinkType().isTargetCaseSensitive());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReconQueryResult queryTargetPage(int pageSize, String pagingCookie) throws SynchronizationException {
+        return query(targetQuery.get("resourceName").asString(), targetQuery, reconContext,
+                Collections.synchronizedSet(new LinkedHashSet<String>()),
+                reconContext.getObjectMapping().getLinkType().isTargetCaseSensitive(), QuerySide.TARGET,
+                pageSize, pagingCookie, true);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -40,6 +40,26 @@ public interface ReconTypeHandler {
      * @throws SynchronizationException
      */
     ResultIterable queryTarget() throws SynchronizationException;
+
+    /**
+     * Performs the target query, adding the (normalized) target identifiers to the given spool
+     * without retaining any full entries the query may return.
+     *
+     * @param targetIds the spool to add the target identifiers to
+     * @throws SynchronizationException
+     */
+    void queryTargetIds(SpooledIdSet targetIds) throws SynchronizationException;
+
+    /**
+     * Performs a paged target query with the results in ascending id order, as used by the sorted
+     * merge-join reconciliation mode.
+     *
+     * @param pageSize a page size for the query.
+     * @param pagingCookie an optional pagingCookie. The value should be null for the first page.
+     * @return a {@link ReconQueryResult} object containing one page of (normalized) target ids and optional values.
+     * @throws SynchronizationException
+     */
+    ReconQueryResult queryTargetPage(int pageSize, String pagingCookie) throws SynchronizationException;
     
     /**
      * Returns a boolean indicating if the target phase should be executed for this recon.
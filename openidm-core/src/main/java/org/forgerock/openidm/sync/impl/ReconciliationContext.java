@@ -55,6 +55,13 @@ public class ReconciliationContext {
     private ReconTypeHandler reconTypeHandler;
     private final ReconciliationStatistic reconStat;
     private ExecutorService executor;
+    private ReconPipeline pipeline;
+
+    // If set, the batched correlation of the source page currently being reconciled
+    private volatile CorrelationBatcher correlationBatcher;
+
+    // If set, the links created by this recon are written in batches
+    private LinkBatch linkBatch;
 
     // If set, the list of all queried source Ids
     private Set<String> sourceIds;
@@ -99,7 +106,12 @@ public class ReconciliationContext {
 
         // Initialize the executor for this recon, or null if no executor should be used
         int noOfThreads = mapping.getTaskThreads();
-        if (noOfThreads > 0) {
+        JsonValue pipelineConfig = mapping.getConfig().get("reconPipeline");
+        if (pipelineConfig.isMap()) {
+            // Staged pipeline replaces the single task executor
+            pipeline = new ReconPipeline(this, pipelineConfig);
+            executor = null;
+        } else if (noOfThreads > 0) {
             executor = Executors.newFixedThreadPool(noOfThreads);
         } else {
             executor = null;
@@ -266,6 +278,42 @@ public class ReconciliationContext {
         return executor;
     }
 
+    /**
+     * @return the staged pipeline for this recon, or null if the phases should run on the task executor
+     */
+    ReconPipeline getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * @return the batch collecting the links this recon creates, or null if links are created individually
+     */
+    LinkBatch getLinkBatch() {
+        return linkBatch;
+    }
+
+    /**
+     * @param linkBatch the batch to collect the links this recon creates, or null to create links individually
+     */
+    void setLinkBatch(LinkBatch linkBatch) {
+        this.linkBatch = linkBatch;
+    }
+
+    /**
+     * @return the batched correlation of the current source page, or null if sources correlate individually
+     */
+    CorrelationBatcher getCorrelationBatcher() {
+        return correlationBatcher;
+    }
+
+    /**
+     * @param correlationBatcher the batched correlation of the current source page, or null to correlate
+     * sources individually
+     */
+    void setCorrelationBatcher(CorrelationBatcher correlationBatcher) {
+        this.correlationBatcher = correlationBatcher;
+    }
+
     /**
      * Query (and cache if necessary) sources to reconcile
      * @return the source ids to reconcile in this recon scope
@@ -288,6 +336,28 @@ public class ReconciliationContext {
         return result;
     }
 
+    /**
+     * Query the target ids to reconcile into the given spool, without caching them in this context.
+     * Used by streaming reconciliation, which keeps the target ids out of the heap; existence checks
+     * against the target set then fall back to loading the target object.
+     * @param targetIds the spool to add the (normalized) target ids to
+     * @throws SynchronizationException if getting the ids to reconcile failed
+     */
+    void queryTargetIds(SpooledIdSet targetIds) throws SynchronizationException {
+        getReconHandler().queryTargetIds(targetIds);
+        this.targets = null;
+        this.hasTargetsValues = false;
+        this.totalTargetEntries = Integer.valueOf((int) Math.min(targetIds.size(), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Forget the cached source ids, so that source existence checks fall back to loading the source object.
+     * Used once the ids cached for the current page no longer describe the whole source set.
+     */
+    void clearSourceIds() {
+        this.sourceIds = null;
+    }
+
     /**
      * @param sourceIds the list of all source object ids in the reconciliation scope
      */
@@ -394,6 +464,9 @@ public class ReconciliationContext {
             executor.shutdown();
             executor = null;
         }
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
     }
 
     /**
@@ -414,6 +487,9 @@ public class ReconciliationContext {
         reconSummary.put("started", getStatistics().getStarted());
         reconSummary.put("ended", getStatistics().getEnded());
         reconSummary.put("duration", getStatistics().getDuration());
+        if (pipeline != null) {
+            reconSummary.put("pipeline", pipeline.getStatistics());
+        }
         return reconSummary;
     }
 
@@ -16,7 +16,11 @@
  */
 package org.forgerock.openidm.sync.impl;
 
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
 import static org.forgerock.json.resource.Responses.newActionResponse;
+import static org.forgerock.json.resource.Responses.newQueryResponse;
 import static org.forgerock.json.resource.Responses.newResourceResponse;
 import static org.forgerock.openidm.util.ResourceUtil.notSupported;
 import static org.forgerock.util.query.QueryFilter.and;
@@ -29,6 +33,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -57,13 +62,16 @@ import org.forgerock.json.resource.ReadRequest;
 import org.forgerock.json.resource.RequestHandler;
 import org.forgerock.json.resource.Requests;
 import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourcePath;
 import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.json.resource.UpdateRequest;
 import org.forgerock.openidm.core.IdentityServer;
 import org.forgerock.openidm.core.ServerConstants;
+import org.forgerock.openidm.filter.JsonValueFilterVisitor;
 import org.forgerock.openidm.router.IDMConnectionFactory;
 import org.forgerock.openidm.sync.ReconContext;
 import org.forgerock.openidm.sync.SynchronizationException;
+import org.forgerock.openidm.util.ContextUtil;
 import org.forgerock.services.context.Context;
 import org.forgerock.util.promise.Promise;
 import org.osgi.service.component.ComponentContext;
@@ -97,6 +105,7 @@ public class ReconciliationService
     private static final String MBEAN_NAME = "org.forgerock.openidm.recon:type=Reconciliation";
     private static final String AUDIT_RECON = "audit/recon";
     private static final String SUMMARY = "summary";
+    private static final JsonValueFilterVisitor FILTER_VISITOR = new JsonValueFilterVisitor();
 
     public enum ReconAction {
         recon, reconByQuery, reconById;
@@ -142,6 +151,11 @@ public class ReconciliationService
      */
     ExecutorService fullReconExecutor;
 
+    /**
+     * The thread deleting the ids stored by the runs forgotten, which must not take the place of a run.
+     */
+    ExecutorService cleanupExecutor;
+
     /**
      * Map from reconciliation ID to the run itself
      * In historical start order, oldest first.
@@ -241,7 +255,69 @@ public class ReconciliationService
     @Override
     public Promise<QueryResponse, ResourceException> handleQuery(final Context context, final QueryRequest request,
     		final QueryResourceHandler handler) {
-        return notSupported(request).asPromise();
+        final ResourcePath path = request.getResourcePathObject();
+        if (path.size() != 3) {
+            return notSupported(request).asPromise();
+        }
+        try {
+            return querySituationIds(context, request, handler, path.get(0), path.get(1), path.get(2)).asPromise();
+        } catch (ResourceException e) {
+            return e.asPromise();
+        } catch (JsonValueException e) {
+            return new BadRequestException(e.getMessage(), e).asPromise();
+        }
+    }
+
+    /**
+     * Pages through the ids a reconciliation stored for a situation, on {@code recon/{reconId}/{phase}/{situation}},
+     * for a mapping with {@code reconSituationIds} set to {@code repo}. The paged results cookie is the position of
+     * the next id, as {@code chunk:index}.
+     */
+    private QueryResponse querySituationIds(Context context, QueryRequest request, QueryResourceHandler handler,
+            String reconId, String phase, String situation) throws ResourceException {
+        if (!PhaseStatistic.phaseName(PhaseStatistic.Phase.SOURCE).equals(phase)
+                && !PhaseStatistic.phaseName(PhaseStatistic.Phase.TARGET).equals(phase)) {
+            throw new BadRequestException("Unknown reconciliation phase " + phase);
+        }
+        if (request.getQueryFilter() == null) {
+            throw new BadRequestException("The ids of a situation are only queried with a _queryFilter");
+        }
+        int chunk = 0;
+        int position = 0;
+        final String cookie = request.getPagedResultsCookie();
+        if (cookie != null && !cookie.isEmpty()) {
+            final String[] parts = cookie.split(":");
+            try {
+                chunk = Integer.parseInt(parts[0]);
+                position = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new BadRequestException("Invalid paged results cookie " + cookie);
+            }
+        }
+        final int pageSize = request.getPageSize();
+        int returned = 0;
+        List<String> ids;
+        while ((ids = ReconResultStore.read(getConnectionFactory(), reconId, phase, situation, chunk, context))
+                != null) {
+            for (; position < ids.size(); position++) {
+                if (pageSize > 0 && returned == pageSize) {
+                    return newQueryResponse(chunk + ":" + position);
+                }
+                final JsonValue content = json(object(
+                        field(ResourceResponse.FIELD_CONTENT_ID, ids.get(position)),
+                        field("phase", phase),
+                        field("situation", situation)));
+                if (request.getQueryFilter().accept(FILTER_VISITOR, content)) {
+                    returned++;
+                    if (!handler.handleResource(newResourceResponse(ids.get(position), null, content))) {
+                        return newQueryResponse();
+                    }
+                }
+            }
+            chunk++;
+            position = 0;
+        }
+        return newQueryResponse();
     }
 
     /**
@@ -420,6 +496,7 @@ public class ReconciliationService
         // Clean out run history if needed
         // Since it only checks for completed runs when a new run is started this
         // only provides for approximate adherence to maxCompleteRuns
+        final List<ReconciliationContext> removedRuns = new ArrayList<>();
         synchronized(reconRuns) {
             if (reconRuns.size() > maxCompletedRuns) {
                 int completedCount = 0;
@@ -433,12 +510,25 @@ public class ReconciliationService
                         ++completedCount;
                         if (completedCount > maxCompletedRuns) {
                             reconRuns.remove(key);
+                            removedRuns.add(aRun);
                         }
                     }
                 }
             }
             reconRuns.put(reconContext.getReconId(), reconContext);
         }
+        if (!removedRuns.isEmpty()) {
+            // delete the ids stored by the runs forgotten, in the background as there may be many
+            final Context context = ObjectSetContext.get();
+            cleanupExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (ReconciliationContext removedRun : removedRuns) {
+                        removedRun.getStatistics().deleteSituationIds(context);
+                    }
+                }
+            });
+        }
     }
 
     @Activate
@@ -454,6 +544,27 @@ public class ReconciliationService
             int maxConcurrentFullRecons = 10; // TODO: make configurable
             fullReconExecutor = Executors.newFixedThreadPool(maxConcurrentFullRecons);
 
+            // Spool files of streaming recons that did not complete on a previous run are never deleted otherwise
+            ReconIdSpool.initDirectory(IdentityServer.getFileForWorkingPath("recon/spool"));
+
+            // The ids stored by the runs of a previous start are not deleted with the runs, as they are forgotten
+            cleanupExecutor = Executors.newSingleThreadExecutor();
+            ReconResultStore.setNodeId(IdentityServer.getInstance().getProperty(IdentityServer.NODE_ID,
+                    IdentityServer.getInstance().getNodeName()));
+            cleanupExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // the live ids, a run started while purging keeps its chunks
+                        int purged = ReconResultStore.purge(connectionFactory, reconRuns.keySet(),
+                                ContextUtil.createInternalContext());
+                        logger.debug("Purged {} chunks of recon ids of previous runs", purged);
+                    } catch (ResourceException | RuntimeException e) {
+                        logger.warn("Failed to purge the recon ids of previous runs", e);
+                    }
+                }
+            });
+
             registerMBean();
         } catch (RuntimeException ex) {
             logger.warn("Configuration invalid and could not be parsed, can not start reconciliation service: "
@@ -477,6 +588,9 @@ public class ReconciliationService
     @Deactivate
     void deactivate(ComponentContext compContext) {
         logger.debug("Deactivating Service {}", compContext);
+        if (cleanupExecutor != null) {
+            cleanupExecutor.shutdown();
+        }
         unregisterMBean();
         logger.info("Reconciliation service stopped.");
     }
@@ -594,4 +708,47 @@ public class ReconciliationService
             throw new InternalServerErrorException("Unable to get the maximum pool size in recon thread pool");
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> getRunsByState() {
+        Map<String, Integer> runsByState = new TreeMap<>();
+        synchronized (reconRuns) {
+            for (ReconciliationContext run : reconRuns.values()) {
+                Integer count = runsByState.get(run.getState());
+                runsByState.put(run.getState(), count == null ? 1 : count + 1);
+            }
+        }
+        return runsByState;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Map<String, Long>> getActiveProcessedByMapping() {
+        Map<String, Map<String, Long>> processedByMapping = new TreeMap<>();
+        synchronized (reconRuns) {
+            for (ReconciliationContext run : reconRuns.values()) {
+                if (run.getStage().isComplete()) {
+                    continue;
+                }
+                Map<String, Long> processed = processedByMapping.get(run.getMapping());
+                if (processed == null) {
+                    processed = new LinkedHashMap<>();
+                    processed.put("source", 0L);
+                    processed.put("target", 0L);
+                    processed.put("links", 0L);
+                    processedByMapping.put(run.getMapping(), processed);
+                }
+                ReconciliationStatistic statistics = run.getStatistics();
+                processed.put("source", processed.get("source") + statistics.getSourceProcessed());
+                processed.put("target", processed.get("target") + statistics.getTargetProcessed());
+                processed.put("links", processed.get("links") + statistics.getLinkProcessed());
+            }
+        }
+        return processedByMapping;
+    }
 }
@@ -18,6 +18,7 @@ package org.forgerock.openidm.sync.impl;
 
 import org.forgerock.json.resource.ResourceException;
 
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -66,4 +67,16 @@ public interface ReconciliationServiceMBean {
      * @throws ResourceException if there is an error getting maximum allowed number of threads.
      */
     public int getMaximumPoolSize() throws ResourceException;
+
+    /**
+     * Gets the number of reconciliation runs kept in memory, by state.
+     * @return the number of runs, by state ("ACTIVE", "SUCCESS", "FAILED" or "CANCELED").
+     */
+    public Map<String, Integer> getRunsByState();
+
+    /**
+     * Gets the entries processed by the active reconciliation runs, summed up per mapping.
+     * @return the entries processed, by mapping name and then by "source", "target" or "links".
+     */
+    public Map<String, Map<String, Long>> getActiveProcessedByMapping();
 }
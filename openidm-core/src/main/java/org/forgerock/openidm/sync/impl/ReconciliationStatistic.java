@@ -30,6 +30,7 @@ import org.forgerock.openidm.core.ServerConstants;
 import org.forgerock.openidm.sync.ReconAction;
 import org.forgerock.openidm.util.DateUtil;
 import org.forgerock.openidm.util.DurationStatistics;
+import org.forgerock.services.context.Context;
 
 /**
  * Statistic for a reconciliation run
@@ -94,13 +95,26 @@ public class ReconciliationStatistic {
 
     public ReconciliationStatistic(ReconciliationContext reconContext) {
         this.reconContext = reconContext;
-        sourceStat = new PhaseStatistic(this, PhaseStatistic.Phase.SOURCE, reconContext.getObjectMapping().getSourceObjectSet());
-        targetStat = new PhaseStatistic(this, PhaseStatistic.Phase.TARGET, reconContext.getObjectMapping().getTargetObjectSet());
+        final ObjectMapping mapping = reconContext.getObjectMapping();
+        sourceStat = newPhaseStatistic(mapping, PhaseStatistic.Phase.SOURCE, mapping.getSourceObjectSet());
+        targetStat = newPhaseStatistic(mapping, PhaseStatistic.Phase.TARGET, mapping.getTargetObjectSet());
         for (Status status : Status.values()) {
             statusProcessed.put(status, new AtomicInteger());
         }
     }
 
+    private PhaseStatistic newPhaseStatistic(ObjectMapping mapping, PhaseStatistic.Phase phase, String name) {
+        final PhaseStatistic.SituationIds situationIds = mapping.getReconSituationIds();
+        if (situationIds == PhaseStatistic.SituationIds.sample) {
+            return new PhaseStatistic(this, phase, name, mapping.getReconSituationSampleSize(), null);
+        } else if (situationIds == PhaseStatistic.SituationIds.repo) {
+            return new PhaseStatistic(this, phase, name, mapping.getReconSituationSampleSize(),
+                    new ReconResultStore(mapping.getConnectionFactory(), reconContext.getReconId(),
+                            PhaseStatistic.phaseName(phase)));
+        }
+        return new PhaseStatistic(this, phase, name);
+    }
+
     /**
      * For the given {@code key}, calculates and records the time-duration, since
      * {@link DurationStatistics#startNanoTime() startNanoTime} occurred in the current thread.
@@ -151,6 +165,26 @@ public class ReconciliationStatistic {
         }
     }
 
+    /**
+     * Writes the ids of the situations not stored yet, once a phase is done.
+     *
+     * @param context the context to write the ids in
+     */
+    void flushSituationIds(Context context) {
+        sourceStat.flush(context);
+        targetStat.flush(context);
+    }
+
+    /**
+     * Deletes the ids of the situations stored, once the reconciliation is forgotten.
+     *
+     * @param context the context to delete the ids in
+     */
+    void deleteSituationIds(Context context) {
+        sourceStat.deleteStored(context);
+        targetStat.deleteStored(context);
+    }
+
     public void sourceQueryStart() {
         sourceStat.queryStartTime = System.currentTimeMillis();
     }
@@ -0,0 +1,58 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import java.util.Set;
+
+/**
+ * The target ids left for the target phase of a reconciliation, which the source phase removes the targets it
+ * handled from.
+ */
+interface RemainingTargetIds {
+
+    /**
+     * Removes a target handled by the source phase.
+     *
+     * @param id the (normalized) id of the target
+     */
+    void remove(String id);
+
+    /**
+     * Remaining target ids kept in a set.
+     */
+    final class InSet implements RemainingTargetIds {
+        private final Set<String> ids;
+
+        /**
+         * Creates the remaining target ids of a set.
+         *
+         * @param ids the set of remaining target ids, safe for concurrent use
+         */
+        InSet(Set<String> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public void remove(String id) {
+            ids.remove(id);
+        }
+
+        @Override
+        public String toString() {
+            return ids.toString();
+        }
+    }
+}
@@ -16,10 +16,12 @@
 
 package org.forgerock.openidm.sync.impl;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ResourceException;
 import org.forgerock.openidm.audit.util.Status;
 import org.forgerock.openidm.sync.ReconAction;
 import org.forgerock.openidm.sync.SynchronizationException;
@@ -43,35 +45,19 @@ class SourceRecon implements Recon {
      */
     @Override
     public void recon(String id, JsonValue objectEntry, ReconciliationContext reconContext, Context context,
-            Map<String, Map<String, Link>> allLinks, Collection<String> remainingIds)
+            Map<String, Map<String, Link>> allLinks, RemainingTargetIds remainingIds)
             throws SynchronizationException {
         reconContext.checkCanceled();
         LazyObjectAccessor sourceObjectAccessor = objectEntry == null
                 ? new LazyObjectAccessor(objectMapping.getConnectionFactory(), objectMapping.getSourceObjectSet(), id) // Load source detail on demand
                 : new LazyObjectAccessor(objectMapping.getConnectionFactory(), objectMapping.getSourceObjectSet(), id, objectEntry); // Pre-queried source detail
         Status status = Status.SUCCESS;
-        final ReconciliationStatistic stats = reconContext.getStatistics();
-
-        if (objectEntry == null) {
-            final long sourceObjectQueryStart = ObjectMapping.startNanoTime(reconContext);
-            objectEntry = sourceObjectAccessor.getObject();
-            stats.addDuration(ReconciliationStatistic.DurationMetric.sourceObjectQuery, sourceObjectQueryStart);
-        }
+        objectEntry = loadSourceObject(objectEntry, sourceObjectAccessor, reconContext);
 
         for (String linkQualifier : objectMapping.getLinkQualifiers(objectEntry, null, false, context, reconContext)) {
-            SourceSyncOperation op = new SourceSyncOperation(objectMapping, context);
-            op.reconContext = reconContext;
-            op.setLinkQualifier(linkQualifier);
-
-            ReconAuditEventLogger auditEvent = new ReconAuditEventLogger(op, objectMapping.getName(), context);
-            auditEvent.setLinkQualifier(op.getLinkQualifier());
-            op.sourceObjectAccessor = sourceObjectAccessor;
-            if (allLinks != null) {
-                String normalizedSourceId = objectMapping.getLinkType().normalizeSourceId(id);
-                op.initializeLink(allLinks.get(linkQualifier).get(normalizedSourceId));
-            }
-            auditEvent.setSourceObjectId(LazyObjectAccessor.qualifiedId(objectMapping.getSourceObjectSet(), id));
-            op.reconId = reconContext.getReconId();
+            AssessedOperation operation =
+                    newOperation(id, linkQualifier, sourceObjectAccessor, reconContext, context, allLinks);
+            SourceSyncOperation op = (SourceSyncOperation) operation.op;
             try {
                 op.sync();
             } catch (SynchronizationException se) {
@@ -79,37 +65,154 @@ class SourceRecon implements Recon {
                     status = Status.FAILURE; // exception was not intentional
                     LOGGER.warn("Unexpected failure during source reconciliation {}", op.reconId, se);
                 }
-                objectMapping.setLogEntryMessage(auditEvent, se);
+                objectMapping.setLogEntryMessage(operation.auditEvent, se);
             }
+            status = complete(op, operation.auditEvent, status, reconContext, remainingIds);
+        }
+    }
 
-            // update statistics with status
-            reconContext.getStatistics().processStatus(status);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AssessedOperation> assess(String id, JsonValue objectEntry, ReconciliationContext reconContext,
+            Context context, Map<String, Map<String, Link>> allLinks) throws SynchronizationException {
+        reconContext.checkCanceled();
+        LazyObjectAccessor sourceObjectAccessor = objectEntry == null
+                ? new LazyObjectAccessor(objectMapping.getConnectionFactory(), objectMapping.getSourceObjectSet(), id)
+                : new LazyObjectAccessor(objectMapping.getConnectionFactory(), objectMapping.getSourceObjectSet(), id, objectEntry);
+        objectEntry = loadSourceObject(objectEntry, sourceObjectAccessor, reconContext);
 
-            String[] targetIds = op.getTargetIds();
-            for (String handledId : targetIds) {
-                // If target system has case insensitive IDs, remove without regard to case
-                String normalizedHandledId = objectMapping.getLinkType().normalizeTargetId(handledId);
-                remainingIds.remove(normalizedHandledId);
-                LOGGER.trace("Removed target from remaining targets: {}", normalizedHandledId);
+        List<AssessedOperation> operations = new ArrayList<>();
+        for (String linkQualifier : objectMapping.getLinkQualifiers(objectEntry, null, false, context, reconContext)) {
+            AssessedOperation operation =
+                    newOperation(id, linkQualifier, sourceObjectAccessor, reconContext, context, allLinks);
+            try {
+                ((SourceSyncOperation) operation.op).assess();
+            } catch (SynchronizationException se) {
+                failed(operation, se);
             }
-            if (!ReconAction.NOREPORT.equals(op.action) && (status == Status.FAILURE || op.action != null)) {
-                auditEvent.setReconciling("source");
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void act(List<AssessedOperation> operations, ReconciliationContext reconContext,
+            RemainingTargetIds remainingIds) throws SynchronizationException {
+        for (AssessedOperation operation : operations) {
+            SourceSyncOperation op = (SourceSyncOperation) operation.op;
+            if (!operation.failed) {
                 try {
-                    if (op.hasTargetObject()) {
-                        auditEvent.setTargetObjectId(LazyObjectAccessor.qualifiedId(objectMapping.getTargetObjectSet(),
-                                op.getTargetObjectId()));
+                    op.act();
+                } catch (SynchronizationException se) {
+                    failed(operation, se);
+                }
+            }
+            complete(op, operation.auditEvent, operation.status, reconContext, remainingIds);
+        }
+    }
+
+    private JsonValue loadSourceObject(JsonValue objectEntry, LazyObjectAccessor sourceObjectAccessor,
+            ReconciliationContext reconContext) throws SynchronizationException {
+        if (objectEntry == null) {
+            final long sourceObjectQueryStart = ObjectMapping.startNanoTime(reconContext);
+            objectEntry = sourceObjectAccessor.getObject();
+            reconContext.getStatistics().addDuration(ReconciliationStatistic.DurationMetric.sourceObjectQuery,
+                    sourceObjectQueryStart);
+        }
+        return objectEntry;
+    }
+
+    private AssessedOperation newOperation(String id, String linkQualifier, LazyObjectAccessor sourceObjectAccessor,
+            ReconciliationContext reconContext, Context context, Map<String, Map<String, Link>> allLinks)
+            throws SynchronizationException {
+        SourceSyncOperation op = new SourceSyncOperation(objectMapping, context);
+        op.reconContext = reconContext;
+        op.setLinkQualifier(linkQualifier);
+
+        ReconAuditEventLogger auditEvent = new ReconAuditEventLogger(op, objectMapping.getName(), context);
+        auditEvent.setLinkQualifier(op.getLinkQualifier());
+        op.sourceObjectAccessor = sourceObjectAccessor;
+        if (allLinks != null) {
+            String normalizedSourceId = objectMapping.getLinkType().normalizeSourceId(id);
+            op.initializeLink(allLinks.get(linkQualifier).get(normalizedSourceId));
+        }
+        auditEvent.setSourceObjectId(LazyObjectAccessor.qualifiedId(objectMapping.getSourceObjectSet(), id));
+        op.reconId = reconContext.getReconId();
+        return new AssessedOperation(op, auditEvent);
+    }
+
+    private void failed(AssessedOperation operation, SynchronizationException se) {
+        operation.failed = true;
+        if (operation.op.action != ReconAction.EXCEPTION) {
+            operation.status = Status.FAILURE; // exception was not intentional
+            LOGGER.warn("Unexpected failure during source reconciliation {}", operation.op.reconId, se);
+        }
+        objectMapping.setLogEntryMessage(operation.auditEvent, se);
+    }
+
+    private Status complete(final SourceSyncOperation op, final ReconAuditEventLogger auditEvent, Status status,
+            final ReconciliationContext reconContext, RemainingTargetIds remainingIds)
+            throws SynchronizationException {
+        String[] targetIds = op.getTargetIds();
+        for (String handledId : targetIds) {
+            // If target system has case insensitive IDs, remove without regard to case
+            String normalizedHandledId = objectMapping.getLinkType().normalizeTargetId(handledId);
+            remainingIds.remove(normalizedHandledId);
+            LOGGER.trace("Removed target from remaining targets: {}", normalizedHandledId);
+        }
+
+        LinkBatch linkBatch = reconContext.getLinkBatch();
+        if (op.batchedLink != null && linkBatch != null && status == Status.SUCCESS) {
+            // The operation only succeeded if its link gets written
+            linkBatch.whenWritten(op.batchedLink, new LinkBatch.Completion() {
+                @Override
+                public void linkWritten(ResourceException failure) {
+                    Status linkStatus = Status.SUCCESS;
+                    if (failure != null) {
+                        linkStatus = Status.FAILURE;
+                        objectMapping.setLogEntryMessage(auditEvent,
+                                new SynchronizationException("Failed to create link", failure));
+                    }
+                    try {
+                        report(op, auditEvent, linkStatus, reconContext);
+                    } catch (SynchronizationException e) {
+                        LOGGER.warn("Failed to report source reconciliation {}", reconContext.getReconId(), e);
                     }
-                } catch (SynchronizationException ex) {
-                    auditEvent.setMessage("Failure in preparing recon entry " + ex.getMessage() + " for target: "
-                            + op.getTargetObjectId() + " original status: " + status + " " +
-                            "message: " + auditEvent.getMessage());
-                    status = Status.FAILURE;
                 }
-                auditEvent.setStatus(status);
-                auditEvent.setAmbiguousTargetIds(op.getAmbiguousTargetIds());
-                auditEvent.setReconId(reconContext.getReconId());
-                objectMapping.logEntry(auditEvent, reconContext);
+            });
+            return status;
+        }
+        return report(op, auditEvent, status, reconContext);
+    }
+
+    private Status report(SourceSyncOperation op, ReconAuditEventLogger auditEvent, Status status,
+            ReconciliationContext reconContext) throws SynchronizationException {
+        // update statistics with status
+        reconContext.getStatistics().processStatus(status);
+
+        if (!ReconAction.NOREPORT.equals(op.action) && (status == Status.FAILURE || op.action != null)) {
+            auditEvent.setReconciling("source");
+            try {
+                if (op.hasTargetObject()) {
+                    auditEvent.setTargetObjectId(LazyObjectAccessor.qualifiedId(objectMapping.getTargetObjectSet(),
+                            op.getTargetObjectId()));
+                }
+            } catch (SynchronizationException ex) {
+                auditEvent.setMessage("Failure in preparing recon entry " + ex.getMessage() + " for target: "
+                        + op.getTargetObjectId() + " original status: " + status + " " +
+                        "message: " + auditEvent.getMessage());
+                status = Status.FAILURE;
             }
+            auditEvent.setStatus(status);
+            auditEvent.setAmbiguousTargetIds(op.getAmbiguousTargetIds());
+            auditEvent.setReconId(reconContext.getReconId());
+            objectMapping.logEntry(auditEvent, reconContext);
         }
+        return status;
     }
 }
@@ -50,6 +50,16 @@ class SourceSyncOperation extends SyncOperation {
     // If it can not uniquely identify a target, the list of ambiguous target ids
     private List<String> ambiguousTargetIds;
 
+    /**
+     * Whether a link existed when the action was determined, retained between {@link #assess()} and {@link #act()}.
+     */
+    private boolean linkExisted;
+
+    /**
+     * The target value before any action was performed, retained between {@link #assess()} and {@link #act()}.
+     */
+    private JsonValue oldTargetValue = json(null);
+
     /**
      * Creates source-{@link SyncOperation}.
      *
@@ -57,14 +67,23 @@ class SourceSyncOperation extends SyncOperation {
      */
     SourceSyncOperation(ObjectMapping objectMapping, Context context) {
         super(objectMapping, context);
-        correlation = new Correlation(objectMapping);
+        correlation = objectMapping.getScripts().correlation;
         correlateEmptyTargetSet = objectMapping.getConfig().get("correlateEmptyTargetSet").defaultTo(false).asBoolean();
     }
 
     @Override
-    @SuppressWarnings("fallthrough")
     public JsonValue sync() throws SynchronizationException {
-        JsonValue oldTargetValue = json(null);
+        assess();
+        return act();
+    }
+
+    /**
+     * Assesses the situation and determines the action to take, without performing it.
+     * Together with {@link #act()} this allows the two halves of a sync to run in separate stages.
+     *
+     * @throws SynchronizationException if assessing the situation or determining the action failed
+     */
+    void assess() throws SynchronizationException {
         try {
             EventEntry measureSituation = Publisher.start(ObjectMapping.EVENT_SOURCE_ASSESS_SITUATION, getSourceObjectId(), null);
             try {
@@ -73,7 +92,7 @@ class SourceSyncOperation extends SyncOperation {
                 measureSituation.end();
             }
             EventEntry measureDetermine = Publisher.start(ObjectMapping.EVENT_SOURCE_DETERMINE_ACTION, getSourceObjectId(), null);
-            boolean linkExisted = (getLinkId() != null);
+            linkExisted = (getLinkId() != null);
 
             try {
                 determineAction(getContext());
@@ -85,6 +104,20 @@ class SourceSyncOperation extends SyncOperation {
                     oldTargetValue = targetObjectAccessor.getObject();
                 }
             }
+        } catch (SynchronizationException e) {
+            e.setDetail(toSyncResult());
+            throw e;
+        }
+    }
+
+    /**
+     * Performs the action determined by a preceding {@link #assess()}.
+     *
+     * @return the sync result
+     * @throws SynchronizationException if performing the action failed
+     */
+    JsonValue act() throws SynchronizationException {
+        try {
             EventEntry measurePerform = Publisher.start(ObjectMapping.EVENT_SOURCE_PERFORM_ACTION, getSourceObjectId(), null);
             try {
                 performAction();
@@ -96,18 +129,19 @@ class SourceSyncOperation extends SyncOperation {
                             linkExisted, getLinkId(), linkCreated, situation, action);
                 }
             }
-
-            JsonValue syncResult = toJsonValue();
-            syncResult.put("oldTargetValue", oldTargetValue != null ? oldTargetValue.getObject() : null);
-            return syncResult;
+            return toSyncResult();
         } catch (SynchronizationException e) {
-            JsonValue syncResult = toJsonValue();
-            syncResult.put("oldTargetValue", oldTargetValue != null ? oldTargetValue.getObject() : null);
-            e.setDetail(syncResult);
+            e.setDetail(toSyncResult());
             throw e;
         }
     }
 
+    private JsonValue toSyncResult() throws SynchronizationException {
+        JsonValue syncResult = toJsonValue();
+        syncResult.put("oldTargetValue", oldTargetValue != null ? oldTargetValue.getObject() : null);
+        return syncResult;
+    }
+
     @Override
     protected boolean isSourceToTarget() {
         return true;
@@ -263,6 +297,14 @@ class SourceSyncOperation extends SyncOperation {
                     final long targetLinkQueryStart = ObjectMapping.startNanoTime(reconContext);
                     checkExistingLink.getLinkForTarget(targetObjectAccessor.getLocalId());
                     ObjectMapping.addDuration(reconContext, ReconciliationStatistic.DurationMetric.targetLinkQuery, targetLinkQueryStart);
+                    if (checkExistingLink._id == null && reconContext != null && reconContext.getLinkBatch() != null) {
+                        // The target may have been linked by another thread, with the link not written yet
+                        Link pendingLink = reconContext.getLinkBatch().getPendingLinkForTarget(getLinkQualifier(),
+                                targetObjectAccessor.getLocalId());
+                        if (pendingLink != null) {
+                            checkExistingLink = pendingLink;
+                        }
+                    }
 
                     if (checkExistingLink._id == null || checkExistingLink.sourceId == null) {
                         situation = Situation.FOUND;
@@ -341,7 +383,14 @@ class SourceSyncOperation extends SyncOperation {
             Map<String, Object> scope = new HashMap<String, Object>();
             scope.put("source", sourceObject.asMap());
             try {
-                result = correlation.correlate(scope, getLinkQualifier(), getContext(), reconContext);
+                if (sourceObjectOverride == null && reconContext != null
+                        && reconContext.getCorrelationBatcher() != null) {
+                    result = reconContext.getCorrelationBatcher().correlate(
+                            getSourceObjectId(), getLinkQualifier(), getContext(), reconContext);
+                }
+                if (result == null) {
+                    result = correlation.correlate(scope, getLinkQualifier(), getContext(), reconContext);
+                }
             } finally {
                 measure.end();
             }
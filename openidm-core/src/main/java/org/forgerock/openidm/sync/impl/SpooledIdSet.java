@@ -0,0 +1,142 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * The set of remaining target ids of a streaming reconciliation, kept on disk rather than on the heap.
+ * <p>
+ * {@link #add(String)} spools an id found by the target query, {@link #remove(String)} spools an id
+ * handled during the source phase. Iterating yields the sorted difference of the two, which is exactly
+ * the set of targets left for the target phase. Adding and removing are cheap appends and may happen
+ * concurrently from the recon task threads; the set is only meant to be iterated once the source phase
+ * has completed.
+ * <p>
+ * As whether an id was added before is only known once the spool is merged, this is not a
+ * {@link java.util.Collection}: adding and removing do not tell whether the set changed, and duplicates
+ * are dropped while iterating.
+ */
+class SpooledIdSet implements RemainingTargetIds, Iterable<String>, Closeable {
+
+    private final ReconIdSpool all;
+    private final ReconIdSpool removed;
+
+    /**
+     * Creates an empty spooled id set.
+     *
+     * @param name a name used to identify the spool files
+     * @param chunkSize the number of ids to buffer in memory before spilling to disk
+     */
+    SpooledIdSet(String name, int chunkSize) {
+        this.all = new ReconIdSpool(name + "-all", chunkSize);
+        this.removed = new ReconIdSpool(name + "-removed", chunkSize);
+    }
+
+    /**
+     * Adds a target id found by the target query.
+     *
+     * @param id the (normalized) target id
+     */
+    void add(String id) {
+        try {
+            all.add(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spool id " + id, e);
+        }
+    }
+
+    @Override
+    public void remove(String id) {
+        try {
+            removed.add(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spool id " + id, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Iterates the ids added but not removed, in sorted order.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        try {
+            return ReconIdSpool.difference(all.sortedIterator(), removed.sortedIterator());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read spooled ids", e);
+        }
+    }
+
+    /**
+     * @return the removed ids in sorted, de-duplicated order
+     */
+    Iterator<String> removedIds() {
+        try {
+            return removed.sortedIterator();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read spooled ids", e);
+        }
+    }
+
+    /**
+     * Returns the number of ids added, including duplicates, which is an upper bound of the remaining ids;
+     * computing the exact number would require a full pass over the spool.
+     *
+     * @return the number of ids added
+     */
+    long size() {
+        return all.size();
+    }
+
+    /**
+     * @return an iterator over the remaining ids as (id only) recon entries
+     */
+    Iterator<ResultEntry> resultEntries() {
+        final Iterator<String> ids = iterator();
+        return new Iterator<ResultEntry>() {
+            @Override
+            public boolean hasNext() {
+                return ids.hasNext();
+            }
+
+            @Override
+            public ResultEntry next() {
+                return new ResultEntry(ids.next(), null);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        all.close();
+        removed.close();
+    }
+
+    @Override
+    public String toString() {
+        return "SpooledIdSet[added=" + all.size() + ", removed=" + removed.size() + "]";
+    }
+}
@@ -19,6 +19,8 @@ package org.forgerock.openidm.sync.impl;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.JsonValueException;
@@ -54,6 +56,12 @@ public class SyncMappings implements Mappings {
     /** Object mappings. Order of mappings evaluated during synchronization is significant. */
     private volatile List<ObjectMapping> mappings = new ArrayList<>();
 
+    /** The number of threads synchronizing a source object to its mappings, 0 to synchronize them in turn */
+    private int syncThreads;
+
+    /** Executor synchronizing a source object to its mappings concurrently, if configured */
+    private volatile ExecutorService syncExecutor;
+
     /** Enhanced configuration service. */
     @Reference(policy = ReferencePolicy.DYNAMIC)
     private volatile EnhancedConfig enhancedConfig;
@@ -82,6 +90,7 @@ public class SyncMappings implements Mappings {
         JsonValue config = enhancedConfig.getConfigurationAsJson(context);
         try {
             mappings = initMappings(config);
+            initSyncExecutor(config.get("syncThreads").defaultTo(0).asInteger());
         } catch (JsonValueException jve) {
             throw new ComponentException("Configuration error: " + jve.getMessage(), jve);
         }
@@ -95,6 +104,24 @@ public class SyncMappings implements Mappings {
     @Deactivate
     protected void deactivate(ComponentContext context) {
         mappings = new ArrayList<>();
+        initSyncExecutor(0);
+    }
+
+    /**
+     * (Re)creates the executor when the number of threads changes. A synchronization still submitting to the
+     * executor replaced runs its mappings in its own thread.
+     */
+    private synchronized void initSyncExecutor(int threads) {
+        threads = Math.max(0, threads);
+        if (threads == syncThreads) {
+            return;
+        }
+        final ExecutorService previous = syncExecutor;
+        syncExecutor = threads > 0 ? Executors.newFixedThreadPool(threads) : null;
+        syncThreads = threads;
+        if (previous != null) {
+            previous.shutdown();
+        }
     }
 
     private List<ObjectMapping> initMappings(JsonValue config) {
@@ -130,6 +157,11 @@ public class SyncMappings implements Mappings {
         throw new SynchronizationException("No such mapping: " + name);
     }
 
+    @Override
+    public ExecutorService getSyncExecutor() {
+        return syncExecutor;
+    }
+
     /**
      * Instantiate an {@link ObjectMapping} with the given config
      *
@@ -20,7 +20,6 @@ import static org.forgerock.json.JsonValue.*;
 import static org.forgerock.json.resource.Requests.*;
 
 import javax.script.ScriptException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -35,7 +34,6 @@ import org.forgerock.json.resource.ResourceException;
 import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.json.resource.UpdateRequest;
 import org.forgerock.openidm.condition.Condition;
-import org.forgerock.openidm.condition.Conditions;
 import org.forgerock.openidm.config.enhanced.InternalErrorException;
 import org.forgerock.openidm.smartevent.EventEntry;
 import org.forgerock.openidm.smartevent.Publisher;
@@ -44,9 +42,7 @@ import org.forgerock.openidm.sync.ReconAction;
 import org.forgerock.openidm.sync.SyncContext;
 import org.forgerock.openidm.sync.SynchronizationException;
 import org.forgerock.openidm.util.Script;
-import org.forgerock.openidm.util.Scripts;
 import org.forgerock.script.exception.ScriptThrownException;
-import org.forgerock.script.source.SourceUnit;
 import org.forgerock.services.context.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,16 +78,16 @@ abstract class SyncOperation {
     private final Script validTarget;
 
     /** a script that applies the effective assignments as part of the mapping */
-    private Script defaultMapping;
+    private final Script defaultMapping;
 
     /** an additional set of key-value conditions to be met for a source object to be valid to be mapped */
     private final Condition sourceCondition;
 
     /** an array of property-mapping objects */
-    private final List<PropertyMapping> properties = new ArrayList<>();
+    private final List<PropertyMapping> properties;
 
     /** a map of {@link Policy} objects */
-    private Map<String, List<Policy>> policies = new HashMap<>();
+    private final Map<String, List<Policy>> policies;
 
     /**
      * A reconciliation ID
@@ -136,6 +132,12 @@ abstract class SyncOperation {
      */
     boolean linkCreated;
 
+    /**
+     * The link created during this operation that is still pending in the link batch of the recon, if any.
+     * The operation only succeeds once the link has been written.
+     */
+    Link batchedLink;
+
     /**
      * The current sync operation's situation
      */
@@ -161,37 +163,20 @@ abstract class SyncOperation {
         this.context = new SyncContext(context, objectMapping.getName());
         linkObject = new Link(objectMapping);
 
-        final JsonValue config = objectMapping.getConfig();
-        validSource = Scripts.newScript(config.get("validSource"));
-        validTarget = Scripts.newScript(config.get("validTarget"));
-        sourceCondition = Conditions.newCondition(config.get("sourceCondition"));
-        onCreateScript = Scripts.newScript(config.get("onCreate"));
-        onUpdateScript = Scripts.newScript(config.get("onUpdate"));
-        onDeleteScript = Scripts.newScript(config.get("onDelete"));
-        onLinkScript = Scripts.newScript(config.get("onLink"));
-        onUnlinkScript = Scripts.newScript(config.get("onUnlink"));
-        defaultMapping = Scripts.newScript(config.get("defaultMapping").defaultTo(
-                json(object(field(SourceUnit.ATTR_TYPE, "text/javascript"),
-                        field(SourceUnit.ATTR_NAME, "roles/defaultMapping.js")))));
-        postMapping = Scripts.newScript(config.get("postMapping").defaultTo(
-                json(object(field(SourceUnit.ATTR_TYPE, "groovy"),
-                        field(SourceUnit.ATTR_NAME, "roles/defaultPostMapping.groovy")))));
-
-        for (JsonValue jv : config.get("properties").expect(List.class)) {
-            properties.add(new PropertyMapping(jv));
-        }
-
-        for (JsonValue jv : config.get("policies").expect(List.class)) {
-            String situation = jv.get("situation").asString();
-            if (policies.containsKey(situation)) {
-                List<Policy> policy = policies.get(situation);
-                policy.add(new Policy(jv));
-                continue;
-            }
-            List<Policy> policyArrayList = new ArrayList<Policy>();
-            policies.put(situation, policyArrayList);
-            policyArrayList.add(new Policy(jv));
-        }
+        // Taken from the script registry once per mapping, rather than for every object
+        final MappingScripts scripts = objectMapping.getScripts();
+        validSource = scripts.validSource;
+        validTarget = scripts.validTarget;
+        sourceCondition = scripts.sourceCondition;
+        onCreateScript = scripts.onCreateScript;
+        onUpdateScript = scripts.onUpdateScript;
+        onDeleteScript = scripts.onDeleteScript;
+        onLinkScript = scripts.onLinkScript;
+        onUnlinkScript = scripts.onUnlinkScript;
+        defaultMapping = scripts.defaultMapping;
+        postMapping = scripts.postMapping;
+        properties = scripts.properties;
+        policies = scripts.policies;
     }
 
     /**
@@ -614,7 +599,12 @@ abstract class SyncOperation {
         execScript("onLink", onLinkScript);
         linkObject.sourceId = sourceId;
         linkObject.targetId = targetId;
-        linkObject.create(context);
+        if (reconContext != null && reconContext.getLinkBatch() != null) {
+            reconContext.getLinkBatch().add(linkObject, context);
+            batchedLink = linkObject;
+        } else {
+            linkObject.create(context);
+        }
         initializeLink(linkObject);
         LOGGER.debug("Established link sourceId: {} targetId: {} in reconId: {}", sourceId, targetId, reconId);
     }
@@ -0,0 +1,575 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Requests.newActionRequest;
+import static org.forgerock.json.resource.Requests.newCreateRequest;
+import static org.forgerock.json.resource.Requests.newDeleteRequest;
+import static org.forgerock.json.resource.Requests.newQueryRequest;
+import static org.forgerock.json.resource.Requests.newReadRequest;
+import static org.forgerock.json.resource.Requests.newUpdateRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.InternalServerErrorException;
+import org.forgerock.json.resource.NotFoundException;
+import org.forgerock.json.resource.PreconditionFailedException;
+import org.forgerock.json.resource.QueryFilters;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.ServiceUnavailableException;
+import org.forgerock.json.resource.SortKey;
+import org.forgerock.openidm.config.enhanced.EnhancedConfig;
+import org.forgerock.openidm.core.IdentityServer;
+import org.forgerock.openidm.core.ServerConstants;
+import org.forgerock.openidm.metrics.MetricsRegistry;
+import org.forgerock.openidm.router.IDMConnectionFactory;
+import org.forgerock.openidm.sync.impl.SynchronizationService.SyncServiceAction;
+import org.forgerock.openidm.util.ContextUtil;
+import org.forgerock.services.context.Context;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.propertytypes.ServiceDescription;
+import org.osgi.service.component.propertytypes.ServiceVendor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A queue of the implicit synchronizations to perform, kept in the repository.
+ * <p>
+ * When configured by {@code syncqueue.json}, the notifyCreate, notifyUpdate and notifyDelete actions on the
+ * objects of the queued resource containers do not synchronize the object in the request: they queue it, and
+ * return. Every node of the cluster polls the queue and synchronizes the queued objects on a pool of threads. An
+ * entry is claimed by a node, with the revision of the entry, for the duration of a lease, so that an entry is
+ * synchronized by a single node, and again by another node if the first one fails.
+ * <p>
+ * There is a single entry per object: a change to an object already queued is merged into its entry, so that an
+ * object updated repeatedly is synchronized once, from its first old value to its last new value.
+ * <p>
+ * The {@code onSync} script of a managed object is not supported for queued changes: the request only learns
+ * that the change was queued, and the queue synchronizes it later without the managed object.
+ */
+@Component(
+        name = SyncQueue.PID,
+        configurationPolicy = ConfigurationPolicy.REQUIRE,
+        immediate = true,
+        service = SyncQueue.class)
+@ServiceVendor(ServerConstants.SERVER_VENDOR_NAME)
+@ServiceDescription("OpenIDM implicit synchronization queue")
+public class SyncQueue {
+
+    /** The PID of this component */
+    public static final String PID = "org.forgerock.openidm.syncqueue";
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncQueue.class);
+
+    /** The path of the queue in the repository */
+    static final String QUEUE_PATH = "repo/sync/queue";
+
+    /** The field of the action result telling that the synchronization was queued rather than performed */
+    public static final String QUEUED = "queued";
+
+    /** Fields of a queue entry */
+    static final String ACTION = "action";
+    static final String RESOURCE_CONTAINER = "resourceContainer";
+    static final String RESOURCE_ID = "resourceId";
+    static final String OLD_VALUE = "oldValue";
+    static final String NEW_VALUE = "newValue";
+    static final String QUEUED_AT = "queuedAt";
+    static final String LEASE_EXPIRES = "leaseExpires";
+    static final String CLAIMED_BY = "claimedBy";
+    static final String ATTEMPTS = "attempts";
+    static final String LAST_ERROR = "lastError";
+
+    /** Number of times a change to an entry is attempted again when the entry changed concurrently */
+    private static final int MAX_CONFLICTS = 10;
+
+    /** Longest delay before synchronizing a failed entry again */
+    private static final long MAX_RETRY_DELAY = TimeUnit.HOURS.toMillis(1);
+
+    /** The Connection Factory */
+    @Reference(policy = ReferencePolicy.STATIC)
+    private IDMConnectionFactory connectionFactory;
+
+    /** Enhanced configuration service. */
+    @Reference(policy = ReferencePolicy.DYNAMIC)
+    private volatile EnhancedConfig enhancedConfig;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long lagMillis;
+
+    /** Writes the lag and throughput of the queue, created once a metrics registry is bound */
+    private volatile SyncQueueMetrics metrics;
+
+    private List<String> resourceContainers;
+    private int threads;
+    private int batchSize;
+    private long pollInterval;
+    private long leaseDuration;
+    private int maxRetries;
+    private long retryDelay;
+    private String nodeId;
+    private ScheduledExecutorService poller;
+    private ExecutorService workers;
+
+    /**
+     * Registers the queue metrics.
+     *
+     * @param metricsRegistry the metrics registry
+     */
+    @Reference(
+            name = "MetricsRegistry",
+            service = MetricsRegistry.class,
+            unbind = "unbindMetricsRegistry",
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC)
+    void bindMetricsRegistry(MetricsRegistry metricsRegistry) {
+        // Not created before, the metrics package is an optional import
+        if (metrics == null) {
+            metrics = new SyncQueueMetrics(this);
+        }
+        metrics.register(metricsRegistry);
+    }
+
+    /**
+     * Unregisters the queue metrics.
+     *
+     * @param metricsRegistry the metrics registry
+     */
+    void unbindMetricsRegistry(MetricsRegistry metricsRegistry) {
+        if (metrics != null) {
+            metrics.unregister(metricsRegistry);
+        }
+    }
+
+    /**
+     * @return the age of the oldest entry waiting in the queue at the last poll, in milliseconds
+     */
+    long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * @return the number of synchronizations queued
+     */
+    long getQueued() {
+        return queued.sum();
+    }
+
+    /**
+     * @return the number of synchronizations merged into the entry of an object already queued
+     */
+    long getMerged() {
+        return merged.sum();
+    }
+
+    /**
+     * @return the number of queued synchronizations performed
+     */
+    long getProcessed() {
+        return processed.sum();
+    }
+
+    /**
+     * @return the number of queued synchronizations that failed
+     */
+    long getFailures() {
+        return failures.sum();
+    }
+
+    @Activate
+    void activate(ComponentContext context) {
+        JsonValue config = enhancedConfig.getConfigurationAsJson(context);
+        resourceContainers = config.get("resourceContainers").defaultTo(json(new ArrayList<>())).asList(String.class);
+        threads = Math.max(1, config.get("threads").defaultTo(4).asInteger());
+        batchSize = Math.max(1, config.get("batchSize").defaultTo(20).asInteger());
+        pollInterval = Math.max(10L, config.get("pollInterval").defaultTo(1000L).asLong());
+        leaseDuration = Math.max(1000L, config.get("leaseDuration").defaultTo(300000L).asLong());
+        maxRetries = Math.max(0, config.get("maxRetries").defaultTo(5).asInteger());
+        retryDelay = Math.max(0L, config.get("retryDelay").defaultTo(10000L).asLong());
+        nodeId = IdentityServer.getInstance().getProperty(IdentityServer.NODE_ID,
+                IdentityServer.getInstance().getNodeName());
+
+        workers = Executors.newFixedThreadPool(threads);
+        poller = Executors.newSingleThreadScheduledExecutor();
+        poller.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (poll() == threads * batchSize) {
+                        // a full page, there may be more entries waiting
+                    }
+                } catch (ResourceException e) {
+                    logger.warn("Failed to poll the implicit synchronization queue", e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    logger.error("Failed to process the implicit synchronization queue", e);
+                }
+            }
+        }, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        logger.info("Implicit synchronization queue started with {} threads", threads);
+    }
+
+    @Deactivate
+    void deactivate(ComponentContext context) {
+        poller.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(leaseDuration, TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Tells whether the changes to the objects of a resource container are queued.
+     *
+     * @param resourceContainer the resource container
+     * @return true if the changes are queued
+     */
+    boolean isQueued(String resourceContainer) {
+        if (resourceContainers.isEmpty()) {
+            return resourceContainer.startsWith("managed/");
+        }
+        for (String pattern : resourceContainers) {
+            if (pattern.endsWith("/*")
+                    ? resourceContainer.startsWith(pattern.substring(0, pattern.length() - 1))
+                    : resourceContainer.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queues the synchronization of an object, merging it into the entry of the object if already queued.
+     *
+     * @param action the notify action
+     * @param resourceContainer the resource container of the object
+     * @param resourceId the id of the object
+     * @param oldValue the value of the object before the change
+     * @param newValue the value of the object after the change
+     * @return the details of the queued synchronization
+     * @throws ResourceException if the synchronization could not be queued
+     */
+    JsonValue enqueue(SyncServiceAction action, String resourceContainer, String resourceId, JsonValue oldValue,
+            JsonValue newValue) throws ResourceException {
+        final Context context = ContextUtil.createInternalContext();
+        final String id = entryId(resourceContainer, resourceId);
+        for (int attempt = 0; attempt < MAX_CONFLICTS; attempt++) {
+            try {
+                final ResourceResponse existing;
+                try {
+                    existing = connectionFactory.getConnection().read(context, newReadRequest(QUEUE_PATH, id));
+                } catch (NotFoundException e) {
+                    connectionFactory.getConnection().create(context, newCreateRequest(QUEUE_PATH, id,
+                            newEntry(action, resourceContainer, resourceId, oldValue, newValue)));
+                    queued.increment();
+                    return queuedDetails(id);
+                }
+                final JsonValue entry = merge(existing.getContent(), action, oldValue, newValue, now());
+                if (entry == null) {
+                    connectionFactory.getConnection().delete(context,
+                            newDeleteRequest(QUEUE_PATH, id).setRevision(existing.getRevision()));
+                } else {
+                    connectionFactory.getConnection().update(context,
+                            newUpdateRequest(QUEUE_PATH, id, entry).setRevision(existing.getRevision()));
+                }
+                merged.increment();
+                return queuedDetails(id);
+            } catch (PreconditionFailedException | NotFoundException e) {
+                // the entry was created, changed or removed concurrently, try again
+                logger.debug("Implicit synchronization entry {} changed concurrently", id, e);
+            }
+        }
+        throw new ServiceUnavailableException("Failed to queue the synchronization of "
+                + resourceContainer + "/" + resourceId);
+    }
+
+    /**
+     * Claims a page of the entries ready to be synchronized, and synchronizes them.
+     *
+     * @return the number of entries read
+     */
+    int poll() throws ResourceException, InterruptedException {
+        final Context context = ContextUtil.createInternalContext();
+        final long now = now();
+        final QueryRequest request = newQueryRequest(QUEUE_PATH)
+                .setQueryFilter(QueryFilters.parse(LEASE_EXPIRES + " lt \"" + timestamp(now) + "\""))
+                .addSortKey(SortKey.ascendingOrder(QUEUED_AT))
+                .setPageSize(threads * batchSize);
+        final List<ResourceResponse> ready = new ArrayList<>();
+        connectionFactory.getConnection().query(context, request, ready);
+
+        long oldest = now;
+        final List<Callable<Void>> claimed = new ArrayList<>();
+        for (final ResourceResponse entry : ready) {
+            oldest = Math.min(oldest, parseTimestamp(entry.getContent().get(QUEUED_AT).defaultTo(timestamp(now))));
+            final ResourceResponse claim = claim(context, entry, now);
+            if (claim != null) {
+                claimed.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        process(claim);
+                        return null;
+                    }
+                });
+            }
+        }
+        lagMillis = now - oldest;
+        workers.invokeAll(claimed);
+        return ready.size();
+    }
+
+    private ResourceResponse claim(Context context, ResourceResponse entry, long now) {
+        final JsonValue content = entry.getContent().copy();
+        content.put(LEASE_EXPIRES, timestamp(now + leaseDuration));
+        content.put(CLAIMED_BY, nodeId);
+        try {
+            return connectionFactory.getConnection().update(context,
+                    newUpdateRequest(QUEUE_PATH, entry.getId(), content).setRevision(entry.getRevision()));
+        } catch (PreconditionFailedException | NotFoundException e) {
+            // claimed by another node, or merged into, since read
+            return null;
+        } catch (ResourceException e) {
+            logger.warn("Failed to claim implicit synchronization entry {}", entry.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Synchronizes a claimed entry, then removes it from the queue.
+     */
+    private void process(ResourceResponse claim) {
+        final Context context = ContextUtil.createInternalContext();
+        final JsonValue entry = claim.getContent();
+        ResourceException failure = null;
+        try {
+            final SyncServiceAction action = SyncServiceAction.valueOf(entry.get(ACTION).asString());
+            connectionFactory.getConnection().action(context,
+                    newActionRequest("sync", action.name())
+                            .setAdditionalParameter(SynchronizationService.ACTION_PARAM_RESOURCE_CONTAINER,
+                                    entry.get(RESOURCE_CONTAINER).asString())
+                            .setAdditionalParameter(SynchronizationService.ACTION_PARAM_RESOURCE_ID,
+                                    entry.get(RESOURCE_ID).asString())
+                            .setAdditionalParameter(SynchronizationService.ACTION_PARAM_QUEUED, "true")
+                            .setContent(json(object(
+                                    field(OLD_VALUE, entry.get(OLD_VALUE).getObject()),
+                                    field(NEW_VALUE, entry.get(NEW_VALUE).getObject())))));
+            processed.increment();
+        } catch (ResourceException e) {
+            failures.increment();
+            failure = e;
+        } catch (RuntimeException e) {
+            // Counted as an attempt like any failure, so that an entry that can not be synchronized is dropped
+            failures.increment();
+            failure = new InternalServerErrorException(e.getMessage(), e);
+        }
+
+        ResourceResponse current = claim;
+        for (int attempt = 0; attempt < MAX_CONFLICTS; attempt++) {
+            try {
+                final JsonValue next = failure == null
+                        ? rebase(current.getContent(), entry)
+                        : retry(current.getContent(), failure, now());
+                if (next == null) {
+                    connectionFactory.getConnection().delete(context,
+                            newDeleteRequest(QUEUE_PATH, claim.getId()).setRevision(current.getRevision()));
+                } else {
+                    connectionFactory.getConnection().update(context,
+                            newUpdateRequest(QUEUE_PATH, claim.getId(), next).setRevision(current.getRevision()));
+                }
+                return;
+            } catch (PreconditionFailedException e) {
+                // merged into while synchronized
+                try {
+                    current = connectionFactory.getConnection().read(context,
+                            newReadRequest(QUEUE_PATH, claim.getId()));
+                } catch (ResourceException re) {
+                    logger.warn("Failed to read implicit synchronization entry {}", claim.getId(), re);
+                    return;
+                }
+            } catch (NotFoundException e) {
+                return;
+            } catch (ResourceException e) {
+                // the lease expires, the entry will be synchronized again
+                logger.warn("Failed to release implicit synchronization entry {}", claim.getId(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Merges a change into the entry of an object already queued. The entry keeps the old value it was queued with,
+     * and takes the new value of the change. A claimed entry keeps its claim, it is rebased on what its claimant
+     * synchronized once done.
+     *
+     * @return the merged entry, or null if the changes cancel out
+     */
+    static JsonValue merge(JsonValue entry, SyncServiceAction action, JsonValue oldValue, JsonValue newValue,
+            long now) {
+        final SyncServiceAction queuedAction = SyncServiceAction.valueOf(entry.get(ACTION).asString());
+        final boolean claimed = parseTimestamp(entry.get(LEASE_EXPIRES)) > now && entry.get(CLAIMED_BY).isNotNull();
+        final SyncServiceAction mergedAction;
+        if (action == SyncServiceAction.notifyDelete) {
+            if (queuedAction == SyncServiceAction.notifyCreate && !claimed) {
+                // created and deleted before being synchronized
+                return null;
+            }
+            mergedAction = SyncServiceAction.notifyDelete;
+        } else if (queuedAction == SyncServiceAction.notifyCreate) {
+            mergedAction = SyncServiceAction.notifyCreate;
+        } else {
+            mergedAction = SyncServiceAction.notifyUpdate;
+        }
+        final JsonValue merged = entry.copy();
+        merged.put(ACTION, mergedAction.name());
+        merged.put(NEW_VALUE, mergedAction == SyncServiceAction.notifyDelete ? null : newValue.getObject());
+        if (queuedAction == SyncServiceAction.notifyCreate) {
+            merged.put(OLD_VALUE, null);
+        } else if (entry.get(OLD_VALUE).isNull()) {
+            merged.put(OLD_VALUE, oldValue.getObject());
+        }
+        merged.put(ATTEMPTS, 0);
+        if (!claimed) {
+            // a change made after a failure is synchronized without waiting for the retry
+            merged.put(LEASE_EXPIRES, timestamp(0));
+        }
+        return merged;
+    }
+
+    /**
+     * Rebases an entry, merged into while claimed, on the synchronization its claimant performed.
+     *
+     * @param entry the entry as currently queued
+     * @param synced the entry as synchronized
+     * @return the entry still to synchronize, or null if there is nothing left to synchronize
+     */
+    static JsonValue rebase(JsonValue entry, JsonValue synced) {
+        if (entry.isEqualTo(synced)) {
+            return null;
+        }
+        final boolean existed = !SyncServiceAction.notifyDelete.name().equals(synced.get(ACTION).asString());
+        final boolean exists = !SyncServiceAction.notifyDelete.name().equals(entry.get(ACTION).asString());
+        final JsonValue rebased = entry.copy();
+        rebased.put(LEASE_EXPIRES, timestamp(0));
+        rebased.remove(CLAIMED_BY);
+        rebased.put(OLD_VALUE, existed ? synced.get(NEW_VALUE).getObject() : null);
+        if (existed && exists) {
+            rebased.put(ACTION, SyncServiceAction.notifyUpdate.name());
+        } else if (existed) {
+            rebased.put(ACTION, SyncServiceAction.notifyDelete.name());
+        } else if (exists) {
+            rebased.put(ACTION, SyncServiceAction.notifyCreate.name());
+        } else {
+            return null;
+        }
+        return rebased;
+    }
+
+    /**
+     * Releases a failed entry, to be synchronized again after a delay doubling on every attempt.
+     *
+     * @return the entry to retry, or null if it failed too many times
+     */
+    private JsonValue retry(JsonValue entry, ResourceException failure, long now) {
+        final int attempts = entry.get(ATTEMPTS).defaultTo(0).asInteger() + 1;
+        if (attempts > maxRetries) {
+            logger.error("Failed to synchronize {} {}/{} after {} attempts, removing it from the queue",
+                    entry.get(ACTION).asString(), entry.get(RESOURCE_CONTAINER).asString(),
+                    entry.get(RESOURCE_ID).asString(), attempts, failure);
+            return null;
+        }
+        logger.warn("Failed to synchronize {} {}/{}, attempt {} of {}", entry.get(ACTION).asString(),
+                entry.get(RESOURCE_CONTAINER).asString(), entry.get(RESOURCE_ID).asString(), attempts,
+                maxRetries + 1, failure);
+        final JsonValue retried = entry.copy();
+        retried.put(ATTEMPTS, attempts);
+        retried.put(LAST_ERROR, failure.toJsonValue().getObject());
+        retried.put(LEASE_EXPIRES,
+                timestamp(now + Math.min(MAX_RETRY_DELAY, retryDelay << Math.min(attempts - 1, 20))));
+        retried.remove(CLAIMED_BY);
+        return retried;
+    }
+
+    private static JsonValue newEntry(SyncServiceAction action, String resourceContainer, String resourceId,
+            JsonValue oldValue, JsonValue newValue) {
+        return json(object(
+                field(ACTION, action.name()),
+                field(RESOURCE_CONTAINER, resourceContainer),
+                field(RESOURCE_ID, resourceId),
+                field(OLD_VALUE, oldValue.getObject()),
+                field(NEW_VALUE, newValue.getObject()),
+                field(QUEUED_AT, timestamp(now())),
+                field(LEASE_EXPIRES, timestamp(0)),
+                field(ATTEMPTS, 0)));
+    }
+
+    private static JsonValue queuedDetails(String id) {
+        return json(object(field(QUEUED, true), field("_id", id)));
+    }
+
+    /**
+     * The id of the entry of an object, the same for every change to the object.
+     */
+    static String entryId(String resourceContainer, String resourceId) {
+        return UUID.nameUUIDFromBytes((resourceContainer + "/" + resourceId).getBytes(StandardCharsets.UTF_8))
+                .toString();
+    }
+
+    /**
+     * Formats a time as a fixed width string, so that times compare as strings in every repository.
+     */
+    static String timestamp(long millis) {
+        return String.format("%019d", millis);
+    }
+
+    /** Parses a time formatted by {@link #timestamp} */
+    private static long parseTimestamp(JsonValue value) {
+        return value.isString() ? Long.parseLong(value.asString()) : 0L;
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+}
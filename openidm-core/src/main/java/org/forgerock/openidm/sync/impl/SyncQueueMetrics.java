@@ -0,0 +1,67 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.MetricsRegistry;
+import org.forgerock.openidm.metrics.MetricsWriter;
+
+/**
+ * Writes the lag and throughput of the sync queue.
+ * <p>
+ * Only created once a {@link MetricsRegistry} is bound, as the metrics package is an optional import.
+ */
+class SyncQueueMetrics implements Collector {
+
+    private final SyncQueue syncQueue;
+
+    /**
+     * @param syncQueue the sync queue
+     */
+    SyncQueueMetrics(SyncQueue syncQueue) {
+        this.syncQueue = syncQueue;
+    }
+
+    /**
+     * @param metricsRegistry the registry to register the metrics with
+     */
+    void register(MetricsRegistry metricsRegistry) {
+        metricsRegistry.register(this);
+    }
+
+    /**
+     * @param metricsRegistry the registry to unregister the metrics from
+     */
+    void unregister(MetricsRegistry metricsRegistry) {
+        metricsRegistry.unregister(this);
+    }
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        writer.family("openidm_sync_queue_lag_seconds", "gauge",
+                "Age of the oldest implicit synchronization waiting in the queue, at the last poll")
+                .sample("openidm_sync_queue_lag_seconds", syncQueue.getLagMillis() / 1000d);
+        writer.family("openidm_sync_queue_queued_total", "counter", "Implicit synchronizations queued")
+                .sample("openidm_sync_queue_queued_total", syncQueue.getQueued());
+        writer.family("openidm_sync_queue_merged_total", "counter",
+                "Implicit synchronizations merged into the entry of an object already queued")
+                .sample("openidm_sync_queue_merged_total", syncQueue.getMerged());
+        writer.family("openidm_sync_queue_processed_total", "counter", "Queued synchronizations performed")
+                .sample("openidm_sync_queue_processed_total", syncQueue.getProcessed());
+        writer.family("openidm_sync_queue_failures_total", "counter", "Queued synchronizations that failed")
+                .sample("openidm_sync_queue_failures_total", syncQueue.getFailures());
+    }
+}
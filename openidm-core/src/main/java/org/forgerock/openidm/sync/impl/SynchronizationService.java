@@ -58,6 +58,7 @@ import org.forgerock.openidm.core.ServerConstants;
 import org.forgerock.openidm.quartz.impl.ExecutionException;
 import org.forgerock.openidm.quartz.impl.ScheduledService;
 import org.forgerock.openidm.router.IDMConnectionFactory;
+import org.forgerock.openidm.sync.PendingActionContext;
 import org.forgerock.openidm.sync.ReconAction;
 import org.forgerock.openidm.sync.SynchronizationException;
 import org.forgerock.services.context.Context;
@@ -72,6 +73,7 @@ import org.osgi.service.component.annotations.ConfigurationPolicy;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
 import org.osgi.service.component.propertytypes.ServiceDescription;
 import org.osgi.service.component.propertytypes.ServiceVendor;
@@ -110,6 +112,8 @@ public class SynchronizationService implements SingletonResourceProvider, Schedu
     public static final String ACTION_PARAM_RESOURCE_ID = "resourceId";
     /** The resource name action parameter. */
     public static final String ACTION_PARAM_RESOURCE_NAME = "resourceName";
+    /** The action parameter of a notify action performed from the {@link SyncQueue}. */
+    public static final String ACTION_PARAM_QUEUED = "queued";
 
     /** The Connection Factory */
     @Reference(policy = ReferencePolicy.STATIC)
@@ -138,6 +142,10 @@ public class SynchronizationService implements SingletonResourceProvider, Schedu
     @Reference(policy = ReferencePolicy.DYNAMIC)
     private volatile EnhancedConfig enhancedConfig;
 
+    /** The queue of implicit synchronizations, when configured */
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    private volatile SyncQueue syncQueue;
+
     @Activate
     protected void activate(ComponentContext context) {
     }
@@ -153,7 +161,7 @@ public class SynchronizationService implements SingletonResourceProvider, Schedu
     /**
      * Results we can expect from synchronizing a specific source object to a given mapping.
      */
-    private enum MappingSyncResult {
+    enum MappingSyncResult {
         SUCCESSFUL, SKIPPED, FAILED
     }
 
@@ -163,12 +171,13 @@ public class SynchronizationService implements SingletonResourceProvider, Schedu
      *
      * @see #syncAllMappings(Context, SyncAction, String, String)
      */
-    private interface SyncAction {
+    interface SyncAction {
         JsonValue sync(Context context, ObjectMapping mapping) throws SynchronizationException;
     }
 
     /**
-     * Synchronize all mappings; keeping track of success/failure conditions.
+     * Synchronize all mappings; keeping track of success/failure conditions. The mappings are synchronized
+     * concurrently when the sync configuration sets {@code syncThreads}.
      *
      * @param action the {@code SyncAction} to perform
      * @param resourceContainer the source object set
@@ -196,35 +205,18 @@ public class SynchronizationService implements SingletonResourceProvider, Schedu
             }
         };
 
-        for (final ObjectMapping mapping : FluentIterable.from(mappings).filter(thatMatchSource)) {
-            JsonValue mappingResults = json(array());
-            MappingSyncResult result = MappingSyncResult.SUCCESSFUL;
-            try {
-                if (exceptionPending == null) {
-                    // No failures yet, perform sync
-                    // This operation returns a list which will contain more than one result if
-                    // there are multiple targets to sync the source to
-                    mappingResults = action.sync(context, mapping);
-                } else {
-                    // we've already failed, skip the sync attempt
-                    result = MappingSyncResult.SKIPPED;
-                }
-            } catch (SynchronizationException e) {
-                // failed to sync; store the exception and mark as failed
-                exceptionPending = new SynchronizationException(e.getMessage(), e.getCause());
-                // the exception detail contains the mapping result
-                JsonValue failedResult = e.getDetail();
-                failedResult.put("cause", exceptionPending.toJsonValue().getObject());
-                mappingResults.add(failedResult);
-                result = MappingSyncResult.FAILED;
-            } finally {
-                // Loop over each result, setting result fields and adding to syncDetails list
-                for (JsonValue mappingResult : mappingResults) {
-                    mappingResult.put("result", result.name());
-                    mappingResult.put("mapping", mapping.getName());
-                    mappingResult.put("targetObjectSet", mapping.getTargetObjectSet());
-                    syncDetails.add(mappingResult);
-                }
+        final List<MappingFanOut.Outcome> outcomes = new MappingFanOut(mappings.getSyncExecutor())
+                .sync(context, action, FluentIterable.from(mappings).filter(thatMatchSource).toList());
+        for (MappingFanOut.Outcome outcome : outcomes) {
+            if (exceptionPending == null) {
+                exceptionPending = outcome.failure;
+            }
+            // Loop over each result, setting result fields and adding to syncDetails list
+            for (JsonValue mappingResult : outcome.results) {
+                mappingResult.put("result", outcome.result.name());
+                mappingResult.put("mapping", outcome.mapping.getName());
+                mappingResult.put("targetObjectSet", outcome.mapping.getTargetObjectSet());
+                syncDetails.add(mappingResult);
             }
         }
 
@@ -272,6 +264,48 @@ public class SynchronizationService implements SingletonResourceProvider, Schedu
         }, resourceContainer, resourceId);
     }
 
+    /**
+     * Tells whether a notify action is to be queued rather than performed in the request. An action carrying a
+     * pending link or unlink is performed in the request, as the pending action lives in its context.
+     *
+     * @param context the request context
+     * @param params the action parameters
+     * @param resourceContainer the source object set
+     * @return true if the synchronization queue is configured for the source object set, and the action is not
+     *      performed from the queue
+     */
+    private boolean isQueued(Context context, JsonValue params, String resourceContainer) {
+        final SyncQueue queue = syncQueue;
+        return queue != null
+                && !context.containsContext(PendingActionContext.class)
+                && !params.get(ACTION_PARAM_QUEUED).defaultTo("false").asString().equals("true")
+                && queue.isQueued(resourceContainer);
+    }
+
+    /**
+     * Queues a notify action, or performs it if it could not be queued.
+     */
+    private JsonValue enqueue(Context context, SyncServiceAction action, String resourceContainer, String resourceId,
+            JsonValue oldValue, JsonValue newValue) throws ResourceException {
+        final SyncQueue queue = syncQueue;
+        if (queue != null && !resourceId.isEmpty()) {
+            try {
+                return queue.enqueue(action, resourceContainer, resourceId, oldValue, newValue);
+            } catch (ResourceException e) {
+                logger.warn("Failed to queue {} of {}/{}, synchronizing it now", action.name(), resourceContainer,
+                        resourceId, e);
+            }
+        }
+        switch (action) {
+            case notifyCreate:
+                return notifyCreate(context, resourceContainer, resourceId, newValue);
+            case notifyDelete:
+                return notifyDelete(context, resourceContainer, resourceId, oldValue);
+            default:
+                return notifyUpdate(context, resourceContainer, resourceId, oldValue, newValue);
+        }
+    }
+
     /**
      * ScheduledService interface for supporting scheduled recon.
      */
@@ -334,16 +368,25 @@ public class SynchronizationService implements SingletonResourceProvider, Schedu
                     resourceContainer = _params.get(ACTION_PARAM_RESOURCE_CONTAINER).required().asString();
                     resourceId = _params.get(ACTION_PARAM_RESOURCE_ID).required().asString();
                     logger.debug("Synchronization action=notifyCreate, resourceContainer={}, resourceId={} ", resourceContainer, resourceId);
+                    if (isQueued(context, _params, resourceContainer)) {
+                        return newActionResponse(enqueue(context, SyncServiceAction.notifyCreate, resourceContainer, resourceId, json(null), request.getContent().get("newValue"))).asPromise();
+                    }
                     return newActionResponse(notifyCreate(context, resourceContainer, resourceId, request.getContent().get("newValue"))).asPromise();
                 case notifyUpdate:
                     resourceContainer = _params.get(ACTION_PARAM_RESOURCE_CONTAINER).required().asString();
                     resourceId = _params.get(ACTION_PARAM_RESOURCE_ID).required().asString();
                     logger.debug("Synchronization action=notifyUpdate, resourceContainer={}, resourceId={}", resourceContainer, resourceId);
+                    if (isQueued(context, _params, resourceContainer)) {
+                        return newActionResponse(enqueue(context, SyncServiceAction.notifyUpdate, resourceContainer, resourceId, request.getContent().get("oldValue"), request.getContent().get("newValue"))).asPromise();
+                    }
                     return newActionResponse(notifyUpdate(context, resourceContainer, resourceId, request.getContent().get("oldValue"), request.getContent().get("newValue"))).asPromise();
                 case notifyDelete:
                     resourceContainer = _params.get(ACTION_PARAM_RESOURCE_CONTAINER).required().asString();
                     resourceId = _params.get(ACTION_PARAM_RESOURCE_ID).required().asString();
                     logger.debug("Synchronization action=notifyDelete, resourceContainer={}, resourceId={}", resourceContainer, resourceId);
+                    if (isQueued(context, _params, resourceContainer)) {
+                        return newActionResponse(enqueue(context, SyncServiceAction.notifyDelete, resourceContainer, resourceId, request.getContent().get("oldValue"), json(null))).asPromise();
+                    }
                     return newActionResponse(notifyDelete(context, resourceContainer, resourceId, request.getContent().get("oldValue"))).asPromise();
                 case recon:
                     JsonValue result = new JsonValue(new HashMap<String, Object>());
@@ -16,10 +16,12 @@
 
 package org.forgerock.openidm.sync.impl;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ResourceException;
 import org.forgerock.openidm.audit.util.Status;
 import org.forgerock.openidm.sync.ReconAction;
 import org.forgerock.openidm.sync.SynchronizationException;
@@ -43,49 +45,130 @@ class TargetRecon implements Recon {
      */
     @Override
     public void recon(String id, JsonValue objectEntry, ReconciliationContext reconContext, Context context,
-            Map<String, Map<String, Link>> allLinks, Collection<String> remainingIds)  throws SynchronizationException {
+            Map<String, Map<String, Link>> allLinks, RemainingTargetIds remainingIds)  throws SynchronizationException {
         reconContext.checkCanceled();
         for (String linkQualifier : objectMapping.getAllLinkQualifiers(context, reconContext)) {
-            TargetSyncOperation op = new TargetSyncOperation(objectMapping, context);
-            op.reconContext = reconContext;
-            op.setLinkQualifier(linkQualifier);
-
-            ReconAuditEventLogger event = new ReconAuditEventLogger(op, objectMapping.getName(), context);
-            event.setLinkQualifier(op.getLinkQualifier());
-
-            if (objectEntry == null) {
-                // Load target detail on demand
-                op.targetObjectAccessor = new LazyObjectAccessor(objectMapping.getConnectionFactory(), objectMapping.getTargetObjectSet(), id);
-            } else {
-                // Pre-queried target detail
-                op.targetObjectAccessor = new LazyObjectAccessor(objectMapping.getConnectionFactory(), objectMapping.getTargetObjectSet(), id, objectEntry);
+            AssessedOperation operation = newOperation(id, objectEntry, linkQualifier, reconContext, context);
+            try {
+                operation.op.sync();
+            } catch (SynchronizationException se) {
+                failed(operation, se, reconContext);
             }
-            event.setTargetObjectId(LazyObjectAccessor.qualifiedId(objectMapping.getTargetObjectSet(), id));
-            op.reconId = reconContext.getReconId();
-            Status status = Status.SUCCESS;
+            complete(operation, reconContext);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AssessedOperation> assess(String id, JsonValue objectEntry, ReconciliationContext reconContext,
+            Context context, Map<String, Map<String, Link>> allLinks) throws SynchronizationException {
+        reconContext.checkCanceled();
+        List<AssessedOperation> operations = new ArrayList<>();
+        for (String linkQualifier : objectMapping.getAllLinkQualifiers(context, reconContext)) {
+            AssessedOperation operation = newOperation(id, objectEntry, linkQualifier, reconContext, context);
             try {
-                op.sync();
+                ((TargetSyncOperation) operation.op).assess();
             } catch (SynchronizationException se) {
-                if (op.action != ReconAction.EXCEPTION) {
-                    status = Status.FAILURE; // exception was not intentional
-                    LOGGER.warn("Unexpected failure during target reconciliation {}", reconContext.getReconId(),
-                            se);
+                failed(operation, se, reconContext);
+            }
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void act(List<AssessedOperation> operations, ReconciliationContext reconContext,
+            RemainingTargetIds remainingIds) throws SynchronizationException {
+        for (AssessedOperation operation : operations) {
+            if (!operation.failed) {
+                try {
+                    ((TargetSyncOperation) operation.op).act();
+                } catch (SynchronizationException se) {
+                    failed(operation, se, reconContext);
                 }
-                objectMapping.setLogEntryMessage(event, se);
             }
-            // update statistics with status
-            reconContext.getStatistics().processStatus(status);
-
-            if (!ReconAction.NOREPORT.equals(op.action) && (status == Status.FAILURE || op.action != null)) {
-                event.setReconciling("target");
-                if (op.getSourceObjectId() != null) {
-                    event.setSourceObjectId(
-                            LazyObjectAccessor.qualifiedId(objectMapping.getSourceObjectSet(), op.getSourceObjectId()));
+            complete(operation, reconContext);
+        }
+    }
+
+    private AssessedOperation newOperation(String id, JsonValue objectEntry, String linkQualifier,
+            ReconciliationContext reconContext, Context context) {
+        TargetSyncOperation op = new TargetSyncOperation(objectMapping, context);
+        op.reconContext = reconContext;
+        op.setLinkQualifier(linkQualifier);
+
+        ReconAuditEventLogger event = new ReconAuditEventLogger(op, objectMapping.getName(), context);
+        event.setLinkQualifier(op.getLinkQualifier());
+
+        if (objectEntry == null) {
+            // Load target detail on demand
+            op.targetObjectAccessor = new LazyObjectAccessor(objectMapping.getConnectionFactory(), objectMapping.getTargetObjectSet(), id);
+        } else {
+            // Pre-queried target detail
+            op.targetObjectAccessor = new LazyObjectAccessor(objectMapping.getConnectionFactory(), objectMapping.getTargetObjectSet(), id, objectEntry);
+        }
+        event.setTargetObjectId(LazyObjectAccessor.qualifiedId(objectMapping.getTargetObjectSet(), id));
+        op.reconId = reconContext.getReconId();
+        return new AssessedOperation(op, event);
+    }
+
+    private void failed(AssessedOperation operation, SynchronizationException se,
+            ReconciliationContext reconContext) {
+        operation.failed = true;
+        if (operation.op.action != ReconAction.EXCEPTION) {
+            operation.status = Status.FAILURE; // exception was not intentional
+            LOGGER.warn("Unexpected failure during target reconciliation {}", reconContext.getReconId(),
+                    se);
+        }
+        objectMapping.setLogEntryMessage(operation.auditEvent, se);
+    }
+
+    private void complete(final AssessedOperation operation, final ReconciliationContext reconContext)
+            throws SynchronizationException {
+        LinkBatch linkBatch = reconContext.getLinkBatch();
+        if (operation.op.batchedLink != null && linkBatch != null && operation.status == Status.SUCCESS) {
+            // The operation only succeeded if its link gets written
+            linkBatch.whenWritten(operation.op.batchedLink, new LinkBatch.Completion() {
+                @Override
+                public void linkWritten(ResourceException failure) {
+                    if (failure != null) {
+                        operation.status = Status.FAILURE;
+                        objectMapping.setLogEntryMessage(operation.auditEvent,
+                                new SynchronizationException("Failed to create link", failure));
+                    }
+                    try {
+                        report(operation, reconContext);
+                    } catch (SynchronizationException e) {
+                        LOGGER.warn("Failed to report target reconciliation {}", reconContext.getReconId(), e);
+                    }
                 }
-                event.setStatus(status);
-                event.setReconId(reconContext.getReconId());
-                objectMapping.logEntry(event, reconContext);
+            });
+        } else {
+            report(operation, reconContext);
+        }
+    }
+
+    private void report(AssessedOperation operation, ReconciliationContext reconContext)
+            throws SynchronizationException {
+        TargetSyncOperation op = (TargetSyncOperation) operation.op;
+        ReconAuditEventLogger event = operation.auditEvent;
+        // update statistics with status
+        reconContext.getStatistics().processStatus(operation.status);
+
+        if (!ReconAction.NOREPORT.equals(op.action) && (operation.status == Status.FAILURE || op.action != null)) {
+            event.setReconciling("target");
+            if (op.getSourceObjectId() != null) {
+                event.setSourceObjectId(
+                        LazyObjectAccessor.qualifiedId(objectMapping.getSourceObjectSet(), op.getSourceObjectId()));
             }
+            event.setStatus(operation.status);
+            event.setReconId(reconContext.getReconId());
+            objectMapping.logEntry(event, reconContext);
         }
     }
 }
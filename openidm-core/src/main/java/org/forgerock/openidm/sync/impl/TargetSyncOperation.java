@@ -26,6 +26,11 @@ import org.forgerock.services.context.Context;
 
 class TargetSyncOperation extends SyncOperation {
 
+    /**
+     * Whether a link existed when the action was determined, retained between {@link #assess()} and {@link #act()}.
+     */
+    private boolean linkExisted;
+
     /**
      * Creates target-{@link SyncOperation}.
      *
@@ -37,6 +42,17 @@ class TargetSyncOperation extends SyncOperation {
 
     @Override
     public JsonValue sync() throws SynchronizationException {
+        assess();
+        return act();
+    }
+
+    /**
+     * Assesses the situation and determines the action to take, without performing it.
+     * Together with {@link #act()} this allows the two halves of a sync to run in separate stages.
+     *
+     * @throws SynchronizationException if assessing the situation or determining the action failed
+     */
+    void assess() throws SynchronizationException {
         try {
             EventEntry measureSituation = Publisher.start(ObjectMapping.EVENT_TARGET_ASSESS_SITUATION, targetObjectAccessor, null);
             try {
@@ -44,7 +60,7 @@ class TargetSyncOperation extends SyncOperation {
             } finally {
                 measureSituation.end();
             }
-            boolean linkExisted = (getLinkId() != null);
+            linkExisted = (getLinkId() != null);
 
             EventEntry measureDetermine = Publisher.start(ObjectMapping.EVENT_TARGET_DETERMINE_ACTION, targetObjectAccessor, null);
             try {
@@ -52,6 +68,20 @@ class TargetSyncOperation extends SyncOperation {
             } finally {
                 measureDetermine.end();
             }
+        } catch (SynchronizationException e) {
+            e.setDetail(toJsonValue());
+            throw e;
+        }
+    }
+
+    /**
+     * Performs the action determined by a preceding {@link #assess()}.
+     *
+     * @return the sync result
+     * @throws SynchronizationException if performing the action failed
+     */
+    JsonValue act() throws SynchronizationException {
+        try {
             EventEntry measurePerform = Publisher.start(ObjectMapping.EVENT_TARGET_PERFORM_ACTION, targetObjectAccessor, null);
             try {
                 // TODO: Option here to just report what action would be performed?
@@ -24,20 +24,32 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.Connection;
 import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.QueryResponse;
 import org.forgerock.json.resource.ReadRequest;
 import org.forgerock.json.resource.ResourcePath;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.Responses;
 import org.forgerock.openidm.audit.util.ActivityLogger;
 import org.forgerock.openidm.util.RelationshipUtil;
 import org.forgerock.services.context.Context;
 import org.forgerock.services.context.RootContext;
 import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
 
 public class CollectionRelationshipProviderTest {
     private static final ResourcePath REFERRING_OBJECT_ID = new ResourcePath("managed/user/foo");
@@ -152,6 +164,58 @@ public class CollectionRelationshipProviderTest {
         }
     }
 
+    @Test
+    public void testGetRelationshipValuesForResourcesQueriesOnce() throws Exception {
+        Connection connection = mock(Connection.class);
+        final ResourceResponse toManager = relationship("r1", "managed/user/a", "reports", "managed/user/x", "manager");
+        final ResourceResponse fromManager =
+                relationship("r2", "managed/user/y", "manager", "managed/user/b", "reports");
+        when(connection.query(any(Context.class), any(QueryRequest.class), any(QueryResourceHandler.class)))
+                .then(new Answer<QueryResponse>() {
+                    @Override
+                    public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+                        QueryRequest request = (QueryRequest) invocation.getArguments()[1];
+                        assertEquals(request.getQueryId(), "find-relationships-for-resources");
+                        assertEquals(request.getAdditionalParameter("fullResourceIds"),
+                                "managed/user/a,managed/user/b,managed/user/c");
+                        QueryResourceHandler handler = (QueryResourceHandler) invocation.getArguments()[2];
+                        // The union of both ends can return a relationship twice
+                        handler.handleResource(toManager);
+                        handler.handleResource(fromManager);
+                        handler.handleResource(toManager);
+                        return Responses.newQueryResponse();
+                    }
+                });
+        when(connectionFactory.getConnection()).thenReturn(connection);
+
+        SchemaField schemaField = mock(SchemaField.class);
+        when(schemaField.getName()).thenReturn("reports");
+        when(schemaField.isReverseRelationship()).thenReturn(true);
+        when(schemaField.getReversePropertyName()).thenReturn("manager");
+        CollectionRelationshipProvider provider = new CollectionRelationshipProvider(connectionFactory,
+                ResourcePath.resourcePath("managed/user"), schemaField, activityLogger, managedObjectSyncService);
+
+        Map<String, JsonValue> values = provider.getRelationshipValuesForResources(new RootContext(),
+                Arrays.asList("a", "b", "c"));
+
+        assertEquals(values.get("a").size(), 1);
+        assertEquals(values.get("a").get(0).get(RelationshipUtil.REFERENCE_ID).asString(), "managed/user/x");
+        assertEquals(values.get("b").size(), 1);
+        assertEquals(values.get("b").get(0).get(RelationshipUtil.REFERENCE_ID).asString(), "managed/user/y");
+        assertEquals(values.get("c").size(), 0);
+    }
+
+    private static ResourceResponse relationship(String id, String firstId, String firstPropertyName,
+            String secondId, String secondPropertyName) {
+        return newResourceResponse(id, "0", json(object(
+                field("_id", id),
+                field("firstId", firstId),
+                field("firstPropertyName", firstPropertyName),
+                field("secondId", secondId),
+                field("secondPropertyName", secondPropertyName),
+                field("properties", null))));
+    }
+
     private static class IsRouteMatcher implements ArgumentMatcher<ReadRequest> {
 
         private final String route;
@@ -0,0 +1,199 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Responses.newQueryResponse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResponse;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CorrelationBatcherTest {
+
+    private ObjectMapping objectMapping;
+    private Correlation correlation;
+    private ReconciliationContext reconContext;
+    private final Context context = new RootContext();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        reconContext = mock(ReconciliationContext.class);
+        when(reconContext.getStatistics()).thenReturn(mock(ReconciliationStatistic.class));
+        objectMapping = mock(ObjectMapping.class);
+        when(objectMapping.getTargetObjectSet()).thenReturn("managed/user");
+        // case insensitive source ids
+        LinkType linkType = mock(LinkType.class);
+        when(linkType.normalizeSourceId(anyString())).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                return ((String) invocation.getArguments()[0]).toLowerCase();
+            }
+        });
+        when(objectMapping.getLinkType()).thenReturn(linkType);
+        correlation = mock(Correlation.class);
+        when(correlation.getCorrelationQueryParameters(anyMap(), anyString(),
+                any(Context.class), any(ReconciliationContext.class))).thenAnswer(new Answer<JsonValue>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public JsonValue answer(InvocationOnMock invocation) throws Throwable {
+                        Map<String, Object> source = (Map<String, Object>)
+                                ((Map<String, Object>) invocation.getArguments()[0]).get("source");
+                        return json(object(field("_queryFilter", "mail eq \"" + source.get("mail") + "\"")));
+                    }
+                });
+    }
+
+    @Test
+    public void testMatchesEachSourceAgainstOneQueryPerChunk() throws Exception {
+        givenTargets(newQueryResponse(),
+                object(field("_id", "t1"), field("mail", "a@example.com")),
+                object(field("_id", "t2"), field("mail", "b@example.com")),
+                object(field("_id", "t3"), field("mail", "b@example.com")));
+
+        CorrelationBatcher batcher = new CorrelationBatcher(objectMapping, correlation,
+                entries("a@example.com", "b@example.com", "c@example.com"), 10);
+
+        JsonValue a = batcher.correlate("s-a@example.com", "default", context, reconContext);
+        assertThat(a.size()).isEqualTo(1);
+        assertThat(a.get(0).get("_id").asString()).isEqualTo("t1");
+        assertThat(batcher.correlate("s-b@example.com", "default", context, reconContext).size()).isEqualTo(2);
+        // No batched match, correlated individually
+        assertThat(batcher.correlate("s-c@example.com", "default", context, reconContext)).isNull();
+        // Results are released once taken
+        assertThat(batcher.correlate("s-a@example.com", "default", context, reconContext)).isNull();
+
+        verify(correlation, times(1)).queryTargetObjectSet(any(QueryRequest.class), anyCollectionOf(Object.class));
+    }
+
+    @Test
+    public void testSplitsPageIntoChunks() throws Exception {
+        givenTargets(newQueryResponse());
+
+        CorrelationBatcher batcher = new CorrelationBatcher(objectMapping, correlation,
+                entries("a", "b", "c", "d", "e"), 2);
+        for (String mail : Arrays.asList("a", "b", "c", "d", "e")) {
+            batcher.correlate("s-" + mail, "default", context, reconContext);
+        }
+
+        verify(correlation, times(3)).queryTargetObjectSet(any(QueryRequest.class), anyCollectionOf(Object.class));
+    }
+
+    @Test
+    public void testLooksUpSourcesByNormalizedId() throws Exception {
+        givenTargets(newQueryResponse(), object(field("_id", "t1"), field("mail", "a@example.com")));
+
+        // the source query returns normalized ids, the sync operation has the id of the source object
+        CorrelationBatcher batcher = new CorrelationBatcher(objectMapping, correlation,
+                entries("a@example.com"), 10);
+        assertThat(batcher.correlate("S-A@example.com", "default", context, reconContext).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTargetMatchingOnlyIgnoringCaseFallsBack() throws Exception {
+        // the target compares case insensitively, both targets match the individual query of the source
+        givenTargets(newQueryResponse(),
+                object(field("_id", "t1"), field("mail", "a@example.com")),
+                object(field("_id", "t2"), field("mail", "A@Example.com")),
+                object(field("_id", "t3"), field("mail", "b@example.com")));
+
+        CorrelationBatcher batcher = new CorrelationBatcher(objectMapping, correlation,
+                entries("a@example.com", "b@example.com"), 10);
+        assertThat(batcher.correlate("s-a@example.com", "default", context, reconContext)).isNull();
+        assertThat(batcher.correlate("s-b@example.com", "default", context, reconContext).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUnmatchedTargetFallsBack() throws Exception {
+        // the target compares in a way not evaluated in memory
+        givenTargets(newQueryResponse(),
+                object(field("_id", "t1"), field("mail", "a@example.com")),
+                object(field("_id", "t2"), field("mail", "a@example.com ")));
+
+        CorrelationBatcher batcher = new CorrelationBatcher(objectMapping, correlation,
+                entries("a@example.com"), 10);
+        assertThat(batcher.correlate("s-a@example.com", "default", context, reconContext)).isNull();
+    }
+
+    @Test
+    public void testTruncatedQueryFallsBack() throws Exception {
+        givenTargets(newQueryResponse("cookie"), object(field("_id", "t1"), field("mail", "a@example.com")));
+
+        CorrelationBatcher batcher = new CorrelationBatcher(objectMapping, correlation,
+                entries("a@example.com"), 10);
+        assertThat(batcher.correlate("s-a@example.com", "default", context, reconContext)).isNull();
+    }
+
+    @Test
+    public void testNonEqualityFilterIsNotBatched() throws Exception {
+        when(correlation.getCorrelationQueryParameters(anyMap(), anyString(),
+                any(Context.class), any(ReconciliationContext.class)))
+                .thenReturn(json(object(field("_queryFilter", "mail sw \"a\""))));
+
+        CorrelationBatcher batcher = new CorrelationBatcher(objectMapping, correlation, entries("a"), 10);
+        assertThat(batcher.correlate("s-a", "default", context, reconContext)).isNull();
+        verify(correlation, times(0)).queryTargetObjectSet(any(QueryRequest.class), anyCollectionOf(Object.class));
+    }
+
+    @Test
+    public void testUnknownSourceIsNotBatched() throws Exception {
+        CorrelationBatcher batcher = new CorrelationBatcher(objectMapping, correlation, entries("a"), 10);
+        assertThat(batcher.correlate("unknown", "default", context, reconContext)).isNull();
+    }
+
+    private void givenTargets(final QueryResponse response, final Object... targets) throws Exception {
+        when(correlation.queryTargetObjectSet(any(QueryRequest.class), anyCollectionOf(Object.class)))
+                .thenAnswer(new Answer<QueryResponse>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+                        ((Collection<Object>) invocation.getArguments()[1]).addAll(Arrays.asList(targets));
+                        return response;
+                    }
+                });
+    }
+
+    private static List<ResultEntry> entries(String... mails) {
+        List<ResultEntry> entries = new ArrayList<>();
+        for (String mail : mails) {
+            entries.add(new ResultEntry("s-" + mail, json(object(field("_id", "s-" + mail), field("mail", mail)))));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Responses.newActionResponse;
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ActionRequest;
+import org.forgerock.json.resource.ActionResponse;
+import org.forgerock.json.resource.ConflictException;
+import org.forgerock.json.resource.Connection;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.CreateRequest;
+import org.forgerock.json.resource.NotSupportedException;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.openidm.sync.SynchronizationException;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class LinkBatchTest {
+
+    private final Context context = new RootContext();
+    private ObjectMapping mapping;
+    private Connection connection;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        connection = mock(Connection.class);
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+
+        LinkType linkType = mock(LinkType.class);
+        when(linkType.getName()).thenReturn("systemLdapAccounts_managedUser");
+        when(linkType.normalizeSourceId(anyString())).then(returnsFirstArg());
+        when(linkType.normalizeTargetId(anyString())).then(returnsFirstArg());
+
+        mapping = mock(ObjectMapping.class);
+        when(mapping.getConnectionFactory()).thenReturn(connectionFactory);
+        when(mapping.getLinkType()).thenReturn(linkType);
+        when(mapping.getName()).thenReturn("systemLdapAccounts_managedUser");
+    }
+
+    @Test
+    public void testWritesLinksInBatches() throws Exception {
+        when(connection.action(any(Context.class), any(ActionRequest.class))).then(new Answer<ActionResponse>() {
+            @Override
+            public ActionResponse answer(InvocationOnMock invocation) throws Throwable {
+                ActionRequest request = (ActionRequest) invocation.getArguments()[1];
+                List<Object> created = new ArrayList<>();
+                for (JsonValue link : request.getContent().get("create")) {
+                    created.add(object(field("_id", link.get("_id").asString()), field("_rev", "0")));
+                }
+                return newActionResponse(json(object(field("create", created))));
+            }
+        });
+
+        LinkBatch batch = new LinkBatch(mapping, 2);
+        Link first = link("s1", "t1");
+        batch.add(first, context);
+        batch.add(link("s2", "t2"), context);
+        verify(connection, times(1)).action(any(Context.class), any(ActionRequest.class));
+        assertThat(first._id).isNotNull();
+        assertThat(first._rev).isEqualTo("0");
+
+        batch.add(link("s3", "t3"), context);
+        assertThat(batch.flush(context)).isEmpty();
+        verify(connection, times(2)).action(any(Context.class), any(ActionRequest.class));
+        // Nothing left to write
+        assertThat(batch.flush(context)).isEmpty();
+        verify(connection, times(2)).action(any(Context.class), any(ActionRequest.class));
+        verify(connection, never()).create(any(Context.class), any(CreateRequest.class));
+    }
+
+    @Test
+    public void testFallsBackToIndividualCreatesWhenBatchNotSupported() throws Exception {
+        when(connection.action(any(Context.class), any(ActionRequest.class)))
+                .thenThrow(new NotSupportedException("Action operations are not supported"));
+        when(connection.create(any(Context.class), any(CreateRequest.class)))
+                .thenReturn(newResourceResponse("id", "1", json(object())));
+
+        LinkBatch batch = new LinkBatch(mapping, 10);
+        Link link = link("s1", "t1");
+        batch.add(link, context);
+        assertThat(batch.flush(context)).isEmpty();
+        assertThat(link._rev).isEqualTo("1");
+
+        batch.add(link("s2", "t2"), context);
+        assertThat(batch.flush(context)).isEmpty();
+        // The batch action is not attempted again
+        verify(connection, times(1)).action(any(Context.class), any(ActionRequest.class));
+        verify(connection, times(2)).create(any(Context.class), any(CreateRequest.class));
+    }
+
+    @Test
+    public void testReportsFailedLinksToTheirCompletion() throws Exception {
+        when(connection.action(any(Context.class), any(ActionRequest.class)))
+                .thenThrow(new ConflictException("Duplicate link"));
+        when(connection.create(any(Context.class), any(CreateRequest.class))).then(new Answer<ResourceResponse>() {
+            @Override
+            public ResourceResponse answer(InvocationOnMock invocation) throws Throwable {
+                CreateRequest request = (CreateRequest) invocation.getArguments()[1];
+                if ("s1".equals(request.getContent().get("firstId").asString())) {
+                    throw new ConflictException("Duplicate link");
+                }
+                return newResourceResponse(request.getNewResourceId(), "1", request.getContent());
+            }
+        });
+
+        LinkBatch batch = new LinkBatch(mapping, 10);
+        Link failed = link("s1", "t1");
+        Link created = link("s2", "t2");
+        batch.add(failed, context);
+        batch.add(created, context);
+        final List<ResourceException> outcomes = new ArrayList<>();
+        LinkBatch.Completion completion = new LinkBatch.Completion() {
+            @Override
+            public void linkWritten(ResourceException failure) {
+                outcomes.add(failure);
+            }
+        };
+        batch.whenWritten(failed, completion);
+        assertThat(outcomes).isEmpty();
+
+        assertThat(batch.flush(context)).containsOnlyKeys(failed._id);
+        assertThat(outcomes).hasSize(1);
+        assertThat(outcomes.get(0)).isInstanceOf(ConflictException.class);
+
+        // Completions registered after the batch has been written are called right away
+        batch.whenWritten(created, completion);
+        assertThat(outcomes).hasSize(2);
+        assertThat(outcomes.get(1)).isNull();
+    }
+
+    @Test
+    public void testKeepsPendingLinksVisible() throws Exception {
+        LinkBatch batch = new LinkBatch(mapping, 10);
+        Link pending = link("s1", "t1");
+        batch.add(pending, context);
+        assertThat(batch.getPendingLinkForTarget(Link.DEFAULT_LINK_QUALIFIER, "t1")).isSameAs(pending);
+        assertThat(batch.getPendingLinkForTarget(Link.DEFAULT_LINK_QUALIFIER, "t2")).isNull();
+        assertThat(batch.getPendingLinkForTarget("other", "t1")).isNull();
+        try {
+            batch.add(link("s2", "t1"), context);
+            fail("A second link for a pending target must be rejected");
+        } catch (SynchronizationException e) {
+            // expected
+        }
+    }
+
+    private Link link(String sourceId, String targetId) {
+        Link link = new Link(mapping);
+        link.setLinkQualifier(Link.DEFAULT_LINK_QUALIFIER);
+        link.sourceId = sourceId;
+        link.targetId = targetId;
+        return link;
+    }
+}
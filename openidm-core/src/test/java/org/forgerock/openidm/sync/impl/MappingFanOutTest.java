@@ -0,0 +1,205 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.array;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.openidm.sync.SynchronizationException;
+import org.forgerock.openidm.sync.impl.SynchronizationService.MappingSyncResult;
+import org.forgerock.openidm.sync.impl.SynchronizationService.SyncAction;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class MappingFanOutTest {
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static ObjectMapping mapping(String name, ObjectMapping... dependencies) {
+        ObjectMapping mapping = mock(ObjectMapping.class);
+        when(mapping.getName()).thenReturn(name);
+        for (ObjectMapping dependency : dependencies) {
+            when(mapping.dependsOn(dependency)).thenReturn(true);
+        }
+        return mapping;
+    }
+
+    private static JsonValue result(ObjectMapping mapping) {
+        return json(array(object(field("name", mapping.getName()))));
+    }
+
+    private static List<MappingSyncResult> results(List<MappingFanOut.Outcome> outcomes) {
+        MappingSyncResult[] results = new MappingSyncResult[outcomes.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = outcomes.get(i).result;
+        }
+        return Arrays.asList(results);
+    }
+
+    @Test
+    public void testIndependentMappingsAreSynchronizedConcurrently() throws Exception {
+        final CountDownLatch running = new CountDownLatch(3);
+        final List<ObjectMapping> mappings = Arrays.asList(mapping("ldap"), mapping("ad"), mapping("tickets"));
+
+        List<MappingFanOut.Outcome> outcomes = new MappingFanOut(executor).sync(new RootContext(), new SyncAction() {
+            @Override
+            public JsonValue sync(Context context, ObjectMapping mapping) throws SynchronizationException {
+                running.countDown();
+                try {
+                    // only returns once all the mappings are synchronizing
+                    if (!running.await(10, TimeUnit.SECONDS)) {
+                        throw new SynchronizationException("Not synchronized concurrently");
+                    }
+                } catch (InterruptedException e) {
+                    throw new SynchronizationException(e);
+                }
+                return result(mapping);
+            }
+        }, mappings);
+
+        assertThat(results(outcomes)).containsExactly(
+                MappingSyncResult.SUCCESSFUL, MappingSyncResult.SUCCESSFUL, MappingSyncResult.SUCCESSFUL);
+        for (int i = 0; i < mappings.size(); i++) {
+            assertThat(outcomes.get(i).mapping).isSameAs(mappings.get(i));
+            assertThat(outcomes.get(i).results.get(0).get("name").asString()).isEqualTo(mappings.get(i).getName());
+        }
+    }
+
+    @Test
+    public void testDependentMappingIsSynchronizedAfterItsDependency() throws Exception {
+        final ObjectMapping ldap = mapping("ldap");
+        final ObjectMapping groups = mapping("groups", ldap);
+        final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+
+        List<MappingFanOut.Outcome> outcomes = new MappingFanOut(executor).sync(new RootContext(), new SyncAction() {
+            @Override
+            public JsonValue sync(Context context, ObjectMapping mapping) throws SynchronizationException {
+                if (mapping == ldap) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        throw new SynchronizationException(e);
+                    }
+                }
+                finished.add(mapping.getName());
+                return result(mapping);
+            }
+        }, Arrays.asList(ldap, groups));
+
+        assertThat(finished).containsExactly("ldap", "groups");
+        assertThat(results(outcomes)).containsExactly(MappingSyncResult.SUCCESSFUL, MappingSyncResult.SUCCESSFUL);
+    }
+
+    @Test
+    public void testMappingDependingOnFailedMappingIsSkipped() throws Exception {
+        final ObjectMapping ldap = mapping("ldap");
+        final ObjectMapping groups = mapping("groups", ldap);
+
+        List<MappingFanOut.Outcome> outcomes = new MappingFanOut(executor).sync(new RootContext(), new SyncAction() {
+            @Override
+            public JsonValue sync(Context context, ObjectMapping mapping) throws SynchronizationException {
+                if (mapping == ldap) {
+                    SynchronizationException e = new SynchronizationException("ldap is down");
+                    e.setDetail(json(object(field("name", "ldap"))));
+                    throw e;
+                }
+                return result(mapping);
+            }
+        }, Arrays.asList(ldap, groups));
+
+        assertThat(results(outcomes)).containsExactly(MappingSyncResult.FAILED, MappingSyncResult.SKIPPED);
+        assertThat(outcomes.get(0).failure.getMessage()).isEqualTo("ldap is down");
+        assertThat(outcomes.get(0).results.get(0).get("cause").isNotNull()).isTrue();
+        assertThat(outcomes.get(1).results.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMappingsAfterFailureAreSkippedInTurn() throws Exception {
+        final ObjectMapping ldap = mapping("ldap");
+
+        List<MappingFanOut.Outcome> outcomes = new MappingFanOut(null).sync(new RootContext(), new SyncAction() {
+            @Override
+            public JsonValue sync(Context context, ObjectMapping mapping) throws SynchronizationException {
+                if (mapping == ldap) {
+                    SynchronizationException e = new SynchronizationException("ldap is down");
+                    e.setDetail(json(object()));
+                    throw e;
+                }
+                return result(mapping);
+            }
+        }, Arrays.asList(mapping("ad"), ldap, mapping("tickets")));
+
+        assertThat(results(outcomes)).containsExactly(
+                MappingSyncResult.SUCCESSFUL, MappingSyncResult.FAILED, MappingSyncResult.SKIPPED);
+    }
+
+    @Test(timeOut = 10000)
+    public void testNestedFanOutDoesNotWaitForThePool() throws Exception {
+        // a single thread, taken by the outer mapping while it synchronizes the nested mappings
+        final ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            final MappingFanOut fanOut = new MappingFanOut(singleThread);
+            final List<ObjectMapping> nested = Arrays.asList(mapping("roles"), mapping("groups"));
+            final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+
+            List<MappingFanOut.Outcome> outcomes = fanOut.sync(new RootContext(), new SyncAction() {
+                @Override
+                public JsonValue sync(Context context, ObjectMapping mapping) throws SynchronizationException {
+                    if (!nested.contains(mapping)) {
+                        List<MappingFanOut.Outcome> nestedOutcomes = fanOut.sync(context, this, nested);
+                        assertThat(results(nestedOutcomes)).containsExactly(
+                                MappingSyncResult.SUCCESSFUL, MappingSyncResult.SUCCESSFUL);
+                    }
+                    finished.add(mapping.getName());
+                    return result(mapping);
+                }
+            }, Arrays.asList(mapping("ldap"), mapping("ad")));
+
+            assertThat(results(outcomes)).containsExactly(MappingSyncResult.SUCCESSFUL, MappingSyncResult.SUCCESSFUL);
+            assertThat(finished).hasSize(6);
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+}
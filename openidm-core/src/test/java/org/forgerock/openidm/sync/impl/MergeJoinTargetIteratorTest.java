@@ -0,0 +1,104 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MergeJoinTargetIteratorTest {
+
+    private ReconciliationContext reconContext;
+    private ReconTypeHandler reconHandler;
+    private SpooledIdSet targetIds;
+
+    @BeforeMethod
+    public void setUp() {
+        reconContext = mock(ReconciliationContext.class);
+        reconHandler = mock(ReconTypeHandler.class);
+        when(reconContext.getReconHandler()).thenReturn(reconHandler);
+        when(reconContext.getStatistics()).thenReturn(mock(ReconciliationStatistic.class));
+        targetIds = new SpooledIdSet("test", 2);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        targetIds.close();
+    }
+
+    @Test
+    public void testYieldsTargetsNotHandledAcrossPages() throws Exception {
+        when(reconHandler.queryTargetPage(3, null)).thenReturn(page("cookie1", "t1", "t2", "t3"));
+        when(reconHandler.queryTargetPage(3, "cookie1")).thenReturn(page("cookie2", "t4", "t5", "t6"));
+        when(reconHandler.queryTargetPage(3, "cookie2")).thenReturn(page(null, "t7"));
+
+        handled("t0", "t2", "t3", "t6", "t9");
+
+        assertThat(remaining(new MergeJoinTargetIterator(reconContext, 3, targetIds)))
+                .containsExactly("t1", "t4", "t5", "t7");
+    }
+
+    @Test
+    public void testFallsBackToAllTargetIdsOnUnsortedTargets() throws Exception {
+        // sorted case-insensitively, as by a database collation
+        when(reconHandler.queryTargetPage(3, null)).thenReturn(page("cookie1", "a1", "a2", "B1"));
+        when(reconHandler.queryTargetPage(3, "cookie1")).thenReturn(page(null, "b2", "C1"));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                for (String id : Arrays.asList("a1", "a2", "B1", "b2", "C1", "c2")) {
+                    targetIds.add(id);
+                }
+                return null;
+            }
+        }).when(reconContext).queryTargetIds(any(SpooledIdSet.class));
+        handled("a2", "b2");
+
+        // a1 is yielded while merging, the rest once all target ids are spooled
+        assertThat(remaining(new MergeJoinTargetIterator(reconContext, 3, targetIds)))
+                .containsExactly("a1", "B1", "C1", "c2");
+    }
+
+    private void handled(String... ids) {
+        for (String id : ids) {
+            targetIds.remove(id);
+        }
+    }
+
+    private static List<String> remaining(MergeJoinTargetIterator iterator) {
+        List<String> remaining = new ArrayList<>();
+        while (iterator.hasNext()) {
+            remaining.add(iterator.next().getId());
+        }
+        return remaining;
+    }
+
+    private static ReconQueryResult page(String pagingCookie, String... ids) {
+        return new ReconQueryResult(new ResultIterable(Arrays.asList(ids), null), pagingCookie);
+    }
+}
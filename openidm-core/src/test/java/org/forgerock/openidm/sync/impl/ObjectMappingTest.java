@@ -140,6 +140,36 @@ public class ObjectMappingTest {
         return createObjectMapping(syncConfig.get("mappings").get(0));
     }
     
+    @Test
+    public void testCompilesMappingScriptsOnce() throws Exception {
+        TestObjectMapping mapping = createObjectMapping(json(
+                object(
+                        field("name", "testMapping"),
+                        field("source", "testSource"),
+                        field("target", "testTarget"),
+                        field("validSource", object(
+                                field("type", "text/javascript"),
+                                field("source", "true;"))),
+                        field("properties", array(
+                                object(
+                                        field("target", "mail"),
+                                        field("transform", object(
+                                                field("type", "text/javascript"),
+                                                field("source", "source.toLowerCase();")))))),
+                        field("policies", array(
+                                object(
+                                        field("situation", "ABSENT"),
+                                        field("action", object(
+                                                field("type", "groovy"),
+                                                field("file", "script/action.groovy"))))))
+                )
+        ));
+
+        assertThat(mapping.getScripts()).isSameAs(mapping.getScripts());
+        // validSource, the default mapping and post mapping scripts, the transform and the policy action
+        assertThat(mapping.getScripts().compile(new RootContext())).isEqualTo(5);
+    }
+
     private TestObjectMapping createObjectMapping(JsonValue syncConfig) throws Exception {
         return new TestObjectMapping(null, syncConfig);
     }
@@ -0,0 +1,122 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.json.resource.Connection;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.CreateRequest;
+import org.forgerock.openidm.sync.ReconAction;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+public class PhaseStatisticTest {
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> situation(PhaseStatistic stat, Situation situation) {
+        return (Map<String, Object>) stat.asMap().get(situation.name());
+    }
+
+    @Test
+    public void testSampleKeepsAllCountsButBoundedIds() throws Exception {
+        final PhaseStatistic stat = new PhaseStatistic(mock(ReconciliationStatistic.class),
+                PhaseStatistic.Phase.SOURCE, "managed/user", 10, null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        stat.processed("user" + thread + "-" + i, null, false, null, false,
+                                i % 2 == 0 ? Situation.FOUND : Situation.ABSENT, ReconAction.UPDATE);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(stat.getProcessed()).isEqualTo(4000);
+        assertThat(situation(stat, Situation.FOUND).get("count")).isEqualTo(2000);
+        assertThat((List<?>) situation(stat, Situation.FOUND).get("ids")).hasSize(10);
+        assertThat((List<?>) situation(stat, Situation.ABSENT).get("ids")).hasSize(10);
+        assertThat(stat.asMap().get("entries")).isEqualTo(4000);
+
+        Map<String, Integer> summary = new HashMap<>();
+        stat.updateSummary(summary);
+        assertThat(summary.get(Situation.ABSENT.name())).isEqualTo(2000);
+    }
+
+    @Test
+    public void testAllIdsAreKeptByDefault() {
+        PhaseStatistic stat = new PhaseStatistic(mock(ReconciliationStatistic.class),
+                PhaseStatistic.Phase.TARGET, "system/ldap/account");
+        for (int i = 0; i < 500; i++) {
+            stat.processed(null, "uid" + i, false, null, false, Situation.UNASSIGNED, ReconAction.IGNORE);
+        }
+        stat.addNotValid("bogus");
+
+        assertThat((List<?>) situation(stat, Situation.UNASSIGNED).get("ids")).hasSize(500);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> notValid = (Map<String, Object>) stat.asMap().get(PhaseStatistic.NOTVALID);
+        assertThat(notValid.get("count")).isEqualTo(1);
+    }
+
+    @Test
+    public void testRepoAppendsAllIdsInChunks() throws Exception {
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        PhaseStatistic stat = new PhaseStatistic(mock(ReconciliationStatistic.class), PhaseStatistic.Phase.SOURCE,
+                "managed/user", 5, new ReconResultStore(connectionFactory, "recon1", "source"));
+
+        int total = ReconResultStore.CHUNK_SIZE * 2 + 10;
+        for (int i = 0; i < total; i++) {
+            stat.processed("user" + i, null, false, null, false, Situation.FOUND, ReconAction.CREATE);
+        }
+        stat.flush(new RootContext());
+        stat.flush(new RootContext());
+
+        ArgumentCaptor<CreateRequest> created = ArgumentCaptor.forClass(CreateRequest.class);
+        verify(connection, times(3)).create(any(Context.class), created.capture());
+        List<CreateRequest> chunks = created.getAllValues();
+        assertThat(chunks.get(0).getResourcePath()).isEqualTo(ReconResultStore.RESULTS_PATH);
+        assertThat(chunks.get(0).getNewResourceId()).isEqualTo("recon1-source-FOUND-0");
+        assertThat(chunks.get(0).getContent().get(ReconResultStore.IDS).size()).isEqualTo(ReconResultStore.CHUNK_SIZE);
+        assertThat(chunks.get(0).getContent().get(ReconResultStore.IDS).get(0).asString()).isEqualTo("user0");
+        assertThat(chunks.get(2).getNewResourceId()).isEqualTo("recon1-source-FOUND-2");
+        assertThat(chunks.get(2).getContent().get(ReconResultStore.IDS).size()).isEqualTo(10);
+        assertThat(situation(stat, Situation.FOUND).get("count")).isEqualTo(total);
+        assertThat((List<?>) situation(stat, Situation.FOUND).get("ids")).hasSize(5);
+    }
+}
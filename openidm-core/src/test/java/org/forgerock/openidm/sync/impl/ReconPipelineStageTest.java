@@ -0,0 +1,96 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class ReconPipelineStageTest {
+
+    @Test
+    public void testAllSubmittedTasksCompleteBeforeDrained() throws Exception {
+        ReconPipelineStage stage = new ReconPipelineStage("test", 4, 2);
+        final AtomicInteger ran = new AtomicInteger();
+        try {
+            for (int i = 0; i < 100; i++) {
+                stage.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        ran.incrementAndGet();
+                    }
+                });
+            }
+            stage.awaitDrained();
+            assertThat(ran.get()).isEqualTo(100);
+
+            Map<String, Object> stats = stage.asMap();
+            assertThat(stats.get("submitted")).isEqualTo(100L);
+            assertThat(stats.get("completed")).isEqualTo(100L);
+            assertThat(stats.get("queueDepth")).isEqualTo(0);
+        } finally {
+            stage.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmitBlocksWhenStageIsFull() throws Exception {
+        final ReconPipelineStage stage = new ReconPipelineStage("test", 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            // One task running, one queued: the stage is full
+            stage.submit(blocked);
+            stage.submit(blocked);
+
+            final CountDownLatch submitted = new CountDownLatch(1);
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        stage.submit(blocked);
+                        submitted.countDown();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            producer.start();
+            assertThat(submitted.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+            release.countDown();
+            assertThat(submitted.await(5, TimeUnit.SECONDS)).isTrue();
+            stage.awaitDrained();
+        } finally {
+            release.countDown();
+            stage.shutdown();
+        }
+    }
+}
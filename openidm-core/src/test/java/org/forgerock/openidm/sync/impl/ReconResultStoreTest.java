@@ -0,0 +1,112 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Responses.newQueryResponse;
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.forgerock.json.resource.Connection;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.DeleteRequest;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.QueryResponse;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ReconResultStoreTest {
+
+    private final Context context = new RootContext();
+    private ConnectionFactory connectionFactory;
+    private final List<QueryRequest> queries = new ArrayList<>();
+    private final List<String> deleted = new ArrayList<>();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        queries.clear();
+        deleted.clear();
+        Connection connection = mock(Connection.class);
+        connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.query(any(Context.class), any(QueryRequest.class), any(QueryResourceHandler.class)))
+                .then(new Answer<QueryResponse>() {
+                    @Override
+                    public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+                        queries.add((QueryRequest) invocation.getArguments()[1]);
+                        QueryResourceHandler handler = (QueryResourceHandler) invocation.getArguments()[2];
+                        handler.handleResource(chunk("recon-1-source-FOUND-0", "recon-1"));
+                        handler.handleResource(chunk("recon-2-source-FOUND-0", "recon-2"));
+                        return newQueryResponse();
+                    }
+                });
+        when(connection.delete(any(Context.class), any(DeleteRequest.class))).then(new Answer<ResourceResponse>() {
+            @Override
+            public ResourceResponse answer(InvocationOnMock invocation) throws Throwable {
+                DeleteRequest request = (DeleteRequest) invocation.getArguments()[1];
+                deleted.add(request.getResourcePathObject().leaf());
+                return newResourceResponse(request.getResourcePathObject().leaf(), null, json(object()));
+            }
+        });
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        ReconResultStore.setNodeId(null);
+    }
+
+    private static ResourceResponse chunk(String id, String reconId) {
+        return newResourceResponse(id, "0", json(object(field(ReconResultStore.RECON_ID, reconId))));
+    }
+
+    @Test
+    public void testDeletesTheChunksQueriedForThePhase() throws Exception {
+        new ReconResultStore(connectionFactory, "recon-1", "source").delete(context);
+
+        assertThat(queries).hasSize(1);
+        assertThat(queries.get(0).getQueryFilter().toString()).contains("reconId").contains("recon-1")
+                .contains("phase").contains("source");
+        assertThat(deleted).containsExactly("recon-1-source-FOUND-0", "recon-2-source-FOUND-0");
+    }
+
+    @Test
+    public void testPurgesTheChunksOfUnknownRecons() throws Exception {
+        assertThat(ReconResultStore.purge(connectionFactory, Collections.<String>emptyList(), context)).isEqualTo(0);
+        assertThat(queries).isEmpty();
+
+        ReconResultStore.setNodeId("node1");
+        assertThat(ReconResultStore.purge(connectionFactory, Collections.singletonList("recon-2"), context))
+                .isEqualTo(1);
+        assertThat(queries.get(0).getQueryFilter().toString()).contains("node").contains("node1");
+        assertThat(deleted).containsExactly("recon-1-source-FOUND-0");
+    }
+}
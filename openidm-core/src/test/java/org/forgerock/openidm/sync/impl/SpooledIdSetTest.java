@@ -0,0 +1,113 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+public class SpooledIdSetTest {
+
+    @Test
+    public void testSpoolSortsAndDeduplicatesAcrossRuns() throws Exception {
+        try (ReconIdSpool spool = new ReconIdSpool("test", 3)) {
+            for (String id : Arrays.asList("d", "b", "a", "c", "b", "e", "a")) {
+                spool.add(id);
+            }
+            assertThat(spool.size()).isEqualTo(7);
+            assertThat(toList(spool.sortedIterator())).containsExactly("a", "b", "c", "d", "e");
+        }
+    }
+
+    @Test
+    public void testRemainingIdsAreAddedMinusRemoved() throws Exception {
+        try (SpooledIdSet remaining = new SpooledIdSet("test", 2)) {
+            for (String id : Arrays.asList("id5", "id1", "id4", "id2", "id3")) {
+                remaining.add(id);
+            }
+            remaining.remove("id4");
+            remaining.remove("id1");
+            remaining.remove("id4");
+            remaining.remove("unknown");
+
+            assertThat(toList(remaining.iterator())).containsExactly("id2", "id3", "id5");
+
+            List<String> entryIds = new ArrayList<>();
+            Iterator<ResultEntry> entries = remaining.resultEntries();
+            while (entries.hasNext()) {
+                ResultEntry entry = entries.next();
+                assertThat(entry.getValue()).isNull();
+                entryIds.add(entry.getId());
+            }
+            assertThat(entryIds).containsExactly("id2", "id3", "id5");
+        }
+    }
+
+    @Test
+    public void testSpoolsLongIds() throws Exception {
+        StringBuilder longId = new StringBuilder();
+        while (longId.length() < 70000) {
+            longId.append("\u00e9");
+        }
+        try (ReconIdSpool spool = new ReconIdSpool("test", 1)) {
+            spool.add(longId.toString());
+            spool.add("a");
+            assertThat(toList(spool.sortedIterator())).containsExactly("a", longId.toString());
+        }
+    }
+
+    @Test
+    public void testEmptySpool() throws Exception {
+        try (SpooledIdSet remaining = new SpooledIdSet("test", 10)) {
+            remaining.remove("id1");
+            assertThat(remaining.iterator().hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void testSpoolDirectoryLeftoversAreDeleted() throws Exception {
+        File directory = Files.createTempDirectory("recon-spool").toFile();
+        File leftover = new File(directory, "recon-test-all-1.ids");
+        File other = new File(directory, "other.ids");
+        assertThat(leftover.createNewFile()).isTrue();
+        assertThat(other.createNewFile()).isTrue();
+
+        ReconIdSpool.initDirectory(directory);
+        assertThat(leftover.exists()).isFalse();
+        assertThat(other.exists()).isTrue();
+
+        try (ReconIdSpool spool = new ReconIdSpool("test", 1)) {
+            spool.add("id1");
+            assertThat(directory.list()).hasSize(2);
+        }
+        assertThat(directory.list()).containsExactly("other.ids");
+    }
+
+    private static List<String> toList(Iterator<String> iterator) {
+        List<String> result = new ArrayList<>();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.openidm.sync.impl.SyncQueue.ACTION;
+import static org.forgerock.openidm.sync.impl.SyncQueue.CLAIMED_BY;
+import static org.forgerock.openidm.sync.impl.SyncQueue.LEASE_EXPIRES;
+import static org.forgerock.openidm.sync.impl.SyncQueue.NEW_VALUE;
+import static org.forgerock.openidm.sync.impl.SyncQueue.OLD_VALUE;
+import static org.forgerock.openidm.sync.impl.SyncQueue.timestamp;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.openidm.sync.impl.SynchronizationService.SyncServiceAction;
+import org.testng.annotations.Test;
+
+public class SyncQueueTest {
+
+    private static final long NOW = 1000000L;
+
+    private static JsonValue entry(SyncServiceAction action, String oldName, String newName) {
+        return json(object(
+                field(ACTION, action.name()),
+                field(OLD_VALUE, oldName == null ? null : object(field("name", oldName))),
+                field(NEW_VALUE, newName == null ? null : object(field("name", newName))),
+                field(LEASE_EXPIRES, timestamp(0))));
+    }
+
+    private static JsonValue value(String name) {
+        return json(object(field("name", name)));
+    }
+
+    private static JsonValue claimed(JsonValue entry) {
+        entry.put(LEASE_EXPIRES, timestamp(NOW + 60000L));
+        entry.put(CLAIMED_BY, "node1");
+        return entry;
+    }
+
+    @Test
+    public void testMergesUpdatesFromFirstOldValueToLastNewValue() {
+        JsonValue merged = SyncQueue.merge(entry(SyncServiceAction.notifyUpdate, "a", "b"),
+                SyncServiceAction.notifyUpdate, value("b"), value("c"), NOW);
+
+        assertThat(merged.get(ACTION).asString()).isEqualTo("notifyUpdate");
+        assertThat(merged.get(OLD_VALUE).get("name").asString()).isEqualTo("a");
+        assertThat(merged.get(NEW_VALUE).get("name").asString()).isEqualTo("c");
+    }
+
+    @Test
+    public void testMergesUpdateIntoCreate() {
+        JsonValue merged = SyncQueue.merge(entry(SyncServiceAction.notifyCreate, null, "a"),
+                SyncServiceAction.notifyUpdate, value("a"), value("b"), NOW);
+
+        assertThat(merged.get(ACTION).asString()).isEqualTo("notifyCreate");
+        assertThat(merged.get(OLD_VALUE).isNull()).isTrue();
+        assertThat(merged.get(NEW_VALUE).get("name").asString()).isEqualTo("b");
+    }
+
+    @Test
+    public void testCreateThenDeleteCancelOut() {
+        assertThat(SyncQueue.merge(entry(SyncServiceAction.notifyCreate, null, "a"),
+                SyncServiceAction.notifyDelete, value("a"), json(null), NOW)).isNull();
+    }
+
+    @Test
+    public void testDeleteOfClaimedCreateIsKept() {
+        JsonValue merged = SyncQueue.merge(claimed(entry(SyncServiceAction.notifyCreate, null, "a")),
+                SyncServiceAction.notifyDelete, value("a"), json(null), NOW);
+
+        assertThat(merged.get(ACTION).asString()).isEqualTo("notifyDelete");
+        assertThat(merged.get(CLAIMED_BY).asString()).isEqualTo("node1");
+    }
+
+    @Test
+    public void testMergesCreateIntoDeleteAsUpdate() {
+        JsonValue merged = SyncQueue.merge(entry(SyncServiceAction.notifyDelete, "a", null),
+                SyncServiceAction.notifyCreate, json(null), value("b"), NOW);
+
+        assertThat(merged.get(ACTION).asString()).isEqualTo("notifyUpdate");
+        assertThat(merged.get(OLD_VALUE).get("name").asString()).isEqualTo("a");
+        assertThat(merged.get(NEW_VALUE).get("name").asString()).isEqualTo("b");
+    }
+
+    @Test
+    public void testRebaseOfUnchangedEntryRemovesIt() {
+        JsonValue synced = claimed(entry(SyncServiceAction.notifyUpdate, "a", "b"));
+
+        assertThat(SyncQueue.rebase(synced.copy(), synced)).isNull();
+    }
+
+    @Test
+    public void testRebasesEntryMergedWhileClaimed() {
+        JsonValue synced = claimed(entry(SyncServiceAction.notifyCreate, null, "a"));
+        JsonValue current = SyncQueue.merge(synced, SyncServiceAction.notifyUpdate, value("a"), value("b"), NOW);
+
+        JsonValue rebased = SyncQueue.rebase(current, synced);
+
+        assertThat(rebased.get(ACTION).asString()).isEqualTo("notifyUpdate");
+        assertThat(rebased.get(OLD_VALUE).get("name").asString()).isEqualTo("a");
+        assertThat(rebased.get(NEW_VALUE).get("name").asString()).isEqualTo("b");
+        assertThat(rebased.get(CLAIMED_BY).isNull()).isTrue();
+        assertThat(rebased.get(LEASE_EXPIRES).asString()).isEqualTo(timestamp(0));
+    }
+
+    @Test
+    public void testEntryIdIsStablePerObject() {
+        assertThat(SyncQueue.entryId("managed/user", "bjensen"))
+                .isEqualTo(SyncQueue.entryId("managed/user", "bjensen"))
+                .isNotEqualTo(SyncQueue.entryId("managed/user", "scarter"))
+                .isNotEqualTo(SyncQueue.entryId("managed/role", "bjensen"));
+    }
+
+    @Test
+    public void testTimestampsCompareAsStrings() {
+        assertThat(timestamp(999L).compareTo(timestamp(1000L))).isNegative();
+        assertThat(timestamp(0L).compareTo(timestamp(NOW))).isNegative();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.crypto.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.crypto.JsonCryptoException;
+import org.forgerock.openidm.crypto.CryptoConstants;
+import org.forgerock.openidm.crypto.SaltedSHA256FieldStorageScheme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of the salted hashes of {@link CryptoServiceImpl}, as on a login or on a write of a hashed field by
+ * concurrent requests.
+ * <p>
+ * The {@code perCallScheme} benchmarks create a field storage scheme, and with it a secure random, on every call
+ * as {@link CryptoServiceImpl} did before keeping one scheme per algorithm.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec} in the openidm-crypto module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class FieldStorageSchemeBenchmark {
+
+    private static final String PASSWORD = "Passw0rd-of-a-user";
+
+    private final CryptoServiceImpl cryptoService = new CryptoServiceImpl();
+    private JsonValue hashedPassword;
+    private String storedField;
+
+    @Setup
+    public void setUp() throws Exception {
+        hashedPassword = cryptoService.hash(new JsonValue(PASSWORD), CryptoConstants.ALGORITHM_SHA_256);
+        storedField = hashedPassword.get("$crypto").get("value").get("data").asString();
+    }
+
+    @Benchmark
+    public boolean matches() throws JsonCryptoException {
+        return cryptoService.matches(PASSWORD, hashedPassword);
+    }
+
+    @Benchmark
+    public JsonValue hash() throws JsonCryptoException {
+        return cryptoService.hash(new JsonValue(PASSWORD), CryptoConstants.ALGORITHM_SHA_256);
+    }
+
+    @Benchmark
+    public boolean perCallSchemeMatches() throws Exception {
+        return new SaltedSHA256FieldStorageScheme().fieldMatches(PASSWORD, storedField);
+    }
+
+    @Benchmark
+    public String perCallSchemeHash() throws Exception {
+        return new SaltedSHA256FieldStorageScheme().hashField(PASSWORD);
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmarks failed to run
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FieldStorageSchemeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
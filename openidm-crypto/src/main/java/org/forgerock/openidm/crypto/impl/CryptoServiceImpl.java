@@ -25,6 +25,8 @@ import static org.forgerock.json.JsonValueFunctions.identity;
 
 import java.io.IOException;
 import java.security.Key;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.forgerock.json.JsonException;
 import org.forgerock.json.JsonValue;
@@ -72,6 +74,9 @@ public class CryptoServiceImpl implements CryptoService {
     private Function<JsonValue, JsonValue, JsonValueException> decryptionFunction = identity();
     private SimpleKeySelector keySelector;
 
+    /** The field storage schemes, by algorithm */
+    private final ConcurrentMap<String, FieldStorageScheme> fieldStorageSchemes = new ConcurrentHashMap<>();
+
     @Reference(target="(service.pid=org.forgerock.openidm.keystore)")
     private KeyStoreService keyStoreService;
 
@@ -224,13 +229,30 @@ public class CryptoServiceImpl implements CryptoService {
     }
 
     /**
-     * Returns a {@link FieldStorageScheme} instance based on the supplied algorithm.
+     * Returns a {@link FieldStorageScheme} instance based on the supplied algorithm. The instances are thread safe,
+     * one is created per algorithm and reused.
      *
      * @param algorithm a string representing a storage scheme algorithm
      * @return a field storage scheme implementation.
      * @throws JsonCryptoException
      */
     private FieldStorageScheme getFieldStorageScheme(String algorithm) throws JsonCryptoException {
+        FieldStorageScheme fieldStorageScheme = fieldStorageSchemes.get(algorithm);
+        if (fieldStorageScheme == null) {
+            fieldStorageSchemes.putIfAbsent(algorithm, newFieldStorageScheme(algorithm));
+            fieldStorageScheme = fieldStorageSchemes.get(algorithm);
+        }
+        return fieldStorageScheme;
+    }
+
+    /**
+     * Creates a {@link FieldStorageScheme} instance based on the supplied algorithm.
+     *
+     * @param algorithm a string representing a storage scheme algorithm
+     * @return a field storage scheme implementation.
+     * @throws JsonCryptoException
+     */
+    private static FieldStorageScheme newFieldStorageScheme(String algorithm) throws JsonCryptoException {
         try {
             if (algorithm.equals(CryptoConstants.ALGORITHM_MD5)) {
                 return new SaltedMD5FieldStorageScheme();
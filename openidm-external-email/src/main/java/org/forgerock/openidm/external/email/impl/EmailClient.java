@@ -27,6 +27,9 @@ package org.forgerock.openidm.external.email.impl;
 import com.sun.mail.util.MailSSLSocketFactory;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.BadRequestException;
+import org.forgerock.json.resource.InternalServerErrorException;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ServiceUnavailableException;
 
 import java.util.Properties;
 import javax.mail.Message;
@@ -39,18 +42,32 @@ import javax.mail.internet.MimeMessage;
 
 /**
  * Email client.
+ *
+ * The messages are sent over pooled SMTP transports, kept connected between messages. When the queue is enabled,
+ * the messages are sent in the background and {@link #send(JsonValue)} returns once the message is queued.
  */
 public class EmailClient {
 
     private static final String DEFAULT_HOST = "localhost";
     private static final String DEFAULT_PORT = "25";
+    private static final int DEFAULT_POOL_MAX_CONNECTIONS = 4;
+    private static final long DEFAULT_POOL_IDLE_TIMEOUT = 30000L;
+    private static final int DEFAULT_POOL_MAX_MESSAGES = 100;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_QUEUE_THREADS = 2;
+    private static final int DEFAULT_QUEUE_BATCH_SIZE = 20;
+    private static final int DEFAULT_QUEUE_MAX_RETRIES = 3;
+    private static final long DEFAULT_QUEUE_RETRY_DELAY = 1000L;
+    private static final long CLOSE_TIMEOUT = 10000L;
     private String username = null;
     private String password = null;
     private String fromAddr = null;
     private boolean smtpAuth = false;
     private Properties props = new Properties();
     private Session session;
-    
+    private final SmtpTransportPool pool;
+    private final EmailSendQueue queue;
+
     // Keys in the JSON configuration
     public static final String CONFIG_MAIL_SMTP_HOST = "host";
     public static final String CONFIG_MAIL_SMTP_PORT = "port";
@@ -62,6 +79,17 @@ public class EmailClient {
     public static final String CONFIG_MAIL_SMTP_STARTTLS_ENABLE = "enable";
     public static final String CONFIG_MAIL_FROM = "from";
     public static final String CONFIG_MAIL_DEBUG = "debug";
+    public static final String CONFIG_MAIL_POOL = "pool";
+    public static final String CONFIG_MAIL_POOL_MAX_CONNECTIONS = "maxConnections";
+    public static final String CONFIG_MAIL_POOL_IDLE_TIMEOUT = "idleTimeout";
+    public static final String CONFIG_MAIL_POOL_MAX_MESSAGES = "maxMessagesPerConnection";
+    public static final String CONFIG_MAIL_QUEUE = "queue";
+    public static final String CONFIG_MAIL_QUEUE_ENABLE = "enable";
+    public static final String CONFIG_MAIL_QUEUE_SIZE = "size";
+    public static final String CONFIG_MAIL_QUEUE_THREADS = "threads";
+    public static final String CONFIG_MAIL_QUEUE_BATCH_SIZE = "batchSize";
+    public static final String CONFIG_MAIL_QUEUE_MAX_RETRIES = "maxRetries";
+    public static final String CONFIG_MAIL_QUEUE_RETRY_DELAY = "retryDelay";
 
     public EmailClient(JsonValue config) throws RuntimeException {
 
@@ -94,6 +122,35 @@ public class EmailClient {
 
         fromAddr = config.get(CONFIG_MAIL_FROM).asString();
         session = Session.getInstance(props);
+
+        JsonValue poolConfig = config.get(CONFIG_MAIL_POOL);
+        pool = new SmtpTransportPool(new SmtpTransportPool.TransportFactory() {
+                    @Override
+                    public Transport connect() throws MessagingException {
+                        Transport transport = session.getTransport("smtp");
+                        if (smtpAuth) {
+                            transport.connect(username, password);
+                        } else {
+                            transport.connect();
+                        }
+                        return transport;
+                    }
+                },
+                poolConfig.get(CONFIG_MAIL_POOL_MAX_CONNECTIONS).defaultTo(DEFAULT_POOL_MAX_CONNECTIONS).asInteger(),
+                poolConfig.get(CONFIG_MAIL_POOL_IDLE_TIMEOUT).defaultTo(DEFAULT_POOL_IDLE_TIMEOUT).asLong(),
+                poolConfig.get(CONFIG_MAIL_POOL_MAX_MESSAGES).defaultTo(DEFAULT_POOL_MAX_MESSAGES).asInteger());
+
+        JsonValue queueConfig = config.get(CONFIG_MAIL_QUEUE);
+        if (queueConfig.get(CONFIG_MAIL_QUEUE_ENABLE).defaultTo(false).asBoolean()) {
+            queue = new EmailSendQueue(pool,
+                    queueConfig.get(CONFIG_MAIL_QUEUE_SIZE).defaultTo(DEFAULT_QUEUE_SIZE).asInteger(),
+                    queueConfig.get(CONFIG_MAIL_QUEUE_THREADS).defaultTo(DEFAULT_QUEUE_THREADS).asInteger(),
+                    queueConfig.get(CONFIG_MAIL_QUEUE_BATCH_SIZE).defaultTo(DEFAULT_QUEUE_BATCH_SIZE).asInteger(),
+                    queueConfig.get(CONFIG_MAIL_QUEUE_MAX_RETRIES).defaultTo(DEFAULT_QUEUE_MAX_RETRIES).asInteger(),
+                    queueConfig.get(CONFIG_MAIL_QUEUE_RETRY_DELAY).defaultTo(DEFAULT_QUEUE_RETRY_DELAY).asLong());
+        } else {
+            queue = null;
+        }
     }
 
     /**
@@ -113,8 +170,30 @@ public class EmailClient {
      * @throws  BadRequestException
      *          If the one or more of the {@code from}, {@code to}, {@code cc}, {@code bcc},
      *          {@code subject}, or {@code body} parameters are missing or improperly formatted.
+     * @throws  ServiceUnavailableException
+     *          If the queue is enabled and full.
+     * @throws  ResourceException
+     *          If the message could not be sent.
      */
-    public void send(JsonValue params) throws BadRequestException {
+    public void send(JsonValue params) throws ResourceException {
+        Message message = createMessage(params);
+        if (queue != null) {
+            if (!queue.offer(message)) {
+                throw new ServiceUnavailableException("The email queue is full");
+            }
+            return;
+        }
+        try {
+            pool.send(message);
+        } catch (MessagingException e) {
+            throw new BadRequestException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Interrupted while waiting for an SMTP connection", e);
+        }
+    }
+
+    private Message createMessage(JsonValue params) throws BadRequestException {
         InternetAddress from = null;
         InternetAddress[] to = null;
         InternetAddress[] cc = null;
@@ -195,21 +274,48 @@ public class EmailClient {
                 // no idea what this is... let's throw
                 throw new BadRequestException("Email type: " + type + " is not handled");
             }
+            return message;
+        } catch (MessagingException e) {
+            throw new BadRequestException(e);
+        }
+    }
+
+    /**
+     * @return the number of messages waiting to be sent, 0 if the queue is not enabled
+     */
+    public int getQueueDepth() {
+        return queue != null ? queue.size() : 0;
+    }
 
-            Transport transport = session.getTransport("smtp");
+    /**
+     * @return the number of attempts to send a message
+     */
+    public long getSendCount() {
+        return pool.getSendCount();
+    }
 
-            if (smtpAuth) {
-                transport.connect(username, password);
-            } else {
-                transport.connect();
-            }
-            message.saveChanges();
-            transport.sendMessage(message, message.getAllRecipients());
-            transport.close();
+    /**
+     * @return the nanoseconds spent sending messages
+     */
+    public long getSendNanos() {
+        return pool.getSendNanos();
+    }
 
-        } catch (MessagingException e) {
-            throw new BadRequestException(e);
+    /**
+     * @return the number of attempts to send a message that failed
+     */
+    public long getSendFailures() {
+        return pool.getSendFailures();
+    }
+
+    /**
+     * Sends the queued messages, then closes the pooled transports.
+     */
+    public void close() {
+        if (queue != null) {
+            queue.close(CLOSE_TIMEOUT);
         }
+        pool.close();
     }
 
     public void format() {
@@ -0,0 +1,70 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.external.email.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.MetricsRegistry;
+import org.forgerock.openidm.metrics.MetricsWriter;
+
+/**
+ * Writes the queue depth and send latency of the email client of the email service.
+ * <p>
+ * Only created once a {@link MetricsRegistry} is bound, as the metrics package is an optional import.
+ */
+class EmailMetrics implements Collector {
+
+    private final EmailServiceImpl emailService;
+
+    /**
+     * @param emailService the email service, whose client may be replaced on reconfiguration
+     */
+    EmailMetrics(EmailServiceImpl emailService) {
+        this.emailService = emailService;
+    }
+
+    /**
+     * @param metricsRegistry the registry to register the metrics with
+     */
+    void register(MetricsRegistry metricsRegistry) {
+        metricsRegistry.register(this);
+    }
+
+    /**
+     * @param metricsRegistry the registry to unregister the metrics from
+     */
+    void unregister(MetricsRegistry metricsRegistry) {
+        metricsRegistry.unregister(this);
+    }
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        EmailClient client = emailService.emailClient;
+        if (client == null) {
+            return;
+        }
+        writer.family("openidm_email_queue_depth", "gauge", "Email messages waiting to be sent")
+                .sample("openidm_email_queue_depth", client.getQueueDepth());
+        writer.family("openidm_email_send_seconds", "summary", "Time to send an email message to the SMTP server")
+                .sample("openidm_email_send_seconds_count", client.getSendCount())
+                .sample("openidm_email_send_seconds_sum",
+                        client.getSendNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+        writer.family("openidm_email_send_failures_total", "counter",
+                "Attempts to send an email message that failed")
+                .sample("openidm_email_send_failures_total", client.getSendFailures());
+    }
+}
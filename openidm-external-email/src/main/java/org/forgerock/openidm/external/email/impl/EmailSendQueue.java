@@ -0,0 +1,207 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.external.email.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the messages in the background, in batches over a single pooled transport.
+ * <p>
+ * The queue of messages waiting to be sent is bounded, a message is refused once it is full. A message that failed
+ * to send because of the connection to the SMTP server is sent again after a delay doubling on each attempt, a
+ * message refused by the server for its addresses is not.
+ */
+class EmailSendQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailSendQueue.class);
+
+    /** Longest delay between two attempts to send a message */
+    private static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toMillis(5);
+
+    /** A message with the number of attempts to send it */
+    private static final class Pending {
+        private final Message message;
+        private int attempts;
+
+        private Pending(Message message) {
+            this.message = message;
+        }
+    }
+
+    private final SmtpTransportPool pool;
+    private final BlockingQueue<Pending> queue;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService retries;
+    private final int batchSize;
+    private final int maxRetries;
+    private final long retryDelay;
+    private volatile boolean closed;
+
+    /**
+     * Creates a queue and starts its workers.
+     *
+     * @param pool the transports to send the messages over
+     * @param size the number of messages waiting to be sent
+     * @param threads the number of workers sending messages
+     * @param batchSize the number of messages sent over a transport before it is returned to the pool
+     * @param maxRetries the number of times a message is sent again after failing
+     * @param retryDelay the delay in milliseconds before the first retry
+     */
+    EmailSendQueue(SmtpTransportPool pool, int size, int threads, int batchSize, int maxRetries, long retryDelay) {
+        this.pool = pool;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, size));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryDelay = Math.max(0, retryDelay);
+        this.retries = Executors.newSingleThreadScheduledExecutor();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads));
+        for (int i = 0; i < Math.max(1, threads); i++) {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            });
+        }
+    }
+
+    /**
+     * Queues a message to be sent.
+     *
+     * @param message the message
+     * @return false if the queue is full or closed
+     */
+    boolean offer(Message message) {
+        return !closed && queue.offer(new Pending(message));
+    }
+
+    /**
+     * @return the number of messages waiting to be sent
+     */
+    int size() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting messages, and waits for the queued messages to be sent.
+     *
+     * @param timeout the time in milliseconds to wait for the queued messages
+     */
+    void close(long timeout) {
+        closed = true;
+        int dropped = retries.shutdownNow().size();
+        if (dropped > 0) {
+            logger.warn("Dropping {} email messages waiting to be sent again", dropped);
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("Dropping {} queued email messages", queue.size());
+            queue.clear();
+        }
+    }
+
+    private void work() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Pending first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                sendBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Pending pending : batch) {
+                queue.offer(pending);
+            }
+        }
+    }
+
+    private void sendBatch(List<Pending> batch) throws InterruptedException {
+        SmtpTransportPool.PooledTransport transport = null;
+        try {
+            for (Pending pending : batch) {
+                pending.attempts++;
+                try {
+                    if (transport == null) {
+                        transport = pool.borrow();
+                    }
+                    pool.send(transport, pending.message);
+                } catch (SendFailedException e) {
+                    logger.warn("Email refused by the SMTP server, not sending it again", e);
+                } catch (MessagingException e) {
+                    if (transport != null) {
+                        pool.release(transport, true);
+                        transport = null;
+                    }
+                    retry(pending, e);
+                }
+            }
+        } finally {
+            if (transport != null) {
+                pool.release(transport, false);
+            }
+        }
+    }
+
+    private void retry(final Pending pending, MessagingException failure) {
+        if (closed || pending.attempts > maxRetries) {
+            logger.error("Failed to send email after {} attempts", pending.attempts, failure);
+            return;
+        }
+        long delay = Math.min(MAX_RETRY_DELAY, retryDelay << Math.min(pending.attempts - 1, 20));
+        logger.debug("Failed to send email, attempt {} in {} ms", pending.attempts + 1, delay, failure);
+        try {
+            retries.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!queue.offer(pending)) {
+                        logger.error("Failed to send email, the queue is full for attempt {}", pending.attempts + 1);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.error("Failed to send email after {} attempts", pending.attempts, failure);
+        }
+    }
+}
@@ -47,6 +47,7 @@ import org.forgerock.json.resource.SingletonResourceProvider;
 import org.forgerock.json.resource.UpdateRequest;
 import org.forgerock.openidm.config.enhanced.EnhancedConfig;
 import org.forgerock.openidm.core.ServerConstants;
+import org.forgerock.openidm.metrics.MetricsRegistry;
 import org.forgerock.services.context.Context;
 import org.forgerock.util.promise.Promise;
 import org.forgerock.util.promise.Promises;
@@ -56,6 +57,7 @@ import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
 import org.osgi.service.component.propertytypes.ServiceDescription;
 import org.osgi.service.component.propertytypes.ServiceVendor;
@@ -87,7 +89,40 @@ public class EmailServiceImpl implements SingletonResourceProvider {
     @Reference(policy = ReferencePolicy.DYNAMIC)
     private volatile EnhancedConfig enhancedConfig;
 
-    EmailClient emailClient;
+    volatile EmailClient emailClient;
+
+    /** Writes the queue depth and send latency of the email client, created once a metrics registry is bound */
+    private volatile EmailMetrics metrics;
+
+    /**
+     * Registers the email metrics.
+     *
+     * @param metricsRegistry the metrics registry
+     */
+    @Reference(
+            name = "MetricsRegistry",
+            service = MetricsRegistry.class,
+            unbind = "unbindMetricsRegistry",
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC)
+    void bindMetricsRegistry(MetricsRegistry metricsRegistry) {
+        // Not created before, the metrics package is an optional import
+        if (metrics == null) {
+            metrics = new EmailMetrics(this);
+        }
+        metrics.register(metricsRegistry);
+    }
+
+    /**
+     * Unregisters the email metrics.
+     *
+     * @param metricsRegistry the metrics registry
+     */
+    void unbindMetricsRegistry(MetricsRegistry metricsRegistry) {
+        if (metrics != null) {
+            metrics.unregister(metricsRegistry);
+        }
+    }
 
     @Action(operationDescription =
     @Operation(
@@ -96,7 +131,10 @@ public class EmailServiceImpl implements SingletonResourceProvider {
                     @ApiError(
                             code = 400,
                             description = "Indicates that the request could not be understood by "
-                                    + "the resource due to malformed syntax.")
+                                    + "the resource due to malformed syntax."),
+                    @ApiError(
+                            code = 503,
+                            description = "Indicates that the email queue is full.")
             }),
             name = "send",
             request = @Schema(schemaResource = "sendActionRequest.json"),
@@ -146,6 +184,10 @@ public class EmailServiceImpl implements SingletonResourceProvider {
     @Deactivate
     void deactivate(ComponentContext compContext) {
         logger.debug("Deactivating Service {}", compContext.getProperties());
+        if (emailClient != null) {
+            emailClient.close();
+            emailClient = null;
+        }
         logger.info("Notification service stopped.");
     }
 }
@@ -0,0 +1,223 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.external.email.impl;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps connected, and authenticated, SMTP transports to send messages over.
+ * <p>
+ * Connecting, negotiating TLS and authenticating take several round trips to the SMTP server, the transports are
+ * kept open to be reused for the next messages. The number of open transports is bounded. A transport idle for
+ * longer than the idle timeout, or that has sent the maximum number of messages, is closed rather than reused.
+ */
+class SmtpTransportPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    /** Opens a new connected transport */
+    interface TransportFactory {
+
+        /**
+         * Opens a transport.
+         *
+         * @return a connected transport
+         * @throws MessagingException if the transport could not connect
+         */
+        Transport connect() throws MessagingException;
+    }
+
+    /** A transport borrowed from the pool */
+    static final class PooledTransport {
+        private final Transport transport;
+        private long lastUsed;
+        private int messages;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+
+    private final TransportFactory factory;
+    private final Semaphore connections;
+    private final long idleTimeoutNanos;
+    private final int maxMessagesPerConnection;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final LongAdder sendCount = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool.
+     *
+     * @param factory opens the transports
+     * @param maxConnections the number of transports open at the same time
+     * @param idleTimeout the time in milliseconds a transport is kept open while unused
+     * @param maxMessagesPerConnection the number of messages sent over a transport before it is closed
+     */
+    SmtpTransportPool(TransportFactory factory, int maxConnections, long idleTimeout, int maxMessagesPerConnection) {
+        this.factory = factory;
+        this.connections = new Semaphore(Math.max(1, maxConnections));
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        this.maxMessagesPerConnection = Math.max(1, maxMessagesPerConnection);
+    }
+
+    /**
+     * Sends a message over a transport of the pool.
+     *
+     * @param message the message
+     * @throws MessagingException if the message could not be sent
+     * @throws InterruptedException if interrupted while waiting for a transport
+     */
+    void send(Message message) throws MessagingException, InterruptedException {
+        PooledTransport transport = borrow();
+        boolean broken = true;
+        try {
+            send(transport, message);
+            broken = false;
+        } finally {
+            release(transport, broken);
+        }
+    }
+
+    /**
+     * Sends a message over a borrowed transport.
+     *
+     * @param transport the transport
+     * @param message the message
+     * @throws MessagingException if the message could not be sent
+     */
+    void send(PooledTransport transport, Message message) throws MessagingException {
+        long start = System.nanoTime();
+        try {
+            message.saveChanges();
+            transport.transport.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException e) {
+            sendFailures.increment();
+            throw e;
+        } finally {
+            transport.messages++;
+            sendCount.increment();
+            sendNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Borrows a transport, reusing an idle one if still connected, or opening a new one.
+     *
+     * @return the transport, to be released once done
+     * @throws MessagingException if a new transport could not connect
+     * @throws InterruptedException if interrupted while waiting for a transport
+     */
+    PooledTransport borrow() throws MessagingException, InterruptedException {
+        while (true) {
+            if (closed) {
+                throw new MessagingException("The SMTP transport pool is closed");
+            }
+            PooledTransport pooled = idle.pollFirst();
+            if (pooled != null) {
+                if (System.nanoTime() - pooled.lastUsed < idleTimeoutNanos && pooled.transport.isConnected()) {
+                    return pooled;
+                }
+                discard(pooled);
+            } else if (connections.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                // Polling again, as a transport may have been released while waiting for a permit
+                pooled = idle.pollFirst();
+                if (pooled != null) {
+                    connections.release();
+                    idle.offerFirst(pooled);
+                    continue;
+                }
+                try {
+                    return new PooledTransport(factory.connect());
+                } catch (MessagingException | RuntimeException e) {
+                    connections.release();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a borrowed transport to the pool.
+     *
+     * @param transport the transport
+     * @param broken true if the transport failed and should not be reused
+     */
+    void release(PooledTransport transport, boolean broken) {
+        if (broken || closed || transport.messages >= maxMessagesPerConnection) {
+            discard(transport);
+        } else {
+            transport.lastUsed = System.nanoTime();
+            idle.offerFirst(transport);
+        }
+    }
+
+    /**
+     * Closes the idle transports, the borrowed ones are closed once released.
+     */
+    void close() {
+        closed = true;
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * @return the number of attempts to send a message
+     */
+    long getSendCount() {
+        return sendCount.sum();
+    }
+
+    /**
+     * @return the nanoseconds spent sending messages
+     */
+    long getSendNanos() {
+        return sendNanos.sum();
+    }
+
+    /**
+     * @return the number of messages that failed to send
+     */
+    long getSendFailures() {
+        return sendFailures.sum();
+    }
+
+    private void discard(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Failed to close SMTP transport", e);
+        } finally {
+            connections.release();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.external.email.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+
+import org.testng.annotations.Test;
+
+public class SmtpTransportPoolTest {
+
+    /** Opens mocked transports, connected until closed */
+    private static final class MockTransportFactory implements SmtpTransportPool.TransportFactory {
+        final List<Transport> opened = new ArrayList<>();
+
+        @Override
+        public Transport connect() {
+            Transport transport = mock(Transport.class);
+            when(transport.isConnected()).thenReturn(true);
+            opened.add(transport);
+            return transport;
+        }
+    }
+
+    @Test
+    public void testReusesConnectedTransport() throws Exception {
+        MockTransportFactory factory = new MockTransportFactory();
+        SmtpTransportPool pool = new SmtpTransportPool(factory, 2, 60000L, 100);
+
+        for (int i = 0; i < 5; i++) {
+            pool.send(mock(Message.class));
+        }
+
+        assertThat(factory.opened).hasSize(1);
+        assertThat(pool.getSendCount()).isEqualTo(5);
+        verify(factory.opened.get(0), times(5))
+                .sendMessage(any(Message.class), any(Address[].class));
+    }
+
+    @Test
+    public void testClosesTransportAfterMaxMessages() throws Exception {
+        MockTransportFactory factory = new MockTransportFactory();
+        SmtpTransportPool pool = new SmtpTransportPool(factory, 2, 60000L, 2);
+
+        for (int i = 0; i < 5; i++) {
+            pool.send(mock(Message.class));
+        }
+
+        assertThat(factory.opened).hasSize(3);
+        verify(factory.opened.get(0)).close();
+        verify(factory.opened.get(1)).close();
+    }
+
+    @Test
+    public void testReplacesBrokenTransport() throws Exception {
+        MockTransportFactory factory = new MockTransportFactory();
+        SmtpTransportPool pool = new SmtpTransportPool(factory, 1, 60000L, 100);
+        pool.send(mock(Message.class));
+        Transport broken = factory.opened.get(0);
+        doThrow(new MessagingException("connection reset"))
+                .when(broken).sendMessage(any(Message.class), any(Address[].class));
+
+        try {
+            pool.send(mock(Message.class));
+        } catch (MessagingException e) {
+            // expected
+        }
+        pool.send(mock(Message.class));
+
+        verify(broken).close();
+        assertThat(factory.opened).hasSize(2);
+        assertThat(pool.getSendFailures()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDiscardsDisconnectedTransport() throws Exception {
+        MockTransportFactory factory = new MockTransportFactory();
+        SmtpTransportPool pool = new SmtpTransportPool(factory, 1, 60000L, 100);
+        pool.send(mock(Message.class));
+        when(factory.opened.get(0).isConnected()).thenReturn(false);
+
+        pool.send(mock(Message.class));
+
+        assertThat(factory.opened).hasSize(2);
+        verify(factory.opened.get(0)).close();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.info.health;
+
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.forgerock.api.annotations.Handler;
+import org.forgerock.api.annotations.Operation;
+import org.forgerock.api.annotations.Read;
+import org.forgerock.api.annotations.Schema;
+import org.forgerock.api.annotations.SingletonProvider;
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.InternalServerErrorException;
+import org.forgerock.json.resource.ReadRequest;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.openidm.info.health.api.EventInfoResource;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.Promise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gets the statistics of the smart events, such as the reconciliation and synchronization stages.
+ */
+@SingletonProvider(@Handler(
+        id = "eventInfoResourceProvider:0",
+        title = "Health - Event statistics",
+        description = "Returns the invocation count, latency percentiles and recent rate per smart event name. "
+                + "Events are only measured when enabled with the openidm.smartevent.enabled property.",
+        mvccSupported = false,
+        resourceSchema = @Schema(fromType = EventInfoResource.class)))
+public class EventInfoResourceProvider extends AbstractInfoResourceProvider {
+
+    private final static Logger logger = LoggerFactory.getLogger(EventInfoResourceProvider.class);
+
+    @Read(operationDescription = @Operation(description = "Read event statistics."))
+    @Override
+    public Promise<ResourceResponse, ResourceException> readInstance(Context context, ReadRequest request) {
+        try {
+            final ObjectName objectName = new ObjectName("OpenIDM:type=Statistics");
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+            // The statistics are registered with the first event measured
+            final JsonValue result = json(object(
+                    field("events", mBeanServer.isRegistered(objectName)
+                            ? mBeanServer.getAttribute(objectName, "Statistics")
+                            : object())
+            ));
+            return newResourceResponse("", "", result).asPromise();
+        } catch (Exception e) {
+            logger.error("Unable to get event statistics mbean");
+            return new InternalServerErrorException("Unable to get event statistics mbean", e).asPromise();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.info.health.api;
+
+import java.util.Map;
+
+import org.forgerock.api.annotations.Description;
+import org.forgerock.api.annotations.ReadOnly;
+
+/**
+ * Api pojo for {@link org.forgerock.openidm.info.health.EventInfoResourceProvider}
+ */
+public class EventInfoResource {
+    private Map<String, EventStatistics> events;
+
+    /**
+     * Returns the statistics per event name.
+     *
+     * @return the statistics per event name.
+     */
+    @Description("Statistics per event name")
+    @ReadOnly
+    public Map<String, EventStatistics> getEvents() {
+        return events;
+    }
+
+    /**
+     * Statistics of a single event name.
+     */
+    public static class EventStatistics {
+        private long invocations;
+        private Double totalTime;
+        private Double mean;
+        private Double max;
+        private Double p50;
+        private Double p95;
+        private Double p99;
+        private double recentRate;
+
+        /**
+         * Returns the number of invocations.
+         *
+         * @return the number of invocations.
+         */
+        @Description("Number of invocations")
+        @ReadOnly
+        public long getInvocations() {
+            return invocations;
+        }
+
+        /**
+         * Returns the total duration in milliseconds.
+         *
+         * @return the total duration in milliseconds.
+         */
+        @Description("Total duration in milliseconds")
+        @ReadOnly
+        public Double getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * Returns the mean duration in milliseconds.
+         *
+         * @return the mean duration in milliseconds.
+         */
+        @Description("Mean duration in milliseconds")
+        @ReadOnly
+        public Double getMean() {
+            return mean;
+        }
+
+        /**
+         * Returns the longest duration in milliseconds.
+         *
+         * @return the longest duration in milliseconds.
+         */
+        @Description("Longest duration in milliseconds")
+        @ReadOnly
+        public Double getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the median duration in milliseconds.
+         *
+         * @return the median duration in milliseconds.
+         */
+        @Description("Median duration in milliseconds")
+        @ReadOnly
+        public Double getP50() {
+            return p50;
+        }
+
+        /**
+         * Returns the 95th percentile duration in milliseconds.
+         *
+         * @return the 95th percentile duration in milliseconds.
+         */
+        @Description("95th percentile duration in milliseconds")
+        @ReadOnly
+        public Double getP95() {
+            return p95;
+        }
+
+        /**
+         * Returns the 99th percentile duration in milliseconds.
+         *
+         * @return the 99th percentile duration in milliseconds.
+         */
+        @Description("99th percentile duration in milliseconds")
+        @ReadOnly
+        public Double getP99() {
+            return p99;
+        }
+
+        /**
+         * Returns the invocations per second over the last minute.
+         *
+         * @return the invocations per second over the last minute.
+         */
+        @Description("Invocations per second over the last minute")
+        @ReadOnly
+        public double getRecentRate() {
+            return recentRate;
+        }
+    }
+}
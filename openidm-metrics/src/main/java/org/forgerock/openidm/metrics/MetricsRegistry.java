@@ -0,0 +1,66 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.metrics;
+
+/**
+ * Registry of the metrics exposed by the metrics endpoint.
+ * <p>
+ * Metric names follow the Prometheus conventions: lower case words separated by underscores, prefixed with
+ * {@code openidm_}, with the unit as suffix, and {@code _total} as suffix of counters.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Gets the counter of the given name, registering it on first use.
+     *
+     * @param name the name of the counter
+     * @param help the description of the counter
+     * @return the counter
+     */
+    Counter counter(String name, String help);
+
+    /**
+     * Gets the timer of the given name, registering it on first use.
+     *
+     * @param name the name of the timer, exposed as a summary in seconds
+     * @param help the description of the timer
+     * @return the timer
+     */
+    Timer timer(String name, String help);
+
+    /**
+     * Registers a gauge, replacing any gauge of the same name.
+     *
+     * @param name the name of the gauge
+     * @param help the description of the gauge
+     * @param gauge reads the value when the metrics are collected
+     */
+    void gauge(String name, String help, Gauge gauge);
+
+    /**
+     * Registers a collector, to write metrics that are only known when collected.
+     *
+     * @param collector the collector
+     */
+    void register(Collector collector);
+
+    /**
+     * Unregisters a collector.
+     *
+     * @param collector the collector
+     */
+    void unregister(Collector collector);
+}
@@ -0,0 +1,119 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.metrics;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, version 0.0.4.
+ * <p>
+ * The samples of a metric follow its {@link #family family} line, and a family is only written once, so that
+ * collectors can not break the exposition by writing the same metric twice.
+ */
+public final class MetricsWriter {
+
+    /** The content type of the exposition */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+    private final StringBuilder out;
+    private final Set<String> families = new HashSet<>();
+    private boolean skipFamily;
+
+    /**
+     * Creates a writer appending to the given builder.
+     *
+     * @param out the builder to append to
+     */
+    public MetricsWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    /**
+     * Starts a metric, its samples follow.
+     *
+     * @param name the name of the metric
+     * @param type the type of the metric: counter, gauge, summary or untyped
+     * @param help the description of the metric
+     * @return this writer
+     */
+    public MetricsWriter family(String name, String type, String help) {
+        String metricName = sanitize(name);
+        skipFamily = !families.add(metricName);
+        if (!skipFamily) {
+            out.append("# HELP ").append(metricName).append(' ')
+                    .append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(metricName).append(' ').append(type).append('\n');
+        }
+        return this;
+    }
+
+    /**
+     * Writes a sample of the current metric.
+     *
+     * @param name the name of the sample, the name of the metric or, for summaries, the name with a suffix
+     * @param value the value of the sample
+     * @param labels the label names and values of the sample, in pairs
+     * @return this writer
+     */
+    public MetricsWriter sample(String name, double value, String... labels) {
+        if (skipFamily) {
+            return this;
+        }
+        out.append(sanitize(name));
+        if (labels.length > 1) {
+            out.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(sanitize(labels[i])).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+        return this;
+    }
+
+    static String sanitize(String name) {
+        StringBuilder sanitized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+                    || (i > 0 && c >= '0' && c <= '9');
+            sanitized.append(valid ? c : '_');
+        }
+        return sanitized.toString();
+    }
+
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
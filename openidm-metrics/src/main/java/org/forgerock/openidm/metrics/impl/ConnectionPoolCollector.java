@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.metrics.impl;
+
+import static org.forgerock.openidm.metrics.impl.EventStatisticsCollector.number;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.forgerock.openidm.core.IdentityServer;
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.MetricsWriter;
+
+/**
+ * Collects the repository connection pool statistics from the BoneCP MBeans, registered when enabled with the
+ * openidm.bonecp.statistics.enabled property.
+ */
+class ConnectionPoolCollector implements Collector {
+
+    private static final String MBEAN_NAMES = "com.jolbox.bonecp:type=BoneCP-*";
+
+    /** The metrics, as metric name, type, description and MBean attribute */
+    private static final String[][] METRICS = {
+        { "openidm_repo_pool_connections_leased", "gauge", "Connections in use", "TotalLeased" },
+        { "openidm_repo_pool_connections_free", "gauge", "Connections free", "TotalFree" },
+        { "openidm_repo_pool_connections_created", "gauge", "Connections created", "TotalCreatedConnections" },
+        { "openidm_repo_pool_connections_requested_total", "counter", "Connections requested",
+                "ConnectionsRequested" },
+        { "openidm_repo_pool_statements_executed_total", "counter", "Statements executed",
+                "StatementsExecuted" },
+        { "openidm_repo_pool_statement_cache_hits_total", "counter", "Statement cache hits", "CacheHits" },
+        { "openidm_repo_pool_statement_cache_misses_total", "counter", "Statement cache misses", "CacheMiss" },
+    };
+
+    /** The cumulative times, as metric name, description and MBean attribute in milliseconds */
+    private static final String[][] TIMES = {
+        { "openidm_repo_pool_connection_wait_seconds_total", "Time waited for connections",
+                "CumulativeConnectionWaitTime" },
+        { "openidm_repo_pool_statement_execute_seconds_total", "Time executing statements",
+                "CumulativeStatementExecutionTime" },
+    };
+
+    @Override
+    public void collect(MetricsWriter writer) throws Exception {
+        if (!Boolean.parseBoolean(
+                IdentityServer.getInstance().getProperty("openidm.bonecp.statistics.enabled", "false"))) {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = mBeanServer.queryNames(new ObjectName(MBEAN_NAMES), null);
+        for (String[] metric : METRICS) {
+            writer.family(metric[0], metric[1], metric[2]);
+            for (ObjectName name : names) {
+                writer.sample(metric[0], number(mBeanServer.getAttribute(name, metric[3])),
+                        "pool", name.getKeyProperty("type"));
+            }
+        }
+        for (String[] time : TIMES) {
+            writer.family(time[0], "counter", time[1]);
+            for (ObjectName name : names) {
+                writer.sample(time[0], number(mBeanServer.getAttribute(name, time[2])) / 1000d,
+                        "pool", name.getKeyProperty("type"));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.metrics.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.MetricsWriter;
+
+/**
+ * Collects the smart event statistics, such as the durations of the reconciliation and synchronization stages,
+ * from the statistics MBean. The events are only measured when enabled with the openidm.smartevent.enabled
+ * property.
+ */
+class EventStatisticsCollector implements Collector {
+
+    private static final String MBEAN_NAME = "OpenIDM:type=Statistics";
+
+    private static final String DURATION = "openidm_event_duration_seconds";
+    private static final String DURATION_MAX = "openidm_event_duration_seconds_max";
+    private static final String RATE = "openidm_event_rate";
+
+    private static final String[] QUANTILES = { "p50", "0.5", "p95", "0.95", "p99", "0.99" };
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void collect(MetricsWriter writer) throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(MBEAN_NAME);
+        if (!mBeanServer.isRegistered(objectName)) {
+            // Registered with the first event measured
+            return;
+        }
+        Map<String, Map<String, Object>> statistics =
+                (Map<String, Map<String, Object>>) mBeanServer.getAttribute(objectName, "Statistics");
+
+        writer.family(DURATION, "summary", "Duration of the smart events");
+        for (Map.Entry<String, Map<String, Object>> event : statistics.entrySet()) {
+            Map<String, Object> stats = event.getValue();
+            for (int i = 0; i < QUANTILES.length; i += 2) {
+                writer.sample(DURATION, seconds(stats.get(QUANTILES[i])),
+                        "event", event.getKey(), "quantile", QUANTILES[i + 1]);
+            }
+            writer.sample(DURATION + "_sum", seconds(stats.get("totalTime")), "event", event.getKey());
+            writer.sample(DURATION + "_count", number(stats.get("invocations")), "event", event.getKey());
+        }
+        writer.family(DURATION_MAX, "gauge", "Longest duration of the smart events");
+        for (Map.Entry<String, Map<String, Object>> event : statistics.entrySet()) {
+            writer.sample(DURATION_MAX, seconds(event.getValue().get("max")), "event", event.getKey());
+        }
+        writer.family(RATE, "gauge", "Smart events per second over the last minute");
+        for (Map.Entry<String, Map<String, Object>> event : statistics.entrySet()) {
+            writer.sample(RATE, number(event.getValue().get("recentRate")), "event", event.getKey());
+        }
+    }
+
+    /** Converts milliseconds to seconds, a missing value is not a number */
+    private static double seconds(Object milliseconds) {
+        return number(milliseconds) / 1000d;
+    }
+
+    static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.metrics.impl;
+
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+import static org.forgerock.openidm.util.ResourceUtil.notSupported;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.json.resource.ActionRequest;
+import org.forgerock.json.resource.ActionResponse;
+import org.forgerock.json.resource.CreateRequest;
+import org.forgerock.json.resource.DeleteRequest;
+import org.forgerock.json.resource.PatchRequest;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.QueryResponse;
+import org.forgerock.json.resource.ReadRequest;
+import org.forgerock.json.resource.RequestHandler;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.UpdateRequest;
+import org.forgerock.openidm.core.ServerConstants;
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.Counter;
+import org.forgerock.openidm.metrics.Gauge;
+import org.forgerock.openidm.metrics.MetricsRegistry;
+import org.forgerock.openidm.metrics.MetricsWriter;
+import org.forgerock.openidm.metrics.Timer;
+import org.forgerock.openidm.router.IDMConnectionFactory;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.Promise;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.propertytypes.ServiceDescription;
+import org.osgi.service.component.propertytypes.ServiceVendor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exposes the metrics of this node in the Prometheus text exposition format.
+ * <p>
+ * The metrics are collected on each read, from the metrics registered with this service and from the statistics
+ * of the smart events, reconciliation, repository connection pool and task scanner, so that a node can be
+ * scraped cheaply and often:
+ * <pre>
+ *     GET /openidm/metrics
+ * </pre>
+ * The API servlet returns the {@code exposition} field as {@code text/plain; version=0.0.4} unless the request
+ * passes {@code _fields} or {@code _mimeType}; with {@code ?_fields=exposition} alone the exposition is returned
+ * in the {@code exposition} field of a JSON object.
+ */
+@Component(
+        name = MetricsService.PID,
+        configurationPolicy = ConfigurationPolicy.IGNORE,
+        immediate = true,
+        property = {
+                ServerConstants.ROUTER_PREFIX + "=/metrics"
+        },
+        service = { MetricsRegistry.class, RequestHandler.class })
+@ServiceVendor(ServerConstants.SERVER_VENDOR_NAME)
+@ServiceDescription("OpenIDM Metrics Service")
+public class MetricsService implements MetricsRegistry, RequestHandler {
+
+    public static final String PID = "org.forgerock.openidm.metrics";
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsService.class);
+
+    /** The field holding the exposition in the read response */
+    static final String EXPOSITION = "exposition";
+
+    private final SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+
+    private Timer collectTimer;
+
+    @Reference(policy = ReferencePolicy.STATIC)
+    private IDMConnectionFactory connectionFactory;
+
+    @Activate
+    void activate(ComponentContext context) {
+        collectTimer = registry.timer("openidm_metrics_collect_seconds", "Time collecting the metrics");
+        registerJvmGauges();
+        registry.register(new EventStatisticsCollector());
+        registry.register(new ReconCollector());
+        registry.register(new ConnectionPoolCollector());
+        registry.register(new TaskScannerCollector(connectionFactory));
+        logger.info("Metrics service started");
+    }
+
+    private void registerJvmGauges() {
+        registry.gauge("openidm_jvm_memory_heap_used_bytes", "Heap memory used", new Gauge() {
+            @Override
+            public double getValue() {
+                return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            }
+        });
+        registry.gauge("openidm_jvm_memory_heap_committed_bytes", "Heap memory committed", new Gauge() {
+            @Override
+            public double getValue() {
+                return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getCommitted();
+            }
+        });
+        registry.gauge("openidm_jvm_memory_heap_max_bytes", "Maximum heap memory", new Gauge() {
+            @Override
+            public double getValue() {
+                return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+            }
+        });
+        registry.gauge("openidm_jvm_memory_nonheap_used_bytes", "Non-heap memory used", new Gauge() {
+            @Override
+            public double getValue() {
+                return ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getUsed();
+            }
+        });
+        registry.gauge("openidm_jvm_threads", "Live threads", new Gauge() {
+            @Override
+            public double getValue() {
+                return ManagementFactory.getThreadMXBean().getThreadCount();
+            }
+        });
+    }
+
+    /**
+     * Collects the metrics.
+     *
+     * @return the metrics in the Prometheus text exposition format
+     */
+    String collect() {
+        long start = System.nanoTime();
+        StringBuilder exposition = new StringBuilder();
+        registry.collect(new MetricsWriter(exposition));
+        collectTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return exposition.toString();
+    }
+
+    @Override
+    public Counter counter(String name, String help) {
+        return registry.counter(name, help);
+    }
+
+    @Override
+    public Timer timer(String name, String help) {
+        return registry.timer(name, help);
+    }
+
+    @Override
+    public void gauge(String name, String help, Gauge gauge) {
+        registry.gauge(name, help, gauge);
+    }
+
+    @Override
+    public void register(Collector collector) {
+        registry.register(collector);
+    }
+
+    @Override
+    public void unregister(Collector collector) {
+        registry.unregister(collector);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> handleRead(Context context, ReadRequest request) {
+        return newResourceResponse(null, null, json(object(field(EXPOSITION, collect())))).asPromise();
+    }
+
+    @Override
+    public Promise<ActionResponse, ResourceException> handleAction(Context context, ActionRequest request) {
+        return notSupported(request).asPromise();
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> handleCreate(Context context, CreateRequest request) {
+        return notSupported(request).asPromise();
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> handleDelete(Context context, DeleteRequest request) {
+        return notSupported(request).asPromise();
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> handlePatch(Context context, PatchRequest request) {
+        return notSupported(request).asPromise();
+    }
+
+    @Override
+    public Promise<QueryResponse, ResourceException> handleQuery(Context context, QueryRequest request,
+            QueryResourceHandler handler) {
+        return notSupported(request).asPromise();
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> handleUpdate(Context context, UpdateRequest request) {
+        return notSupported(request).asPromise();
+    }
+}
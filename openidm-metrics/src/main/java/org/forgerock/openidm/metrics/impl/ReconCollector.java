@@ -0,0 +1,75 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.metrics.impl;
+
+import static org.forgerock.openidm.metrics.impl.EventStatisticsCollector.number;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.MetricsWriter;
+
+/**
+ * Collects the reconciliation thread pool statistics, and the progress of the reconciliation runs kept by the
+ * reconciliation service, from the reconciliation MBean.
+ */
+class ReconCollector implements Collector {
+
+    private static final String MBEAN_NAME = "org.forgerock.openidm.recon:type=Reconciliation";
+
+    private static final String RUNS = "openidm_recon_runs";
+    private static final String PROCESSED = "openidm_recon_processed";
+
+    /** The thread pool metrics, as metric name, description and MBean attribute */
+    private static final String[][] POOL = {
+        { "openidm_recon_threads_active", "Reconciliation threads running a task", "ActiveThreads" },
+        { "openidm_recon_threads", "Reconciliation threads in the pool", "PoolSize" },
+        { "openidm_recon_threads_max", "Maximum reconciliation threads in the pool", "MaximumPoolSize" },
+    };
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void collect(MetricsWriter writer) throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(MBEAN_NAME);
+        if (!mBeanServer.isRegistered(objectName)) {
+            return;
+        }
+        for (String[] metric : POOL) {
+            writer.family(metric[0], "gauge", metric[1])
+                    .sample(metric[0], number(mBeanServer.getAttribute(objectName, metric[2])));
+        }
+
+        Map<String, Integer> runsByState = (Map<String, Integer>) mBeanServer.getAttribute(objectName, "RunsByState");
+        writer.family(RUNS, "gauge", "Reconciliation runs kept in memory, by state");
+        for (Map.Entry<String, Integer> state : runsByState.entrySet()) {
+            writer.sample(RUNS, state.getValue(), "state", state.getKey());
+        }
+
+        Map<String, Map<String, Long>> processedByMapping =
+                (Map<String, Map<String, Long>>) mBeanServer.getAttribute(objectName, "ActiveProcessedByMapping");
+        writer.family(PROCESSED, "gauge", "Entries processed by the active reconciliation runs, per mapping");
+        for (Map.Entry<String, Map<String, Long>> mapping : processedByMapping.entrySet()) {
+            for (Map.Entry<String, Long> side : mapping.getValue().entrySet()) {
+                writer.sample(PROCESSED, side.getValue(), "mapping", mapping.getKey(), "side", side.getKey());
+            }
+        }
+    }
+}
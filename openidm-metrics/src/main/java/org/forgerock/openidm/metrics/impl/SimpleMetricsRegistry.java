@@ -0,0 +1,127 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.metrics.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.Counter;
+import org.forgerock.openidm.metrics.Gauge;
+import org.forgerock.openidm.metrics.MetricsRegistry;
+import org.forgerock.openidm.metrics.MetricsWriter;
+import org.forgerock.openidm.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the registered metrics in memory and writes them on collection.
+ */
+class SimpleMetricsRegistry implements MetricsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimpleMetricsRegistry.class);
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /** A registered metric with its description */
+    private static final class Registered<T> {
+        final String help;
+        final T metric;
+
+        Registered(String help, T metric) {
+            this.help = help;
+            this.metric = metric;
+        }
+    }
+
+    private final ConcurrentMap<String, Registered<Counter>> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Registered<Timer>> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Registered<Gauge>> gauges = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Counter counter(String name, String help) {
+        Registered<Counter> registered = counters.get(name);
+        if (registered == null) {
+            counters.putIfAbsent(name, new Registered<>(help, new Counter()));
+            registered = counters.get(name);
+        }
+        return registered.metric;
+    }
+
+    @Override
+    public Timer timer(String name, String help) {
+        Registered<Timer> registered = timers.get(name);
+        if (registered == null) {
+            timers.putIfAbsent(name, new Registered<>(help, new Timer()));
+            registered = timers.get(name);
+        }
+        return registered.metric;
+    }
+
+    @Override
+    public void gauge(String name, String help, Gauge gauge) {
+        gauges.put(name, new Registered<>(help, gauge));
+    }
+
+    @Override
+    public void register(Collector collector) {
+        collectors.addIfAbsent(collector);
+    }
+
+    @Override
+    public void unregister(Collector collector) {
+        collectors.remove(collector);
+    }
+
+    /**
+     * Writes all the metrics. A gauge or collector failing to read its metrics is logged and left out.
+     *
+     * @param writer the writer of the metrics
+     */
+    void collect(MetricsWriter writer) {
+        for (Map.Entry<String, Registered<Counter>> entry : counters.entrySet()) {
+            writer.family(entry.getKey(), "counter", entry.getValue().help)
+                    .sample(entry.getKey(), entry.getValue().metric.getCount());
+        }
+        for (Map.Entry<String, Registered<Timer>> entry : timers.entrySet()) {
+            Timer timer = entry.getValue().metric;
+            writer.family(entry.getKey(), "summary", entry.getValue().help)
+                    .sample(entry.getKey() + "_count", timer.getCount())
+                    .sample(entry.getKey() + "_sum", timer.getTotalNanos() / NANOS_PER_SECOND);
+            writer.family(entry.getKey() + "_max", "gauge", entry.getValue().help + " (longest)")
+                    .sample(entry.getKey() + "_max", timer.getMaxNanos() / NANOS_PER_SECOND);
+        }
+        for (Map.Entry<String, Registered<Gauge>> entry : gauges.entrySet()) {
+            try {
+                double value = entry.getValue().metric.getValue();
+                writer.family(entry.getKey(), "gauge", entry.getValue().help).sample(entry.getKey(), value);
+            } catch (Exception e) {
+                logger.debug("Failed to read gauge {}", entry.getKey(), e);
+            }
+        }
+        for (Collector collector : collectors) {
+            try {
+                collector.collect(writer);
+            } catch (Exception e) {
+                logger.debug("Failed to collect metrics from {}", collector, e);
+            }
+        }
+    }
+}
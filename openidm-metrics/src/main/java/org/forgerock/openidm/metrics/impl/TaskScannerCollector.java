@@ -0,0 +1,81 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.metrics.impl;
+
+import static org.forgerock.openidm.metrics.impl.EventStatisticsCollector.number;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.Requests;
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.MetricsWriter;
+import org.forgerock.openidm.util.ContextUtil;
+
+/**
+ * Collects the progress of the task scans kept by the task scanner service.
+ */
+class TaskScannerCollector implements Collector {
+
+    private static final String TASKS = "openidm_taskscanner_tasks";
+
+    /** The progress metrics of the active task scans, as metric name, description and progress field */
+    private static final String[][] PROGRESS = {
+        { "openidm_taskscanner_objects", "Objects read by the active task scans", "total" },
+        { "openidm_taskscanner_succeeded", "Objects the active task scans succeeded on", "successes" },
+        { "openidm_taskscanner_failed", "Objects the active task scans failed on", "failures" },
+        { "openidm_taskscanner_skipped", "Objects the active task scans skipped as already claimed", "skipped" },
+    };
+
+    private final ConnectionFactory connectionFactory;
+
+    TaskScannerCollector(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public void collect(MetricsWriter writer) throws Exception {
+        JsonValue tasks = connectionFactory.getConnection()
+                .read(ContextUtil.createInternalContext(), Requests.newReadRequest("taskscanner"))
+                .getContent().get("tasks");
+        Map<String, Integer> tasksByState = new TreeMap<>();
+        for (JsonValue task : tasks) {
+            String state = state(task);
+            Integer count = tasksByState.get(state);
+            tasksByState.put(state, count == null ? 1 : count + 1);
+        }
+        writer.family(TASKS, "gauge", "Task scans kept in memory, by state");
+        for (Map.Entry<String, Integer> state : tasksByState.entrySet()) {
+            writer.sample(TASKS, state.getValue(), "state", state.getKey());
+        }
+
+        for (String[] metric : PROGRESS) {
+            writer.family(metric[0], "gauge", metric[1]);
+            for (JsonValue task : tasks) {
+                if ("ACTIVE".equals(state(task))) {
+                    writer.sample(metric[0], number(task.get("progress").get(metric[2]).getObject()),
+                            "task", task.get("_id").asString());
+                }
+            }
+        }
+    }
+
+    private static String state(JsonValue task) {
+        return String.valueOf(task.get("progress").get("state").getObject());
+    }
+}
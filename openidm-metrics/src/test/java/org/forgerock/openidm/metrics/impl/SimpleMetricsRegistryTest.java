@@ -0,0 +1,90 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.metrics.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.openidm.metrics.Collector;
+import org.forgerock.openidm.metrics.Gauge;
+import org.forgerock.openidm.metrics.MetricsWriter;
+import org.testng.annotations.Test;
+
+public class SimpleMetricsRegistryTest {
+
+    @Test
+    public void testWritesExposition() {
+        SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+        registry.counter("openidm_test_total", "Test counter").add(3);
+        registry.timer("openidm_test_seconds", "Test timer").record(1500, TimeUnit.MILLISECONDS);
+        registry.gauge("openidm_test_ratio", "Test gauge", new Gauge() {
+            @Override
+            public double getValue() {
+                return 0.25;
+            }
+        });
+
+        String exposition = collect(registry);
+
+        assertThat(exposition).contains(
+                "# HELP openidm_test_total Test counter\n# TYPE openidm_test_total counter\nopenidm_test_total 3\n",
+                "# TYPE openidm_test_seconds summary\n",
+                "openidm_test_seconds_count 1\nopenidm_test_seconds_sum 1.5\n",
+                "openidm_test_seconds_max 1.5\n",
+                "openidm_test_ratio 0.25\n");
+    }
+
+    @Test
+    public void testEscapesLabelsAndSkipsFailingMetrics() {
+        SimpleMetricsRegistry registry = new SimpleMetricsRegistry();
+        registry.gauge("openidm_failing", "Failing gauge", new Gauge() {
+            @Override
+            public double getValue() throws Exception {
+                throw new IllegalStateException("not available");
+            }
+        });
+        registry.register(new Collector() {
+            @Override
+            public void collect(MetricsWriter writer) {
+                writer.family("openidm/event", "gauge", "Labelled gauge")
+                        .sample("openidm/event", Double.NaN, "event", "a \"quoted\"\nname");
+                // Written once only
+                writer.family("openidm/event", "gauge", "Labelled gauge")
+                        .sample("openidm/event", 1);
+            }
+        });
+        registry.register(new Collector() {
+            @Override
+            public void collect(MetricsWriter writer) throws Exception {
+                throw new IllegalStateException("not available");
+            }
+        });
+
+        String exposition = collect(registry);
+
+        assertThat(exposition).doesNotContain("openidm_failing");
+        assertThat(exposition).isEqualTo("# HELP openidm_event Labelled gauge\n"
+                + "# TYPE openidm_event gauge\n"
+                + "openidm_event{event=\"a \\\"quoted\\\"\\nname\"} NaN\n");
+    }
+
+    private static String collect(SimpleMetricsRegistry registry) {
+        StringBuilder exposition = new StringBuilder();
+        registry.collect(new MetricsWriter(exposition));
+        return exposition.toString();
+    }
+}
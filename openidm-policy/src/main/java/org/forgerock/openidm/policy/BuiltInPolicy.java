@@ -0,0 +1,592 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.policy;
+
+import static org.forgerock.json.resource.Requests.newQueryRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.QueryFilters;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourcePath;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.services.context.Context;
+
+/**
+ * The built-in policies of {@code policy.js}, evaluated natively.
+ * <p>
+ * Each policy has the semantics of its JavaScript implementation, including the JavaScript conversions of the values
+ * it checks. A check that cannot be made with these semantics, such as of an encrypted value or of a value with
+ * line terminators against a regular expression, throws a {@link NotNativeException} so that the script evaluates
+ * the policies instead.
+ */
+enum BuiltInPolicy {
+
+    REQUIRED("required", false) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled) {
+            return value == UNDEFINED ? failure("REQUIRED") : NONE;
+        }
+    },
+
+    NOT_EMPTY("not-empty", true) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            if (value != UNDEFINED && (value == null || !isTruthy(length(value)))) {
+                return failure("REQUIRED");
+            }
+            return NONE;
+        }
+    },
+
+    UNIQUE("unique", false) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws ResourceException, NotNativeException {
+            if (!isTruthy(value) || !isTruthy(length(value))) {
+                return NONE;
+            }
+            if (!(value instanceof String) || check.connectionFactory == null || check.resourcePath.isEmpty()) {
+                throw new NotNativeException();
+            }
+            final String requestId = check.resourcePath.leaf();
+            final ResourceResponse[] existing = new ResourceResponse[1];
+            check.connectionFactory.getConnection().query(check.context,
+                    newQueryRequest(check.resourcePath.parent())
+                            .setQueryFilter(QueryFilters.parse(check.property + " eq \""
+                                    + ((String) value).replace("\"", "\\\"") + "\"")),
+                    new QueryResourceHandler() {
+                        @Override
+                        public boolean handleResource(ResourceResponse resource) {
+                            existing[0] = resource;
+                            // only the first one is compared
+                            return false;
+                        }
+                    });
+            if (existing[0] != null
+                    && (requestId == null || requestId.isEmpty() || !requestId.equals(existing[0].getId()))) {
+                return failure("UNIQUE");
+            }
+            return NONE;
+        }
+    },
+
+    REGEXP_MATCHES("regexpMatches", false) {
+        @Override
+        Object compile(JsonValue params) throws NotNativeException {
+            if (params.isNull() || !params.get("regexp").isString()) {
+                throw new NotNativeException();
+            }
+            final String regexp = params.get("regexp").asString();
+            final String flags = params.get("flags").isNull() ? "" : params.get("flags").asString();
+            int javaFlags = 0;
+            for (char flag : flags.toCharArray()) {
+                if (flag == 'i') {
+                    javaFlags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                } else if (flag == 'm') {
+                    javaFlags |= Pattern.MULTILINE;
+                } else if (flag != 'g') {
+                    throw new NotNativeException();
+                }
+            }
+            if (JAVA_ONLY_SYNTAX.matcher(regexp).find()) {
+                throw new NotNativeException();
+            }
+            try {
+                return Pattern.compile(regexp, javaFlags);
+            } catch (PatternSyntaxException e) {
+                throw new NotNativeException();
+            }
+        }
+
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            if (value instanceof Number) {
+                value = jsString(value);
+            }
+            final boolean nonEmptyString = isNonEmptyString(value);
+            final Pattern pattern = (Pattern) compiled;
+            if (nonEmptyString && pattern.pattern().matches("(?s).*\\\\[sS].*")
+                    && NON_ASCII_WHITESPACE.matcher((String) value).find()) {
+                // \s is only ASCII white space in Java
+                throw new NotNativeException();
+            }
+            if ((check.isRequired() || nonEmptyString)
+                    && !(nonEmptyString && find(pattern, (String) value))) {
+                final Map<String, Object> failure = requirement("MATCH_REGEXP");
+                failure.put("regexp", params.get("regexp").getObject());
+                failure.put("params", params.copy().getObject());
+                if (params.isDefined("flags")) {
+                    failure.put("flags", params.get("flags").getObject());
+                }
+                return Collections.singletonList(failure);
+            }
+            return NONE;
+        }
+    },
+
+    VALID_TYPE("valid-type", false) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            if (value == UNDEFINED) {
+                return NONE;
+            }
+            final String type = typeOf(value);
+            final Object types = param(params, "types");
+            if (!(types instanceof List && ((List<?>) types).contains(type))) {
+                final Map<String, Object> failureParams = new LinkedHashMap<>();
+                failureParams.put("invalidType", type);
+                if (types != UNDEFINED) {
+                    failureParams.put("validTypes",
+                            types instanceof List ? new ArrayList<Object>((List<?>) types) : types);
+                }
+                return failure("VALID_TYPE", failureParams);
+            }
+            return NONE;
+        }
+    },
+
+    VALID_EMAIL_ADDRESS_FORMAT("valid-email-address-format", true) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            return matchesFormat(check, value, EMAIL_ADDRESS_FORMAT, false, "VALID_EMAIL_ADDRESS_FORMAT");
+        }
+    },
+
+    VALID_NAME_FORMAT("valid-name-format", true) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            return matchesFormat(check, value, NAME_FORMAT, true, "VALID_NAME_FORMAT");
+        }
+    },
+
+    VALID_PHONE_FORMAT("valid-phone-format", true) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            return matchesFormat(check, value, PHONE_FORMAT, true, "VALID_PHONE_FORMAT");
+        }
+    },
+
+    AT_LEAST_X_CAPITALS("at-least-X-capitals", true) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            final boolean nonEmptyString = isNonEmptyString(value);
+            // the characters of the class [(A-Z)]
+            final int count = nonEmptyString ? count((String) value, "()ABCDEFGHIJKLMNOPQRSTUVWXYZ") : 0;
+            if ((check.isRequired() || nonEmptyString)
+                    && !(count > 0 && count >= jsNumber(param(params, "numCaps")))) {
+                return failure("AT_LEAST_X_CAPITAL_LETTERS", "numCaps", param(params, "numCaps"));
+            }
+            return NONE;
+        }
+    },
+
+    AT_LEAST_X_NUMBERS("at-least-X-numbers", true) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            final boolean nonEmptyString = isNonEmptyString(value);
+            final int count = nonEmptyString ? count((String) value, "0123456789") : 0;
+            if ((check.isRequired() || nonEmptyString)
+                    && !(count > 0 && count >= jsNumber(param(params, "numNums")))) {
+                return failure("AT_LEAST_X_NUMBERS", "numNums", param(params, "numNums"));
+            }
+            return NONE;
+        }
+    },
+
+    MINIMUM_LENGTH("minimum-length", true) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            final boolean nonEmptyString = isNonEmptyString(value);
+            if ((check.isRequired() || nonEmptyString)
+                    && !(nonEmptyString && ((String) value).length() >= jsNumber(param(params, "minLength")))) {
+                return failure("MIN_LENGTH", "minLength", param(params, "minLength"));
+            }
+            return NONE;
+        }
+    },
+
+    CANNOT_CONTAIN_CHARACTERS("cannot-contain-characters", true) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            if (!isNonEmptyString(value)) {
+                return NONE;
+            }
+            final List<String> forbiddenChars = elements(param(params, "forbiddenChars"));
+            for (String forbiddenChar : forbiddenChars) {
+                if (((String) value).contains(forbiddenChar)) {
+                    final StringBuilder joined = new StringBuilder();
+                    for (String c : forbiddenChars) {
+                        joined.append(joined.length() == 0 ? "" : ", ").append(c);
+                    }
+                    return failure("CANNOT_CONTAIN_CHARACTERS", "forbiddenChars", joined.toString());
+                }
+            }
+            return NONE;
+        }
+    },
+
+    CANNOT_CONTAIN_DUPLICATES("cannot-contain-duplicates", true) {
+        @Override
+        List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+                throws NotNativeException {
+            if (!isTruthy(value) || !isTruthy(length(value))) {
+                return NONE;
+            }
+            final List<Object> values = new ArrayList<>();
+            if (value instanceof String) {
+                for (char c : ((String) value).toCharArray()) {
+                    values.add(String.valueOf(c));
+                }
+            } else if (value instanceof List) {
+                values.addAll((List<?>) value);
+            } else {
+                throw new NotNativeException();
+            }
+            // the values are compared as the property names they are converted to
+            final Set<String> checkedValues = new HashSet<>();
+            for (Object element : values) {
+                if (!checkedValues.add(jsString(element))) {
+                    return failure("CANNOT_CONTAIN_DUPLICATES", "duplicateValue", element);
+                }
+            }
+            return NONE;
+        }
+    };
+
+    /** The value of a property not in the object */
+    static final Object UNDEFINED = new Object();
+
+    /** Thrown when a policy cannot be evaluated natively */
+    static final class NotNativeException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** The check of a property against its policies */
+    static final class Check {
+        private final Context context;
+        private final ResourcePath resourcePath;
+        private final ConnectionFactory connectionFactory;
+        private final String property;
+        /** The requirements of the property failed so far */
+        final List<Map<String, Object>> failedRequirements = new ArrayList<>();
+
+        /**
+         * Creates the check of a property.
+         *
+         * @param context the context of the validation
+         * @param resourcePath the path of the resource validated
+         * @param connectionFactory the connection factory to query the resources, or null
+         * @param property the name of the property
+         */
+        Check(Context context, ResourcePath resourcePath, ConnectionFactory connectionFactory, String property) {
+            this.context = context;
+            this.resourcePath = resourcePath;
+            this.connectionFactory = connectionFactory;
+            this.property = property;
+        }
+
+        private boolean isRequired() {
+            for (Map<String, Object> failed : failedRequirements) {
+                if ("REQUIRED".equals(failed.get("policyRequirement"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final List<Map<String, Object>> NONE = Collections.emptyList();
+
+    /** The white space characters of JavaScript regular expressions */
+    private static final String JS_WHITESPACE =
+            "\\t\\n\\u000B\\f\\r \\u00A0\\u1680\\u2000-\\u200A\\u2028\\u2029\\u202F\\u205F\\u3000\\uFEFF";
+
+    /** The line terminators, on which Java and JavaScript regular expressions differ */
+    private static final Pattern LINE_TERMINATORS = Pattern.compile("[\\n\\r\\u0085\\u2028\\u2029]");
+
+    /** The white space characters of JavaScript regular expressions Java does not match with \s */
+    private static final Pattern NON_ASCII_WHITESPACE =
+            Pattern.compile("[\\u00A0\\u1680\\u2000-\\u200A\\u202F\\u205F\\u3000\\uFEFF]");
+
+    /** The syntax of Java regular expressions JavaScript does not have */
+    private static final Pattern JAVA_ONLY_SYNTAX =
+            Pattern.compile("\\\\[QEpPAZzGhHRXea]|[*+?}]\\+|&&|\\(\\?[<a-zA-Z-]|\\[[^\\]]*\\[");
+
+    private static final Pattern EMAIL_ADDRESS_FORMAT = Pattern.compile(".+@.+\\..+");
+
+    private static final Pattern NAME_FORMAT = Pattern.compile("[A-Za'-\\u0105\\u0107\\u0119\\u0142\\u00F3\\u015B"
+            + "\\u017C\\u017A\\u0104\\u0106\\u0118\\u0141\\u00D3\\u015A\\u017B\\u0179\\u00C0\\u00C8\\u00CC\\u00D2"
+            + "\\u00D9\\u00E0\\u00E8\\u00EC\\u00F2\\u00F9\\u00C1\\u00C9\\u00CD\\u00D3\\u00DA\\u00DD\\u00E1\\u00E9"
+            + "\\u00ED\\u00F3\\u00FA\\u00FD\\u00C2\\u00CA\\u00CE\\u00D4\\u00DB\\u00E2\\u00EA\\u00EE\\u00F4\\u00FB"
+            + "\\u00C3\\u00D1\\u00D5\\u00E3\\u00F1\\u00F5\\u00C4\\u00CB\\u00CF\\u00D6\\u00DC\\u0178\\u00E4\\u00EB"
+            + "\\u00EF\\u00F6\\u00FC\\u0178\\u00A1\\u00BF\\u00E7\\u00C7\\u0152\\u0153\\u00DF\\u00D8\\u00F8\\u00C5"
+            + "\\u00E5\\u00C6\\u00E6\\u00DE\\u00FE\\u00D0\\u00F0\\-" + JS_WHITESPACE + "]+");
+
+    private static final Pattern PHONE_FORMAT = Pattern.compile("\\+?[0-9\\- ()]*");
+
+    /** The decimal numbers JavaScript converts strings to */
+    private static final Pattern NUMBER = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private final String policyId;
+    private final boolean validateOnlyIfPresent;
+
+    BuiltInPolicy(String policyId, boolean validateOnlyIfPresent) {
+        this.policyId = policyId;
+        this.validateOnlyIfPresent = validateOnlyIfPresent;
+    }
+
+    /**
+     * Returns the built-in policy of the given id.
+     *
+     * @param policyId the id of the policy
+     * @return the policy, or null if not built in or only evaluated by the script
+     */
+    static BuiltInPolicy of(String policyId) {
+        for (BuiltInPolicy policy : values()) {
+            if (policy.policyId.equals(policyId)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether the policy is only validated if the property is in the object.
+     *
+     * @return true if the policy is only validated for the properties in the object
+     */
+    boolean isValidateOnlyIfPresent() {
+        return validateOnlyIfPresent;
+    }
+
+    /**
+     * Prepares the parameters of the policy once, when the policies of a resource are compiled.
+     *
+     * @param params the parameters of the policy
+     * @return the prepared parameters, passed to {@link #validate}
+     * @throws NotNativeException if the policy cannot be evaluated natively with these parameters
+     */
+    Object compile(JsonValue params) throws NotNativeException {
+        return null;
+    }
+
+    /**
+     * Validates a value of a property.
+     *
+     * @param check the check of the property
+     * @param value the value, {@link #UNDEFINED} if the property is not in the object
+     * @param params the parameters of the policy
+     * @param compiled the parameters prepared by {@link #compile}
+     * @return the requirements failed
+     * @throws ResourceException if the resources could not be queried
+     * @throws NotNativeException if the value cannot be validated natively
+     */
+    abstract List<Map<String, Object>> validate(Check check, Object value, JsonValue params, Object compiled)
+            throws ResourceException, NotNativeException;
+
+    private static List<Map<String, Object>> matchesFormat(Check check, Object value, Pattern format,
+            boolean whole, String requirement) throws NotNativeException {
+        final boolean nonEmptyString = isNonEmptyString(value);
+        final boolean matches = nonEmptyString && (whole
+                ? matches(format, (String) value)
+                : find(format, (String) value));
+        if ((check.isRequired() || nonEmptyString) && !matches) {
+            return failure(requirement);
+        }
+        return NONE;
+    }
+
+    private static boolean find(Pattern pattern, String value) throws NotNativeException {
+        checkLineTerminators(value);
+        return pattern.matcher(value).find();
+    }
+
+    private static boolean matches(Pattern pattern, String value) throws NotNativeException {
+        checkLineTerminators(value);
+        return pattern.matcher(value).matches();
+    }
+
+    private static void checkLineTerminators(String value) throws NotNativeException {
+        if (LINE_TERMINATORS.matcher(value).find()) {
+            throw new NotNativeException();
+        }
+    }
+
+    private static int count(String value, String characters) {
+        int count = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (characters.indexOf(value.charAt(i)) >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Map<String, Object> requirement(String requirement) {
+        final Map<String, Object> failure = new LinkedHashMap<>();
+        failure.put("policyRequirement", requirement);
+        return failure;
+    }
+
+    private static List<Map<String, Object>> failure(String requirement) {
+        return Collections.singletonList(requirement(requirement));
+    }
+
+    private static List<Map<String, Object>> failure(String requirement, Map<String, Object> params) {
+        final Map<String, Object> failure = requirement(requirement);
+        failure.put("params", params);
+        return Collections.singletonList(failure);
+    }
+
+    private static List<Map<String, Object>> failure(String requirement, String param, Object value) {
+        final Map<String, Object> params = new LinkedHashMap<>();
+        if (value != UNDEFINED) {
+            params.put(param, value);
+        }
+        return failure(requirement, params);
+    }
+
+    /** Returns a parameter, failing as the script would if there are no parameters */
+    private static Object param(JsonValue params, String name) throws NotNativeException {
+        if (params.isNull()) {
+            throw new NotNativeException();
+        }
+        return params.isDefined(name) ? params.get(name).getObject() : UNDEFINED;
+    }
+
+    /** Returns the length property of a value */
+    private static Object length(Object value) throws NotNativeException {
+        if (value instanceof String) {
+            return ((String) value).length();
+        } else if (value instanceof List) {
+            return ((List<?>) value).size();
+        } else if (value instanceof Map) {
+            if (((Map<?, ?>) value).containsKey("length")) {
+                throw new NotNativeException();
+            }
+            return UNDEFINED;
+        }
+        return UNDEFINED;
+    }
+
+    /** Returns the elements a for-in loop goes through, converted to strings */
+    private static List<String> elements(Object value) throws NotNativeException {
+        final List<String> elements = new ArrayList<>();
+        if (value instanceof String) {
+            for (char c : ((String) value).toCharArray()) {
+                elements.add(String.valueOf(c));
+            }
+        } else if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                elements.add(jsString(element));
+            }
+        } else if (value != UNDEFINED && value != null) {
+            throw new NotNativeException();
+        }
+        return elements;
+    }
+
+    static boolean isTruthy(Object value) {
+        if (value == null || value == UNDEFINED) {
+            return false;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof String) {
+            return !((String) value).isEmpty();
+        } else if (value instanceof Number) {
+            final double number = ((Number) value).doubleValue();
+            return number != 0 && !Double.isNaN(number);
+        }
+        return true;
+    }
+
+    private static boolean isNonEmptyString(Object value) {
+        return value instanceof String && !((String) value).isEmpty();
+    }
+
+    static String typeOf(Object value) {
+        if (value == UNDEFINED) {
+            return "undefined";
+        } else if (value == null) {
+            return "null";
+        } else if (value instanceof List) {
+            return "array";
+        } else if (value instanceof String) {
+            return "string";
+        } else if (value instanceof Number) {
+            return "number";
+        } else if (value instanceof Boolean) {
+            return "boolean";
+        }
+        return "object";
+    }
+
+    /** Converts a value to a string as JavaScript does */
+    static String jsString(Object value) throws NotNativeException {
+        if (value == null || value instanceof String || value instanceof Boolean) {
+            return String.valueOf(value);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            return value.toString();
+        } else if (value instanceof Number) {
+            final double number = ((Number) value).doubleValue();
+            if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+                return Long.toString((long) number);
+            }
+        }
+        throw new NotNativeException();
+    }
+
+    /** Converts a value to a number as JavaScript does */
+    private static double jsNumber(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        } else if (value instanceof String) {
+            final String trimmed = ((String) value).trim();
+            if (trimmed.isEmpty()) {
+                return 0;
+            }
+            return NUMBER.matcher(trimmed).matches() ? Double.parseDouble(trimmed) : Double.NaN;
+        }
+        return Double.NaN;
+    }
+}
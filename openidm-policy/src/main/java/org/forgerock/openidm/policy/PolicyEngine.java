@@ -0,0 +1,612 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.policy;
+
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Requests.newReadRequest;
+import static org.forgerock.openidm.policy.BuiltInPolicy.UNDEFINED;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ActionRequest;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.openidm.policy.BuiltInPolicy.Check;
+import org.forgerock.openidm.policy.BuiltInPolicy.NotNativeException;
+import org.forgerock.services.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validates objects against the policies of their resource natively, as {@code policy.js} does.
+ * <p>
+ * The policies of a resource, merged with the policies of the schema of the managed object, are compiled once into
+ * the {@link BuiltInPolicy built-in policies} of each property. The resources with custom or conditional policies, and
+ * the objects a built-in policy cannot validate natively, are left to the script. The compiled policies of the
+ * managed objects are dropped once their configuration changes.
+ */
+class PolicyEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PolicyEngine.class);
+
+    static final String VALIDATE_OBJECT = "validateObject";
+    static final String VALIDATE_PROPERTY = "validateProperty";
+
+    private static final String MANAGED = "managed";
+    private static final String MANAGED_CONFIG = "config/managed";
+    private static final String ARRAY_ELEMENTS = "[*]";
+
+    /** The integer JavaScript parseInt parses a string to */
+    private static final Pattern INTEGER = Pattern.compile("\\s*([+-]?\\d{1,18}).*", Pattern.DOTALL);
+
+    /** A policy of a property, compiled */
+    private static final class CompiledPolicy {
+        private final BuiltInPolicy policy;
+        private final JsonValue params;
+        private final Object compiled;
+
+        private CompiledPolicy(BuiltInPolicy policy, JsonValue params, Object compiled) {
+            this.policy = policy;
+            this.params = params;
+            this.compiled = compiled;
+        }
+    }
+
+    /** The policies of a property */
+    private static final class PropertyPolicies {
+        private final String name;
+        private final String[] path;
+        private final boolean arrayElements;
+        private final List<CompiledPolicy> policies;
+
+        private PropertyPolicies(String name, List<CompiledPolicy> policies) {
+            this.name = name;
+            this.path = name.split("/", -1);
+            for (int i = 0; i < path.length; i++) {
+                if (path[i].endsWith(ARRAY_ELEMENTS)) {
+                    path[i] = path[i].substring(0, path[i].length() - ARRAY_ELEMENTS.length());
+                }
+            }
+            this.arrayElements = name.endsWith(ARRAY_ELEMENTS);
+            this.policies = policies;
+        }
+    }
+
+    /** The policies of the properties of a resource */
+    private static final class ResourcePolicies {
+        private final List<PropertyPolicies> properties;
+
+        private ResourcePolicies(List<PropertyPolicies> properties) {
+            this.properties = properties;
+        }
+
+        private PropertyPolicies getProperty(String name) {
+            for (PropertyPolicies property : properties) {
+                if (property.name.equals(name)) {
+                    return property;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** The policies of a resource validated by the script */
+    private static final ResourcePolicies NOT_NATIVE = new ResourcePolicies(null);
+
+    /** The configuration of the managed objects, and the policies compiled with it */
+    private static final class ManagedPolicies {
+        private final JsonValue objects;
+        private final ConcurrentMap<String, ResourcePolicies> policies = new ConcurrentHashMap<>();
+
+        private ManagedPolicies(JsonValue objects) {
+            this.objects = objects;
+        }
+    }
+
+    /** The configured resources, null if the script is to validate all the resources */
+    private final List<JsonValue> resources;
+    private final List<String[]> resourcePaths;
+
+    /** The compiled policies of the resources not managed */
+    private final ConcurrentMap<String, ResourcePolicies> policies = new ConcurrentHashMap<>();
+
+    private ManagedPolicies managedPolicies;
+    private long managedGeneration;
+
+    /**
+     * Creates the engine of the configured resources.
+     *
+     * @param resources the {@code resources} of the policy configuration
+     */
+    PolicyEngine(JsonValue resources) {
+        List<JsonValue> configured = null;
+        List<String[]> paths = null;
+        if (resources.isList()) {
+            configured = new ArrayList<>(resources.size());
+            paths = new ArrayList<>(resources.size());
+            for (JsonValue resource : resources.copy()) {
+                if (!resource.get("resource").isString()) {
+                    // the script fails on any request
+                    configured = null;
+                    paths = null;
+                    break;
+                }
+                configured.add(resource);
+                paths.add(resource.get("resource").asString().split("/", -1));
+            }
+        }
+        this.resources = configured;
+        this.resourcePaths = paths;
+    }
+
+    /**
+     * Drops the policies compiled with the configuration of the managed objects, once it changed.
+     */
+    synchronized void managedConfigChanged() {
+        managedGeneration++;
+        managedPolicies = null;
+    }
+
+    /**
+     * Validates an object, or properties of an object, against the policies of its resource.
+     *
+     * @param context the context of the request
+     * @param request the {@code validateObject} or {@code validateProperty} request
+     * @param connectionFactory the connection factory to read the configuration and query the resources, or null
+     * @return the result of the validation, or null if the request is to be handled by the script
+     * @throws ResourceException if the resources could not be queried
+     */
+    JsonValue validate(Context context, ActionRequest request, ConnectionFactory connectionFactory)
+            throws ResourceException {
+        final String action = request.getAction();
+        if (!VALIDATE_OBJECT.equals(action) && !VALIDATE_PROPERTY.equals(action)) {
+            return null;
+        }
+        final ResourcePolicies resourcePolicies = getPolicies(context, request.getResourcePath(), connectionFactory);
+        if (resourcePolicies == null || resourcePolicies == NOT_NATIVE) {
+            return null;
+        }
+        final Object fullObject = request.getContent().getObject();
+        final List<Object> failedPolicyRequirements = new ArrayList<>();
+        try {
+            if (VALIDATE_OBJECT.equals(action)) {
+                for (PropertyPolicies property : resourcePolicies.properties) {
+                    validate(new Check(context, request.getResourcePathObject(), connectionFactory, property.name),
+                            property, propertyValue(fullObject, property.path), failedPolicyRequirements);
+                }
+            } else if (fullObject instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) fullObject).entrySet()) {
+                    final PropertyPolicies property = resourcePolicies.getProperty(String.valueOf(entry.getKey()));
+                    if (property != null) {
+                        validate(new Check(context, request.getResourcePathObject(), connectionFactory,
+                                property.name), property, entry.getValue(), failedPolicyRequirements);
+                    }
+                }
+            } else {
+                return null;
+            }
+        } catch (NotNativeException e) {
+            return null;
+        }
+        return json(object(
+                field("result", failedPolicyRequirements.isEmpty()),
+                field("failedPolicyRequirements", failedPolicyRequirements)));
+    }
+
+    private static void validate(Check check, PropertyPolicies property, Object value,
+            List<Object> failedPolicyRequirements) throws ResourceException, NotNativeException {
+        for (CompiledPolicy policy : property.policies) {
+            // validate this property every time unless the policy is only validated for a present property
+            if (policy.policy.isValidateOnlyIfPresent() && value == UNDEFINED) {
+                continue;
+            }
+            final List<Object> values = property.arrayElements ? elements(value) : Collections.singletonList(value);
+            for (int j = 0; j < values.size(); j++) {
+                if (isEncrypted(values.get(j))) {
+                    throw new NotNativeException();
+                }
+                final List<Map<String, Object>> failed =
+                        policy.policy.validate(check, values.get(j), policy.params, policy.compiled);
+                if (!failed.isEmpty()) {
+                    final Map<String, Object> failure = new LinkedHashMap<>();
+                    failure.put("policyRequirements", new ArrayList<>(failed));
+                    failure.put("property", property.arrayElements
+                            ? property.name.substring(0, property.name.length() - ARRAY_ELEMENTS.length())
+                                    + "[" + j + "]"
+                            : property.name);
+                    check.failedRequirements.addAll(failed);
+                    failedPolicyRequirements.add(failure);
+                }
+            }
+        }
+    }
+
+    /** Returns the elements of an array property the policies are validated against */
+    private static List<Object> elements(Object value) throws NotNativeException {
+        if (value instanceof List) {
+            return new ArrayList<Object>((List<?>) value);
+        } else if (value instanceof String) {
+            final List<Object> elements = new ArrayList<>();
+            for (char c : ((String) value).toCharArray()) {
+                elements.add(String.valueOf(c));
+            }
+            return elements;
+        } else if (value instanceof Map && ((Map<?, ?>) value).containsKey("length")) {
+            throw new NotNativeException();
+        }
+        return Collections.emptyList();
+    }
+
+    private static boolean isEncrypted(Object value) {
+        return value instanceof Map && ((Map<?, ?>) value).containsKey("$crypto");
+    }
+
+    /** Returns the value of a property, {@link BuiltInPolicy#UNDEFINED} if not in the object */
+    private static Object propertyValue(Object object, String[] path) throws NotNativeException {
+        if (object == null) {
+            return null;
+        }
+        Object value = object;
+        for (String name : path) {
+            if (value instanceof Map) {
+                final Map<?, ?> map = (Map<?, ?>) value;
+                value = map.containsKey(name) ? map.get(name) : UNDEFINED;
+            } else if (value instanceof List && name.matches("\\d{1,9}")) {
+                final List<?> list = (List<?>) value;
+                final int index = Integer.parseInt(name);
+                value = index < list.size() ? list.get(index) : UNDEFINED;
+            } else {
+                throw new NotNativeException();
+            }
+            if (value == UNDEFINED || value == null) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    // ----- Compilation of the policies of the resources
+
+    private ResourcePolicies getPolicies(Context context, String resourcePath, ConnectionFactory connectionFactory) {
+        if (resources == null) {
+            return null;
+        }
+        final int index = getResourceIndex(resourcePath);
+        final String[] parts = resourcePath.split("/", -1);
+        // only managed objects have additional policies
+        if (!MANAGED.equals(parts[0]) || parts.length > 3) {
+            final String key = String.valueOf(index);
+            ResourcePolicies resourcePolicies = policies.get(key);
+            if (resourcePolicies == null) {
+                resourcePolicies = compile(index, null);
+                policies.put(key, resourcePolicies);
+            }
+            return resourcePolicies;
+        }
+        final ManagedPolicies managed = getManagedPolicies(context, connectionFactory);
+        if (managed == null) {
+            return null;
+        }
+        final String objectName = parts.length > 1 ? parts[1] : null;
+        final String key = index + "/" + objectName;
+        ResourcePolicies resourcePolicies = managed.policies.get(key);
+        if (resourcePolicies == null) {
+            resourcePolicies = compile(index, getManagedObject(managed.objects, objectName));
+            managed.policies.put(key, resourcePolicies);
+        }
+        return resourcePolicies;
+    }
+
+    private ManagedPolicies getManagedPolicies(Context context, ConnectionFactory connectionFactory) {
+        final long generation;
+        synchronized (this) {
+            if (managedPolicies != null) {
+                return managedPolicies;
+            }
+            generation = managedGeneration;
+        }
+        if (connectionFactory == null) {
+            return null;
+        }
+        final ManagedPolicies managed;
+        try {
+            managed = new ManagedPolicies(connectionFactory.getConnection()
+                    .read(context, newReadRequest(MANAGED_CONFIG)).getContent().get("objects"));
+        } catch (ResourceException e) {
+            logger.debug("Failed to read the managed objects configuration", e);
+            return null;
+        }
+        synchronized (this) {
+            // unless changed since read
+            if (managedGeneration == generation && managedPolicies == null) {
+                managedPolicies = managed;
+            }
+        }
+        return managed;
+    }
+
+    private int getResourceIndex(String resourcePath) {
+        final String[] path = resourcePath.split("/", -1);
+        for (int i = 0; i < resourcePaths.size(); i++) {
+            if (resourceMatches(resourcePaths.get(i), path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean resourceMatches(String[] resource1, String[] resource2) {
+        if (resource1.length != resource2.length) {
+            return false;
+        }
+        for (int i = 0; i < resource1.length; i++) {
+            if (!resource1[i].equals(resource2[i]) && !"*".equals(resource1[i]) && !"*".equals(resource2[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static JsonValue getManagedObject(JsonValue objects, String objectName) {
+        if (objects.isList()) {
+            for (JsonValue object : objects) {
+                if (object.isMap() && object.get("name").isString()
+                        && object.get("name").asString().equals(objectName)) {
+                    return object;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the policies of a resource.
+     *
+     * @param index the index of the configured resource, -1 if none
+     * @param managedObject the configuration of the managed object, or null
+     * @return the policies, or {@link #NOT_NATIVE}
+     */
+    private ResourcePolicies compile(int index, JsonValue managedObject) {
+        try {
+            final List<JsonValue> properties = new ArrayList<>();
+            if (index >= 0) {
+                final JsonValue configured = resources.get(index).get("properties");
+                if (!configured.isList()) {
+                    throw new NotNativeException();
+                }
+                for (JsonValue property : configured.copy()) {
+                    properties.add(property);
+                }
+            }
+            if (managedObject != null) {
+                mergeProperties(properties, managedProperties(managedObject));
+            }
+            final List<PropertyPolicies> compiled = new ArrayList<>(properties.size());
+            for (JsonValue property : properties) {
+                compiled.add(compileProperty(property));
+            }
+            return new ResourcePolicies(compiled);
+        } catch (NotNativeException e) {
+            return NOT_NATIVE;
+        }
+    }
+
+    private static PropertyPolicies compileProperty(JsonValue property) throws NotNativeException {
+        if (!property.get("name").isString() || !property.get("policies").isList()) {
+            throw new NotNativeException();
+        }
+        final JsonValue conditionalPolicies = property.get("conditionalPolicies");
+        final JsonValue fallbackPolicies = property.get("fallbackPolicies");
+        // the conditions are evaluated by scripts
+        if (!conditionalPolicies.isNull() && !(conditionalPolicies.isList() && conditionalPolicies.size() == 0)) {
+            throw new NotNativeException();
+        }
+        final List<JsonValue> allPolicies = new ArrayList<>();
+        for (JsonValue policy : property.get("policies")) {
+            allPolicies.add(policy);
+        }
+        // with no conditional policies applied, the fallback policies are
+        if (!fallbackPolicies.isNull()) {
+            if (!fallbackPolicies.isList()) {
+                throw new NotNativeException();
+            }
+            for (JsonValue policy : fallbackPolicies) {
+                allPolicies.add(policy);
+            }
+        }
+        final List<CompiledPolicy> compiled = new ArrayList<>(allPolicies.size());
+        for (JsonValue policy : allPolicies) {
+            final BuiltInPolicy builtIn = BuiltInPolicy.of(policy.get("policyId").isString()
+                    ? policy.get("policyId").asString()
+                    : null);
+            if (builtIn == null) {
+                // a custom policy, or one evaluated by the script
+                throw new NotNativeException();
+            }
+            final JsonValue params = policy.get("params");
+            compiled.add(new CompiledPolicy(builtIn, params, builtIn.compile(params)));
+        }
+        return new PropertyPolicies(property.get("name").asString(), compiled);
+    }
+
+    /** Merges the policies of the schema of a managed object into the configured properties */
+    private static void mergeProperties(List<JsonValue> properties, List<JsonValue> newProperties) {
+        for (JsonValue newProperty : newProperties) {
+            boolean found = false;
+            for (JsonValue property : properties) {
+                if (!newProperty.get("name").getObject().equals(property.get("name").getObject())) {
+                    continue;
+                }
+                found = true;
+                if (property.get("policies").isList() && property.get("policies").size() > 0) {
+                    property.put("policies", mergePolicies(property.get("policies"), newProperty.get("policies")));
+                } else {
+                    property.put("policies", newProperty.get("policies").getObject());
+                }
+                final JsonValue conditionalPolicies = property.get("conditionalPolicies");
+                final JsonValue newConditionalPolicies = newProperty.get("conditionalPolicies");
+                if (conditionalPolicies.isList() && conditionalPolicies.size() > 0) {
+                    if (newConditionalPolicies.isList() && newConditionalPolicies.size() > 0) {
+                        final List<Object> merged = new ArrayList<Object>(conditionalPolicies.asList());
+                        merged.addAll(newConditionalPolicies.asList());
+                        property.put("conditionalPolicies", merged);
+                    }
+                } else {
+                    property.put("conditionalPolicies", newConditionalPolicies.getObject());
+                }
+            }
+            if (!found) {
+                properties.add(newProperty);
+            }
+        }
+    }
+
+    private static List<Object> mergePolicies(JsonValue oldPolicies, JsonValue newPolicies) {
+        final List<Object> policies = new ArrayList<Object>(oldPolicies.asList());
+        for (JsonValue newPolicy : newPolicies) {
+            boolean found = false;
+            for (int j = 0; j < policies.size(); j++) {
+                if (newPolicy.get("policyId").getObject() != null && newPolicy.get("policyId").getObject()
+                        .equals(new JsonValue(policies.get(j)).get("policyId").getObject())) {
+                    // update old policy with new config
+                    policies.set(j, newPolicy.getObject());
+                    found = true;
+                }
+            }
+            if (!found) {
+                final Map<String, Object> params = new LinkedHashMap<>();
+                if (newPolicy.get("params").isMap()) {
+                    params.putAll(newPolicy.get("params").asMap());
+                }
+                policies.add(object(field("policyId", newPolicy.get("policyId").getObject()), field("params", params)));
+            }
+        }
+        return policies;
+    }
+
+    /** Returns the properties of the policies of the schema of a managed object */
+    private static List<JsonValue> managedProperties(JsonValue managedObject) throws NotNativeException {
+        final JsonValue schema = managedObject.get("schema");
+        if (!schema.isMap() || !schema.get("properties").isMap()) {
+            if (schema.get("properties").isList()) {
+                throw new NotNativeException();
+            }
+            return Collections.emptyList();
+        }
+        final JsonValue required = schema.get("required");
+        if (!required.isNull() && !required.isList()) {
+            throw new NotNativeException();
+        }
+        final List<JsonValue> properties = new ArrayList<>();
+        for (String name : schema.get("properties").keys()) {
+            final JsonValue property = schema.get("properties").get(name);
+            if (!property.isMap()) {
+                throw new NotNativeException();
+            }
+            final JsonValue type = property.get("type");
+            final List<Object> policies = new ArrayList<>();
+            if (required.isList() && required.asList().contains(name)) {
+                policies.add(object(field("policyId", "required")));
+            }
+            if ((type.isList() && !type.asList().contains("null"))
+                    || (property.get("minLength").isNumber() && property.get("minLength").asDouble() > 0)) {
+                policies.add(object(field("policyId", "not-empty")));
+            }
+            if ((type.isList() && type.asList().contains("string")) || "string".equals(type.getObject())) {
+                final Long minLength = parseInt(property.get("minLength").getObject());
+                if (minLength != null) {
+                    policies.add(object(field("policyId", "minimum-length"),
+                            field("params", object(field("minLength", minLength)))));
+                }
+                if (property.get("pattern").isString()) {
+                    policies.add(object(field("policyId", "regexpMatches"),
+                            field("params", object(field("regexp", property.get("pattern").asString())))));
+                }
+            }
+            final List<Object> types = new ArrayList<>();
+            if (type.isString()) {
+                types.add(type.asString());
+            } else if (type.isList()) {
+                types.addAll(type.asList());
+            } else if (type.isMap()) {
+                throw new NotNativeException();
+            }
+            // treat a relationship type as an object
+            for (int i = 0; i < types.size(); i++) {
+                if ("relationship".equals(types.get(i))) {
+                    types.set(i, "object");
+                }
+            }
+            policies.add(object(field("policyId", "valid-type"), field("params", object(field("types", types)))));
+
+            final JsonValue customPolicies = property.get("policies");
+            if (customPolicies.isList()) {
+                policies.addAll(customPolicies.asList());
+            } else if (customPolicies.isMap()) {
+                policies.addAll(customPolicies.asMap().values());
+            } else if (!customPolicies.isNull()) {
+                throw new NotNativeException();
+            }
+            final JsonValue merged = json(object(field("name", name), field("policies", policies)));
+            if (property.isDefined("conditionalPolicies")) {
+                merged.put("conditionalPolicies", property.get("conditionalPolicies").getObject());
+            }
+            if (property.isDefined("fallbackPolicies")) {
+                merged.put("fallbackPolicies", property.get("fallbackPolicies").getObject());
+            }
+            properties.add(merged);
+        }
+        return properties;
+    }
+
+    /** Parses an integer as JavaScript parseInt does, null if not a number */
+    private static Long parseInt(Object value) throws NotNativeException {
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Number) {
+            final double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                return null;
+            } else if (number != 0 && (Math.abs(number) < 1e-6 || Math.abs(number) >= 1e18)) {
+                // parsed from the exponential notation
+                throw new NotNativeException();
+            }
+            return (long) number;
+        } else if (value instanceof String) {
+            final Matcher matcher = INTEGER.matcher((String) value);
+            if (matcher.matches()) {
+                return Long.parseLong(matcher.group(1).startsWith("+")
+                        ? matcher.group(1).substring(1)
+                        : matcher.group(1));
+            }
+            if (((String) value).trim().matches("[+-]?\\d{19,}.*")) {
+                throw new NotNativeException();
+            }
+        }
+        return null;
+    }
+}
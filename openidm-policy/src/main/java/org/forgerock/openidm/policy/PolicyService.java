@@ -16,6 +16,9 @@
  */
 package org.forgerock.openidm.policy;
 
+import static org.forgerock.json.resource.Responses.newActionResponse;
+
+import java.io.File;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
@@ -25,17 +28,33 @@ import javax.script.Bindings;
 
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.ActionRequest;
+import org.forgerock.json.resource.ActionResponse;
+import org.forgerock.json.resource.CreateRequest;
+import org.forgerock.json.resource.DeleteRequest;
+import org.forgerock.json.resource.PatchRequest;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.QueryResponse;
 import org.forgerock.json.resource.ReadRequest;
+import org.forgerock.json.resource.RequestHandler;
 import org.forgerock.json.resource.RequestType;
 import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.UpdateRequest;
 import org.forgerock.openidm.config.enhanced.EnhancedConfig;
 import org.forgerock.openidm.core.IdentityServer;
 import org.forgerock.openidm.core.ServerConstants;
+import org.forgerock.openidm.router.IDMConnectionFactory;
 import org.forgerock.openidm.script.AbstractScriptedService;
+import org.forgerock.openidm.script.ScriptedRequestHandler;
 import org.forgerock.openidm.util.FileUtil;
 import org.forgerock.script.ScriptRegistry;
 import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.Promise;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -43,6 +62,7 @@ import org.osgi.service.component.annotations.ConfigurationPolicy;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
 import org.osgi.service.component.propertytypes.ServiceDescription;
 import org.osgi.service.component.propertytypes.ServiceVendor;
@@ -51,7 +71,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A Policy Service for policy validation.
- *
+ * <p>
+ * The objects are validated natively against the built-in policies by the {@link PolicyEngine} when the stock policy
+ * script is configured, and by the policy script otherwise.
  */
 @Component(
         name = PolicyService.PID,
@@ -67,6 +89,9 @@ public class PolicyService extends AbstractScriptedService {
 
     public static final String PID = "org.forgerock.openidm.policy";
 
+    /** The PID of the configuration of the managed objects, merged with the policies of their resources */
+    private static final String MANAGED_PID = "org.forgerock.openidm.managed";
+
     /**
      * Setup logging for the {@link PolicyService}.
      */
@@ -80,10 +105,22 @@ public class PolicyService extends AbstractScriptedService {
     @Reference(policy = ReferencePolicy.DYNAMIC)
     private volatile ScriptRegistry scriptRegistry;
 
+    /** The connection factory to read the configuration and query the resources validated natively. */
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    private volatile IDMConnectionFactory connectionFactory;
+
     private ComponentContext context;
 
     private JsonValue configuration;
 
+    /** The policy script the engine implements the built-in policies of */
+    static final String STOCK_SCRIPT = "policy.js";
+
+    /** The engine validating the built-in policies of the configured resources, null if the script is customized */
+    private volatile PolicyEngine engine;
+
+    private ServiceRegistration<ConfigurationListener> managedConfigListener;
+
     public PolicyService() {
         super(EnumSet.of(RequestType.ACTION, RequestType.READ));
     }
@@ -99,6 +136,15 @@ public class PolicyService extends AbstractScriptedService {
         setProperties(context);
         configuration = getConfiguration(context);
         registerService(context.getBundleContext(), configuration);
+        managedConfigListener = context.getBundleContext().registerService(ConfigurationListener.class,
+                new ConfigurationListener() {
+                    @Override
+                    public void configurationEvent(ConfigurationEvent event) {
+                        if (MANAGED_PID.equals(event.getPid()) && engine != null) {
+                            engine.managedConfigChanged();
+                        }
+                    }
+                }, null);
         logger.info("OpenIDM Policy Service component is activated.");
     }
 
@@ -115,6 +161,10 @@ public class PolicyService extends AbstractScriptedService {
 
     @Deactivate
     protected void deactivate(ComponentContext context) {
+        if (managedConfigListener != null) {
+            managedConfigListener.unregister();
+            managedConfigListener = null;
+        }
         unregisterService();
         this.context = null;
         logger.info("OpenIDM Policy Service component is deactivated.");
@@ -130,6 +180,11 @@ public class PolicyService extends AbstractScriptedService {
         return context.getBundleContext();
     }
 
+    @Override
+    protected RequestHandler getRequestHandler(ScriptedRequestHandler scriptedHandler) {
+        return new PolicyRequestHandler(scriptedHandler);
+    }
+
     private JsonValue getConfiguration(ComponentContext context) {
         JsonValue configuration = enhancedConfig.getConfigurationAsJson(context);
         init(configuration);
@@ -150,6 +205,41 @@ public class PolicyService extends AbstractScriptedService {
             }
             configuration.add("additionalPolicies", list);
         }
+        if (usesStockScript(configuration,
+                IdentityServer.getFileForProjectPath("script/" + STOCK_SCRIPT),
+                IdentityServer.getFileForProjectPath(STOCK_SCRIPT),
+                IdentityServer.getFileForInstallPath(STOCK_SCRIPT))) {
+            engine = new PolicyEngine(configuration.get("resources"));
+        } else {
+            logger.info("Policy script customized, validating all policies with the script");
+            engine = null;
+        }
+    }
+
+    /**
+     * Tells whether the configured policy script is the stock {@code policy.js} from {@code bin/defaults/script},
+     * whose built-in policies the {@link PolicyEngine} implements. A customized script, or additional policy
+     * scripts, may replace any policy, so the engine must leave the validation to the script.
+     *
+     * @param configuration the configuration of the policy service, once the additional files are loaded
+     * @param overrides the files that would take precedence over the stock script
+     * @return true if the stock policy script is configured without additional policies
+     */
+    static boolean usesStockScript(JsonValue configuration, File... overrides) {
+        if (!configuration.get("source").isNull()
+                || !STOCK_SCRIPT.equals(configuration.get("file").asString())
+                || !"text/javascript".equals(configuration.get("type").asString())
+                || (!configuration.get("additionalFiles").isNull() && configuration.get("additionalFiles").size() > 0)
+                || (!configuration.get("additionalPolicies").isNull()
+                        && configuration.get("additionalPolicies").size() > 0)) {
+            return false;
+        }
+        for (File override : overrides) {
+            if (override.exists()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -177,4 +267,63 @@ public class PolicyService extends AbstractScriptedService {
         handler.put("request", request);
         handler.put("resources", configuration.get("resources").copy().getObject());
     }
+
+    /**
+     * Validates the objects natively when the engine can, and passes any other request to the policy script.
+     */
+    private final class PolicyRequestHandler implements RequestHandler {
+
+        private final ScriptedRequestHandler scriptedHandler;
+
+        private PolicyRequestHandler(ScriptedRequestHandler scriptedHandler) {
+            this.scriptedHandler = scriptedHandler;
+        }
+
+        @Override
+        public Promise<ActionResponse, ResourceException> handleAction(Context context, ActionRequest request) {
+            final PolicyEngine policyEngine = engine;
+            if (policyEngine != null) {
+                try {
+                    final JsonValue result = policyEngine.validate(context, request, connectionFactory);
+                    if (result != null) {
+                        return newActionResponse(result).asPromise();
+                    }
+                } catch (ResourceException e) {
+                    return e.asPromise();
+                }
+            }
+            return scriptedHandler.handleAction(context, request);
+        }
+
+        @Override
+        public Promise<ResourceResponse, ResourceException> handleCreate(Context context, CreateRequest request) {
+            return scriptedHandler.handleCreate(context, request);
+        }
+
+        @Override
+        public Promise<ResourceResponse, ResourceException> handleDelete(Context context, DeleteRequest request) {
+            return scriptedHandler.handleDelete(context, request);
+        }
+
+        @Override
+        public Promise<ResourceResponse, ResourceException> handlePatch(Context context, PatchRequest request) {
+            return scriptedHandler.handlePatch(context, request);
+        }
+
+        @Override
+        public Promise<QueryResponse, ResourceException> handleQuery(Context context, QueryRequest request,
+                QueryResourceHandler handler) {
+            return scriptedHandler.handleQuery(context, request, handler);
+        }
+
+        @Override
+        public Promise<ResourceResponse, ResourceException> handleRead(Context context, ReadRequest request) {
+            return scriptedHandler.handleRead(context, request);
+        }
+
+        @Override
+        public Promise<ResourceResponse, ResourceException> handleUpdate(Context context, UpdateRequest request) {
+            return scriptedHandler.handleUpdate(context, request);
+        }
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.policy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.array;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Requests.newActionRequest;
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.ActionRequest;
+import org.forgerock.json.resource.Connection;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.ReadRequest;
+import org.forgerock.services.context.Context;
+import org.forgerock.services.context.RootContext;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * A test of the native validation of the built-in policies.
+ */
+public class PolicyEngineTest {
+
+    private static final Context CONTEXT = new RootContext();
+
+    private ConnectionFactory connectionFactory;
+    private Connection connection;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        connection = mock(Connection.class);
+        connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.read(any(Context.class), any(ReadRequest.class))).thenReturn(
+                newResourceResponse("managed", null, json(object(field("objects", array(
+                        object(field("name", "user"), field("schema", object(
+                                field("required", array("userName")),
+                                field("properties", object(
+                                        field("userName", object(
+                                                field("type", "string"),
+                                                field("minLength", 1))),
+                                        field("mail", object(
+                                                field("type", "string"),
+                                                field("policies", array(object(
+                                                        field("policyId", "valid-email-address-format"))))))))))),
+                        object(field("name", "role"), field("schema", object(
+                                field("properties", object(
+                                        field("name", object(
+                                                field("type", "string"),
+                                                field("policies", array(object(
+                                                        field("policyId", "custom-policy")))))))))))))))));
+    }
+
+    private static PolicyEngine newEngine() {
+        return new PolicyEngine(json(array(
+                object(field("resource", "repo/internal/user/*"),
+                        field("properties", array(
+                                object(field("name", "password"),
+                                        field("policies", array(
+                                                object(field("policyId", "required")),
+                                                object(field("policyId", "not-empty")),
+                                                object(field("policyId", "at-least-X-capitals"),
+                                                        field("params", object(field("numCaps", 1)))),
+                                                object(field("policyId", "minimum-length"),
+                                                        field("params", object(field("minLength", 8)))))))))),
+                object(field("resource", "repo/custom/*"),
+                        field("properties", array(
+                                object(field("name", "name"),
+                                        field("policies", array(
+                                                object(field("policyId", "custom-policy")))))))))));
+    }
+
+    private static ActionRequest validate(String resourcePath, String action, Object content) {
+        return newActionRequest(resourcePath, action).setContent(json(content));
+    }
+
+    @Test
+    public void testValidatesBuiltInPolicies() throws Exception {
+        final PolicyEngine engine = newEngine();
+
+        final JsonValue invalid = engine.validate(CONTEXT, validate("repo/internal/user/0",
+                PolicyEngine.VALIDATE_OBJECT, object(field("password", "secret"))), connectionFactory);
+        assertThat(invalid.get("result").asBoolean()).isFalse();
+        assertThat(invalid.get("failedPolicyRequirements").asList()).hasSize(2);
+        assertThat(invalid.get("failedPolicyRequirements").get(0).get("property").asString()).isEqualTo("password");
+        assertThat(invalid.get("failedPolicyRequirements").get(0).get("policyRequirements").get(0)
+                .get("policyRequirement").asString()).isEqualTo("AT_LEAST_X_CAPITAL_LETTERS");
+        assertThat(invalid.get("failedPolicyRequirements").get(1).get("policyRequirements").get(0)
+                .get("params").get("minLength").asInteger()).isEqualTo(8);
+
+        final JsonValue missing = engine.validate(CONTEXT, validate("repo/internal/user/0",
+                PolicyEngine.VALIDATE_OBJECT, object()), connectionFactory);
+        assertThat(missing.get("result").asBoolean()).isFalse();
+        assertThat(missing.get("failedPolicyRequirements").get(0).get("policyRequirements").get(0)
+                .get("policyRequirement").asString()).isEqualTo("REQUIRED");
+
+        final JsonValue valid = engine.validate(CONTEXT, validate("repo/internal/user/0",
+                PolicyEngine.VALIDATE_OBJECT, object(field("password", "Secret1234"))), connectionFactory);
+        assertThat(valid.get("result").asBoolean()).isTrue();
+        assertThat(valid.get("failedPolicyRequirements").asList()).isEmpty();
+    }
+
+    @Test
+    public void testValidatesProperties() throws Exception {
+        final PolicyEngine engine = newEngine();
+
+        final JsonValue result = engine.validate(CONTEXT, validate("repo/internal/user/0",
+                PolicyEngine.VALIDATE_PROPERTY, object(field("password", "Secret"), field("other", ""))),
+                connectionFactory);
+        assertThat(result.get("result").asBoolean()).isFalse();
+        assertThat(result.get("failedPolicyRequirements").asList()).hasSize(1);
+        assertThat(result.get("failedPolicyRequirements").get(0).get("policyRequirements").get(0)
+                .get("policyRequirement").asString()).isEqualTo("MIN_LENGTH");
+    }
+
+    @Test
+    public void testLeavesCustomPoliciesToScript() throws Exception {
+        final PolicyEngine engine = newEngine();
+
+        assertThat(engine.validate(CONTEXT, validate("repo/custom/0",
+                PolicyEngine.VALIDATE_OBJECT, object(field("name", "x"))), connectionFactory)).isNull();
+        assertThat(engine.validate(CONTEXT, validate("managed/role/0",
+                PolicyEngine.VALIDATE_OBJECT, object(field("name", "x"))), connectionFactory)).isNull();
+        assertThat(engine.validate(CONTEXT, validate("repo/internal/user/0",
+                PolicyEngine.VALIDATE_OBJECT, object(field("password", object(field("$crypto", object()))))),
+                connectionFactory)).isNull();
+        assertThat(engine.validate(CONTEXT, validate("repo/internal/user/0",
+                "unknown", object()), connectionFactory)).isNull();
+        assertThat(new PolicyEngine(json(null)).validate(CONTEXT, validate("repo/internal/user/0",
+                PolicyEngine.VALIDATE_OBJECT, object()), connectionFactory)).isNull();
+    }
+
+    @Test
+    public void testMergesManagedObjectSchema() throws Exception {
+        final PolicyEngine engine = newEngine();
+
+        final JsonValue result = engine.validate(CONTEXT, validate("managed/user/0",
+                PolicyEngine.VALIDATE_OBJECT, object(field("mail", "not an address"))), connectionFactory);
+        assertThat(result.get("result").asBoolean()).isFalse();
+        assertThat(result.get("failedPolicyRequirements").get(0).get("property").asString()).isEqualTo("userName");
+        assertThat(result.get("failedPolicyRequirements").get(0).get("policyRequirements").get(0)
+                .get("policyRequirement").asString()).isEqualTo("REQUIRED");
+        assertThat(result.get("failedPolicyRequirements").get(1).get("property").asString()).isEqualTo("mail");
+        assertThat(result.get("failedPolicyRequirements").get(1).get("policyRequirements").get(0)
+                .get("policyRequirement").asString()).isEqualTo("VALID_EMAIL_ADDRESS_FORMAT");
+
+        // compiled once per configuration of the managed objects
+        engine.validate(CONTEXT, validate("managed/user/0",
+                PolicyEngine.VALIDATE_OBJECT, object(field("userName", "user"))), connectionFactory);
+        verify(connection, times(1)).read(any(Context.class), any(ReadRequest.class));
+
+        engine.managedConfigChanged();
+        final JsonValue valid = engine.validate(CONTEXT, validate("managed/user/0",
+                PolicyEngine.VALIDATE_OBJECT, object(field("userName", "user"), field("mail", "user@example.com"))),
+                connectionFactory);
+        assertThat(valid.get("result").asBoolean()).isTrue();
+        verify(connection, times(2)).read(any(Context.class), any(ReadRequest.class));
+    }
+}
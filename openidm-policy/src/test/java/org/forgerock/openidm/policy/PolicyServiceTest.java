@@ -0,0 +1,76 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.policy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.array;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+
+import java.io.File;
+
+import org.forgerock.json.JsonValue;
+import org.testng.annotations.Test;
+
+/**
+ * A test of when the built-in policies are validated natively rather than by the policy script.
+ */
+public class PolicyServiceTest {
+
+    private static final File MISSING = new File("target/no-such-dir/policy.js");
+
+    private static JsonValue configuration() {
+        return json(object(
+                field("type", "text/javascript"),
+                field("file", "policy.js"),
+                field("additionalFiles", array()),
+                field("resources", array())));
+    }
+
+    @Test
+    public void testValidatesNativelyWithStockScript() {
+        assertThat(PolicyService.usesStockScript(configuration(), MISSING)).isTrue();
+    }
+
+    @Test
+    public void testFallsBackToScriptWhenCustomized() throws Exception {
+        JsonValue otherFile = configuration();
+        otherFile.put("file", "script/custom-policy.js");
+        assertThat(PolicyService.usesStockScript(otherFile, MISSING)).isFalse();
+
+        JsonValue inlineSource = configuration();
+        inlineSource.remove("file");
+        inlineSource.put("source", "// custom policies");
+        assertThat(PolicyService.usesStockScript(inlineSource, MISSING)).isFalse();
+
+        JsonValue additionalFiles = configuration();
+        additionalFiles.put("additionalFiles", array("script/more-policies.js"));
+        assertThat(PolicyService.usesStockScript(additionalFiles, MISSING)).isFalse();
+
+        JsonValue additionalPolicies = configuration();
+        additionalPolicies.remove("additionalFiles");
+        additionalPolicies.put("additionalPolicies", array("addPolicy({})"));
+        assertThat(PolicyService.usesStockScript(additionalPolicies, MISSING)).isFalse();
+
+        File override = File.createTempFile("policy", ".js");
+        try {
+            assertThat(PolicyService.usesStockScript(configuration(), MISSING, override)).isFalse();
+        } finally {
+            override.delete();
+        }
+    }
+}
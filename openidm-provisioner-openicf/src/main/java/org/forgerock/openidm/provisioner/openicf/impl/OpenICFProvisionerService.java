@@ -132,6 +132,9 @@ public class OpenICFProvisionerService implements ProvisionerService, SingletonR
 
     private static final Logger logger = LoggerFactory.getLogger(OpenICFProvisionerService.class);
 
+    /** The number of changes read per live synchronization thread before waiting for them to be processed */
+    private static final int LIVE_SYNC_PENDING_PER_THREAD = 100;
+
     private SimpleSystemIdentifier systemIdentifier = null;
     private OperationHelperBuilder operationHelperBuilder = null;
     private Promise<ConnectorInfo, RuntimeException> connectorFacadeCallback = null;
@@ -139,6 +142,8 @@ public class OpenICFProvisionerService implements ProvisionerService, SingletonR
     private JsonValue jsonConfiguration = null;
     private ConnectorReference connectorReference = null;
     private SyncFailureHandler syncFailureHandler = null;
+    /** The number of threads processing live synchronization changes, partitioned by uid */
+    private int liveSyncThreads = 1;
     private String factoryPid = null;
 
     /** use null-object activity logger until/unless ConnectionFactory binder updates it */
@@ -243,6 +248,7 @@ public class OpenICFProvisionerService implements ProvisionerService, SingletonR
             connectorReference = ConnectorUtil.getConnectorReference(jsonConfiguration);
 
             syncFailureHandler = syncFailureHandlerFactory.create(jsonConfiguration.get("syncFailureHandler"));
+            liveSyncThreads = Math.max(1, jsonConfiguration.get("liveSyncThreads").defaultTo(1).asInteger());
 
             final OpenICFProvisionerService provisionerService = this;
             connectorInfoProvider.findConnectorInfoAsync(connectorReference).thenOnResult(
@@ -857,6 +863,18 @@ public class OpenICFProvisionerService implements ProvisionerService, SingletonR
                     OperationOptionsBuilder operationOptionsBuilder =
                             helper.getOperationOptionsBuilder(SyncApiOp.class, null, previousStage);
 
+                    final PartitionedSyncDeltaProcessor processor = liveSyncThreads > 1
+                            ? new PartitionedSyncDeltaProcessor(liveSyncThreads,
+                                    liveSyncThreads * LIVE_SYNC_PENDING_PER_THREAD,
+                                    new PartitionedSyncDeltaProcessor.DeltaTask() {
+                                        @Override
+                                        public boolean process(SyncDelta syncDelta) {
+                                            return synchronizeDelta(context, objectType, helper, stage, syncDelta,
+                                                    syncRetry, failedRecord);
+                                        }
+                                    })
+                            : null;
+
                     try {
                         logger.debug("Execute sync(ObjectClass:{}, SyncToken:{})",
                                 new Object[] { helper.getObjectClass().getObjectClassValue(), token });
@@ -877,95 +895,13 @@ public class OpenICFProvisionerService implements ProvisionerService, SingletonR
                                      * stop iteration and the exception will propagate to the application.
                                      */
                                     @Override
-                                    @SuppressWarnings("fallthrough")
                                     public boolean handle(SyncDelta syncDelta) {
-                                        try {
-                                            // Q: are we going to encode ids?
-                                            final String resourceId = syncDelta.getUid().getUidValue();
-                                            final String objectTypeName = getObjectTypeName(syncDelta.getObjectClass());
-                                            final String resourceContainer = getSource(objectTypeName == null ? objectType : objectTypeName);
-                                            final JsonValue content = new JsonValue(new LinkedHashMap<String, Object>(2));
-
-                                            //rebuild the OperationHelper if the helper is for the __ALL__ object class
-                                            final OperationHelper syncDeltaOperationHelper = helper.getObjectClass().equals(ObjectClass.ALL)
-                                                    ? operationHelperBuilder.build(objectTypeName, stage, cryptoService)
-                                                    : helper;
-
-                                            switch (syncDelta.getDeltaType()) {
-                                                case CREATE: {
-                                                    JsonValue deltaObject = syncDeltaOperationHelper.build(syncDelta.getObject());
-                                                    content.put("oldValue", null);
-                                                    content.put("newValue", deltaObject.getObject());
-                                                    // TODO import SynchronizationService.Action.notifyCreate and ACTION_PARAM_ constants
-                                                    ActionRequest onCreateRequest = Requests.newActionRequest("sync", "notifyCreate")
-                                                            .setAdditionalParameter("resourceContainer", resourceContainer)
-                                                            .setAdditionalParameter("resourceId", resourceId)
-                                                            .setContent(content);
-                                                    connectionFactory.getConnection().action(context, onCreateRequest);
-
-                                                    activityLogger.log(context, onCreateRequest,
-                                                                    "sync-create", onCreateRequest.getResourcePath(),
-                                                                    deltaObject, deltaObject, Status.SUCCESS);
-                                                    break;
-                                                }
-                                                case UPDATE:
-                                                case CREATE_OR_UPDATE: {
-                                                    JsonValue deltaObject = syncDeltaOperationHelper.build(syncDelta.getObject());
-                                                    content.put("oldValue", null);
-                                                    content.put("newValue", deltaObject.getObject());
-                                                    if (null != syncDelta.getPreviousUid()) {
-                                                        deltaObject.put("_previous-id", syncDelta.getPreviousUid().getUidValue());
-                                                    }
-                                                    // TODO import SynchronizationService.Action.notifyUpdate and ACTION_PARAM_ constants
-                                                    ActionRequest onUpdateRequest = Requests.newActionRequest("sync", "notifyUpdate")
-                                                            .setAdditionalParameter("resourceContainer", resourceContainer)
-                                                            .setAdditionalParameter("resourceId", resourceId)
-                                                            .setContent(content);
-                                                    connectionFactory.getConnection().action(context, onUpdateRequest);
-
-                                                    activityLogger.log(context, onUpdateRequest,
-                                                            "sync-update", onUpdateRequest.getResourcePath(),
-                                                            deltaObject, deltaObject, Status.SUCCESS);
-                                                    break;
-                                                }
-                                                case DELETE:
-                                                    // TODO Pass along the old deltaObject - do we have it?
-                                                    content.put("oldValue", null);
-                                                    // TODO import SynchronizationService.Action.notifyDelete and ACTION_PARAM_ constants
-                                                    ActionRequest onDeleteRequest = Requests.newActionRequest("sync", "notifyDelete")
-                                                            .setAdditionalParameter("resourceContainer", resourceContainer)
-                                                            .setAdditionalParameter("resourceId", resourceId)
-                                                            .setContent(content);
-                                                    connectionFactory.getConnection().action(context, onDeleteRequest);
-
-                                                    activityLogger.log(context, onDeleteRequest,
-                                                            "sync-delete", onDeleteRequest.getResourcePath(),
-                                                            null, null, Status.SUCCESS);
-                                                    break;
-                                            }
-                                        } catch (Exception e) {
-                                            failedRecord[0] = SerializerUtil.serializeXmlObject(syncDelta, true);
-                                            logger.debug("Failed to synchronize {} object, handle failure using {}",
-                                                    syncDelta.getUid(), syncFailureHandler, e);
-                                            Map<String, Object> syncFailureMap = new HashMap<>(6);
-                                            syncFailureMap.put("token", syncDelta.getToken().getValue());
-                                            syncFailureMap.put("systemIdentifier", systemIdentifier.getName());
-                                            syncFailureMap.put("objectType", objectType);
-                                            syncFailureMap.put("uid", syncDelta.getUid().getUidValue());
-                                            syncFailureMap.put("failedRecord", failedRecord[0]);
-                                            try {
-                                                syncFailureHandler.invoke(context, syncFailureMap, e);
-                                            } catch (SyncHandlerException syncHandlerException) {
-                                                // Current contract of the failure handler is that throwing this exception indicates
-                                                // that it should retry for this entry
-                                                syncRetry.setValue(true);
-                                                syncRetry.setThrowable(syncHandlerException);
-                                                logger.debug("Sync failure handler indicated to stop current change set processing until retry handling: {}",
-                                                        syncHandlerException.getMessage(), syncHandlerException);
-                                            }
+                                        if (processor != null) {
+                                            // Processed by the workers, which advance the token
+                                            return processor.submit(syncDelta);
                                         }
-
-                                        if (syncRetry.getValue()) {
+                                        if (!synchronizeDelta(context, objectType, helper, stage, syncDelta,
+                                                syncRetry, failedRecord)) {
                                             // Stop the processing of this result set. Next retry will start again after last token.
                                             return false;
                                         } else {
@@ -976,6 +912,17 @@ public class OpenICFProvisionerService implements ProvisionerService, SingletonR
                                         }
                                     }
                         }, operationOptionsBuilder.build());
+                        if (processor != null) {
+                            // Wait for the changes read to be processed, the token of the last change processed
+                            // after all the changes read before it is where the next run starts
+                            SyncToken processedToken = processor.finish();
+                            if (processedToken != null) {
+                                lastToken[0] = processedToken;
+                            }
+                            if (!processor.isComplete()) {
+                                syncToken = null;
+                            }
+                        }
                         if (syncRetry.getValue()) {
                             Throwable throwable = syncRetry.getThrowable();
                             Map<String, Object> lastException = new LinkedHashMap<>(2);
@@ -992,6 +939,13 @@ public class OpenICFProvisionerService implements ProvisionerService, SingletonR
                             }
                         }
                     } finally {
+                        if (processor != null && !processor.isFinished()) {
+                            // The sync failed, stop the workers and keep the token of the changes processed
+                            SyncToken processedToken = processor.finish();
+                            if (processedToken != null) {
+                                lastToken[0] = processedToken;
+                            }
+                        }
                         token = lastToken[0];
                         logger.debug("Synchronization is finished. New LatestSyncToken value: {}", token);
                     }
@@ -1013,6 +967,116 @@ public class OpenICFProvisionerService implements ProvisionerService, SingletonR
         return stage;
     }
 
+    /**
+     * Sends a change read by live synchronization to the sync service. A failure is passed to the sync failure
+     * handler, which may request the processing of the changes to stop until retried.
+     *
+     * @param context the request context of the live synchronization
+     * @param objectType the object type synchronized
+     * @param helper the operation helper of the object type
+     * @param stage the stage of the live synchronization
+     * @param syncDelta the change
+     * @param syncRetry set when the failure handler requests a retry
+     * @param failedRecord set to the change a retry is requested for
+     * @return false if the failure handler requested to stop until retried
+     */
+    @SuppressWarnings("fallthrough")
+    private boolean synchronizeDelta(final Context context, final String objectType, final OperationHelper helper,
+            final JsonValue stage, final SyncDelta syncDelta, final SyncRetry syncRetry, final String[] failedRecord) {
+        try {
+            // Q: are we going to encode ids?
+            final String resourceId = syncDelta.getUid().getUidValue();
+            final String objectTypeName = getObjectTypeName(syncDelta.getObjectClass());
+            final String resourceContainer = getSource(objectTypeName == null ? objectType : objectTypeName);
+            final JsonValue content = new JsonValue(new LinkedHashMap<String, Object>(2));
+
+            //rebuild the OperationHelper if the helper is for the __ALL__ object class
+            final OperationHelper syncDeltaOperationHelper = helper.getObjectClass().equals(ObjectClass.ALL)
+                    ? operationHelperBuilder.build(objectTypeName, stage, cryptoService)
+                    : helper;
+
+            switch (syncDelta.getDeltaType()) {
+                case CREATE: {
+                    JsonValue deltaObject = syncDeltaOperationHelper.build(syncDelta.getObject());
+                    content.put("oldValue", null);
+                    content.put("newValue", deltaObject.getObject());
+                    // TODO import SynchronizationService.Action.notifyCreate and ACTION_PARAM_ constants
+                    ActionRequest onCreateRequest = Requests.newActionRequest("sync", "notifyCreate")
+                            .setAdditionalParameter("resourceContainer", resourceContainer)
+                            .setAdditionalParameter("resourceId", resourceId)
+                            .setContent(content);
+                    connectionFactory.getConnection().action(context, onCreateRequest);
+
+                    activityLogger.log(context, onCreateRequest,
+                                    "sync-create", onCreateRequest.getResourcePath(),
+                                    deltaObject, deltaObject, Status.SUCCESS);
+                    break;
+                }
+                case UPDATE:
+                case CREATE_OR_UPDATE: {
+                    JsonValue deltaObject = syncDeltaOperationHelper.build(syncDelta.getObject());
+                    content.put("oldValue", null);
+                    content.put("newValue", deltaObject.getObject());
+                    if (null != syncDelta.getPreviousUid()) {
+                        deltaObject.put("_previous-id", syncDelta.getPreviousUid().getUidValue());
+                    }
+                    // TODO import SynchronizationService.Action.notifyUpdate and ACTION_PARAM_ constants
+                    ActionRequest onUpdateRequest = Requests.newActionRequest("sync", "notifyUpdate")
+                            .setAdditionalParameter("resourceContainer", resourceContainer)
+                            .setAdditionalParameter("resourceId", resourceId)
+                            .setContent(content);
+                    connectionFactory.getConnection().action(context, onUpdateRequest);
+
+                    activityLogger.log(context, onUpdateRequest,
+                            "sync-update", onUpdateRequest.getResourcePath(),
+                            deltaObject, deltaObject, Status.SUCCESS);
+                    break;
+                }
+                case DELETE:
+                    // TODO Pass along the old deltaObject - do we have it?
+                    content.put("oldValue", null);
+                    // TODO import SynchronizationService.Action.notifyDelete and ACTION_PARAM_ constants
+                    ActionRequest onDeleteRequest = Requests.newActionRequest("sync", "notifyDelete")
+                            .setAdditionalParameter("resourceContainer", resourceContainer)
+                            .setAdditionalParameter("resourceId", resourceId)
+                            .setContent(content);
+                    connectionFactory.getConnection().action(context, onDeleteRequest);
+
+                    activityLogger.log(context, onDeleteRequest,
+                            "sync-delete", onDeleteRequest.getResourcePath(),
+                            null, null, Status.SUCCESS);
+                    break;
+            }
+        } catch (Exception e) {
+            final String record = SerializerUtil.serializeXmlObject(syncDelta, true);
+            logger.debug("Failed to synchronize {} object, handle failure using {}",
+                    syncDelta.getUid(), syncFailureHandler, e);
+            Map<String, Object> syncFailureMap = new HashMap<>(6);
+            syncFailureMap.put("token", syncDelta.getToken().getValue());
+            syncFailureMap.put("systemIdentifier", systemIdentifier.getName());
+            syncFailureMap.put("objectType", objectType);
+            syncFailureMap.put("uid", syncDelta.getUid().getUidValue());
+            syncFailureMap.put("failedRecord", record);
+            try {
+                syncFailureHandler.invoke(context, syncFailureMap, e);
+            } catch (SyncHandlerException syncHandlerException) {
+                // Current contract of the failure handler is that throwing this exception indicates
+                // that it should retry for this entry
+                synchronized (syncRetry) {
+                    if (!syncRetry.getValue()) {
+                        failedRecord[0] = record;
+                        syncRetry.setValue(true);
+                        syncRetry.setThrowable(syncHandlerException);
+                    }
+                }
+                logger.debug("Sync failure handler indicated to stop current change set processing until retry handling: {}",
+                        syncHandlerException.getMessage(), syncHandlerException);
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Package level setter to allow unit tests to set the logger.
      * @param activityLogger the new activity logger
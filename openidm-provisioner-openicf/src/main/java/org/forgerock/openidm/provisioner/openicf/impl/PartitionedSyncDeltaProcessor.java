@@ -0,0 +1,193 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.provisioner.openicf.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.identityconnectors.framework.common.objects.SyncDelta;
+import org.identityconnectors.framework.common.objects.SyncToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes the changes of a live synchronization in parallel.
+ * <p>
+ * The changes are partitioned by {@code Uid} over single threaded workers, so the changes of an object are still
+ * processed in the order they are read. The sync token only advances past a change once it and all the changes
+ * read before it have been processed, so that a retry starts again from the first change not processed.
+ * <p>
+ * Once a change requests a retry, the changes not yet started are skipped. The number of changes read but not
+ * yet processed is bounded, reading waits for the workers to catch up.
+ */
+class PartitionedSyncDeltaProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedSyncDeltaProcessor.class);
+
+    /** Processes a single change */
+    interface DeltaTask {
+
+        /**
+         * Processes a change.
+         *
+         * @param syncDelta the change
+         * @return false if the processing of the changes should stop until retried
+         */
+        boolean process(SyncDelta syncDelta);
+    }
+
+    private final DeltaTask task;
+    private final ExecutorService[] workers;
+    private final Semaphore pending;
+
+    /** The tokens of the changes processed ahead of a change read before them, by read sequence */
+    private final Map<Long, SyncToken> processed = new HashMap<>();
+    private long nextSequence;
+    private long contiguous;
+    private SyncToken lastToken;
+    private volatile boolean stopped;
+    private volatile boolean finished;
+
+    /**
+     * Creates a processor with its workers.
+     *
+     * @param threads the number of workers
+     * @param maxPending the number of changes read but not yet processed
+     * @param task processes a change
+     */
+    PartitionedSyncDeltaProcessor(int threads, int maxPending, DeltaTask task) {
+        this.task = task;
+        this.workers = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = Executors.newSingleThreadExecutor();
+        }
+        this.pending = new Semaphore(maxPending);
+    }
+
+    /**
+     * Hands a change over to the worker of its object.
+     *
+     * @param syncDelta the change
+     * @return false if no more changes should be read, as a change requested a retry
+     */
+    boolean submit(final SyncDelta syncDelta) {
+        if (stopped) {
+            return false;
+        }
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+            return false;
+        }
+        final long sequence;
+        synchronized (this) {
+            sequence = nextSequence++;
+        }
+        final int partition = (syncDelta.getUid().getUidValue().hashCode() & Integer.MAX_VALUE) % workers.length;
+        workers[partition].execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    process(sequence, syncDelta);
+                } finally {
+                    pending.release();
+                }
+            }
+        });
+        return !stopped;
+    }
+
+    private void process(long sequence, SyncDelta syncDelta) {
+        if (stopped) {
+            // Left for the retry, the token does not advance past it
+            return;
+        }
+        boolean done;
+        try {
+            done = task.process(syncDelta);
+        } catch (RuntimeException e) {
+            logger.debug("Failed to process {}, stopping until retry", syncDelta.getUid(), e);
+            done = false;
+        }
+        synchronized (this) {
+            if (!done) {
+                stopped = true;
+                return;
+            }
+            processed.put(sequence, syncDelta.getToken());
+            while (processed.containsKey(contiguous)) {
+                lastToken = processed.remove(contiguous);
+                contiguous++;
+            }
+        }
+    }
+
+    /**
+     * Waits for the workers to process the changes handed over, and stops them.
+     *
+     * @return the token of the last change processed after all the changes read before it, or null if the first
+     *         change read was not processed
+     */
+    SyncToken finish() {
+        finished = true;
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        try {
+            for (ExecutorService worker : workers) {
+                while (!worker.awaitTermination(1, TimeUnit.MINUTES)) {
+                    logger.debug("Waiting for live synchronization changes to be processed");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+            for (ExecutorService worker : workers) {
+                worker.shutdownNow();
+            }
+        }
+        synchronized (this) {
+            return lastToken;
+        }
+    }
+
+    /**
+     * @return true once the processor has been finished
+     */
+    boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return true if a change requested a retry, or the processing was interrupted
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return true if all the changes handed over have been processed
+     */
+    synchronized boolean isComplete() {
+        return contiguous == nextSequence;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.provisioner.openicf.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.SyncDelta;
+import org.identityconnectors.framework.common.objects.SyncDeltaBuilder;
+import org.identityconnectors.framework.common.objects.SyncDeltaType;
+import org.identityconnectors.framework.common.objects.SyncToken;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.testng.annotations.Test;
+
+/**
+ * Test of the parallel processing of live synchronization changes
+ */
+public class PartitionedSyncDeltaProcessorTest {
+
+    @Test
+    public void testKeepsOrderOfObjectChangesAndAdvancesToLastToken() {
+        final Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        PartitionedSyncDeltaProcessor processor = new PartitionedSyncDeltaProcessor(4, 8,
+                new PartitionedSyncDeltaProcessor.DeltaTask() {
+                    @Override
+                    public boolean process(SyncDelta syncDelta) {
+                        String uid = syncDelta.getUid().getUidValue();
+                        seen.putIfAbsent(uid, Collections.synchronizedList(new ArrayList<Integer>()));
+                        seen.get(uid).add((Integer) syncDelta.getToken().getValue());
+                        return true;
+                    }
+                });
+
+        for (int token = 0; token < 100; token++) {
+            assertThat(processor.submit(delta("user" + token % 10, token))).isTrue();
+        }
+
+        assertThat(processor.finish().getValue()).isEqualTo(99);
+        assertThat(processor.isComplete()).isTrue();
+        assertThat(seen).hasSize(10);
+        for (List<Integer> tokens : seen.values()) {
+            assertThat(tokens).isSorted().hasSize(10);
+        }
+    }
+
+    @Test
+    public void testTokenStopsBeforeChangeToRetry() throws Exception {
+        final CountDownLatch processed = new CountDownLatch(2);
+        final CountDownLatch failed = new CountDownLatch(1);
+        PartitionedSyncDeltaProcessor processor = new PartitionedSyncDeltaProcessor(2, 10,
+                new PartitionedSyncDeltaProcessor.DeltaTask() {
+                    @Override
+                    public boolean process(SyncDelta syncDelta) {
+                        if ("retry".equals(syncDelta.getUid().getUidValue())) {
+                            failed.countDown();
+                            return false;
+                        }
+                        processed.countDown();
+                        return true;
+                    }
+                });
+
+        processor.submit(delta("a", 1));
+        processor.submit(delta("b", 2));
+        assertThat(processed.await(10, TimeUnit.SECONDS)).isTrue();
+        processor.submit(delta("retry", 3));
+        assertThat(failed.await(10, TimeUnit.SECONDS)).isTrue();
+        // Whether processed or skipped, the token does not advance past the change to retry
+        processor.submit(delta("c", 4));
+
+        SyncToken token = processor.finish();
+        assertThat(processor.isStopped()).isTrue();
+        assertThat(processor.isComplete()).isFalse();
+        assertThat(token.getValue()).isEqualTo(2);
+    }
+
+    private static SyncDelta delta(String uid, int token) {
+        return new SyncDeltaBuilder()
+                .setDeltaType(SyncDeltaType.DELETE)
+                .setObjectClass(ObjectClass.ACCOUNT)
+                .setUid(new Uid(uid))
+                .setToken(new SyncToken(token))
+                .build();
+    }
+}
@@ -20,15 +20,15 @@ import static org.forgerock.json.JsonValue.*;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.JsonValueException;
 import org.forgerock.json.resource.ConnectionFactory;
@@ -36,8 +36,10 @@ import org.forgerock.json.resource.CreateRequest;
 import org.forgerock.json.resource.DeleteRequest;
 import org.forgerock.json.resource.NotFoundException;
 import org.forgerock.json.resource.PreconditionFailedException;
+import org.forgerock.json.resource.QueryRequest;
 import org.forgerock.json.resource.Requests;
 import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.json.resource.UpdateRequest;
 import org.forgerock.openidm.cluster.ClusterEvent;
 import org.forgerock.openidm.cluster.ClusterEventListener;
@@ -45,6 +47,7 @@ import org.forgerock.openidm.cluster.ClusterManagementService;
 import org.forgerock.openidm.core.IdentityServer;
 import org.forgerock.openidm.repo.RepositoryService;
 import org.forgerock.services.context.Context;
+import org.forgerock.util.query.QueryFilter;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.ServiceReference;
@@ -155,6 +158,11 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
     private volatile boolean shutdown = false;
 
     private volatile RepositoryService repositoryService;
+
+    /**
+     * The waiting triggers ordered by next fire time, kept in line with the waiting triggers list in the repo
+     */
+    private final WaitingTriggerQueue waitingTriggerQueue = new WaitingTriggerQueue(new TriggerComparator());
     
     /**
      * Creates a new <code>RepoJobStore</code>.
@@ -311,6 +319,7 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
     public void shutdown() {
         synchronized(lock) {
             cleanUpInstance();
+            waitingTriggerQueue.clear();
             shutdown = true;
             logger.debug("Job Scheduler Stopped");
         }
@@ -491,20 +500,20 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
         synchronized (lock) {
             logger.debug("Attempting to acquire the next trigger");
             Trigger trigger = null;
-            WaitingTriggers waitingTriggers = null;
             while (trigger == null && !shutdown) {
-                try {
-                    waitingTriggers = getWaitingTriggers();
-                    trigger = waitingTriggers.getTriggers().first();
-                } catch (NoSuchElementException e1) {
+                Trigger next = getWaitingTriggerQueue().first();
+                if (next == null) {
                     logger.debug("No waiting triggers to acquire");
                     return null;
                 }
 
-                if (trigger == null) {
-                    logger.debug("No waiting triggers to acquire");
-                    return null;
+                TriggerWrapper tw = getTriggerWrapper(next.getGroup(), next.getName());
+                if (tw == null) {
+                    logger.debug("Waiting trigger {} no longer exists, removing", next.getFullName());
+                    removeWaitingTrigger(next);
+                    continue;
                 }
+                trigger = tw.getTrigger();
 
                 Date nextFireTime = trigger.getNextFireTime();
                 if (nextFireTime == null) {
@@ -514,6 +523,15 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
                     continue;
                 }
 
+                if (!nextFireTime.equals(next.getNextFireTime())) {
+                    // updated in the repo since it was queued, queue it by its current fire time
+                    logger.debug("Trigger {} changed since it was queued, requeueing", trigger.getFullName());
+                    waitingTriggerQueue.put(getTriggerId(trigger.getGroup(), trigger.getName()), trigger,
+                            tw.getRevision());
+                    trigger = null;
+                    continue;
+                }
+
                 if (noLaterThan > 0) {
                     if (nextFireTime.getTime() > noLaterThan) {
                         logger.debug("Trigger fire time {} is later than {}, not acquiring",
@@ -527,11 +545,10 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
                     continue;
                 }
 
-                TriggerWrapper tw = getTriggerWrapper(trigger.getGroup(), trigger.getName());
-
                 if (hasTriggerMisfired(trigger)) {
                     logger.debug("Attempting to process misfired trigger");
                     processTriggerMisfired(tw);
+                    trigger = tw.getTrigger();
                     if (trigger.getNextFireTime() != null) {
                         addWaitingTrigger(trigger);
                     }
@@ -1595,8 +1612,9 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
                 while (writeRetries == -1 || retries <= writeRetries && !shutdown) {
                     try {
                         // update repo
-                        addRepoListName(getTriggerId(trigger.getGroup(), trigger.getName()),
-                                WAITING_TRIGGERS_RESOURCE_PATH, "names");
+                        String id = getTriggerId(trigger.getGroup(), trigger.getName());
+                        addRepoListName(id, WAITING_TRIGGERS_RESOURCE_PATH, "names");
+                        waitingTriggerQueue.put(id, trigger, null);
                         break;
                     } catch (PreconditionFailedException e) {
                         logger.debug("Adding waiting trigger failed {}, retrying", e);
@@ -1623,8 +1641,9 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
                 int retries = 0;
                 while (writeRetries == -1 || retries <= writeRetries && !shutdown) {
                     try {
-                        result = removeRepoListName(getTriggerId(trigger.getGroup(), trigger.getName()),
-                                WAITING_TRIGGERS_RESOURCE_PATH, "names");
+                        String id = getTriggerId(trigger.getGroup(), trigger.getName());
+                        result = removeRepoListName(id, WAITING_TRIGGERS_RESOURCE_PATH, "names");
+                        waitingTriggerQueue.remove(id);
                         break;
                     } catch (PreconditionFailedException e) {
                         logger.debug("Removing waiting trigger failed {}, retrying", e);
@@ -1752,59 +1771,71 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
     }
 
     /**
-     * Returns the a WaitingTriggers object which wraps the Tree of all triggers in the "waiting" state
+     * Returns the queue of all triggers in the "waiting" state. The queue is only brought in line with the waiting
+     * triggers list in the repo if the list was changed by another node, and then only the triggers changed in the
+     * repo are read again.
      *
-     * @return  the WaitingTriggers object
+     * @return  the WaitingTriggerQueue object
      * @throws JobPersistenceException
      */
-    private WaitingTriggers getWaitingTriggers() throws JobPersistenceException {
-        TreeSet<Trigger> waitingTriggers = new TreeSet<>(new TriggerComparator());
-        List<String> waitingTriggersRepoList = null;
-        final String repoId = WAITING_TRIGGERS_RESOURCE_PATH;
-        String revision = null;
-        JsonValue map;
+    private WaitingTriggerQueue getWaitingTriggerQueue() throws JobPersistenceException {
         try {
-            try {
-                map = getRepositoryService().read(Requests.newReadRequest(repoId)).getContent();
-            } catch (NotFoundException e) {
-                logger.debug("repo list {} not found, lets create it", "names");
-                map = null;
-            }
-            if (map == null || map.isNull()) {
-                map = json(object());
-                waitingTriggersRepoList = new ArrayList<>();
-                map.put("names", waitingTriggersRepoList);
-                // create in repo
-                map = getRepositoryService().create(getCreateRequest(repoId, map)).getContent();
-                revision = map.get("_rev").asString();
-            } else {
-                // else check if list exists in map
-                waitingTriggersRepoList = map.get("names").asList(String.class);
-                revision = map.get("_rev").asString();
-                if (waitingTriggersRepoList == null) {
-                    waitingTriggersRepoList = new ArrayList<>();
-                    map.put("names", waitingTriggersRepoList);
-                    JsonValue updatedValue = getRepositoryService().update(Requests.newUpdateRequest(repoId, map)
-                                    .setRevision(revision)).getContent();
-                    revision = updatedValue.get("_rev").asString();
+            JsonValue map = getOrCreateRepo(WAITING_TRIGGERS_RESOURCE_PATH);
+            String revision = map.get("_rev").asString();
+            if (waitingTriggerQueue.isCurrent(revision)) {
+                return waitingTriggerQueue;
+            }
+            List<String> waitingTriggersRepoList = map.get("names").asList(String.class);
+            Set<String> waitingIds = waitingTriggersRepoList != null
+                    ? new HashSet<>(waitingTriggersRepoList)
+                    : new HashSet<String>();
+            logger.debug("Waiting triggers list changed in repo, synchronizing {} waiting triggers",
+                    waitingIds.size());
+
+            for (String id : waitingTriggerQueue.getIds()) {
+                if (!waitingIds.contains(id)) {
+                    waitingTriggerQueue.remove(id);
                 }
             }
-            for (String id : waitingTriggersRepoList) {
+            Map<String, String> triggerRevisions = getTriggerRevisions();
+            for (String id : waitingIds) {
+                if (waitingTriggerQueue.isCurrent(id, triggerRevisions.get(id))) {
+                    continue;
+                }
                 TriggerWrapper tw = getTriggerWrapper(getGroupFromId(id), getNameFromId(id));
                 if (tw == null) {
                     logger.warn("Could not add {} to list of waiting Triggers. Trigger not found in repo", id);
+                    waitingTriggerQueue.remove(id);
                 } else {
-                    logger.debug("Found waiting trigger {} in group {}", tw.getName(),tw.getGroup());
-                    waitingTriggers.add(tw.getTrigger());
+                    logger.debug("Found waiting trigger {} in group {}", tw.getName(), tw.getGroup());
+                    waitingTriggerQueue.put(id, tw.getTrigger(), tw.getRevision());
                 }
             }
-            return new WaitingTriggers(waitingTriggers, revision);
+            waitingTriggerQueue.setRevision(revision);
+            return waitingTriggerQueue;
         } catch (ResourceException e) {
             logger.warn("Error initializing waiting triggers", e);
             throw new JobPersistenceException("Error initializing waiting triggers", e);
         }
     }
 
+    /**
+     * Returns the revisions of all triggers in the repo, without deserializing them.
+     *
+     * @return the trigger revisions by trigger id
+     * @throws ResourceException
+     */
+    private Map<String, String> getTriggerRevisions() throws ResourceException {
+        Map<String, String> revisions = new HashMap<>();
+        QueryRequest request = Requests.newQueryRequest(SCHEDULER_RESOURCE_PATH + "triggers")
+                .setQueryFilter(QueryFilter.<JsonPointer>alwaysTrue())
+                .addField("_id", "_rev");
+        for (ResourceResponse trigger : getRepositoryService().query(request)) {
+            revisions.put(trigger.getId(), trigger.getRevision());
+        }
+        return revisions;
+    }
+
     /**
      * Adds a Trigger group name to the list of Trigger group names
      *
@@ -1852,8 +1883,11 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
                 names.add(name);
             }
             // update repo
-            getRepositoryService().update(Requests.newUpdateRequest(id, map)
+            ResourceResponse updated = getRepositoryService().update(Requests.newUpdateRequest(id, map)
                             .setRevision(rev));
+            if (WAITING_TRIGGERS_RESOURCE_PATH.equals(id)) {
+                waitingTriggerQueue.advanceRevision(rev, updated.getRevision());
+            }
         }
 
     }
@@ -1882,7 +1916,11 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
             boolean result = names.remove(name);
             if (result) {
                 // update repo
-                getRepositoryService().update(Requests.newUpdateRequest(id, map).setRevision(rev));
+                ResourceResponse updated =
+                        getRepositoryService().update(Requests.newUpdateRequest(id, map).setRevision(rev));
+                if (WAITING_TRIGGERS_RESOURCE_PATH.equals(id)) {
+                    waitingTriggerQueue.advanceRevision(rev, updated.getRevision());
+                }
             }
             return result;
         }
@@ -1975,7 +2013,11 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
                 String repoId = getTriggersRepoId(group, name);
                 UpdateRequest r = Requests.newUpdateRequest(repoId, tw.getValue());
                 r.setRevision(rev);
-                getRepositoryService().update(r);
+                ResourceResponse updated = getRepositoryService().update(r);
+                String id = getTriggerId(group, name);
+                if (waitingTriggerQueue.contains(id)) {
+                    waitingTriggerQueue.put(id, tw.getTrigger(), updated.getRevision());
+                }
             } catch (ResourceException e) {
                 logger.warn("Error updating trigger in repo", e);
                 throw new JobPersistenceException("Error updating trigger in repo", e);
@@ -2082,10 +2124,13 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
                 }
 
                 // Ignore triggers which are already present in the waiting list.
-                WaitingTriggers wt = getWaitingTriggers();
-                TreeSet<Trigger> waitingTriggers = wt.getTriggers();
-                for (Trigger t : waitingTriggers) {
-                    storedTriggers.remove(t);
+                Set<String> waitingTriggerIds = getWaitingTriggerQueue().getIds();
+                Iterator<Trigger> stored = storedTriggers.iterator();
+                while (stored.hasNext()) {
+                    Trigger t = stored.next();
+                    if (waitingTriggerIds.contains(getTriggerId(t.getGroup(), t.getName()))) {
+                        stored.remove();
+                    }
                 }
                 
                 // Process and release any triggers which are acquired
@@ -2135,43 +2180,6 @@ public class RepoJobStore implements JobStore, ClusterEventListener {
         }
     }
 
-    /**
-     * A wrapper for the tree of waiting triggers
-     */
-    protected class WaitingTriggers {
-
-        private TreeSet<Trigger> triggers;
-        private String revision;
-
-        public WaitingTriggers(TreeSet<Trigger> triggers, String rev) {
-            this.triggers = triggers;
-            revision = rev;
-        }
-
-        public TreeSet<Trigger> getTriggers() {
-            return triggers;
-        }
-
-        public String getRevision() {
-            return revision;
-        }
-
-        public void setRevision(String rev) {
-            revision = rev;
-        }
-
-        public List<String> getTriggerNamesList() {
-            List<String> names = new ArrayList<String>();
-            Iterator<Trigger> iterator = triggers.iterator();
-            while (iterator.hasNext()) {
-                Trigger t = iterator.next();
-                names.add(getTriggerId(t.getGroup(), t.getName()));
-            }
-            return names;
-        }
-
-    }
-
     /**
      * A wrapper for the list of acquired triggers
      */
@@ -0,0 +1,169 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.quartz.impl;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.quartz.Trigger;
+
+/**
+ * An in-memory copy of the waiting triggers list in the repo, ordered by next fire time.
+ * <p>
+ * The queue records the revision of the repo list it reflects. As long as the list is only changed through this
+ * queue's job store, the revision advances with each write and the queue never has to be rebuilt; a change by
+ * another cluster node leaves the revisions apart, and the queue is then brought in line with the repo list. Each
+ * trigger also records the revision of its repo object, so that only triggers changed in the repo have to be read
+ * and deserialized again.
+ * <p>
+ * The queue holds copies of the triggers, as the ordering must not change while they are queued. It is not
+ * thread safe, all access is guarded by the job store lock.
+ */
+class WaitingTriggerQueue {
+
+    /** A queued trigger and the revision of its repo object, if known */
+    private static final class Entry {
+        private final Trigger trigger;
+        private final String revision;
+
+        private Entry(Trigger trigger, String revision) {
+            this.trigger = trigger;
+            this.revision = revision;
+        }
+    }
+
+    private final TreeSet<Trigger> triggers;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private String revision;
+
+    /**
+     * Creates an empty queue, not reflecting any revision of the repo list.
+     *
+     * @param comparator the order of the triggers
+     */
+    WaitingTriggerQueue(Comparator<Trigger> comparator) {
+        this.triggers = new TreeSet<>(comparator);
+    }
+
+    /**
+     * @param repoRevision the current revision of the waiting triggers list in the repo
+     * @return true if the queue reflects that revision of the list
+     */
+    boolean isCurrent(String repoRevision) {
+        return revision != null && revision.equals(repoRevision);
+    }
+
+    /**
+     * Sets the revision of the repo list the queue reflects.
+     *
+     * @param revision the revision, or null if unknown
+     */
+    void setRevision(String revision) {
+        this.revision = revision;
+    }
+
+    /**
+     * Records a write of the repo list by the job store. If the list had been changed by another node before the
+     * write, the queue no longer reflects any revision and is brought in line on next use.
+     *
+     * @param previousRevision the revision of the list that was updated
+     * @param newRevision the revision of the list after the update
+     */
+    void advanceRevision(String previousRevision, String newRevision) {
+        revision = isCurrent(previousRevision) ? newRevision : null;
+    }
+
+    /**
+     * Adds or replaces a trigger.
+     *
+     * @param id the trigger id
+     * @param trigger the trigger, which is copied
+     * @param triggerRevision the revision of the trigger repo object, or null if not known
+     */
+    void put(String id, Trigger trigger, String triggerRevision) {
+        remove(id);
+        Trigger copy = (Trigger) trigger.clone();
+        entries.put(id, new Entry(copy, triggerRevision));
+        triggers.add(copy);
+    }
+
+    /**
+     * Removes a trigger.
+     *
+     * @param id the trigger id
+     * @return true if the trigger was queued
+     */
+    boolean remove(String id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        triggers.remove(entry.trigger);
+        return true;
+    }
+
+    /**
+     * @param id the trigger id
+     * @return true if the trigger is queued
+     */
+    boolean contains(String id) {
+        return entries.containsKey(id);
+    }
+
+    /**
+     * @param id the trigger id
+     * @param triggerRevision the current revision of the trigger repo object
+     * @return true if the trigger is queued as of that revision
+     */
+    boolean isCurrent(String id, String triggerRevision) {
+        Entry entry = entries.get(id);
+        return entry != null && entry.revision != null && entry.revision.equals(triggerRevision);
+    }
+
+    /**
+     * @return the ids of the queued triggers
+     */
+    Set<String> getIds() {
+        return new HashSet<>(entries.keySet());
+    }
+
+    /**
+     * @return the trigger to fire next, or null if the queue is empty
+     */
+    Trigger first() {
+        return triggers.isEmpty() ? null : triggers.first();
+    }
+
+    /**
+     * @return the number of queued triggers
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all triggers, the queue no longer reflects any revision of the repo list.
+     */
+    void clear() {
+        entries.clear();
+        triggers.clear();
+        revision = null;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.quartz.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+
+import org.quartz.SimpleTrigger;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link WaitingTriggerQueue}
+ */
+public class TestWaitingTriggerQueue {
+
+    private WaitingTriggerQueue queue;
+
+    @BeforeMethod
+    public void setUp() {
+        queue = new WaitingTriggerQueue(new RepoJobStore().new TriggerComparator());
+    }
+
+    @Test
+    public void testOrdersByNextFireTime() {
+        queue.put("group_$x$x$_late", trigger("late", 2000L), "1");
+        queue.put("group_$x$x$_early", trigger("early", 1000L), "1");
+
+        assertThat(queue.first().getName()).isEqualTo("early");
+        assertThat(queue.remove("group_$x$x$_early")).isTrue();
+        assertThat(queue.first().getName()).isEqualTo("late");
+        assertThat(queue.remove("group_$x$x$_early")).isFalse();
+    }
+
+    @Test
+    public void testReplacesTriggerAndKeepsCopy() {
+        SimpleTrigger trigger = trigger("trigger", 2000L);
+        queue.put("group_$x$x$_trigger", trigger, "1");
+        queue.put("group_$x$x$_other", trigger("other", 1500L), "1");
+        queue.put("group_$x$x$_trigger", trigger("trigger", 1000L), "2");
+
+        // changing the original does not corrupt the ordering
+        trigger.setNextFireTime(new Date(500L));
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.first().getNextFireTime()).isEqualTo(new Date(1000L));
+        assertThat(queue.isCurrent("group_$x$x$_trigger", "2")).isTrue();
+        assertThat(queue.isCurrent("group_$x$x$_trigger", "1")).isFalse();
+    }
+
+    @Test
+    public void testRevisionOnlyAdvancesFromCurrentRevision() {
+        assertThat(queue.isCurrent("1")).isFalse();
+        queue.setRevision("1");
+        queue.advanceRevision("1", "2");
+        assertThat(queue.isCurrent("2")).isTrue();
+
+        // the list was changed by another node in between
+        queue.advanceRevision("3", "4");
+        assertThat(queue.isCurrent("4")).isFalse();
+    }
+
+    private static SimpleTrigger trigger(String name, long nextFireTime) {
+        SimpleTrigger trigger = new SimpleTrigger(name, "group", new Date(nextFireTime));
+        trigger.setNextFireTime(new Date(nextFireTime));
+        return trigger;
+    }
+}
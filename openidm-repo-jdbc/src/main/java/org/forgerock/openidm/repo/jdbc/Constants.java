@@ -42,6 +42,13 @@ public class Constants {
      * The ObjectTypes ID of the Object within the DB Table
      */ 
     public static final String RAW_OBJECTTYPES_ID = "objecttypes_id";
+
+    /**
+     * Raw Full Object
+     *
+     * The DB Table column holding the serialized Object
+     */
+    public static final String RAW_OBJECT_FULLOBJECT = "fullobject";
     
     /**
      * The Object Id
@@ -0,0 +1,32 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.repo.jdbc;
+
+import java.util.Map;
+
+/**
+ * Receives the result records of a query one at a time, as they are read from the result set.
+ */
+public interface QueryResultHandler {
+
+    /**
+     * Handles a result record of the query.
+     *
+     * @param result the result record, in JSON object structure format
+     * @return true to continue with the next record, false to stop reading the result set
+     */
+    boolean handleResult(Map<String, Object> result);
+}
@@ -85,6 +85,23 @@ public interface TableHandler {
             Map<String, Object> obj, Connection connection)
             throws SQLException, IOException, ResourceException;
 
+    /**
+     * Creates several new objects of the same type in the object set, within the transaction of the given
+     * connection. Handlers batch the statements across objects where the table layout allows it.
+     * <p>
+     * This method sets the {@code _id} and {@code _rev} properties of each object, as {@link #create} does.
+     *
+     * @param type the type of the objects to create
+     * @param objects the contents of the objects to create, keyed by their local identifier
+     * @param connection
+     * @throws PreconditionFailedException if an object with the same ID already exists.
+     * @throws InternalServerErrorException if the operation failed because of a (possibly transient) failure
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    public abstract void createAll(String type, Map<String, Map<String, Object>> objects, Connection connection)
+            throws SQLException, IOException, ResourceException;
+
     /**
      * Updates the specified object in the object set. 
      * <p>
@@ -157,6 +174,26 @@ public interface TableHandler {
     public List<Map<String, Object>> query(String type, Map<String, Object> params, Connection connection)
                 throws SQLException, ResourceException;
 
+    /**
+     * Performs the query on the specified object, passing each result record to the handler as soon as it is
+     * read rather than collecting the whole result set in memory.
+     * <p>
+     * The result set is read forward-only, {@code fetchSize} rows at a time where the driver supports it.
+     * Reading stops early when the handler returns false.
+     *
+     * @param type identifies the object to query.
+     * @param params the parameters of the query to perform.
+     * @param connection
+     * @param fetchSize the number of rows to fetch from the database at a time, or 0 for the driver default
+     * @param handler the handler receiving the result records in JSON object structure format
+     * @throws BadRequestException if the specified params contain invalid arguments, e.g. a query id that is not
+     * configured, a query expression that is invalid, or missing query substitution tokens.
+     * @throws InternalServerErrorException if the operation failed because of a (possibly transient) failure
+     * @throws java.sql.SQLException
+     */
+    public void query(String type, Map<String, Object> params, Connection connection, int fetchSize,
+            QueryResultHandler handler) throws SQLException, ResourceException;
+
     /**
      * Performs the command on the specified target and returns the number of affected objects
      * <p>
@@ -195,6 +232,14 @@ public interface TableHandler {
      * @return the raw query String
      */
     public String renderQueryFilter(QueryFilter<JsonPointer> filter, Map<String, Object> replacementTokens, Map<String, Object> params);
+
+    /**
+     * Check if query filter queries rendered by this handler can be paged by seeking past the sort key values of
+     * the last result, rather than by an offset.
+     *
+     * @return true if keyset paging of query filter queries is supported
+     */
+    public boolean isKeysetPagingSupported();
     
     /**
      * Query if a given exception signifies a well known error type
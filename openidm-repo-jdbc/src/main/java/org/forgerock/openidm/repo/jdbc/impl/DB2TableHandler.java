@@ -108,11 +108,6 @@ public class DB2TableHandler extends GenericTableHandler {
         // "SELECT obj.* FROM mainTable obj..."
         builder.from("${_dbSchema}.${_mainTable} obj")
 
-                // join objecttypes to fix OPENIDM-2773
-                .join("${_dbSchema}.objecttypes", "objecttypes")
-                .on(where("obj.objecttypes_id = objecttypes.id")
-                        .and("objecttypes.objecttype = ${otype}"))
-
                 .where(filter.accept(
                         new GenericSQLQueryFilterVisitor(DEFAULT_SEARCHABLE_LENGTH, builder) {
                             // override numeric value clause generation to cast propvalue to a number
@@ -125,13 +120,16 @@ public class DB2TableHandler extends GenericTableHandler {
                         },
                         replacementTokens));
 
-        // other half of OPENIDM-2773 fix
-        replacementTokens.put("otype", params.get("_resource"));
+        // restrict to the object type to fix OPENIDM-2773
+        prepareTypeStatements(builder, (String) params.get("_resource"), replacementTokens);
 
         // JsonValue-cheat to avoid an unchecked cast
         final List<SortKey> sortKeys = new JsonValue(params).get(SORT_KEYS).asList(SortKey.class);
+        final KeysetCookie keyset = KeysetCookie.fromParams(params);
         // Check for sort keys and build up order-by syntax
-        if (sortKeys != null && sortKeys.size() > 0) {
+        if (keyset != null) {
+            prepareKeysetStatements(builder, sortKeys, replacementTokens, keyset);
+        } else if (sortKeys != null && sortKeys.size() > 0) {
             prepareSortKeyStatements(builder, sortKeys, replacementTokens);
         } else {
             builder.orderBy("obj.id", false);
@@ -23,16 +23,21 @@ import static org.forgerock.openidm.repo.QueryConstants.SORT_KEYS;
 import static org.forgerock.openidm.repo.util.Clauses.where;
 
 import java.io.IOException;
+import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.forgerock.json.JsonPointer;
@@ -45,9 +50,11 @@ import org.forgerock.json.resource.ResourceException;
 import org.forgerock.json.resource.SortKey;
 import org.forgerock.openidm.repo.jdbc.Constants;
 import org.forgerock.openidm.repo.jdbc.ErrorType;
+import org.forgerock.openidm.repo.jdbc.QueryResultHandler;
 import org.forgerock.openidm.repo.jdbc.SQLExceptionHandler;
 import org.forgerock.openidm.repo.jdbc.TableHandler;
 import org.forgerock.openidm.repo.jdbc.impl.query.TableQueries;
+import org.forgerock.openidm.repo.util.Clause;
 import org.forgerock.util.query.QueryFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -87,11 +94,15 @@ public class GenericTableHandler implements TableHandler {
 
     Map<QueryDefinition, String> queryMap;
 
+    // Object type ids by type, the objecttypes rows are never updated or deleted once created
+    final ConcurrentMap<String, Long> typeIds = new ConcurrentHashMap<>();
+
     final boolean enableBatching; // Whether to use JDBC statement batching.
     int maxBatchSize;       // The maximum number of statements to batch together. If max batch size is 1, do not use batching.
 
     public enum QueryDefinition {
         READTYPEQUERYSTR,
+        READTYPESQUERYSTR,
         CREATETYPEQUERYSTR,
         READFORUPDATEQUERYSTR,
         READQUERYSTR,
@@ -100,6 +111,8 @@ public class GenericTableHandler implements TableHandler {
         DELETEQUERYSTR,
         PROPCREATEQUERYSTR,
         PROPDELETEQUERYSTR,
+        PROPUPDATEQUERYSTR,
+        PROPDELETEKEYQUERYSTR,
         QUERYALLIDS
     }
 
@@ -108,6 +121,11 @@ public class GenericTableHandler implements TableHandler {
         return queries.queryIdExists(queryId);
     }
 
+    @Override
+    public boolean isKeysetPagingSupported() {
+        return true;
+    }
+
     /**
      * Create a generic table handler using a QueryFilterVisitor that uses generic object property tables to process
      * query filters.
@@ -178,10 +196,11 @@ public class GenericTableHandler implements TableHandler {
         // objecttypes table
         result.put(QueryDefinition.CREATETYPEQUERYSTR, "INSERT INTO " + typeTable + " (objecttype) VALUES (?)");
         result.put(QueryDefinition.READTYPEQUERYSTR, "SELECT id FROM " + typeTable + " objtype WHERE objtype.objecttype = ?");
+        result.put(QueryDefinition.READTYPESQUERYSTR, "SELECT id, objecttype FROM " + typeTable);
 
         // Main object table
         result.put(QueryDefinition.READFORUPDATEQUERYSTR, "SELECT obj.* FROM " + mainTable + " obj INNER JOIN " + typeTable + " objtype ON obj.objecttypes_id = objtype.id AND objtype.objecttype = ? WHERE obj.objectid  = ? FOR UPDATE");
-        result.put(QueryDefinition.READQUERYSTR, "SELECT obj.rev, obj.fullobject FROM " + typeTable + " objtype, " + mainTable + " obj WHERE obj.objecttypes_id = objtype.id AND objtype.objecttype = ? AND obj.objectid  = ?");
+        result.put(QueryDefinition.READQUERYSTR, "SELECT obj.rev, obj.fullobject FROM " + mainTable + " obj WHERE obj.objecttypes_id = ? AND obj.objectid  = ?");
         result.put(QueryDefinition.CREATEQUERYSTR, "INSERT INTO " + mainTable + " (objecttypes_id, objectid, rev, fullobject) VALUES (?,?,?,?)");
         result.put(QueryDefinition.UPDATEQUERYSTR, "UPDATE " + mainTable + " obj SET obj.objectid = ?, obj.rev = ?, obj.fullobject = ? WHERE obj.id = ?");
         result.put(QueryDefinition.DELETEQUERYSTR, "DELETE obj FROM " + mainTable + " obj INNER JOIN " + typeTable + " objtype ON obj.objecttypes_id = objtype.id AND objtype.objecttype = ? WHERE obj.objectid = ? AND obj.rev = ?");
@@ -193,6 +212,8 @@ public class GenericTableHandler implements TableHandler {
         // Object properties table
         result.put(QueryDefinition.PROPCREATEQUERYSTR, "INSERT INTO " + propertyTable + " ( " + mainTableName + "_id, propkey, proptype, propvalue) VALUES (?,?,?,?)");
         result.put(QueryDefinition.PROPDELETEQUERYSTR, "DELETE prop FROM " + propertyTable + " prop INNER JOIN " + mainTable + " obj ON prop." + mainTableName + "_id = obj.id INNER JOIN " + typeTable + " objtype ON obj.objecttypes_id = objtype.id WHERE objtype.objecttype = ? AND obj.objectid = ?");
+        result.put(QueryDefinition.PROPUPDATEQUERYSTR, "UPDATE " + propertyTable + " SET proptype = ?, propvalue = ? WHERE " + mainTableName + "_id = ? AND propkey = ?");
+        result.put(QueryDefinition.PROPDELETEKEYQUERYSTR, "DELETE FROM " + propertyTable + " WHERE " + mainTableName + "_id = ? AND propkey = ?");
         // Default object queries
         String tableVariable =  dbSchemaName == null ? "${_mainTable}" : "${_dbSchema}.${_mainTable}";
         result.put(QueryDefinition.QUERYALLIDS, "SELECT obj.objectid FROM " + tableVariable + " obj INNER JOIN " + typeTable + " objtype ON obj.objecttypes_id = objtype.id WHERE objtype.objecttype = ${_resource}");
@@ -207,12 +228,18 @@ public class GenericTableHandler implements TableHandler {
     public ResourceResponse read(String fullId, String type, String localId, Connection connection)
             throws ResourceException, SQLException, IOException {
 
+        long typeId = readTypeId(type, connection);
+        if (typeId < 0) {
+            throw ResourceException.newResourceException(ResourceException.NOT_FOUND,
+                    "Object " + fullId + " not found in " + type);
+        }
+
         PreparedStatement readStatement = null;
         ResultSet rs = null;
         try {
             readStatement = getPreparedStatement(connection, QueryDefinition.READQUERYSTR);
             logger.trace("Populating prepared statement {} for {}", readStatement, fullId);
-            readStatement.setString(1, type);
+            readStatement.setLong(1, typeId);
             readStatement.setString(2, localId);
 
             logger.debug("Executing: {}", readStatement);
@@ -242,35 +269,98 @@ public class GenericTableHandler implements TableHandler {
 
         PreparedStatement createStatement = null;
         try {
-            createStatement = queries.getPreparedStatement(connection, queryMap.get(QueryDefinition.CREATEQUERYSTR), true);
+            createStatement = getCreateStatement(connection);
+            long dbId = insertObject(fullId, typeId, localId, obj, createStatement);
+            JsonValue jv = new JsonValue(obj);
+            writeValueProperties(fullId, dbId, localId, jv, connection);
+        } finally {
+            CleanupHelper.loggedClose(createStatement);
+        }
+    }
 
-            logger.debug("Create with fullid {}", fullId);
-            String rev = "0";
-            obj.put(Constants.OBJECT_ID, localId); // Save the id in the object
-            obj.put("_rev", rev); // Save the rev in the object, and return the changed rev from the create.
-            String objString = mapper.writeValueAsString(obj);
+    /**
+     * Creates the objects in the main table one by one, as their generated keys are needed, but writes the
+     * properties of all of them through a single batched statement.
+     *
+     * @see org.forgerock.openidm.repo.jdbc.TableHandler#createAll(java.lang.String, java.util.Map, java.sql.Connection)
+     */
+    @Override
+    public void createAll(String type, Map<String, Map<String, Object>> objects, Connection connection)
+            throws SQLException, IOException, InternalServerErrorException {
 
-            logger.trace("Populating statement {} with params {}, {}, {}, {}",
-                    queryMap.get(QueryDefinition.CREATEQUERYSTR), typeId, localId, rev, objString);
-            createStatement.setLong(1, typeId);
-            createStatement.setString(2, localId);
-            createStatement.setString(3, rev);
-            createStatement.setString(4, objString);
-            logger.debug("Executing: {}", createStatement);
-            int val = createStatement.executeUpdate();
+        long typeId = getTypeId(type, connection); // Note this call can commit and start a new transaction in some cases
 
-            ResultSet keys = createStatement.getGeneratedKeys();
+        PreparedStatement createStatement = null;
+        PreparedStatement propCreateStatement = null;
+        try {
+            createStatement = getCreateStatement(connection);
+            if (cfg.hasPossibleSearchableProperties()) {
+                propCreateStatement = getPreparedStatement(connection, QueryDefinition.PROPCREATEQUERYSTR);
+            }
+            int batchingCount = 0;
+            for (Map.Entry<String, Map<String, Object>> entry : objects.entrySet()) {
+                String localId = entry.getKey();
+                String fullId = type + "/" + localId;
+                long dbId = insertObject(fullId, typeId, localId, entry.getValue(), createStatement);
+                if (propCreateStatement != null) {
+                    batchingCount = writeValueProperties(fullId, dbId, localId, new JsonValue(entry.getValue()),
+                            connection, propCreateStatement, batchingCount);
+                }
+            }
+            if (enableBatching && batchingCount > 0) {
+                int[] numUpdates = propCreateStatement.executeBatch();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Writing batch of objectproperties for {} objects, updated: {}",
+                            objects.size(), Arrays.asList(numUpdates));
+                }
+                propCreateStatement.clearBatch();
+            }
+        } finally {
+            CleanupHelper.loggedClose(createStatement);
+            CleanupHelper.loggedClose(propCreateStatement);
+        }
+    }
+
+    /**
+     * Inserts an object into the main table.
+     *
+     * @param fullId the full URI of the resource
+     * @param typeId the id of the object type
+     * @param localId the local identifier of the resource
+     * @param obj the contents of the object; its {@code _id} and {@code _rev} get set
+     * @param createStatement the prepared insert statement, returning generated keys
+     * @return the generated identifier of the main table record
+     * @throws SQLException if the insert failed
+     * @throws IOException if the object could not be serialized
+     * @throws InternalServerErrorException if no identifier was generated
+     */
+    long insertObject(String fullId, long typeId, String localId, Map<String, Object> obj,
+            PreparedStatement createStatement) throws SQLException, IOException, InternalServerErrorException {
+        logger.debug("Create with fullid {}", fullId);
+        String rev = "0";
+        obj.put(Constants.OBJECT_ID, localId); // Save the id in the object
+        obj.put("_rev", rev); // Save the rev in the object, and return the changed rev from the create.
+        String objString = mapper.writeValueAsString(obj);
+
+        logger.trace("Populating statement {} with params {}, {}, {}, {}",
+                queryMap.get(QueryDefinition.CREATEQUERYSTR), typeId, localId, rev, objString);
+        createStatement.setLong(1, typeId);
+        createStatement.setString(2, localId);
+        createStatement.setString(3, rev);
+        createStatement.setString(4, objString);
+        logger.debug("Executing: {}", createStatement);
+        createStatement.executeUpdate();
+
+        ResultSet keys = createStatement.getGeneratedKeys();
+        try {
             boolean validKeyEntry = keys.next();
             if (!validKeyEntry) {
                 throw new InternalServerErrorException("Object creation for " + fullId + " failed to retrieve an assigned ID from the DB.");
             }
-            long dbId = keys.getLong(1);
-
             logger.debug("Created object for id {} with rev {}", fullId, rev);
-            JsonValue jv = new JsonValue(obj);
-            writeValueProperties(fullId, dbId, localId, jv, connection);
+            return keys.getLong(1);
         } finally {
-            CleanupHelper.loggedClose(createStatement);
+            CleanupHelper.loggedClose(keys);
         }
     }
 
@@ -373,6 +463,210 @@ public class GenericTableHandler implements TableHandler {
         return batchingCount;
     }
 
+    /**
+     * Brings the properties table of an updated resource in line with its new content.
+     * <p>
+     * The searchable properties of the previous content, as stored in the main table row read for update,
+     * are compared with those of the new content, and only the rows of properties that were added, removed
+     * or changed are written. If the previous content can not be read from the row, all properties are
+     * deleted and written again.
+     *
+     * @param fullId the full URI of the resource the belongs to
+     * @param type the type of the resource
+     * @param dbId the generated identifier to link the properties table with the main table (foreign key)
+     * @param localId the local identifier of the resource these properties belong to
+     * @param existing the main table row of the resource, as read for update
+     * @param value the JSON value with the new properties
+     * @param connection the DB connection
+     * @throws SQLException if the update failed
+     */
+    void updateValueProperties(String fullId, String type, long dbId, String localId, JsonValue existing,
+            JsonValue value, Connection connection) throws SQLException {
+        if (!cfg.hasPossibleSearchableProperties()) {
+            return;
+        }
+        JsonValue existingValue = readFullObject(fullId, existing.get(Constants.RAW_OBJECT_FULLOBJECT).getObject());
+        if (existingValue == null) {
+            PreparedStatement deletePropStatement = getPreparedStatement(connection, QueryDefinition.PROPDELETEQUERYSTR);
+            try {
+                logger.trace("Populating prepared statement {} for {} {} {}", deletePropStatement, fullId, type, localId);
+                deletePropStatement.setString(1, type);
+                deletePropStatement.setString(2, localId);
+                logger.debug("Update properties del statement: {}", deletePropStatement);
+                int deleteCount = deletePropStatement.executeUpdate();
+                logger.trace("Deleted child rows: {} for: {}", deleteCount, fullId);
+            } finally {
+                CleanupHelper.loggedClose(deletePropStatement);
+            }
+            writeValueProperties(fullId, dbId, localId, value, connection);
+            return;
+        }
+
+        Map<String, SearchableProperty> existingProperties = new LinkedHashMap<>();
+        collectValueProperties(existingValue, existingProperties);
+        Map<String, SearchableProperty> properties = new LinkedHashMap<>();
+        collectValueProperties(value, properties);
+
+        PreparedStatement deletePropStatement = null;
+        PreparedStatement updatePropStatement = null;
+        PreparedStatement propCreateStatement = null;
+        int deleteCount = 0;
+        int updateCount = 0;
+        int createCount = 0;
+        try {
+            for (String propkey : existingProperties.keySet()) {
+                if (!properties.containsKey(propkey)) {
+                    if (deletePropStatement == null) {
+                        deletePropStatement = getPreparedStatement(connection, QueryDefinition.PROPDELETEKEYQUERYSTR);
+                    }
+                    deletePropStatement.setLong(1, dbId);
+                    deletePropStatement.setString(2, propkey);
+                    deleteCount = executeOrBatch(deletePropStatement, deleteCount);
+                }
+            }
+            for (Map.Entry<String, SearchableProperty> entry : properties.entrySet()) {
+                SearchableProperty property = entry.getValue();
+                SearchableProperty existingProperty = existingProperties.get(entry.getKey());
+                if (existingProperty == null) {
+                    if (propCreateStatement == null) {
+                        propCreateStatement = getPreparedStatement(connection, QueryDefinition.PROPCREATEQUERYSTR);
+                    }
+                    propCreateStatement.setLong(1, dbId);
+                    propCreateStatement.setString(2, entry.getKey());
+                    propCreateStatement.setString(3, property.type);
+                    propCreateStatement.setString(4, property.value);
+                    createCount = executeOrBatch(propCreateStatement, createCount);
+                } else if (!existingProperty.equals(property)) {
+                    if (updatePropStatement == null) {
+                        updatePropStatement = getPreparedStatement(connection, QueryDefinition.PROPUPDATEQUERYSTR);
+                    }
+                    updatePropStatement.setString(1, property.type);
+                    updatePropStatement.setString(2, property.value);
+                    updatePropStatement.setLong(3, dbId);
+                    updatePropStatement.setString(4, entry.getKey());
+                    updateCount = executeOrBatch(updatePropStatement, updateCount);
+                }
+            }
+            // The deleted and created keys are disjoint, the remaining batches can run in any order
+            executeBatch(deletePropStatement, deleteCount);
+            executeBatch(updatePropStatement, updateCount);
+            executeBatch(propCreateStatement, createCount);
+        } finally {
+            CleanupHelper.loggedClose(deletePropStatement);
+            CleanupHelper.loggedClose(updatePropStatement);
+            CleanupHelper.loggedClose(propCreateStatement);
+        }
+    }
+
+    /**
+     * Parses the serialized resource read from the fullobject column.
+     *
+     * @param fullId the full URI of the resource
+     * @param fullObject the column value, as returned by the driver
+     * @return the resource, or null if it could not be read
+     */
+    private JsonValue readFullObject(String fullId, Object fullObject) {
+        if (fullObject == null) {
+            return null;
+        }
+        try {
+            String objString = fullObject instanceof Clob
+                    ? ((Clob) fullObject).getSubString(1, (int) ((Clob) fullObject).length())
+                    : fullObject.toString();
+            return new JsonValue(mapper.readValue(objString, typeRef));
+        } catch (SQLException | IOException e) {
+            logger.debug("Could not read existing content of {}, rewriting all its properties", fullId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Collects the searchable properties of a resource as they are written to the properties table.
+     *
+     * @param value the JSON value with the properties
+     * @param properties the properties collected so far, by property key
+     */
+    private void collectValueProperties(JsonValue value, Map<String, SearchableProperty> properties) {
+        for (JsonValue entry : value) {
+            JsonPointer propPointer = entry.getPointer();
+            if (cfg.isSearchable(propPointer)) {
+                if (entry.isMap() || entry.isList()) {
+                    collectValueProperties(entry, properties);
+                } else {
+                    String propvalue = null;
+                    Object val = entry.getObject();
+                    if (val != null) {
+                        propvalue = StringUtils.left(val.toString(), getSearchableLength());
+                    }
+                    String proptype = null;
+                    if (propvalue != null) {
+                        proptype = val.getClass().getName();
+                    }
+                    properties.put(propPointer.toString(), new SearchableProperty(proptype, propvalue));
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes the populated statement, or adds it to the batch if batching is enabled.
+     *
+     * @param statement the populated statement
+     * @param batchingCount the number of statements batched and not yet executed
+     * @return the number of statements batched and not yet executed
+     * @throws SQLException if the execution failed
+     */
+    private int executeOrBatch(PreparedStatement statement, int batchingCount) throws SQLException {
+        logger.debug("Executing: {}", statement);
+        if (!enableBatching) {
+            statement.executeUpdate();
+            return 0;
+        }
+        statement.addBatch();
+        if (++batchingCount >= maxBatchSize) {
+            executeBatch(statement, batchingCount);
+            return 0;
+        }
+        return batchingCount;
+    }
+
+    private void executeBatch(PreparedStatement statement, int batchingCount) throws SQLException {
+        if (enableBatching && batchingCount > 0) {
+            int[] numUpdates = statement.executeBatch();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Batch update of objectproperties updated: {}", Arrays.asList(numUpdates));
+            }
+            statement.clearBatch();
+        }
+    }
+
+    /**
+     * The type and value of a searchable property, as stored in the properties table.
+     */
+    private static final class SearchableProperty {
+        private final String type;
+        private final String value;
+
+        SearchableProperty(String type, String value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SearchableProperty)) {
+                return false;
+            }
+            SearchableProperty other = (SearchableProperty) o;
+            return Objects.equals(type, other.type) && Objects.equals(value, other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, value);
+        }
+    }
+
     @Override
     public boolean isErrorType(SQLException ex, ErrorType errorType) {
         return sqlExceptionHandler.isErrorType(ex, errorType);
@@ -387,7 +681,7 @@ public class GenericTableHandler implements TableHandler {
     // Callers should note that this may commit a transaction and start a new one if a new type gets added
     long getTypeId(String type, Connection connection) throws SQLException, InternalServerErrorException {
         Exception detectedEx = null;
-        long typeId = readTypeId(type, connection);
+        long typeId = readTypeId(type, connection); // Only reads the objecttypes table on a cache miss
         if (typeId < 0) {
             connection.setAutoCommit(true); // Commit the new type right away, and have no transaction isolation for read
             try {
@@ -407,6 +701,37 @@ public class GenericTableHandler implements TableHandler {
         return typeId;
     }
 
+    /**
+     * Loads the ids of all the object types into the cache.
+     *
+     * @param connection the DB connection
+     * @throws java.sql.SQLException
+     */
+    public void loadTypeIds(Connection connection) throws SQLException {
+        ResultSet rs = null;
+        PreparedStatement readTypesStatement = null;
+        try {
+            readTypesStatement = getPreparedStatement(connection, QueryDefinition.READTYPESQUERYSTR);
+            logger.debug("Executing: {}", readTypesStatement);
+            rs = readTypesStatement.executeQuery();
+            while (rs.next()) {
+                typeIds.put(rs.getString("objecttype"), rs.getLong(Constants.RAW_ID));
+            }
+            logger.debug("Loaded {} object type ids", typeIds.size());
+        } finally {
+            CleanupHelper.loggedClose(rs);
+            CleanupHelper.loggedClose(readTypesStatement);
+        }
+    }
+
+    /**
+     * @param type the object type URI
+     * @return the cached typeId for the given type, or null if not known yet
+     */
+    Long getCachedTypeId(String type) {
+        return type != null ? typeIds.get(type) : null;
+    }
+
     /**
      * @param type       the object type URI
      * @param connection the DB connection
@@ -414,6 +739,10 @@ public class GenericTableHandler implements TableHandler {
      * @throws java.sql.SQLException
      */
     long readTypeId(String type, Connection connection) throws SQLException {
+        Long cachedTypeId = typeIds.get(type);
+        if (cachedTypeId != null) {
+            return cachedTypeId;
+        }
         long typeId = -1;
 
         Map<String, Object> result = null;
@@ -431,6 +760,7 @@ public class GenericTableHandler implements TableHandler {
             if (rs.next()) {
                 typeId = rs.getLong(Constants.RAW_ID);
                 logger.debug("Type: {}, id: {}", type, typeId);
+                typeIds.put(type, typeId);
             }
         } finally {
             CleanupHelper.loggedClose(rs);
@@ -513,7 +843,6 @@ public class GenericTableHandler implements TableHandler {
         obj.put("_rev", newRev); // Save the rev in the object, and return the changed rev from the create.
 
         PreparedStatement updateStatement = null;
-        PreparedStatement deletePropStatement = null;
         try {
             JsonValue result = new JsonValue(readForUpdate(fullId, type, localId, connection));
             String existingRev = result.get(Constants.RAW_OBJECT_REV).asString();
@@ -525,7 +854,6 @@ public class GenericTableHandler implements TableHandler {
                 throw new PreconditionFailedException("Update rejected as current Object revision " + existingRev + " is different than expected by caller (" + rev + "), the object has changed since retrieval.");
             }
             updateStatement = getPreparedStatement(connection, QueryDefinition.UPDATEQUERYSTR);
-            deletePropStatement = getPreparedStatement(connection, QueryDefinition.PROPDELETEQUERYSTR);
 
             // Support changing object identifier
             String newLocalId = (String) obj.get(Constants.OBJECT_ID);
@@ -549,18 +877,9 @@ public class GenericTableHandler implements TableHandler {
                 throw new InternalServerErrorException("Update execution did not result in updating 1 row as expected. Updated rows: " + updateCount);
             }
 
-            JsonValue jv = new JsonValue(obj);
-            // TODO: only update what changed?
-            logger.trace("Populating prepared statement {} for {} {} {}", deletePropStatement, fullId, type, localId);
-            deletePropStatement.setString(1, type);
-            deletePropStatement.setString(2, localId);
-            logger.debug("Update properties del statement: {}", deletePropStatement);
-            int deleteCount = deletePropStatement.executeUpdate();
-            logger.trace("Deleted child rows: {} for: {}", deleteCount, fullId);
-            writeValueProperties(fullId, dbId, localId, jv, connection);
+            updateValueProperties(fullId, type, dbId, localId, result, new JsonValue(obj), connection);
         } finally {
             CleanupHelper.loggedClose(updateStatement);
-            CleanupHelper.loggedClose(deletePropStatement);
         }
     }
 
@@ -618,6 +937,12 @@ public class GenericTableHandler implements TableHandler {
         return queries.query(type, params, connection);
     }
 
+    @Override
+    public void query(String type, Map<String, Object> params, Connection connection, int fetchSize,
+            QueryResultHandler handler) throws ResourceException {
+        queries.query(type, params, connection, fetchSize, handler);
+    }
+
     @Override
     public Integer command(String type, Map<String, Object> params, Connection connection) throws SQLException, ResourceException {
         return queries.command(type, params, connection);
@@ -632,6 +957,17 @@ public class GenericTableHandler implements TableHandler {
         return queries.getPreparedStatement(connection, queryMap.get(queryDefinition));
     }
 
+    /**
+     * Prepares the main table insert statement, returning the generated keys.
+     *
+     * @param connection the DB connection
+     * @return the prepared statement
+     * @throws SQLException if preparing the statement failed
+     */
+    protected PreparedStatement getCreateStatement(Connection connection) throws SQLException {
+        return queries.getPreparedStatement(connection, queryMap.get(QueryDefinition.CREATEQUERYSTR), true);
+    }
+
     /**
      * Render and SQL SELECT statement with placeholders for the given query filter.
      *
@@ -662,25 +998,45 @@ public class GenericTableHandler implements TableHandler {
         builder.addColumn("obj.*")
                 .from("${_dbSchema}.${_mainTable} obj")
 
-                // join objecttypes to fix OPENIDM-2773
-                .join("${_dbSchema}.objecttypes", "objecttypes")
-                .on(where("obj.objecttypes_id = objecttypes.id")
-                        .and("objecttypes.objecttype = ${otype}"))
-
                 // construct where clause by visiting filter
                 .where(filter.accept(new GenericSQLQueryFilterVisitor(DEFAULT_SEARCHABLE_LENGTH, builder), replacementTokens));
 
-        // other half of OPENIDM-2773 fix
-        replacementTokens.put("otype", params.get("_resource"));
+        // restrict to the object type to fix OPENIDM-2773
+        prepareTypeStatements(builder, (String) params.get("_resource"), replacementTokens);
 
         // JsonValue-cheat to avoid an unchecked cast
         final List<SortKey> sortKeys = new JsonValue(params).get(SORT_KEYS).asList(SortKey.class);
+        final KeysetCookie keyset = KeysetCookie.fromParams(params);
         // Check for sort keys and build up order-by syntax
-        prepareSortKeyStatements(builder, sortKeys, replacementTokens);
+        if (keyset != null) {
+            prepareKeysetStatements(builder, sortKeys, replacementTokens, keyset);
+        } else {
+            prepareSortKeyStatements(builder, sortKeys, replacementTokens);
+        }
 
         return builder.toSQL();
     }
 
+    /**
+     * Restricts the query to the objects of the queried type, by the cached type id if known and otherwise by
+     * joining the objecttypes table.
+     *
+     * @param builder the SQL builder
+     * @param type the object type URI
+     * @param replacementTokens a {@link java.util.Map} containing replacement tokens for the {@link java.sql.PreparedStatement}
+     */
+    protected void prepareTypeStatements(SQLBuilder builder, String type, Map<String, Object> replacementTokens) {
+        final Long typeId = getCachedTypeId(type);
+        if (typeId != null) {
+            builder.andWhere(where("obj.objecttypes_id = " + typeId));
+        } else {
+            builder.join("${_dbSchema}.objecttypes", "objecttypes")
+                    .on(where("obj.objecttypes_id = objecttypes.id")
+                            .and("objecttypes.objecttype = ${otype}"));
+            replacementTokens.put("otype", type);
+        }
+    }
+
     /**
      * Loops through sort keys constructing the inner join and key statements.
      *
@@ -703,4 +1059,45 @@ public class GenericTableHandler implements TableHandler {
             replacementTokens.put(tokenName, sortKey.getField().toString());
         }
     }
+
+    /**
+     * Constructs the joins, order-by and seek clause of a keyset paged query. The results are ordered by the sort
+     * keys with null values last, and then by the object id, so that the position of each result is unique.
+     *
+     * @param builder the SQL builder
+     * @param sortKeys a {@link java.util.List} of sort keys, may be null
+     * @param replacementTokens a {@link java.util.Map} containing replacement tokens for the {@link java.sql.PreparedStatement}
+     * @param keyset the position of the page
+     */
+    protected void prepareKeysetStatements(SQLBuilder builder, List<SortKey> sortKeys,
+            Map<String, Object> replacementTokens, KeysetCookie keyset) {
+        final List<SortKey> keys = sortKeys != null ? sortKeys : Collections.<SortKey>emptyList();
+        final List<String> expressions = new ArrayList<>();
+        boolean unique = false;
+        for (int i = 0; i < keys.size(); i++) {
+            final SortKey sortKey = keys.get(i);
+            if (KeysetCookie.isIdKey(sortKey)) {
+                builder.orderBy("obj.objectid", sortKey.isAscendingOrder());
+                expressions.add("obj.objectid");
+                unique = true;
+                continue;
+            }
+            final String tokenName = "sortKey" + i;
+            final String tableAlias = "orderby" + i;
+            builder.leftJoin("${_dbSchema}.${_propTable}", tableAlias)
+                    .on(where(tableAlias + ".${_mainTable}_id = obj.id").and(tableAlias + ".propkey = ${" + tokenName + "}"))
+                    .orderBy("CASE WHEN " + tableAlias + ".propvalue IS NULL THEN 1 ELSE 0 END", true)
+                    .orderBy(tableAlias + ".propvalue", sortKey.isAscendingOrder());
+            expressions.add(tableAlias + ".propvalue");
+
+            replacementTokens.put(tokenName, sortKey.getField().toString());
+        }
+        if (!unique) {
+            builder.orderBy("obj.objectid", true);
+        }
+        final Clause seek = keyset.seekClause(keys, expressions, "obj.objectid", replacementTokens);
+        if (seek != null) {
+            builder.andWhere(seek);
+        }
+    }
 }
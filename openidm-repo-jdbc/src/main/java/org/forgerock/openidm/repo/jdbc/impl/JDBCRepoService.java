@@ -39,11 +39,16 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.ActionRequest;
@@ -65,6 +70,7 @@ import org.forgerock.json.resource.RequestHandler;
 import org.forgerock.json.resource.Requests;
 import org.forgerock.json.resource.ResourceException;
 import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.SortKey;
 import org.forgerock.json.resource.UpdateRequest;
 import org.forgerock.openidm.config.enhanced.EnhancedConfig;
 import org.forgerock.openidm.config.enhanced.InvalidException;
@@ -75,6 +81,7 @@ import org.forgerock.openidm.repo.RepoBootService;
 import org.forgerock.openidm.repo.RepositoryService;
 import org.forgerock.openidm.repo.jdbc.DatabaseType;
 import org.forgerock.openidm.repo.jdbc.ErrorType;
+import org.forgerock.openidm.repo.jdbc.QueryResultHandler;
 import org.forgerock.openidm.repo.jdbc.TableHandler;
 import org.forgerock.openidm.smartevent.EventEntry;
 import org.forgerock.openidm.smartevent.Name;
@@ -117,12 +124,15 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
 
     public static final String PID = "org.forgerock.openidm.repo.jdbc";
     private static final String ACTION_COMMAND = "command";
+    private static final String ACTION_BATCH = "batch";
 
     // Keys in the JSON configuration
     public static final String CONFIG_USE_DATASOURCE = "useDataSource";
     public static final String CONFIG_DB_TYPE = "dbType";
     public static final String CONFIG_MAX_TX_RETRY = "maxTxRetry";
     public static final String CONFIG_MAX_BATCH_SIZE = "maxBatchSize";
+    public static final String CONFIG_QUERY_FETCH_SIZE = "queryFetchSize";
+    public static final String CONFIG_MAX_STREAMING_QUERIES = "maxStreamingQueries";
 
     Map<String, TableHandler> tableHandlers;
     TableHandler defaultTableHandler;
@@ -131,6 +141,13 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
 
     private JsonValue config;
     private int maxTxRetry = 5;
+    private int queryFetchSize = 100;
+
+    /**
+     * Bounds the queries that hold a connection while their handler runs, see
+     * {@link #query(QueryRequest, KeysetCookie, QueryResourceHandler)}.
+     */
+    private volatile Semaphore streamingQueries = new Semaphore(10);
 
     /** CryptoService for detecting whether a value is encrypted */
     @Reference
@@ -570,42 +587,69 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
     }
 
     @Override
-    public Promise<QueryResponse, ResourceException> handleQuery(Context context, QueryRequest request, QueryResourceHandler handler) {
+    public Promise<QueryResponse, ResourceException> handleQuery(Context context, QueryRequest request, final QueryResourceHandler handler) {
         try {
 
             // If paged results are requested then decode the cookie in order to determine
             // the index of the first result to be returned.
             final int requestPageSize = request.getPageSize();
 
-            // Cookie containing offset of last request
+            // Cookie containing offset or keyset position of last request
             final String pagedResultsCookie = request.getPagedResultsCookie();
 
             final boolean pagedResultsRequested = requestPageSize > 0;
 
+            final TableHandler tableHandler = getTableHandler(trimStartingSlash(request.getResourcePath()));
+
+            // Query filter queries on handlers supporting it seek past the last result rather than skip an offset
+            final boolean keysetPageable = pagedResultsRequested
+                    && request.getQueryFilter() != null
+                    && tableHandler != null
+                    && tableHandler.isKeysetPagingSupported();
+
             // index of first record (used for SKIP/OFFSET)
             final int firstResultIndex;
 
+            // position of the page if keyset paged
+            final KeysetCookie keyset;
+
             if (pagedResultsRequested) {
                 if (!isNullOrEmpty(pagedResultsCookie)) {
-                    try {
-                        firstResultIndex = Integer.parseInt(pagedResultsCookie);
-                    } catch (final NumberFormatException e) {
-                        throw new BadRequestException("Invalid paged results cookie");
+                    if (isOffsetCookie(pagedResultsCookie)) {
+                        try {
+                            firstResultIndex = Integer.parseInt(pagedResultsCookie);
+                        } catch (final NumberFormatException e) {
+                            throw new BadRequestException("Invalid paged results cookie");
+                        }
+                        keyset = null;
+                    } else {
+                        keyset = KeysetCookie.parse(pagedResultsCookie);
+                        if (!keysetPageable || !keyset.matches(getSortKeys(request))) {
+                            throw new BadRequestException("Invalid paged results cookie");
+                        }
+                        firstResultIndex = keyset.getPosition();
                     }
                 } else {
                     firstResultIndex = Math.max(0, request.getPagedResultsOffset());
+                    keyset = keysetPageable && firstResultIndex == 0 ? KeysetCookie.firstPage() : null;
                 }
             } else {
                 firstResultIndex = 0;
+                keyset = null;
             }
 
-            // Once cookie is processed Queries.query() can rely on the offset.
-            request.setPagedResultsOffset(firstResultIndex);
+            // Once cookie is processed Queries.query() can rely on the offset, keyset paged queries seek
+            // to their first result instead.
+            request.setPagedResultsOffset(keyset != null ? 0 : firstResultIndex);
 
-            List<ResourceResponse> results = query(request);
-            for (ResourceResponse result : results) {
-                handler.handleResource(result);
-            }
+            final ResourceResponse[] last = new ResourceResponse[1];
+            final int handledCount = query(request, keyset, new QueryResourceHandler() {
+                @Override
+                public boolean handleResource(ResourceResponse resource) {
+                    last[0] = resource;
+                    return handler.handleResource(resource);
+                }
+            });
 
             /*
              * Execute additional -count query if we are paging
@@ -616,8 +660,6 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
             final int resultCount;
 
             if (pagedResultsRequested) {
-                TableHandler tableHandler = getTableHandler(trimStartingSlash(request.getResourcePath()));
-
                 // count if requested
                 switch (request.getTotalPagedResultsPolicy()) {
                     case ESTIMATE:
@@ -652,12 +694,19 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
                         break;
                 }
 
-                if (results.size() < requestPageSize) {
+                if (handledCount < requestPageSize) {
                     nextCookie = null;
                 } else {
-                    final int remainingResults = resultCount - (firstResultIndex + results.size());
+                    final int remainingResults = resultCount - (firstResultIndex + handledCount);
                     if (remainingResults == 0) {
                         nextCookie = null;
+                    } else if (keyset != null && last[0] != null) {
+                        // fall back to an offset if the last result has no scalar sort key values
+                        final String keysetCookie =
+                                KeysetCookie.next(firstResultIndex + handledCount, getSortKeys(request), last[0]);
+                        nextCookie = keysetCookie != null
+                                ? keysetCookie
+                                : String.valueOf(firstResultIndex + requestPageSize);
                     } else {
                         nextCookie = String.valueOf(firstResultIndex + requestPageSize);
                     }
@@ -684,14 +733,7 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
         String fullId = request.getResourcePath();
         String type = trimStartingSlash(fullId);
         logger.trace("Full id: {} Extracted type: {}", fullId, type);
-        Map<String, Object> params = new HashMap<>();
-        params.putAll(request.getAdditionalParameters());
-        params.put(QUERY_ID, request.getQueryId());
-        params.put(QUERY_EXPRESSION, request.getQueryExpression());
-        params.put(QUERY_FILTER, request.getQueryFilter());
-        params.put(PAGE_SIZE, request.getPageSize());
-        params.put(PAGED_RESULTS_OFFSET, request.getPagedResultsOffset());
-        params.put(SORT_KEYS, request.getSortKeys());
+        Map<String, Object> params = getQueryParameters(request);
 
         Connection connection = null;
         try {
@@ -728,11 +770,139 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
         }
     }
 
+    /**
+     * Performs the query, passing each result to the handler as it is read from the database rather than
+     * collecting the results first. Reading stops when the handler returns false.
+     * <p>
+     * A streaming query holds its pooled connection, and its read transaction if a fetch size is set, while
+     * the handler runs. A handler that makes repository requests per result therefore needs a second
+     * connection, and enough of them at once could exhaust the pool and wait for each other forever. At most
+     * {@value #CONFIG_MAX_STREAMING_QUERIES} queries stream at a time, which must stay below the size of the
+     * connection pool. Further queries read all their results and release the connection before passing the
+     * results to the handler.
+     *
+     * @param request the query request
+     * @param keyset the position of the page if keyset paged, otherwise null
+     * @param handler the handler receiving the results
+     * @return the number of results passed to the handler
+     * @throws ResourceException if the query failed
+     */
+    private int query(QueryRequest request, KeysetCookie keyset, final QueryResourceHandler handler)
+            throws ResourceException {
+        final Semaphore permits = streamingQueries;
+        if (permits.tryAcquire()) {
+            try {
+                return streamQuery(request, keyset, handler);
+            } finally {
+                permits.release();
+            }
+        }
+        logger.debug("Too many streaming queries, reading the results of {} first", request.getResourcePath());
+        final List<ResourceResponse> results = new ArrayList<>();
+        streamQuery(request, keyset, new QueryResourceHandler() {
+            @Override
+            public boolean handleResource(ResourceResponse resource) {
+                return results.add(resource);
+            }
+        });
+        int count = 0;
+        for (ResourceResponse resource : results) {
+            count++;
+            if (!handler.handleResource(resource)) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int streamQuery(QueryRequest request, KeysetCookie keyset, final QueryResourceHandler handler)
+            throws ResourceException {
+        String fullId = request.getResourcePath();
+        String type = trimStartingSlash(fullId);
+        logger.trace("Full id: {} Extracted type: {}", fullId, type);
+        Map<String, Object> params = getQueryParameters(request);
+        if (keyset != null) {
+            params.put(KeysetCookie.PARAM, keyset);
+        }
+
+        // Some drivers, e.g. PostgreSQL, only fetch rows in chunks within a transaction
+        final boolean transactional = queryFetchSize > 0;
+        Connection connection = null;
+        try {
+            TableHandler tableHandler = getTableHandler(type);
+            if (tableHandler == null) {
+                throw newResourceException(ResourceException.INTERNAL_ERROR,
+                        "No handler configured for resource type " + type);
+            }
+            connection = getConnection();
+            connection.setAutoCommit(!transactional);
+
+            final int[] count = new int[1];
+            tableHandler.query(type, params, connection, queryFetchSize, new QueryResultHandler() {
+                @Override
+                public boolean handleResult(Map<String, Object> resultMap) {
+                    count[0]++;
+                    String id = (String) resultMap.get("_id");
+                    String rev = (String) resultMap.get("_rev");
+                    return handler.handleResource(newResourceResponse(id, rev, new JsonValue(resultMap)));
+                }
+            });
+            if (transactional) {
+                connection.commit();
+            }
+            return count[0];
+        } catch (SQLException ex) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("SQL Exception in query of {} with error code {}, sql state {}",
+                        fullId, ex.getErrorCode(), ex.getSQLState(), ex);
+            }
+            if (transactional) {
+                rollback(connection);
+            }
+            throw new InternalServerErrorException("Querying failed: " + ex.getMessage(), ex);
+        } catch (ResourceException | RuntimeException ex) {
+            logger.debug("Exception in query of {}", fullId, ex);
+            if (transactional) {
+                rollback(connection);
+            }
+            throw ex;
+        } finally {
+            CleanupHelper.loggedClose(connection);
+        }
+    }
+
+    private static boolean isOffsetCookie(String cookie) {
+        for (int i = 0; i < cookie.length(); i++) {
+            if (!Character.isDigit(cookie.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<SortKey> getSortKeys(QueryRequest request) {
+        return request.getSortKeys() != null ? request.getSortKeys() : Collections.<SortKey>emptyList();
+    }
+
+    private Map<String, Object> getQueryParameters(QueryRequest request) {
+        Map<String, Object> params = new HashMap<>();
+        params.putAll(request.getAdditionalParameters());
+        params.put(QUERY_ID, request.getQueryId());
+        params.put(QUERY_EXPRESSION, request.getQueryExpression());
+        params.put(QUERY_FILTER, request.getQueryFilter());
+        params.put(PAGE_SIZE, request.getPageSize());
+        params.put(PAGED_RESULTS_OFFSET, request.getPagedResultsOffset());
+        params.put(SORT_KEYS, request.getSortKeys());
+        return params;
+    }
+
     @Override
     public Promise<ActionResponse, ResourceException> handleAction(Context context, ActionRequest request) {
         try {
             if (ACTION_COMMAND.equalsIgnoreCase(request.getAction())) {
                 return command(request).asPromise();
+            } else if (ACTION_BATCH.equalsIgnoreCase(request.getAction())) {
+                return batch(request).asPromise();
             } else {
                 throw new NotSupportedException("Action operations are not supported");
             }
@@ -805,6 +975,134 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
         return newActionResponse(result);
     }
 
+    /**
+     * Creates and updates many objects of one type in a single transaction, so that bulk writers such as
+     * reconciliation linking do not pay a commit per object.
+     * <p>
+     * The request content holds a {@code create} list of objects, each with an optional {@code _id}, and an
+     * {@code update} list of objects, each with the {@code _id} and the expected {@code _rev}. Either all
+     * objects are written, or none is. The response lists the {@code _id} and new {@code _rev} of the
+     * created and updated objects, in request order.
+     *
+     * @param request the batch action request
+     * @return the identifiers and revisions of the written objects
+     * @throws ResourceException on failure to write any of the objects
+     */
+    private ActionResponse batch(ActionRequest request) throws ResourceException {
+        final String type = trimStartingSlash(request.getResourcePath());
+        final JsonValue content = request.getContent();
+
+        final Map<String, Map<String, Object>> creates = new LinkedHashMap<>();
+        for (JsonValue obj : content.get("create").defaultTo(new ArrayList<>()).expect(List.class)) {
+            String localId = obj.get(FIELD_CONTENT_ID).defaultTo(UUID.randomUUID().toString()).asString();
+            if (creates.put(localId, obj.asMap()) != null) {
+                throw new BadRequestException("Batch creates object " + localId + " more than once");
+            }
+        }
+        final List<JsonValue> updates = new ArrayList<>();
+        final List<String> updateRevs = new ArrayList<>();
+        for (JsonValue obj : content.get("update").defaultTo(new ArrayList<>()).expect(List.class)) {
+            if (obj.get(FIELD_CONTENT_ID).isNull() || obj.get(FIELD_CONTENT_REVISION).isNull()) {
+                throw new BadRequestException("Batch updates require the _id and _rev of each object");
+            }
+            updates.add(obj);
+            updateRevs.add(obj.get(FIELD_CONTENT_REVISION).asString());
+        }
+
+        Connection connection = null;
+        Integer previousIsolationLevel = null;
+        boolean retry;
+        int tryCount = 0;
+        do {
+            TableHandler handler = getTableHandler(type);
+            if (handler == null) {
+                throw newResourceException(ResourceException.INTERNAL_ERROR,
+                        "No handler configured for resource type " + type);
+            }
+            retry = false;
+            ++tryCount;
+            try {
+                connection = getConnection();
+                if (!updates.isEmpty()) {
+                    previousIsolationLevel = connection.getTransactionIsolation();
+                    connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                }
+                connection.setAutoCommit(false);
+
+                if (!creates.isEmpty()) {
+                    handler.createAll(type, creates, connection);
+                }
+                for (int i = 0; i < updates.size(); i++) {
+                    String localId = updates.get(i).get(FIELD_CONTENT_ID).asString();
+                    handler.update(type + "/" + localId, type, localId, updateRevs.get(i),
+                            updates.get(i).asMap(), connection);
+                }
+
+                connection.commit();
+                logger.debug("Committed batch of {} created and {} updated objects of type {}",
+                        creates.size(), updates.size(), type);
+            } catch (SQLException ex) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("SQL Exception in batch on {} with error code {}, sql state {}",
+                            type, ex.getErrorCode(), ex.getSQLState(), ex);
+                }
+                rollback(connection);
+                if (handler.isErrorType(ex, ErrorType.DUPLICATE_KEY)) {
+                    throw new PreconditionFailedException(
+                            "Batch rejected as an Object with same ID already exists and was detected. "
+                                    + "(" + ex.getErrorCode() + "-" + ex.getSQLState() + ")"
+                                    + ex.getMessage(), ex);
+                }
+                if (handler.isRetryable(ex, connection)) {
+                    if (tryCount <= maxTxRetry) {
+                        retry = true;
+                        logger.debug("Retryable exception encountered, retry attempt {} of {} : {}", tryCount, maxTxRetry, ex.getMessage());
+                    }
+                }
+                if (!retry) {
+                    throw new InternalServerErrorException("Batch failed after " + tryCount + " attempts ("
+                            + ex.getErrorCode() + "-" + ex.getSQLState() + "): " + ex.getMessage(), ex);
+                }
+            } catch (ResourceException ex) {
+                logger.debug("ResourceException in batch on {}", type, ex);
+                rollback(connection);
+                throw ex;
+            } catch (IOException ex) {
+                logger.debug("IO Exception in batch on {}", type, ex);
+                rollback(connection);
+                throw new InternalServerErrorException("Conversion of batch objects failed", ex);
+            } catch (RuntimeException ex) {
+                logger.debug("Runtime Exception in batch on {}", type, ex);
+                rollback(connection);
+                throw new InternalServerErrorException(
+                        "Batch failed with unexpected failure: " + ex.getMessage(), ex);
+            } finally {
+                if (connection != null) {
+                    try {
+                        if (previousIsolationLevel != null) {
+                            connection.setTransactionIsolation(previousIsolationLevel);
+                        }
+                    } catch (SQLException ex) {
+                        logger.warn("Failure in resetting connection isolation level ", ex);
+                    }
+                    CleanupHelper.loggedClose(connection);
+                }
+            }
+        } while (retry);
+
+        List<Object> created = new ArrayList<>();
+        for (Map<String, Object> obj : creates.values()) {
+            created.add(object(field(FIELD_CONTENT_ID, obj.get(FIELD_CONTENT_ID)),
+                    field(FIELD_CONTENT_REVISION, obj.get(FIELD_CONTENT_REVISION))));
+        }
+        List<Object> updated = new ArrayList<>();
+        for (JsonValue obj : updates) {
+            updated.add(object(field(FIELD_CONTENT_ID, obj.get(FIELD_CONTENT_ID).getObject()),
+                    field(FIELD_CONTENT_REVISION, obj.get(FIELD_CONTENT_REVISION).getObject())));
+        }
+        return newActionResponse(json(object(field("create", created), field("update", updated))));
+    }
+
     // Utility method to cleanly roll back including logging
     private void rollback(Connection connection) {
         if (connection != null) {
@@ -866,6 +1164,26 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
         return !existingConfig.isEqualTo(newConfig);
     }
 
+    /**
+     * Fills the object type id caches of the generic table handlers, so that writes and reads of existing types
+     * do not look up the objecttypes table.
+     */
+    private void loadTypeIds(Connection connection) {
+        Set<TableHandler> handlers = new HashSet<>(tableHandlers.values());
+        if (defaultTableHandler != null) {
+            handlers.add(defaultTableHandler);
+        }
+        try {
+            for (TableHandler handler : handlers) {
+                if (handler instanceof GenericTableHandler) {
+                    ((GenericTableHandler) handler).loadTypeIds(connection);
+                }
+            }
+        } catch (SQLException ex) {
+            logger.warn("Failed to load object type ids, they will be looked up on first use", ex);
+        }
+    }
+
     /**
      * Initializes the JDBC Repository Service with the supplied configuration
      *
@@ -892,6 +1210,9 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
                     .as(enumConstant(DatabaseType.class));
             maxTxRetry = config.get(CONFIG_MAX_TX_RETRY).defaultTo(5).asInteger();
             int maxBatchSize = config.get(CONFIG_MAX_BATCH_SIZE).defaultTo(100).asInteger();
+            queryFetchSize = Math.max(0, config.get(CONFIG_QUERY_FETCH_SIZE).defaultTo(100).asInteger());
+            streamingQueries = new Semaphore(
+                    Math.max(0, config.get(CONFIG_MAX_STREAMING_QUERIES).defaultTo(10).asInteger()));
 
             JsonValue defaultMapping = config.get("resourceMapping").get("default");
             if (!defaultMapping.isNull()) {
@@ -968,6 +1289,7 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
             testConn = getConnection();
             testConn.setAutoCommit(true); // Ensure we do not implicitly start
                                           // transaction isolation
+            loadTypeIds(testConn);
         } catch (Exception ex) {
             logger.warn(
                     "JDBC Repository start-up experienced a failure getting a DB connection: "
@@ -1021,6 +1343,15 @@ public class JDBCRepoService implements RequestHandler, RepoBootService, Reposit
             String table, Map<String, Object> objectToColumn, String dbSchemaName,
             JsonValue explicitQueries, JsonValue explicitCommands, int maxBatchSize)
             throws InternalServerErrorException {
+        MappedTableHandler handler = newMappedTableHandler(databaseType, table, objectToColumn, dbSchemaName,
+                explicitQueries, explicitCommands);
+        handler.maxBatchSize = Math.max(1, maxBatchSize);
+        return handler;
+    }
+
+    private MappedTableHandler newMappedTableHandler(DatabaseType databaseType, String table,
+            Map<String, Object> objectToColumn, String dbSchemaName, JsonValue explicitQueries,
+            JsonValue explicitCommands) throws InternalServerErrorException {
 
         final Accessor<CryptoService> cryptoServiceAccessor = new Accessor<CryptoService>() {
             @Override
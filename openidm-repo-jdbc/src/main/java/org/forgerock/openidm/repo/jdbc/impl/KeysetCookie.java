@@ -0,0 +1,244 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.repo.jdbc.impl;
+
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.openidm.repo.util.Clauses.where;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.BadRequestException;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.SortKey;
+import org.forgerock.openidm.repo.util.Clause;
+import org.forgerock.openidm.repo.util.Clauses;
+import org.forgerock.openidm.util.ResourceUtil;
+import org.forgerock.util.encode.Base64url;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The position of a keyset (seek) paged query: the sort key values and identifier of the last result returned.
+ * <p>
+ * Rather than skipping an offset of rows, the next page is read with a WHERE clause seeking past the last
+ * result, which the database can answer from an index however deep the page. Keyset paged queries are ordered
+ * by the sort keys, with null values last, and then by the object identifier, so that every result has a
+ * unique position.
+ * <p>
+ * The cookie is opaque to clients. It also carries the index of the next result, so the number of remaining
+ * results can still be computed from a total count, and the sort keys it was created for, as its values can
+ * only be sought past in the same order.
+ */
+final class KeysetCookie {
+
+    /** The key of the cookie in the query parameters passed to the table handlers */
+    static final String PARAM = "_pagedResultsKeyset";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String POSITION = "p";
+    private static final String SORT_KEYS = "k";
+    private static final String VALUES = "v";
+    private static final String ID = "id";
+
+    private final int position;
+    private final List<String> sortKeys;
+    private final List<Object> values;
+    private final String id;
+
+    private KeysetCookie(int position, List<String> sortKeys, List<Object> values, String id) {
+        this.position = position;
+        this.sortKeys = sortKeys;
+        this.values = values;
+        this.id = id;
+    }
+
+    /**
+     * @return the position of the first page, which has no result to seek past
+     */
+    static KeysetCookie firstPage() {
+        return new KeysetCookie(0, Collections.<String>emptyList(), Collections.<Object>emptyList(), null);
+    }
+
+    /**
+     * @param params the query parameters
+     * @return the keyset position of the query, or null if it is not keyset paged
+     */
+    static KeysetCookie fromParams(Map<String, Object> params) {
+        Object cookie = params.get(PARAM);
+        return cookie instanceof KeysetCookie ? (KeysetCookie) cookie : null;
+    }
+
+    /**
+     * Parses a paged results cookie.
+     *
+     * @param cookie the cookie returned with the previous page
+     * @return the position of the next page
+     * @throws BadRequestException if the cookie is not a keyset cookie
+     */
+    static KeysetCookie parse(String cookie) throws BadRequestException {
+        byte[] decoded = Base64url.decode(cookie);
+        if (decoded == null) {
+            throw new BadRequestException("Invalid paged results cookie");
+        }
+        try {
+            JsonValue value = json(MAPPER.readValue(new String(decoded, StandardCharsets.UTF_8), Map.class));
+            KeysetCookie keyset = new KeysetCookie(value.get(POSITION).required().asInteger(),
+                    value.get(SORT_KEYS).required().asList(String.class), value.get(VALUES).required().asList(),
+                    value.get(ID).required().asString());
+            if (keyset.sortKeys.size() != keyset.values.size()) {
+                throw new BadRequestException("Invalid paged results cookie");
+            }
+            return keyset;
+        } catch (IOException | RuntimeException e) {
+            throw new BadRequestException("Invalid paged results cookie");
+        }
+    }
+
+    /**
+     * Creates the cookie of the page following the last result of a page.
+     *
+     * @param position the index of the next result
+     * @param sortKeys the sort keys of the query
+     * @param last the last result of the page
+     * @return the cookie, or null if the sort key values of the result can not be sought past
+     */
+    static String next(int position, List<SortKey> sortKeys, ResourceResponse last) {
+        if (last.getId() == null) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>();
+        for (SortKey sortKey : sortKeys) {
+            JsonValue value = isIdKey(sortKey) ? json(last.getId()) : last.getContent().get(sortKey.getField());
+            if (value == null || value.isMap() || value.isList()) {
+                return null;
+            }
+            values.add(value.getObject());
+        }
+        try {
+            String cookie = MAPPER.writeValueAsString(object(field(POSITION, position),
+                    field(SORT_KEYS, toStrings(sortKeys)), field(VALUES, values), field(ID, last.getId())));
+            return Base64url.encode(cookie.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param sortKeys sort keys
+     * @return the fields of the sort keys, prefixed with their direction
+     */
+    private static List<String> toStrings(List<SortKey> sortKeys) {
+        List<String> strings = new ArrayList<>(sortKeys.size());
+        for (SortKey sortKey : sortKeys) {
+            strings.add((sortKey.isAscendingOrder() ? "+" : "-") + sortKey.getField());
+        }
+        return strings;
+    }
+
+    /**
+     * @param sortKey a sort key
+     * @return whether the sort key is the object identifier, which is unique and never null
+     */
+    static boolean isIdKey(SortKey sortKey) {
+        return ResourceUtil.RESOURCE_FIELD_CONTENT_ID_POINTER.equals(sortKey.getField());
+    }
+
+    /**
+     * @return the index of the first result of the page
+     */
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * @param sortKeys the sort keys of the query
+     * @return whether the cookie was created for a query with these sort keys
+     */
+    boolean matches(List<SortKey> sortKeys) {
+        return id == null || this.sortKeys.equals(toStrings(sortKeys));
+    }
+
+    /**
+     * Builds the clause selecting the results after the cookie position, in the expanded form
+     * {@code (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... OR (k1 = v1 AND ... AND id > vid)}. Unlike a row value
+     * comparison this works on all supported databases, and with mixed ascending and descending sort keys.
+     *
+     * @param sortKeys the sort keys of the query
+     * @param expressions the SQL expressions of the sort keys
+     * @param idExpression the SQL expression of the object identifier
+     * @param replacementTokens the tokens to add the cookie values to
+     * @return the clause, or null on the first page
+     */
+    Clause seekClause(List<SortKey> sortKeys, List<String> expressions, String idExpression,
+            Map<String, Object> replacementTokens) {
+        if (id == null) {
+            return null;
+        }
+        List<Clause> seek = new ArrayList<>();
+        List<Clause> equal = new ArrayList<>();
+        boolean unique = false;
+        for (int i = 0; i < sortKeys.size(); i++) {
+            final String expression = expressions.get(i);
+            final String token = "${keyset" + i + "}";
+            final Object value = values.get(i);
+            final String operand = sortKeys.get(i).isAscendingOrder() ? " > " : " < ";
+            if (value == null) {
+                // Null values are ordered last, only other null values follow
+                equal.add(where(expression + " IS NULL"));
+                continue;
+            }
+            replacementTokens.put("keyset" + i, value.toString());
+            Clause after = isIdKey(sortKeys.get(i))
+                    ? where(expression + operand + token)
+                    : Clauses.or(list(where(expression + " IS NULL"), where(expression + operand + token)));
+            seek.add(equal.isEmpty() ? after : Clauses.and(append(equal, after)));
+            equal.add(where(expression + " = " + token));
+            unique |= isIdKey(sortKeys.get(i));
+        }
+        if (!unique) {
+            replacementTokens.put("keysetId", id);
+            Clause after = where(idExpression + " > ${keysetId}");
+            seek.add(equal.isEmpty() ? after : Clauses.and(append(equal, after)));
+        }
+        return Clauses.or(seek);
+    }
+
+    private static List<Clause> list(Clause... clauses) {
+        List<Clause> list = new ArrayList<>();
+        Collections.addAll(list, clauses);
+        return list;
+    }
+
+    private static List<Clause> append(List<Clause> clauses, Clause clause) {
+        List<Clause> list = new ArrayList<>(clauses);
+        list.add(clause);
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return "keyset position " + position + (id == null ? "" : " after " + values + ", " + id);
+    }
+}
@@ -94,7 +94,6 @@ public class MSSQLTableHandler extends GenericTableHandler {
         obj.put(Constants.OBJECT_REV, newRev); // Save the rev in the object, and return the changed rev from the create.
 
         PreparedStatement updateStatement = null;
-        PreparedStatement deletePropStatement = null;
         try {
             JsonValue result = new JsonValue(readForUpdate(fullId, type, localId, connection));
             String existingRev = result.get(Constants.RAW_OBJECT_REV).asString();
@@ -110,7 +109,6 @@ public class MSSQLTableHandler extends GenericTableHandler {
                         + "the object has changed since retrieval.");
             }
             updateStatement = getPreparedStatement(connection, QueryDefinition.UPDATEQUERYSTR);
-            deletePropStatement = getPreparedStatement(connection, QueryDefinition.PROPDELETEQUERYSTR);
             // Support changing object identifier
             String newLocalId = (String) obj.get(Constants.OBJECT_ID);
             if (newLocalId != null && !localId.equals(newLocalId)) {
@@ -137,18 +135,9 @@ public class MSSQLTableHandler extends GenericTableHandler {
                 throw new org.forgerock.json.resource.InternalServerErrorException("Update execution did not result in updating 1 row as expected. Updated rows: " + updateCount);
             }
 
-            JsonValue jv = new JsonValue(obj);
-            // TODO: only update what changed?
-            logger.trace("Populating prepared statement {} for {} {} {}", deletePropStatement, fullId, type, localId);
-            deletePropStatement.setString(1, type);
-            deletePropStatement.setString(2, localId);
-            logger.debug("Update properties del statement: {}", deletePropStatement);
-            int deleteCount = deletePropStatement.executeUpdate();
-            logger.trace("Deleted child rows: {} for: {}", deleteCount, fullId);
-            writeValueProperties(fullId, dbId, localId, jv, connection);
+            updateValueProperties(fullId, type, dbId, localId, result, new JsonValue(obj), connection);
         } finally {
             CleanupHelper.loggedClose(updateStatement);
-            CleanupHelper.loggedClose(deletePropStatement);
         }
     }
 
@@ -179,11 +168,6 @@ public class MSSQLTableHandler extends GenericTableHandler {
         // "SELECT obj.* FROM mainTable obj..."
         builder.from("${_dbSchema}.${_mainTable} obj")
 
-                // join objecttypes to fix OPENIDM-2773
-                .join("${_dbSchema}.objecttypes", "objecttypes")
-                .on(where("obj.objecttypes_id = objecttypes.id")
-                        .and("objecttypes.objecttype = ${otype}"))
-
                 .where(filter.accept(
                         // override numeric value clause generation to cast propvalue to a number
                         new GenericSQLQueryFilterVisitor(MSSQL_SEARCHABLE_LENGTH, builder) {
@@ -196,13 +180,16 @@ public class MSSQLTableHandler extends GenericTableHandler {
                         },
                         replacementTokens));
 
-        // other half of OPENIDM-2773 fix
-        replacementTokens.put("otype", params.get("_resource"));
+        // restrict to the object type to fix OPENIDM-2773
+        prepareTypeStatements(builder, (String) params.get("_resource"), replacementTokens);
 
         // JsonValue-cheat to avoid an unchecked cast
         final List<SortKey> sortKeys = new JsonValue(params).get(SORT_KEYS).asList(SortKey.class);
+        final KeysetCookie keyset = KeysetCookie.fromParams(params);
         // Check for sort keys and build up order-by syntax
-        if (sortKeys != null && sortKeys.size() > 0) {
+        if (keyset != null) {
+            prepareKeysetStatements(builder, sortKeys, replacementTokens, keyset);
+        } else if (sortKeys != null && sortKeys.size() > 0) {
             prepareSortKeyStatements(builder, sortKeys, replacementTokens);
         } else {
             builder.orderBy("obj.id", false);
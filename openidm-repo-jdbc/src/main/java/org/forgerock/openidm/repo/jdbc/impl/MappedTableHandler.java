@@ -46,6 +46,7 @@ import org.forgerock.json.resource.SortKey;
 import org.forgerock.openidm.crypto.CryptoService;
 import org.forgerock.openidm.repo.jdbc.Constants;
 import org.forgerock.openidm.repo.jdbc.ErrorType;
+import org.forgerock.openidm.repo.jdbc.QueryResultHandler;
 import org.forgerock.openidm.repo.jdbc.SQLExceptionHandler;
 import org.forgerock.openidm.repo.jdbc.TableHandler;
 import org.forgerock.openidm.repo.jdbc.impl.query.TableQueries;
@@ -82,6 +83,9 @@ public class MappedTableHandler implements TableHandler {
     ObjectMapper mapper = new ObjectMapper();
     final TableQueries queries;
 
+    // The maximum number of create statements to batch together in createAll
+    int maxBatchSize = 100;
+
     String readQueryStr;
     String readForUpdateQueryStr;
     String createQueryStr;
@@ -264,6 +268,42 @@ public class MappedTableHandler implements TableHandler {
         }
     }
 
+    /**
+     * Creates the objects through a single batched insert statement, executed every {@code maxBatchSize}
+     * objects.
+     *
+     * @see org.forgerock.openidm.repo.jdbc.TableHandler#createAll(java.lang.String, java.util.Map,
+     *      java.sql.Connection)
+     */
+    @Override
+    public void createAll(String type, Map<String, Map<String, Object>> objects, Connection connection)
+            throws SQLException, IOException {
+        PreparedStatement createStatement =
+                queries.getPreparedStatement(connection, createQueryStr);
+        try {
+            int batchingCount = 0;
+            for (Map.Entry<String, Map<String, Object>> entry : objects.entrySet()) {
+                create(type + "/" + entry.getKey(), type, entry.getKey(), entry.getValue(), connection,
+                        createStatement, maxBatchSize > 1);
+                if (maxBatchSize > 1 && ++batchingCount >= maxBatchSize) {
+                    executeCreateBatch(createStatement);
+                    batchingCount = 0;
+                }
+            }
+            if (batchingCount > 0) {
+                executeCreateBatch(createStatement);
+            }
+        } finally {
+            CleanupHelper.loggedClose(createStatement);
+        }
+    }
+
+    private void executeCreateBatch(PreparedStatement createStatement) throws SQLException {
+        int[] numUpdates = createStatement.executeBatch();
+        logger.debug("Executed batch of {} creates on {}", numUpdates.length, tableName);
+        createStatement.clearBatch();
+    }
+
     /**
      * Adds the option to batch more than one create statement
      *
@@ -474,6 +514,12 @@ public class MappedTableHandler implements TableHandler {
         return queries.query(type, params, connection);
     }
 
+    @Override
+    public void query(String type, Map<String, Object> params, Connection connection, int fetchSize,
+            QueryResultHandler handler) throws ResourceException {
+        queries.query(type, params, connection, fetchSize, handler);
+    }
+
     @Override
     public Integer command(String type, Map<String, Object> params, Connection connection) throws SQLException, ResourceException {
         return queries.command(type, params, connection);
@@ -484,6 +530,11 @@ public class MappedTableHandler implements TableHandler {
         return queries.queryIdExists(queryId);
     }
 
+    @Override
+    public boolean isKeysetPagingSupported() {
+        return false;
+    }
+
     // TODO: make common to generic and explicit handlers
     public boolean isErrorType(SQLException ex, ErrorType errorType) {
         return sqlExceptionHandler.isErrorType(ex, errorType);
@@ -32,7 +32,6 @@ import static org.forgerock.openidm.repo.util.Clauses.where;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
@@ -61,48 +60,37 @@ public class OracleTableHandler extends GenericTableHandler {
     @Override
     public void create(String fullId, String type, String localId, Map<String, Object> obj, Connection connection)
             throws SQLException, IOException, InternalServerErrorException {
-        connection.setAutoCommit(true);
-        long typeId = getTypeId(type, connection);
+        ensureTypeId(type, connection);
+        super.create(fullId, type, localId, obj, connection);
+    }
 
-        connection.setAutoCommit(false);
+    @Override
+    public void createAll(String type, Map<String, Map<String, Object>> objects, Connection connection)
+            throws SQLException, IOException, InternalServerErrorException {
+        ensureTypeId(type, connection);
+        super.createAll(type, objects, connection);
+    }
 
-        PreparedStatement createStatement = null;
-        try {
-            // Since ORACLE returns the ROWID instead of an autoincremented column, we have to tell the PreparedStatement to
-            // return the value of the "id-column" instead of the rowid. This is done by passing the following array to the PreparedStatement
-            String generatedColumns[] = {"id"};
-            createStatement = queries.getPreparedStatement(connection, queryMap.get(QueryDefinition.CREATEQUERYSTR), generatedColumns);
-
-            logger.debug("Create with fullid {}", fullId);
-            String rev = "0";
-            obj.put("_id", localId); // Save the id in the object
-            obj.put("_rev", rev); // Save the rev in the object, and return the changed rev from the create.
-            String objString = mapper.writeValueAsString(obj);
-
-            logger.trace("Populating statement {} with params {}, {}, {}, {}",
-                    createStatement, typeId, localId, rev, objString);
-            createStatement.setLong(1, typeId);
-            createStatement.setString(2, localId);
-            createStatement.setString(3, rev);
-            createStatement.setString(4, objString);
-            logger.debug("Executing: {}", createStatement);
-            int val = createStatement.executeUpdate();
-
-            ResultSet keys = createStatement.getGeneratedKeys();
-            boolean validKeyEntry = keys.next();
-            if (!validKeyEntry) {
-                throw new InternalServerErrorException("Object creation for " + fullId + " failed to retrieve an assigned ID from the DB.");
-            }
-
-            // Should now contain the value of the autoincremented column
-            long dbId = keys.getLong(1);
-
-            logger.debug("Created object for id {} with rev {}", fullId, rev);
-            JsonValue jv = new JsonValue(obj);
-            writeValueProperties(fullId, dbId, localId, jv, connection);
-        } finally {
-            CleanupHelper.loggedClose(createStatement);
+    /**
+     * Registers the object type outside of the create transaction.
+     */
+    private void ensureTypeId(String type, Connection connection) throws SQLException, InternalServerErrorException {
+        if (getCachedTypeId(type) != null) {
+            return;
         }
+        connection.setAutoCommit(true);
+        getTypeId(type, connection);
+        connection.setAutoCommit(false);
+    }
+
+    /**
+     * Since ORACLE returns the ROWID instead of an autoincremented column, we have to tell the PreparedStatement to
+     * return the value of the "id-column" instead of the rowid.
+     */
+    @Override
+    protected PreparedStatement getCreateStatement(Connection connection) throws SQLException {
+        String generatedColumns[] = {"id"};
+        return queries.getPreparedStatement(connection, queryMap.get(QueryDefinition.CREATEQUERYSTR), generatedColumns);
     }
 
     @Override
@@ -150,11 +138,6 @@ public class OracleTableHandler extends GenericTableHandler {
         // "SELECT obj.* FROM mainTable obj..."
         builder.from("${_dbSchema}.${_mainTable} obj")
 
-                // join objecttypes to fix OPENIDM-2773
-                .join("${_dbSchema}.objecttypes", "objecttypes")
-                .on(where("obj.objecttypes_id = objecttypes.id")
-                        .and("objecttypes.objecttype = ${otype}"))
-
                 .where(filter.accept(
                         new GenericSQLQueryFilterVisitor(DEFAULT_SEARCHABLE_LENGTH, builder) {
                             // override numeric value clause generation to cast propvalue to a number
@@ -167,13 +150,16 @@ public class OracleTableHandler extends GenericTableHandler {
                         },
                         replacementTokens));
 
-        // other half of OPENIDM-2773 fix
-        replacementTokens.put("otype", params.get("_resource"));
+        // restrict to the object type to fix OPENIDM-2773
+        prepareTypeStatements(builder, (String) params.get("_resource"), replacementTokens);
 
         // JsonValue-cheat to avoid an unchecked cast
         final List<SortKey> sortKeys = new JsonValue(params).get(SORT_KEYS).asList(SortKey.class);
+        final KeysetCookie keyset = KeysetCookie.fromParams(params);
         // Check for sort keys and build up order-by syntax
-        if (sortKeys != null && sortKeys.size() > 0) {
+        if (keyset != null) {
+            prepareKeysetStatements(builder, sortKeys, replacementTokens, keyset);
+        } else if (sortKeys != null && sortKeys.size() > 0) {
             prepareSortKeyStatements(builder, sortKeys, replacementTokens);
         } else {
             builder.orderBy("obj.id", false);
@@ -39,6 +39,7 @@ import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.SortKey;
 import org.forgerock.openidm.repo.jdbc.SQLExceptionHandler;
+import org.forgerock.openidm.repo.util.Clause;
 import org.forgerock.openidm.repo.util.StringSQLQueryFilterVisitor;
 import org.forgerock.openidm.repo.util.StringSQLRenderer;
 import org.forgerock.openidm.util.ResourceUtil;
@@ -150,8 +151,39 @@ public class PostgreSQLTableHandler extends GenericTableHandler {
         
         // JsonValue-cheat to avoid an unchecked cast
         final List<SortKey> sortKeys = new JsonValue(params).get(SORT_KEYS).asList(SortKey.class);
+        final KeysetCookie keyset = KeysetCookie.fromParams(params);
+        String whereClause = filter.accept(new JsonExtractPathQueryFilterVisitor(), replacementTokens).toSQL();
         // Check for sort keys and build up order-by syntax
-        if (sortKeys != null && sortKeys.size() > 0) {
+        if (keyset != null) {
+            // order by the sort keys with nulls last, and then by the object id
+            final List<SortKey> keysetKeys = sortKeys != null ? sortKeys : new ArrayList<SortKey>();
+            final List<String> expressions = new ArrayList<String>();
+            final List<String> keys = new ArrayList<String>();
+            boolean unique = false;
+            for (int i = 0; i < keysetKeys.size(); i++) {
+                final SortKey sortKey = keysetKeys.get(i);
+                final String expression;
+                if (KeysetCookie.isIdKey(sortKey)) {
+                    expression = "obj.objectid";
+                    unique = true;
+                } else {
+                    final String tokenName = "sortKey" + i;
+                    expression = "json_extract_path_text(fullobject, ${" + tokenName + "})";
+                    replacementTokens.put(tokenName, sortKey.getField().toString().substring(1));
+                    keys.add(expression + " IS NULL ASC");
+                }
+                keys.add(expression + (sortKey.isAscendingOrder() ? " ASC" : " DESC"));
+                expressions.add(expression);
+            }
+            if (!unique) {
+                keys.add("obj.objectid ASC");
+            }
+            final Clause seek = keyset.seekClause(keysetKeys, expressions, "obj.objectid", replacementTokens);
+            if (seek != null) {
+                whereClause = "(" + whereClause + ") AND " + seek.toSQL();
+            }
+            pageClause = " ORDER BY " + StringUtils.join(keys, ", ") + pageClause;
+        } else if (sortKeys != null && sortKeys.size() > 0) {
             List<String> keys = new ArrayList<String>();
             for (int i = 0; i < sortKeys.size(); i++) {
                 final SortKey sortKey = sortKeys.get(i);
@@ -162,11 +194,18 @@ public class PostgreSQLTableHandler extends GenericTableHandler {
             pageClause = " ORDER BY " + StringUtils.join(keys, ", ") + pageClause;
         }
 
+        final Long typeId = getCachedTypeId((String) params.get("_resource"));
+        if (typeId != null) {
+            return "SELECT fullobject::text"
+                    + " FROM ${_dbSchema}.${_mainTable} obj"
+                    + " WHERE obj.objecttypes_id = " + typeId
+                    + " AND (" + whereClause + ")" + pageClause;
+        }
         replacementTokens.put("otype", params.get("_resource"));
         return "SELECT fullobject::text"
                 + " FROM ${_dbSchema}.${_mainTable} obj"
                 + " INNER JOIN ${_dbSchema}.objecttypes objtype ON objtype.id = obj.objecttypes_id AND objtype.objecttype = ${otype}"
                 + " WHERE "
-                + filter.accept(new JsonExtractPathQueryFilterVisitor(), replacementTokens).toSQL() + pageClause;
+                + whereClause + pageClause;
     }
 }
@@ -24,6 +24,7 @@
 package org.forgerock.openidm.repo.jdbc.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
@@ -31,6 +32,7 @@ import org.forgerock.guava.common.base.Function;
 import org.forgerock.guava.common.collect.FluentIterable;
 import org.forgerock.openidm.config.enhanced.InternalErrorException;
 import org.forgerock.openidm.repo.util.Clause;
+import org.forgerock.openidm.repo.util.Clauses;
 import org.forgerock.openidm.repo.util.SQLRenderer;
 
 /**
@@ -187,7 +189,7 @@ abstract class SQLBuilder implements SQLRenderer<String> {
     private final List<SQLRenderer<String>> tables = new ArrayList<SQLRenderer<String>>();
     private final List<SQLRenderer<String>> joins = new ArrayList<SQLRenderer<String>>();
     // the where clause is not final because it is not set at build time
-    private SQLRenderer<String> whereClause = null;
+    private Clause whereClause = null;
     private final List<SQLRenderer<String>> orderBys = new ArrayList<SQLRenderer<String>>();
 
     /**
@@ -314,6 +316,17 @@ abstract class SQLBuilder implements SQLRenderer<String> {
         return this;
     }
 
+    /**
+     * Add a clause to the where clause, which both must match.
+     *
+     * @param clause the clause to add
+     * @return the builder
+     */
+    SQLBuilder andWhere(Clause clause) {
+        this.whereClause = whereClause == null ? clause : Clauses.and(Arrays.asList(whereClause, clause));
+        return this;
+    }
+
     /**
      * Add an order-by clause.
      *
@@ -43,6 +43,7 @@ import org.forgerock.json.resource.BadRequestException;
 import org.forgerock.json.resource.InternalServerErrorException;
 import org.forgerock.json.resource.ResourceException;
 import org.forgerock.openidm.core.ServerConstants;
+import org.forgerock.openidm.repo.jdbc.QueryResultHandler;
 import org.forgerock.openidm.repo.jdbc.TableHandler;
 import org.forgerock.openidm.repo.jdbc.impl.CleanupHelper;
 import org.forgerock.openidm.repo.jdbc.impl.GenericTableHandler.QueryDefinition;
@@ -285,8 +286,49 @@ public class TableQueries {
      */
     public List<Map<String, Object>> query(final String type, Map<String, Object> params, Connection con)
             throws ResourceException {
+        final List<Map<String, Object>> result = new ArrayList<>();
+        query(type, params, con, 0, new QueryResultHandler() {
+            @Override
+            public boolean handleResult(Map<String, Object> obj) {
+                result.add(obj);
+                return true;
+            }
+        });
+        return result;
+    }
 
-        List<Map<String, Object>> result = null;
+    /**
+     * Execute a query, either a pre-configured query by using the query ID, or
+     * a query expression passed as part of the params, passing each result
+     * record to the handler as it is read.
+     *
+     * The result set is read forward-only, so the records never need to be
+     * held in memory all at once.
+     *
+     * @param type
+     *            the resource component name targeted by the URI
+     * @param params
+     *            the parameters which include the query id, or the query
+     *            expression, as well as the token key/value pairs to replace in
+     *            the query
+     * @param con
+     *            a handle to a database connection newBuilder for exclusive use
+     *            by the query method whilst it is executing.
+     * @param fetchSize
+     *            the number of rows to fetch from the database at a time, or 0
+     *            for the driver default
+     * @param handler
+     *            the handler receiving the result records; returning false
+     *            stops reading the result set
+     * @throws BadRequestException
+     *             if the passed request parameters are invalid, e.g. missing
+     *             query id or query expression or tokens.
+     * @throws InternalServerErrorException
+     *             if the preparing or executing the query fails because of
+     *             configuration or DB issues
+     */
+    public void query(final String type, Map<String, Object> params, Connection con, int fetchSize,
+            final QueryResultHandler handler) throws ResourceException {
         params.put(ServerConstants.RESOURCE_NAME, type);
 
         // If paged results are requested then decode the cookie in order to determine
@@ -344,10 +386,20 @@ public class TableQueries {
         Name eventName = getEventName(queryId);
         EventEntry measure = Publisher.start(eventName, foundQuery, null);
         ResultSet rs = null;
+        final int[] count = new int[1];
         try {
+            if (fetchSize > 0) {
+                foundQuery.setFetchSize(fetchSize);
+            }
             rs = foundQuery.executeQuery();
-            result = resultMapper.mapToObject(rs, queryId, type, params);
-            measure.setResult(result);
+            resultMapper.mapToObject(rs, queryId, type, params, new QueryResultHandler() {
+                @Override
+                public boolean handleResult(Map<String, Object> obj) {
+                    count[0]++;
+                    return handler.handleResult(obj);
+                }
+            });
+            measure.setResult(count[0]);
         } catch (SQLException ex) {
             logger.debug("DB reported failure executing query " +
                             "{} with params: {} error code: {} sqlstate: {} message: {}",
@@ -362,7 +414,6 @@ public class TableQueries {
             CleanupHelper.loggedClose(foundQuery);
             measure.end();
         }
-        return result;
     }
 
     public Integer command(final String type, Map<String, Object> params, Connection con)
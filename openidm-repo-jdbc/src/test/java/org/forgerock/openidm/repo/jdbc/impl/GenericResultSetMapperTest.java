@@ -0,0 +1,85 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.repo.jdbc.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.openidm.repo.jdbc.QueryResultHandler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test of the row by row mapping of GenericResultSetMapper
+ */
+public class GenericResultSetMapperTest {
+
+    private ResultSet rs;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnName(1)).thenReturn("fullobject");
+        rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true, true, true, false);
+        when(rs.getString("fullobject")).thenReturn("{\"_id\":\"1\"}", "{\"_id\":\"2\"}", "{\"_id\":\"3\"}");
+    }
+
+    @Test
+    public void testPassesEachRowToHandler() throws Exception {
+        final List<Object> ids = new ArrayList<>();
+        new GenericResultSetMapper().mapToObject(rs, "query-all", "managed/user", null, new QueryResultHandler() {
+            @Override
+            public boolean handleResult(Map<String, Object> result) {
+                ids.add(result.get("_id"));
+                return true;
+            }
+        });
+        assertThat(ids).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    public void testStopsReadingWhenHandlerReturnsFalse() throws Exception {
+        final List<Object> ids = new ArrayList<>();
+        new GenericResultSetMapper().mapToObject(rs, "query-all", "managed/user", null, new QueryResultHandler() {
+            @Override
+            public boolean handleResult(Map<String, Object> result) {
+                ids.add(result.get("_id"));
+                return ids.size() < 2;
+            }
+        });
+        assertThat(ids).containsExactly("1", "2");
+        verify(rs, times(2)).next();
+    }
+
+    @Test
+    public void testMapsToList() throws Exception {
+        List<Map<String, Object>> results = new GenericResultSetMapper().mapToObject(rs, "query-all", "managed/user",
+                null);
+        assertThat(results).hasSize(3);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.repo.jdbc.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.array;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.openidm.repo.jdbc.Constants;
+import org.forgerock.openidm.repo.jdbc.impl.GenericTableHandler.QueryDefinition;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test of the properties table maintenance and object type ids of GenericTableHandler
+ */
+public class GenericTableHandlerTest {
+
+    private GenericTableHandler handler;
+    private Connection connection;
+    private PreparedStatement createStatement;
+    private PreparedStatement updateStatement;
+    private PreparedStatement deleteKeyStatement;
+    private PreparedStatement deleteAllStatement;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        JsonValue tableConfig = json(object(
+                field("mainTable", "managedobjects"),
+                field("propertiesTable", "managedobjectproperties"),
+                field("searchableDefault", true)));
+        handler = new GenericTableHandler(tableConfig, null, null, null, 1, null);
+
+        createStatement = mock(PreparedStatement.class);
+        updateStatement = mock(PreparedStatement.class);
+        deleteKeyStatement = mock(PreparedStatement.class);
+        deleteAllStatement = mock(PreparedStatement.class);
+        connection = mock(Connection.class);
+        when(connection.prepareStatement(handler.queryMap.get(QueryDefinition.PROPCREATEQUERYSTR)))
+                .thenReturn(createStatement);
+        when(connection.prepareStatement(handler.queryMap.get(QueryDefinition.PROPUPDATEQUERYSTR)))
+                .thenReturn(updateStatement);
+        when(connection.prepareStatement(handler.queryMap.get(QueryDefinition.PROPDELETEKEYQUERYSTR)))
+                .thenReturn(deleteKeyStatement);
+        when(connection.prepareStatement(handler.queryMap.get(QueryDefinition.PROPDELETEQUERYSTR)))
+                .thenReturn(deleteAllStatement);
+    }
+
+    @Test
+    public void testUpdateWritesOnlyChangedProperties() throws Exception {
+        JsonValue existing = json(object(
+                field("_id", "1"),
+                field("mail", "a@example.com"),
+                field("givenName", "Alice"),
+                field("roles", array("r1", "r2"))));
+        JsonValue updated = json(object(
+                field("_id", "1"),
+                field("mail", "b@example.com"),
+                field("givenName", "Alice"),
+                field("roles", array("r1")),
+                field("sn", "Smith")));
+
+        handler.updateValueProperties("managed/user/1", "managed/user", 10L, "1", row(existing), updated, connection);
+
+        verify(deleteKeyStatement).setString(2, "/roles/1");
+        verify(deleteKeyStatement, times(1)).executeUpdate();
+        verify(updateStatement).setString(2, "b@example.com");
+        verify(updateStatement).setString(4, "/mail");
+        verify(updateStatement, times(1)).executeUpdate();
+        verify(createStatement).setString(2, "/sn");
+        verify(createStatement, times(1)).executeUpdate();
+        verify(deleteAllStatement, never()).executeUpdate();
+    }
+
+    @Test
+    public void testUnchangedUpdateWritesNoProperties() throws Exception {
+        JsonValue existing = json(object(field("_id", "1"), field("mail", "a@example.com")));
+
+        handler.updateValueProperties("managed/user/1", "managed/user", 10L, "1", row(existing), existing.copy(),
+                connection);
+
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void testUpdateRewritesAllPropertiesWhenExistingContentUnreadable() throws Exception {
+        JsonValue row = json(object(field(Constants.RAW_ID, 10L), field(Constants.RAW_OBJECT_FULLOBJECT, "{")));
+        JsonValue updated = json(object(field("_id", "1"), field("mail", "b@example.com")));
+
+        handler.updateValueProperties("managed/user/1", "managed/user", 10L, "1", row, updated, connection);
+
+        verify(deleteAllStatement, times(1)).executeUpdate();
+        verify(createStatement, times(2)).setLong(1, 10L);
+        verify(createStatement, times(2)).executeUpdate();
+        verify(updateStatement, never()).executeUpdate();
+    }
+
+    @Test
+    public void testTypeIdIsOnlyReadOnce() throws Exception {
+        PreparedStatement readTypeStatement = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.prepareStatement(handler.queryMap.get(QueryDefinition.READTYPEQUERYSTR)))
+                .thenReturn(readTypeStatement);
+        when(readTypeStatement.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong(Constants.RAW_ID)).thenReturn(5L);
+
+        assertThat(handler.getTypeId("managed/user", connection)).isEqualTo(5L);
+        assertThat(handler.getTypeId("managed/user", connection)).isEqualTo(5L);
+
+        verify(readTypeStatement, times(1)).executeQuery();
+        verify(connection, never()).setAutoCommit(anyBoolean());
+    }
+
+    private JsonValue row(JsonValue fullObject) throws Exception {
+        return json(object(
+                field(Constants.RAW_ID, 10L),
+                field(Constants.RAW_OBJECT_FULLOBJECT, new ObjectMapper().writeValueAsString(fullObject.getObject()))));
+    }
+}
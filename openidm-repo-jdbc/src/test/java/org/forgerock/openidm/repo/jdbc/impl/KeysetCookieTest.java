@@ -0,0 +1,106 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.repo.jdbc.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.json.resource.BadRequestException;
+import org.forgerock.json.resource.SortKey;
+import org.testng.annotations.Test;
+
+/**
+ * Test of the keyset paged results cookie and seek clause
+ */
+public class KeysetCookieTest {
+
+    private static final List<SortKey> SORT_KEYS = Arrays.asList(
+            SortKey.ascendingOrder("sn"), SortKey.descendingOrder("givenName"));
+
+    private static final List<String> EXPRESSIONS = Arrays.asList("orderby0.propvalue", "orderby1.propvalue");
+
+    @Test
+    public void testFirstPageHasNoSeekClause() {
+        Map<String, Object> tokens = new HashMap<>();
+        assertThat(KeysetCookie.firstPage().seekClause(SORT_KEYS, EXPRESSIONS, "obj.objectid", tokens)).isNull();
+        assertThat(tokens).isEmpty();
+    }
+
+    @Test
+    public void testSeeksPastLastResult() throws Exception {
+        String cookie = KeysetCookie.next(20, SORT_KEYS, newResourceResponse("42", "0",
+                json(object(field("_id", "42"), field("sn", "Smith"), field("givenName", "Alice")))));
+
+        KeysetCookie keyset = KeysetCookie.parse(cookie);
+        Map<String, Object> tokens = new HashMap<>();
+        String sql = keyset.seekClause(SORT_KEYS, EXPRESSIONS, "obj.objectid", tokens).toSQL();
+
+        assertThat(keyset.getPosition()).isEqualTo(20);
+        assertThat(keyset.matches(SORT_KEYS)).isTrue();
+        assertThat(sql).isEqualTo("((orderby0.propvalue IS NULL OR orderby0.propvalue > ${keyset0})"
+                + " OR (orderby0.propvalue = ${keyset0}"
+                + " AND (orderby1.propvalue IS NULL OR orderby1.propvalue < ${keyset1}))"
+                + " OR (orderby0.propvalue = ${keyset0} AND orderby1.propvalue = ${keyset1}"
+                + " AND obj.objectid > ${keysetId}))");
+        assertThat(tokens).containsEntry("keyset0", "Smith").containsEntry("keyset1", "Alice")
+                .containsEntry("keysetId", "42");
+    }
+
+    @Test
+    public void testNullSortValueOnlySeeksPastOtherNulls() throws Exception {
+        List<SortKey> sortKeys = Collections.singletonList(SortKey.ascendingOrder("sn"));
+        String cookie = KeysetCookie.next(10, sortKeys,
+                newResourceResponse("7", "0", json(object(field("_id", "7"), field("sn", null)))));
+
+        String sql = KeysetCookie.parse(cookie).seekClause(sortKeys, EXPRESSIONS.subList(0, 1), "obj.objectid",
+                new HashMap<String, Object>()).toSQL();
+
+        assertThat(sql).isEqualTo("((orderby0.propvalue IS NULL AND obj.objectid > ${keysetId}))");
+    }
+
+    @Test
+    public void testNoCookieForStructuredSortValue() {
+        List<SortKey> sortKeys = Collections.singletonList(SortKey.ascendingOrder("roles"));
+        assertThat(KeysetCookie.next(10, sortKeys, newResourceResponse("7", "0",
+                json(object(field("_id", "7"), field("roles", Arrays.asList("a", "b"))))))).isNull();
+    }
+
+    @Test
+    public void testDoesNotMatchOtherSortKeys() throws Exception {
+        KeysetCookie keyset = KeysetCookie.parse(KeysetCookie.next(20, SORT_KEYS, newResourceResponse("42", "0",
+                json(object(field("_id", "42"), field("sn", "Smith"), field("givenName", "Alice"))))));
+
+        assertThat(keyset.matches(Arrays.asList(SortKey.ascendingOrder("sn"), SortKey.ascendingOrder("givenName"))))
+                .isFalse();
+        assertThat(keyset.matches(Arrays.asList(SortKey.ascendingOrder("sn"), SortKey.descendingOrder("mail"))))
+                .isFalse();
+        assertThat(keyset.matches(Collections.singletonList(SortKey.ascendingOrder("sn")))).isFalse();
+    }
+
+    @Test(expectedExceptions = BadRequestException.class)
+    public void testRejectsInvalidCookie() throws Exception {
+        KeysetCookie.parse("not-a-cookie");
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openidm.router.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.forgerock.json.resource.ActionRequest;
+import org.forgerock.json.resource.ActionResponse;
+import org.forgerock.json.resource.CreateRequest;
+import org.forgerock.json.resource.DeleteRequest;
+import org.forgerock.json.resource.Filter;
+import org.forgerock.json.resource.FilterChain;
+import org.forgerock.json.resource.PatchRequest;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.QueryResponse;
+import org.forgerock.json.resource.ReadRequest;
+import org.forgerock.json.resource.Request;
+import org.forgerock.json.resource.RequestHandler;
+import org.forgerock.json.resource.RequestType;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.json.resource.ResourcePath;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.UpdateRequest;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * Dispatches the requests to the configured router filters they may be relevant to.
+ * <p>
+ * The filters are indexed by request type and by the literal resource path prefixes their pattern starts with, in a
+ * trie of path segments, so that a request is only passed to the filters of its type whose prefix its path starts
+ * with, in the order they are configured. Each of these filters still checks its pattern and condition.
+ */
+class FilterDispatch implements Filter {
+
+    /** The characters of a pattern matched literally and not encoded in a resource path */
+    private static final String LITERAL_CHARACTERS =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_-/";
+
+    /** A configured filter and the requests it may be relevant to */
+    static final class Route {
+        private final Set<RequestType> requestTypes;
+        private final List<String> prefixes;
+        private final Filter filter;
+
+        /**
+         * Creates a route.
+         *
+         * @param requestTypes the request types of the filter, empty for all of them
+         * @param prefixes the resource path prefixes of the filter, or null for any path
+         * @param filter the filter
+         */
+        Route(Set<RequestType> requestTypes, List<String> prefixes, Filter filter) {
+            this.requestTypes = requestTypes;
+            this.prefixes = prefixes;
+            this.filter = filter;
+        }
+    }
+
+    /** A node of the trie, for a resource path prefix */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        /** The routes of the prefix, while building the trie */
+        private final BitSet routes = new BitSet();
+        /** The filters of the prefix and of the prefixes it starts with, in order */
+        private List<Filter> filters;
+    }
+
+    private final Map<RequestType, Node> tries = new EnumMap<>(RequestType.class);
+
+    /**
+     * Creates a dispatch to the given routes.
+     *
+     * @param routes the routes, in the order their filters are configured
+     */
+    FilterDispatch(List<Route> routes) {
+        for (RequestType requestType : RequestType.values()) {
+            final Node root = new Node();
+            for (int i = 0; i < routes.size(); i++) {
+                final Route route = routes.get(i);
+                if (!route.requestTypes.isEmpty() && !route.requestTypes.contains(requestType)) {
+                    continue;
+                }
+                if (route.prefixes == null) {
+                    root.routes.set(i);
+                    continue;
+                }
+                for (String prefix : route.prefixes) {
+                    Node node = root;
+                    for (String segment : prefix.split("/")) {
+                        Node child = node.children.get(segment);
+                        if (child == null) {
+                            child = new Node();
+                            node.children.put(segment, child);
+                        }
+                        node = child;
+                    }
+                    node.routes.set(i);
+                }
+            }
+            collectFilters(root, new BitSet(), routes);
+            tries.put(requestType, root);
+        }
+    }
+
+    private static void collectFilters(Node node, BitSet parentRoutes, List<Route> routes) {
+        node.routes.or(parentRoutes);
+        final List<Filter> filters = new ArrayList<>(node.routes.cardinality());
+        for (int i = node.routes.nextSetBit(0); i >= 0; i = node.routes.nextSetBit(i + 1)) {
+            filters.add(routes.get(i).filter);
+        }
+        node.filters = Collections.unmodifiableList(filters);
+        for (Node child : node.children.values()) {
+            collectFilters(child, node.routes, routes);
+        }
+    }
+
+    /**
+     * Returns the literal resource path prefixes any path matched by the pattern starts with, such as
+     * {@code managed} and {@code system} for {@code ^(managed|system)($|(/.+))}, or {@code repo/internal} for
+     * {@code repo/internal/user.*}. The pattern is matched against the whole resource path.
+     *
+     * @param regex the pattern of a filter
+     * @return the prefixes, made of whole path segments, or null if any path may be matched
+     */
+    static List<String> pathPrefixes(String regex) {
+        String rest = regex.startsWith("^") ? regex.substring(1) : regex;
+        final List<String> literals = new ArrayList<>();
+        if (rest.startsWith("(")) {
+            // an alternation of literals
+            final int close = rest.indexOf(')');
+            if (close < 0) {
+                return null;
+            }
+            for (String literal : rest.substring(1, close).split("\\|", -1)) {
+                if (literalLength(literal) != literal.length()) {
+                    return null;
+                }
+                literals.add(literal);
+            }
+            rest = rest.substring(close + 1);
+            if (isQuantifier(rest)) {
+                return null;
+            }
+        } else {
+            String literal = rest.substring(0, literalLength(rest));
+            rest = rest.substring(literal.length());
+            if (isQuantifier(rest) && !literal.isEmpty()) {
+                // the last character may not be matched
+                literal = literal.substring(0, literal.length() - 1);
+            }
+            literals.add(literal);
+        }
+        if (hasAlternation(rest)) {
+            return null;
+        }
+        // whether a path matched goes on with a new segment, or ends, after the literal
+        final boolean wholeSegments = rest.isEmpty() || rest.startsWith("$") || rest.startsWith("/")
+                || rest.startsWith("($|/") || rest.startsWith("($|(/");
+        final List<String> prefixes = new ArrayList<>(literals.size());
+        for (String literal : literals) {
+            String prefix = wholeSegments ? literal : literal.substring(0, Math.max(literal.lastIndexOf('/'), 0));
+            if (prefix.endsWith("/")) {
+                prefix = prefix.substring(0, prefix.length() - 1);
+            }
+            if (prefix.isEmpty() || prefix.startsWith("/") || prefix.contains("//")) {
+                return null;
+            }
+            prefixes.add(prefix);
+        }
+        return prefixes;
+    }
+
+    private static int literalLength(String regex) {
+        int length = 0;
+        while (length < regex.length() && LITERAL_CHARACTERS.indexOf(regex.charAt(length)) >= 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static boolean isQuantifier(String regex) {
+        return regex.startsWith("*") || regex.startsWith("?") || regex.startsWith("+") || regex.startsWith("{");
+    }
+
+    /** Tells whether the pattern has an alternation outside of any group */
+    private static boolean hasAlternation(String regex) {
+        int depth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            switch (regex.charAt(i)) {
+            case '\\':
+                i++;
+                break;
+            case '(':
+                depth++;
+                break;
+            case ')':
+                depth--;
+                break;
+            case '|':
+                if (depth == 0) {
+                    return true;
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the filters a request may be relevant to, in order.
+     *
+     * @param request the request
+     * @return the filters
+     */
+    List<Filter> getFilters(Request request) {
+        Node node = tries.get(request.getRequestType());
+        final ResourcePath path = request.getResourcePathObject();
+        for (int i = 0; i < path.size(); i++) {
+            final Node child = node.children.get(path.get(i));
+            if (child == null) {
+                break;
+            }
+            node = child;
+        }
+        return node.filters;
+    }
+
+    private RequestHandler handler(Request request, RequestHandler next) {
+        final List<Filter> filters = getFilters(request);
+        return filters.isEmpty() ? next : new FilterChain(next, filters);
+    }
+
+    @Override
+    public Promise<ActionResponse, ResourceException> filterAction(Context context, ActionRequest request,
+            RequestHandler next) {
+        return handler(request, next).handleAction(context, request);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterCreate(Context context, CreateRequest request,
+            RequestHandler next) {
+        return handler(request, next).handleCreate(context, request);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterDelete(Context context, DeleteRequest request,
+            RequestHandler next) {
+        return handler(request, next).handleDelete(context, request);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterPatch(Context context, PatchRequest request,
+            RequestHandler next) {
+        return handler(request, next).handlePatch(context, request);
+    }
+
+    @Override
+    public Promise<QueryResponse, ResourceException> filterQuery(Context context, QueryRequest request,
+            QueryResourceHandler handler, RequestHandler next) {
+        return handler(request, next).handleQuery(context, request, handler);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterRead(Context context, ReadRequest request,
+            RequestHandler next) {
+        return handler(request, next).handleRead(context, request);
+    }
+
+    @Override
+    public Promise<ResourceResponse, ResourceException> filterUpdate(Context context, UpdateRequest request,
+            RequestHandler next) {
+        return handler(request, next).handleUpdate(context, request);
+    }
+}
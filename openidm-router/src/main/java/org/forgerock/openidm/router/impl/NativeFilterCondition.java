@@ -0,0 +1,163 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openidm.router.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.FilterCondition;
+import org.forgerock.json.resource.Request;
+import org.forgerock.services.context.ClientContext;
+import org.forgerock.services.context.Context;
+
+/**
+ * A filter condition script evaluated natively, without a script engine.
+ * <p>
+ * Only inline JavaScript conditions made of simple checks of the context, such as
+ * {@code context.caller.external === true || context.current.name === 'selfservice'}, are compiled. The checks are
+ * comparisons with a literal, or the truthiness, of {@code context.caller.external} or {@code context.current.name},
+ * joined by {@code ||} and {@code &&}. As the script would fail, the condition does not match once it checks the
+ * caller of a request without a {@link ClientContext}.
+ */
+final class NativeFilterCondition implements FilterCondition {
+
+    private static final String JAVASCRIPT = "text/javascript";
+
+    private static final Pattern CHECK = Pattern.compile(
+            "(!?)\\s*context\\.(caller\\.external|current\\.name)"
+            + "(?:\\s*(===|!==|==|!=)\\s*(true|false|'[^'\\\\]*'|\"[^\"\\\\]*\"))?");
+
+    /** A check of the context */
+    private static final class Check {
+        private final boolean caller;
+        private final boolean negated;
+        private final boolean equal;
+        /** The literal compared with, or null to check the truthiness */
+        private final Object literal;
+
+        private Check(boolean caller, boolean negated, boolean equal, Object literal) {
+            this.caller = caller;
+            this.negated = negated;
+            this.equal = equal;
+            this.literal = literal;
+        }
+
+        /** Returns the result of the check, or null if the script would fail */
+        private Boolean matches(Context context) {
+            Object value;
+            if (caller) {
+                if (!context.containsContext(ClientContext.class)) {
+                    return null;
+                }
+                value = context.asContext(ClientContext.class).isExternal();
+            } else {
+                value = context.getContextName();
+            }
+            if (negated) {
+                value = !isTruthy(value);
+            }
+            if (literal == null) {
+                return isTruthy(value);
+            }
+            return literal.equals(value) == equal;
+        }
+
+        private static boolean isTruthy(Object value) {
+            return value instanceof Boolean ? (Boolean) value : value != null && !value.toString().isEmpty();
+        }
+    }
+
+    /** The checks, all of which must match in any of the groups */
+    private final List<List<Check>> groups;
+
+    private NativeFilterCondition(List<List<Check>> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * Compiles a condition script.
+     *
+     * @param condition the configuration of the condition script
+     * @return the condition, or null if the script is not made of simple checks of the context
+     */
+    static FilterCondition compile(JsonValue condition) {
+        if (!condition.isMap()
+                || !JAVASCRIPT.equals(condition.get("type").asString())
+                || !condition.get("source").isString()
+                || condition.isDefined("file")) {
+            return null;
+        }
+        final List<List<Check>> groups = new ArrayList<>();
+        for (String group : condition.get("source").asString().trim().split("\\|\\|", -1)) {
+            final List<Check> checks = new ArrayList<>();
+            for (String check : group.split("&&", -1)) {
+                final Check compiled = compileCheck(check.trim());
+                if (compiled == null) {
+                    return null;
+                }
+                checks.add(compiled);
+            }
+            groups.add(checks);
+        }
+        return new NativeFilterCondition(groups);
+    }
+
+    private static Check compileCheck(String check) {
+        final Matcher matcher = CHECK.matcher(check);
+        if (!matcher.matches()) {
+            return null;
+        }
+        final boolean caller = "caller.external".equals(matcher.group(2));
+        final boolean negated = !matcher.group(1).isEmpty();
+        final String operator = matcher.group(3);
+        if (operator == null) {
+            return new Check(caller, negated, true, null);
+        }
+        final String literal = matcher.group(4);
+        final boolean booleanLiteral = "true".equals(literal) || "false".equals(literal);
+        // only the comparisons of values of the same type, for which == is ===
+        if (booleanLiteral != (caller || negated)) {
+            return null;
+        }
+        return new Check(caller, negated, operator.startsWith("="),
+                booleanLiteral ? Boolean.valueOf(literal) : literal.substring(1, literal.length() - 1));
+    }
+
+    @Override
+    public boolean matches(Context context, Request request) {
+        for (List<Check> checks : groups) {
+            boolean matches = true;
+            for (Check check : checks) {
+                final Boolean result = check.matches(context);
+                if (result == null) {
+                    return false;
+                }
+                if (!result) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -21,6 +21,7 @@ import static org.forgerock.json.JsonValueFunctions.enumConstant;
 import static org.forgerock.json.JsonValueFunctions.pattern;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
@@ -177,16 +178,19 @@ public class RouterConfig {
      */
     private List<Filter> createFilterList(JsonValue configuration) throws ScriptException {
         final JsonValue filterConfig = configuration.get("filters").expect(List.class);
-        final List<Filter> filters = new ArrayList<>(filterConfig.size());
+        final List<FilterDispatch.Route> routes = new ArrayList<>(filterConfig.size());
 
         for (JsonValue jv : filterConfig) {
-            Filter filter = newFilter(jv);
-            if (null != filter) {
-                filters.add(filter);
+            FilterDispatch.Route route = newRoute(jv);
+            if (null != route) {
+                routes.add(route);
             }
         }
 
-        return filters;
+        // the filters are dispatched to by a single filter, so that a request only goes through the relevant ones
+        return routes.isEmpty()
+                ? Collections.<Filter>emptyList()
+                : Collections.<Filter>singletonList(new FilterDispatch(routes));
     }
 
     /**
@@ -199,9 +203,28 @@ public class RouterConfig {
      * @throws JsonValueException if filter configuration is incorrect
      */
     Filter newFilter(JsonValue config) throws JsonValueException, ScriptException {
+        final FilterDispatch.Route route = newRoute(config);
+        return (null == route) ? null : new FilterDispatch(Collections.singletonList(route));
+    }
+
+    /**
+     * Create the route to a Filter from the filter configuration.
+     *
+     * @param config
+     *            the configuration describing a single filter.
+     * @return the route to the Filter
+     * @throws ScriptException on failure to create filter from config
+     * @throws JsonValueException if filter configuration is incorrect
+     */
+    private FilterDispatch.Route newRoute(JsonValue config) throws JsonValueException, ScriptException {
         FilterCondition filterCondition = null;
+        List<String> prefixes = null;
 
-        final Pair<JsonPointer, ScriptEntry> condition = getScript(config.get("condition"));
+        // Simple conditions on the context are evaluated without the script
+        final FilterCondition nativeCondition = NativeFilterCondition.compile(config.get("condition"));
+        final Pair<JsonPointer, ScriptEntry> condition = (null == nativeCondition)
+                ? getScript(config.get("condition"))
+                : null;
         final Pair<JsonPointer, ScriptEntry> onRequest = getScript(config.get("onRequest"));
         final Pair<JsonPointer, ScriptEntry> onResponse = getScript(config.get("onResponse"));
         final Pair<JsonPointer, ScriptEntry> onFailure = getScript(config.get("onFailure"));
@@ -211,31 +234,23 @@ public class RouterConfig {
             return null;
         }
 
-        // Check for condition on pattern
+        // Check for condition on pattern, dispatched to by the prefixes of the pattern
         Pattern pattern = config.get("pattern").as(pattern());
         if (null != pattern) {
             filterCondition = Filters.matchResourcePath(pattern);
+            prefixes = FilterDispatch.pathPrefixes(pattern.pattern());
         }
 
-        // Check for condition on type
+        // Check for condition on type, dispatched to
         final EnumSet<RequestType> requestTypes = EnumSet.noneOf(RequestType.class);
         for (JsonValue method : config.get("methods").expect(List.class)) {
             requestTypes.add(method.as(enumConstant(RequestType.class)));
         }
-        if (!requestTypes.isEmpty()) {
-            filterCondition = (null == filterCondition)
-                    ? Filters.matchRequestType(requestTypes)
-                    : Filters.and(filterCondition, Filters.matchRequestType(requestTypes));
-        }
-
-        // Create the filter
-        Filter filter = (null == filterCondition)
-                ? new ScriptedFilter(onRequest, onResponse, onFailure)
-                : Filters.conditionalFilter(filterCondition, new ScriptedFilter(onRequest, onResponse, onFailure));
 
         // Check for a condition script
+        FilterCondition conditionFilterCondition = nativeCondition;
         if (null != condition) {
-            FilterCondition conditionFilterCondition = new FilterCondition() {
+            conditionFilterCondition = new FilterCondition() {
                 @Override
                 public boolean matches(final Context context, final Request request) {
                     try {
@@ -249,9 +264,18 @@ public class RouterConfig {
                     return false;
                 }
             };
-            filter = Filters.conditionalFilter(conditionFilterCondition, filter);
         }
-        return filter;
+        if (null != conditionFilterCondition) {
+            filterCondition = (null == filterCondition)
+                    ? conditionFilterCondition
+                    : Filters.and(filterCondition, conditionFilterCondition);
+        }
+
+        // Create the filter
+        Filter filter = (null == filterCondition)
+                ? new ScriptedFilter(onRequest, onResponse, onFailure)
+                : Filters.conditionalFilter(filterCondition, new ScriptedFilter(onRequest, onResponse, onFailure));
+        return new FilterDispatch.Route(requestTypes, prefixes, filter);
     }
 
     private Pair<JsonPointer, ScriptEntry> getScript(JsonValue scriptJson) throws ScriptException {
@@ -0,0 +1,123 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openidm.router.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.Filter;
+import org.forgerock.json.resource.FilterCondition;
+import org.forgerock.json.resource.RequestType;
+import org.forgerock.json.resource.Requests;
+import org.forgerock.services.context.ClientContext;
+import org.forgerock.services.context.RootContext;
+import org.testng.annotations.Test;
+
+/**
+ * A test of the dispatch to the router filters and of the conditions evaluated natively.
+ */
+public class FilterDispatchTest {
+
+    private static final Set<RequestType> ALL = EnumSet.noneOf(RequestType.class);
+
+    private static JsonValue javascript(String source) {
+        return json(object(field("type", "text/javascript"), field("source", source)));
+    }
+
+    @Test
+    public void testPathPrefixes() {
+        assertThat(FilterDispatch.pathPrefixes("^(managed|system|repo/internal)($|(/.+))"))
+                .containsExactly("managed", "system", "repo/internal");
+        assertThat(FilterDispatch.pathPrefixes("repo/internal/user.*")).containsExactly("repo/internal");
+        assertThat(FilterDispatch.pathPrefixes("managed/user")).containsExactly("managed/user");
+        assertThat(FilterDispatch.pathPrefixes("managed/users?/.*")).containsExactly("managed");
+        assertThat(FilterDispatch.pathPrefixes(".*")).isNull();
+        assertThat(FilterDispatch.pathPrefixes("^(?!.*(^audit/)).*$")).isNull();
+        assertThat(FilterDispatch.pathPrefixes("managed/.*|system/.*")).isNull();
+        assertThat(FilterDispatch.pathPrefixes("(managed|system)?/.*")).isNull();
+    }
+
+    @Test
+    public void testDispatchesToFiltersOfRequestTypeAndPrefix() {
+        final Filter authz = mock(Filter.class);
+        final Filter policy = mock(Filter.class);
+        final Filter hash = mock(Filter.class);
+        final FilterDispatch dispatch = new FilterDispatch(Arrays.asList(
+                new FilterDispatch.Route(ALL, null, authz),
+                new FilterDispatch.Route(EnumSet.of(RequestType.CREATE, RequestType.UPDATE),
+                        FilterDispatch.pathPrefixes("^(managed|system|repo/internal)($|(/.+))"), policy),
+                new FilterDispatch.Route(EnumSet.of(RequestType.CREATE, RequestType.UPDATE),
+                        FilterDispatch.pathPrefixes("repo/internal/user.*"), hash)));
+
+        assertThat(dispatch.getFilters(Requests.newCreateRequest("repo/internal/user", json(object()))))
+                .containsExactly(authz, policy, hash);
+        assertThat(dispatch.getFilters(Requests.newCreateRequest("managed/user", json(object()))))
+                .containsExactly(authz, policy);
+        assertThat(dispatch.getFilters(Requests.newCreateRequest("managed", json(object()))))
+                .containsExactly(authz, policy);
+        assertThat(dispatch.getFilters(Requests.newCreateRequest("config", json(object()))))
+                .containsExactly(authz);
+        assertThat(dispatch.getFilters(Requests.newReadRequest("repo/internal/user/0")))
+                .containsExactly(authz);
+        assertThat(new FilterDispatch(Arrays.asList(
+                new FilterDispatch.Route(EnumSet.of(RequestType.UPDATE), null, policy)))
+                .getFilters(Requests.newReadRequest("managed/user/0")))
+                .isEmpty();
+    }
+
+    @Test
+    public void testCompilesSimpleContextChecks() {
+        final FilterCondition condition = NativeFilterCondition.compile(
+                javascript("context.caller.external === true || context.current.name === 'selfservice'"));
+        assertThat(condition).isNotNull();
+
+        assertThat(condition.matches(ClientContext.buildExternalClientContext(new RootContext()).build(),
+                Requests.newReadRequest("managed/user"))).isTrue();
+        assertThat(condition.matches(ClientContext.newInternalClientContext(new RootContext()),
+                Requests.newReadRequest("managed/user"))).isFalse();
+        // the script would fail to read the caller
+        assertThat(condition.matches(new RootContext(), Requests.newReadRequest("managed/user"))).isFalse();
+
+        // the caller is not read once the name matched
+        final FilterCondition named = NativeFilterCondition.compile(
+                javascript("context.current.name == \"root\" || context.caller.external"));
+        assertThat(named.matches(new RootContext(), Requests.newReadRequest("managed/user"))).isTrue();
+
+        final FilterCondition internal = NativeFilterCondition.compile(
+                javascript("!context.caller.external && context.current.name !== 'selfservice'"));
+        assertThat(internal.matches(ClientContext.newInternalClientContext(new RootContext()),
+                Requests.newReadRequest("managed/user"))).isTrue();
+    }
+
+    @Test
+    public void testDoesNotCompileOtherScripts() {
+        assertThat(NativeFilterCondition.compile(javascript("request.resourcePath === 'managed/user'"))).isNull();
+        assertThat(NativeFilterCondition.compile(javascript("context.caller.external === 'true'"))).isNull();
+        assertThat(NativeFilterCondition.compile(javascript("(context.caller.external)"))).isNull();
+        assertThat(NativeFilterCondition.compile(
+                json(object(field("type", "groovy"), field("source", "context.caller.external"))))).isNull();
+        assertThat(NativeFilterCondition.compile(json(null))).isNull();
+    }
+}
@@ -201,6 +201,14 @@ public class TaskScannerContext {
         return numParams.asInteger();
     }
 
+    /**
+     * @return the maximum number of objects a thread takes from the query results at once, 10 by default
+     */
+    public int getBatchSize() {
+        JsonValue batchSize = params.get("batchSize").defaultTo(10);
+        return Math.max(1, batchSize.asInteger());
+    }
+
     public TaskScannerStatistic getStatistics() {
         return this.statistics;
     }
@@ -212,6 +220,7 @@ public class TaskScannerContext {
         progress.put("total", statistics.getNumberOfTasksToProcess());
         progress.put("successes", statistics.getNumberOfTasksSucceeded());
         progress.put("failures", statistics.getNumberOfTasksFailed());
+        progress.put("skipped", statistics.getNumberOfTasksSkipped());
         return progress;
     }
 
@@ -20,10 +20,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.script.ScriptException;
 
@@ -55,6 +57,15 @@ public class TaskScannerJob {
     private final static Logger logger = LoggerFactory.getLogger(TaskScannerJob.class);
     private final static DateUtil DATE_UTIL = DateUtil.getDateUtil(ServerConstants.TIME_ZONE_UTC);
 
+    /** The number of batches queued per thread, ahead of the threads taking them */
+    private final static int QUEUED_BATCHES_PER_THREAD = 2;
+
+    /** The seconds to wait for room in the queue before checking whether the task can still go on */
+    private final static long QUEUE_OFFER_TIMEOUT_SECONDS = 1;
+
+    /** Marks the end of the query results in the queue */
+    private final static JsonValue END_OF_QUEUE = new JsonValue(null);
+
     private ConnectionFactory connectionFactory;
     private TaskScannerContext taskScannerContext;
 
@@ -105,7 +116,9 @@ public class TaskScannerJob {
 
     /**
      * Performs the task associated with the task scanner event.
-     * Runs the query and executes the script across each resulting object.
+     * Streams the query results into a bounded queue, from which the threads of the executor take batches of
+     * objects to claim and execute the script across, so that neither the whole result set is held in memory
+     * nor a thread sits idle while objects are left to process.
      *
      * @param executor ExecutorService in which to invoke this task.
      * @throws ExecutionException
@@ -116,48 +129,59 @@ public class TaskScannerJob {
         logger.info("Task {} started from {} with script {}",
                 new Object[] { taskScannerContext.getTaskScanID(), taskScannerContext.getInvokerName(), taskScannerContext.getScriptName() });
 
-        JsonValue results;
-        taskScannerContext.startQuery();
-        try {
-            results = fetchAllObjects();
-        } catch (ResourceException e1) {
-            throw new ExecutionException("Error during query", e1);
-        }
-        taskScannerContext.endQuery();
-        Integer maxRecords = taskScannerContext.getMaxRecords();
-        if (maxRecords == null) {
-            taskScannerContext.setNumberOfTasksToProcess(results.size());
-        } else {
-            taskScannerContext.setNumberOfTasksToProcess(Math.min(results.size(), maxRecords));
-        }
-        logger.debug("TaskScan {} query results: {}", taskScannerContext.getInvokerName(), results.size());
-        // TODO jump out early if it's empty?
-
-        // Split and prune the result set according to our max and if we're synchronous or not
-        List<JsonValue> resultSets = splitResultsOverThreads(results, taskScannerContext.getNumberOfThreads(), maxRecords);
-        logger.debug("Split result set into {} units", resultSets.size());
+        int numberOfThreads = taskScannerContext.getNumberOfThreads();
+        final int batchSize = taskScannerContext.getBatchSize();
+        final BlockingQueue<JsonValue> queue =
+                new ArrayBlockingQueue<JsonValue>(QUEUED_BATCHES_PER_THREAD * numberOfThreads * batchSize);
 
-        List<Callable<Object>> todo = new ArrayList<Callable<Object>>();
-        for (final JsonValue result : resultSets) {
-            Runnable command = new Runnable() {
+        List<Future<?>> workers = new ArrayList<Future<?>>();
+        for (int i = 0; i < numberOfThreads; i++) {
+            workers.add(executor.submit(new Runnable() {
                 @Override
                 public void run() {
-                    try {
-                        performTaskOverSet(result);
-                    } catch (Exception ex) {
-                        logger.warn("Taskscanner failed with unexpected exception", ex);
-                    }
+                    performTaskOverQueue(queue, batchSize);
                 }
-            };
-            todo.add(Executors.callable(command));
+            }));
         }
 
+        ResourceException queryError = null;
+        taskScannerContext.startQuery();
         try {
-            executor.invokeAll(todo);
+            streamObjects(queue, workers);
+        } catch (ResourceException e) {
+            queryError = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        taskScannerContext.endQuery();
+        logger.debug("TaskScan {} query results: {}", taskScannerContext.getInvokerName(),
+                taskScannerContext.getStatistics().getNumberOfTasksToProcess());
+
+        try {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            // The workers hand the end of the queue over to each other
+            while (!queue.offer(END_OF_QUEUE, QUEUE_OFFER_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                if (allDone(workers)) {
+                    break;
+                }
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
         } catch (InterruptedException e) {
             // Mark it interrupted
             taskScannerContext.interrupted();
+            executor.shutdownNow();
             logger.warn("Task scan '" + taskScannerContext.getTaskScanID() + "' interrupted");
+        } catch (java.util.concurrent.ExecutionException e) {
+            logger.warn("Taskscanner failed with unexpected exception", e.getCause());
+        }
+
+        if (queryError != null) {
+            taskScannerContext.interrupted();
+            throw new ExecutionException("Error during query", queryError);
         }
         // Don't mark the job as completed if its been deactivated
         if (!taskScannerContext.isInactive()) {
@@ -172,95 +196,138 @@ public class TaskScannerJob {
         });
     }
 
-    private List<JsonValue> splitResultsOverThreads(JsonValue results, int numberOfThreads, Integer max) {
-        List<List<Object>> resultSets = new ArrayList<List<Object>>();
-        for (int i = 0; i < numberOfThreads; i++) {
-            resultSets.add(new ArrayList<Object>());
-        }
-
-        int i = 0;
-        for (JsonValue obj : results) {
-            if (max != null && i >= max) {
-                break;
+    /**
+     * Takes batches of objects from the queue and processes them, until the end of the queue is reached.
+     * Once the task is cancelled the remaining objects are still taken, so that the query is not blocked, but
+     * no longer processed. The end of the queue is put back for the other threads however the thread ends.
+     *
+     * @param queue the queue of the objects to process
+     * @param batchSize the maximum number of objects taken at once
+     */
+    private void performTaskOverQueue(BlockingQueue<JsonValue> queue, int batchSize) {
+        List<JsonValue> batch = new ArrayList<JsonValue>(batchSize);
+        boolean end = false;
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                for (JsonValue input : batch) {
+                    if (input == END_OF_QUEUE) {
+                        end = true;
+                        return;
+                    }
+                    if (taskScannerContext.isCanceled()) {
+                        continue;
+                    }
+                    try {
+                        performTaskOnObject(input);
+                    } catch (Exception ex) {
+                        logger.warn("Taskscanner failed with unexpected exception", ex);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // The end is the last object queued, once taken there is room to put it back without blocking
+            if (end) {
+                queue.offer(END_OF_QUEUE);
             }
-            resultSets.get(i % numberOfThreads).add(obj.getObject());
-            i++;
         }
+    }
 
-        List<JsonValue> jsonSets = new ArrayList<JsonValue>();
-        for (List<Object> set : resultSets) {
-            jsonSets.add(new JsonValue(set));
+    /**
+     * @param workers the futures of the threads processing the queue
+     * @return whether all threads have ended, so that nothing takes from the queue anymore
+     */
+    private static boolean allDone(List<Future<?>> workers) {
+        for (Future<?> worker : workers) {
+            if (!worker.isDone()) {
+                return false;
+            }
         }
-
-        return jsonSets;
+        return true;
     }
 
-    private void performTaskOverSet(JsonValue results)
+    private void performTaskOnObject(JsonValue input)
                     throws ExecutionException {
-        for (JsonValue input : results) {
-            if (taskScannerContext.isCanceled()) {
-                logger.info("Task '" + taskScannerContext.getTaskScanID() + "' cancelled. Terminating execution.");
-                break; // Jump out quick since we've cancelled the job
-            }
-            // Check if this object has a STARTED time already
-            JsonValue startTime = input.get(taskScannerContext.getStartField());
-            String startTimeString = null;
-            if (startTime != null && !startTime.isNull()) {
-                startTimeString = startTime.asString();
-                DateTime startedTime = DATE_UTIL.parseTimestamp(startTimeString);
-
-                // Skip if the startTime + interval has not been passed
-                ReadablePeriod period = taskScannerContext.getRecoveryTimeout();
-                DateTime expirationDate = startedTime.plus(period);
-                if (expirationDate.isAfterNow()) {
-                    logger.debug("Object already started and has not expired. Started at: {}. Timeout: {}. Expires at: {}",
-                            new Object[] {
-                            DATE_UTIL.formatDateTime(startedTime),
-                            period,
-                            DATE_UTIL.formatDateTime(expirationDate)});
-                    continue;
-                }
+        // Check if this object has a STARTED time already
+        JsonValue startTime = input.get(taskScannerContext.getStartField());
+        String startTimeString = null;
+        if (startTime != null && !startTime.isNull()) {
+            startTimeString = startTime.asString();
+            DateTime startedTime = DATE_UTIL.parseTimestamp(startTimeString);
+
+            // Skip if the startTime + interval has not been passed
+            ReadablePeriod period = taskScannerContext.getRecoveryTimeout();
+            DateTime expirationDate = startedTime.plus(period);
+            if (expirationDate.isAfterNow()) {
+                logger.debug("Object already started and has not expired. Started at: {}. Timeout: {}. Expires at: {}",
+                        new Object[] {
+                        DATE_UTIL.formatDateTime(startedTime),
+                        period,
+                        DATE_UTIL.formatDateTime(expirationDate)});
+                taskScannerContext.getStatistics().taskSkipped();
+                return;
             }
+        }
 
-            try {
-                claimAndExecScript(input, startTimeString);
-            } catch (ResourceException e) {
-                throw new ExecutionException("Error during claim and execution phase", e);
-            }
+        try {
+            claimAndExecScript(input, startTimeString);
+        } catch (ResourceException e) {
+            throw new ExecutionException("Error during claim and execution phase", e);
         }
     }
 
     /**
-     * Flatten a list of parameters and perform a query to fetch all objects from storage.
+     * Flatten a list of parameters and stream the results of the query into the queue, up to the maximum
+     * number of records.
      *
-     * @return JsonValue containing a list of all the retrieved objects
+     * @param queue the queue of the objects to process, blocks the query while full
+     * @param workers the futures of the threads processing the queue, the query ends once none is left
      * @throws ResourceException
+     * @throws InterruptedException if interrupted while waiting for the queue
      */
-    private JsonValue fetchAllObjects() throws ResourceException {
+    private void streamObjects(final BlockingQueue<JsonValue> queue, final List<Future<?>> workers)
+            throws ResourceException, InterruptedException {
         JsonValue flatParams = flattenJson(taskScannerContext.getScanValue());
         ConfigMacroUtil.expand(flatParams);
-        return performQuery(taskScannerContext.getObjectID(), flatParams);
-    }
 
-    /**
-     * Performs a query on a resource and returns the result set
-     * @param resourceID the identifier of the resource to query
-     * @param params parameters to supply to the query
-     * @return the set of results from the performed query
-     * @throws ResourceException
-     */
-    private JsonValue performQuery(String resourceID, JsonValue params) throws ResourceException {
-        final JsonValue queryResults = new JsonValue(new ArrayList<Map<String, Object>>());;
-
-        QueryRequest request = RequestUtil.buildQueryRequestFromParameterMap(resourceID, params.asMap());
+        final Integer maxRecords = taskScannerContext.getMaxRecords();
+        final TaskScannerStatistic statistics = taskScannerContext.getStatistics();
+        final boolean[] interrupted = { false };
+        QueryRequest request = RequestUtil.buildQueryRequestFromParameterMap(taskScannerContext.getObjectID(),
+                flatParams.asMap());
         connectionFactory.getConnection().query(taskScannerContext.getContext(), request, new QueryResourceHandler() {
             @Override
             public boolean handleResource(ResourceResponse resource) {
-                queryResults.add(resource.getContent().getObject());
-                return true;
+                if (taskScannerContext.isCanceled()) {
+                    logger.info("Task '" + taskScannerContext.getTaskScanID() + "' cancelled. Terminating execution.");
+                    return false;
+                }
+                if (maxRecords != null && statistics.getNumberOfTasksToProcess() >= maxRecords) {
+                    return false;
+                }
+                try {
+                    while (!queue.offer(resource.getContent(), QUEUE_OFFER_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        if (taskScannerContext.isCanceled() || allDone(workers)) {
+                            logger.info("Task '" + taskScannerContext.getTaskScanID()
+                                    + "' no longer processing objects. Terminating query.");
+                            return false;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    interrupted[0] = true;
+                    return false;
+                }
+                statistics.taskQueued();
+                return maxRecords == null || statistics.getNumberOfTasksToProcess() < maxRecords;
             }
         });
-        return queryResults;
+        if (interrupted[0]) {
+            throw new InterruptedException();
+        }
     }
 
     /**
@@ -305,8 +372,13 @@ public class TaskScannerJob {
         UpdateRequest updateRequest = Requests.newUpdateRequest(fullID, value);
         updateRequest.setRevision(rev);
 
-        connectionFactory.getConnection().update(taskScannerContext.getContext(), updateRequest);
-        return retrieveObject(resourceID, id);
+        JsonValue updated = connectionFactory.getConnection()
+                .update(taskScannerContext.getContext(), updateRequest).getContent();
+        if (updated.get("_rev").isNull()) {
+            // The update did not return the new revision to claim or update with next, read it
+            return retrieveObject(resourceID, id);
+        }
+        return updated;
     }
 
     /**
@@ -367,8 +439,9 @@ public class TaskScannerJob {
         do {
             try {
                 retryClaimTask = false;
+                ensureJsonPointerExists(completedField, _input);
+                _input.put(completedField, null);
                 _input = updateValueWithObject(resourceID, _input, startField, DATE_UTIL.now());
-                _input = updateValueWithObject(resourceID, _input, completedField, null);
                 logger.debug("Claimed task and updated StartField: {}", _input);
                 claimedTask = true;
             } catch (PreconditionFailedException ex) {
@@ -31,15 +31,18 @@ public class TaskScannerStatistic {
     private long jobEndTime;
     private long queryStartTime;
     private long queryEndTime;
-    private int numberToProcess = 0;
 
     // Note: These should be the only ones used during the thread executions
+    private AtomicInteger numberToProcess;
     private AtomicInteger numSuccessful;
     private AtomicInteger numFailed;
+    private AtomicInteger numSkipped;
 
     public TaskScannerStatistic() {
+        numberToProcess = new AtomicInteger(0);
         numSuccessful = new AtomicInteger(0);
         numFailed = new AtomicInteger(0);
+        numSkipped = new AtomicInteger(0);
     }
 
     public void jobStart() {
@@ -82,6 +85,21 @@ public class TaskScannerStatistic {
         numFailed.incrementAndGet();
     }
 
+    /**
+     * Counts an object streamed from the query to process, as the number to process grows while the
+     * query results are read.
+     */
+    public void taskQueued() {
+        numberToProcess.incrementAndGet();
+    }
+
+    /**
+     * Counts an object not processed, as it has already been started and its recovery timeout has not passed.
+     */
+    public void taskSkipped() {
+        numSkipped.incrementAndGet();
+    }
+
     public int getNumberOfTasksProcessed() {
         return numSuccessful.get() + numFailed.get();
     }
@@ -94,15 +112,19 @@ public class TaskScannerStatistic {
         return numFailed.get();
     }
 
+    public int getNumberOfTasksSkipped() {
+        return numSkipped.get();
+    }
+
     public int getNumberOfTasksToProcess() {
-        return numberToProcess;
+        return numberToProcess.get();
     }
 
     public int getNumberOfTasksRemaining() {
-        return numberToProcess - getNumberOfTasksProcessed();
+        return numberToProcess.get() - getNumberOfTasksProcessed() - getNumberOfTasksSkipped();
     }
 
     public void setNumberOfTasksToProcess(int numberToProcess) {
-        this.numberToProcess = numberToProcess;
+        this.numberToProcess.set(numberToProcess);
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.scheduler.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+import static org.forgerock.json.resource.Responses.newQueryResponse;
+import static org.forgerock.json.resource.Responses.newResourceResponse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.resource.Connection;
+import org.forgerock.json.resource.ConnectionFactory;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
+import org.forgerock.json.resource.QueryResponse;
+import org.forgerock.json.resource.ReadRequest;
+import org.forgerock.json.resource.ResourceResponse;
+import org.forgerock.json.resource.UpdateRequest;
+import org.forgerock.script.Script;
+import org.forgerock.script.ScriptEntry;
+import org.forgerock.services.context.Context;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+public class TaskScannerJobTest {
+
+    @Test
+    public void testProcessesAllStreamedObjects() throws Exception {
+        TaskScannerContext context = scan(null);
+
+        new TaskScannerJob(connectionFactory(25), context).startTask();
+
+        assertThat(context.isCompleted()).isTrue();
+        assertThat(context.getStatistics().getNumberOfTasksToProcess()).isEqualTo(25);
+        assertThat(context.getStatistics().getNumberOfTasksSucceeded()).isEqualTo(25);
+        assertThat(context.getStatistics().getNumberOfTasksRemaining()).isEqualTo(0);
+    }
+
+    @Test
+    public void testStopsQueryAtMaxRecords() throws Exception {
+        TaskScannerContext context = scan(10);
+
+        new TaskScannerJob(connectionFactory(25), context).startTask();
+
+        assertThat(context.getStatistics().getNumberOfTasksToProcess()).isEqualTo(10);
+        assertThat(context.getStatistics().getNumberOfTasksProcessed()).isEqualTo(10);
+    }
+
+    private static TaskScannerContext scan(Integer maxRecords) throws Exception {
+        Script script = mock(Script.class);
+        when(script.eval()).thenReturn(Boolean.TRUE);
+        ScriptEntry scriptEntry = mock(ScriptEntry.class);
+        when(scriptEntry.getScript(any(Context.class))).thenReturn(script);
+
+        JsonValue params = json(object(
+                field("waitForCompletion", true),
+                field("numberOfThreads", 3),
+                field("batchSize", 2),
+                field("maxRecords", maxRecords),
+                field("scan", object(
+                        field("_queryId", "scan-tasks"),
+                        field("object", "managed/user"),
+                        field("taskState", object(
+                                field("started", "/sunset/task-started"),
+                                field("completed", "/sunset/task-completed")))))));
+        return new TaskScannerContext("test", "script", params, mock(Context.class), scriptEntry);
+    }
+
+    private static ConnectionFactory connectionFactory(final int count) throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.query(any(Context.class), any(QueryRequest.class), any(QueryResourceHandler.class)))
+                .thenAnswer(new Answer<QueryResponse>() {
+                    @Override
+                    public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+                        QueryResourceHandler handler = (QueryResourceHandler) invocation.getArguments()[2];
+                        for (int i = 0; i < count; i++) {
+                            String id = String.valueOf(i);
+                            if (!handler.handleResource(newResourceResponse(id, "0",
+                                    json(object(field("_id", id), field("_rev", "0")))))) {
+                                break;
+                            }
+                        }
+                        return newQueryResponse();
+                    }
+                });
+        when(connection.update(any(Context.class), any(UpdateRequest.class)))
+                .thenAnswer(new Answer<ResourceResponse>() {
+                    @Override
+                    public ResourceResponse answer(InvocationOnMock invocation) throws Throwable {
+                        UpdateRequest request = (UpdateRequest) invocation.getArguments()[1];
+                        JsonValue content = request.getContent().copy();
+                        content.put("_rev", request.getRevision() + "1");
+                        return newResourceResponse(content.get("_id").asString(), null, content);
+                    }
+                });
+        when(connection.read(any(Context.class), any(ReadRequest.class)))
+                .thenAnswer(new Answer<ResourceResponse>() {
+                    @Override
+                    public ResourceResponse answer(InvocationOnMock invocation) throws Throwable {
+                        ReadRequest request = (ReadRequest) invocation.getArguments()[1];
+                        String id = request.getResourcePathObject().leaf();
+                        return newResourceResponse(id, "2", json(object(field("_id", id), field("_rev", "2"))));
+                    }
+                });
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        return connectionFactory;
+    }
+}
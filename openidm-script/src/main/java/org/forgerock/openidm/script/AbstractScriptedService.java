@@ -92,6 +92,17 @@ public abstract class AbstractScriptedService implements ScriptCustomizer, Scrip
         return this;
     }
 
+    /**
+     * Returns the request handler to register for the scripted request handler, the scripted request handler itself
+     * unless overridden to handle some of the requests without the script.
+     *
+     * @param scriptedHandler the scripted request handler
+     * @return the request handler to register
+     */
+    protected RequestHandler getRequestHandler(ScriptedRequestHandler scriptedHandler) {
+        return scriptedHandler;
+    }
+
     protected Dictionary<String, Object> getProperties() {
         return properties;
     }
@@ -112,7 +123,8 @@ public abstract class AbstractScriptedService implements ScriptCustomizer, Scrip
             scriptEntry.addScriptListener(this);
             scriptName = scriptEntry.getName();
             embeddedHandler = new ScriptedRequestHandler(scriptEntry, getScriptCustomizer());
-            selfRegistration = context.registerService(RequestHandler.class, embeddedHandler, getProperties());
+            selfRegistration = context.registerService(RequestHandler.class, getRequestHandler(embeddedHandler),
+                    getProperties());
         } catch (ScriptException e) {
             final String factoryPid = configuration.get(ServerConstants.CONFIG_FACTORY_PID).defaultTo("").asString();
             throw new ComponentException("Failed to take script: " + factoryPid, e);
@@ -165,8 +177,8 @@ public abstract class AbstractScriptedService implements ScriptCustomizer, Scrip
                         selfRegistration =
                                 getBundleContext().registerService(
                                         RequestHandler.class,
-                                        new ScriptedRequestHandler(scriptEntry,
-                                                getScriptCustomizer()), getProperties());
+                                        getRequestHandler(new ScriptedRequestHandler(scriptEntry,
+                                                getScriptCustomizer())), getProperties());
                     }
                 }
             }
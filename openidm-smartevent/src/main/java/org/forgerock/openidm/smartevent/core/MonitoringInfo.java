@@ -16,26 +16,143 @@
 
 package org.forgerock.openidm.smartevent.core;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Holds monitoring and statistics info
- * 
+ *
+ * Safe to update from multiple threads without locking: the totals are striped counters, the durations go
+ * to a {@link LatencyHistogram} and the invocations of the last minute are counted per second.
  */
 public class MonitoringInfo {
 
-    public long totalInvokes;
-    public long totalTime;
+    /** Number of seconds the recent invocation rate is measured over */
+    static final int RATE_WINDOW_SECONDS = 60;
+
+    private final LongAdder totalInvokes = new LongAdder();
+    private final LongAdder totalTime = new LongAdder();
+    private final AtomicLong maxTime = new AtomicLong(-1);
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    // Invocations per second of the rate window, and the second each slot counts
+    private final AtomicLongArray windowCounts = new AtomicLongArray(RATE_WINDOW_SECONDS);
+    private final AtomicLongArray windowSeconds = new AtomicLongArray(RATE_WINDOW_SECONDS);
+
+    /**
+     * Records an invocation
+     *
+     * @param duration the duration of the invocation in nanoseconds
+     */
+    public void record(long duration) {
+        totalInvokes.increment();
+        totalTime.add(duration);
+        histogram.record(duration);
+        long max = maxTime.get();
+        while (duration > max && !maxTime.compareAndSet(max, duration)) {
+            max = maxTime.get();
+        }
+        recordInWindow(currentSecond());
+    }
+
+    private void recordInWindow(long second) {
+        int slot = (int) Math.floorMod(second, (long) RATE_WINDOW_SECONDS);
+        long slotSecond = windowSeconds.get(slot);
+        if (slotSecond != second && windowSeconds.compareAndSet(slot, slotSecond, second)) {
+            // First invocation of this second, the slot still counts an older second
+            windowCounts.set(slot, 0);
+        }
+        windowCounts.incrementAndGet(slot);
+    }
+
+    public long getTotalInvokes() {
+        return totalInvokes.sum();
+    }
+
+    public long getTotalTime() {
+        return totalTime.sum();
+    }
+
+    /**
+     * @return the longest duration in nanoseconds, or -1 if nothing was recorded
+     */
+    public long getMaxTime() {
+        return maxTime.get();
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the duration in nanoseconds at the percentile, or -1 if nothing was recorded
+     */
+    public long getTimeAtPercentile(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * @return the invocations per second over the last {@value #RATE_WINDOW_SECONDS} seconds
+     */
+    public double getRecentRate() {
+        long now = currentSecond();
+        long count = 0;
+        for (int slot = 0; slot < RATE_WINDOW_SECONDS; slot++) {
+            if (now - windowSeconds.get(slot) < RATE_WINDOW_SECONDS) {
+                count += windowCounts.get(slot);
+            }
+        }
+        return count / (double) RATE_WINDOW_SECONDS;
+    }
 
     /**
      * Reset the statistics
      */
     public void reset() {
-        totalInvokes = 0;
-        totalTime = 0;
+        totalInvokes.reset();
+        totalTime.reset();
+        maxTime.set(-1);
+        histogram.reset();
+        for (int slot = 0; slot < RATE_WINDOW_SECONDS; slot++) {
+            windowCounts.set(slot, 0);
+        }
+    }
+
+    /**
+     * @return the statistics, with the durations in milliseconds
+     */
+    public Map<String, Object> toMap() {
+        long invokes = getTotalInvokes();
+        long time = getTotalTime();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("invocations", invokes);
+        stats.put("totalTime", toMs(time));
+        stats.put("mean", toMs(invokes > 0 ? time / invokes : -1));
+        stats.put("max", toMs(getMaxTime()));
+        stats.put("p50", toMs(getTimeAtPercentile(50)));
+        stats.put("p95", toMs(getTimeAtPercentile(95)));
+        stats.put("p99", toMs(getTimeAtPercentile(99)));
+        stats.put("recentRate", getRecentRate());
+        return stats;
+    }
+
+    private static Double toMs(long nanoseconds) {
+        return nanoseconds >= 0 ? nanoseconds / 1000000d : null;
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
     }
 
     public String toString() {
-        return "Invocations: " + totalInvokes + " total time: "
-                + StatisticsHandler.formatNsAsMs(totalTime) + " mean: "
-                + StatisticsHandler.formatNsAsMs(totalInvokes > 0 ? totalTime / totalInvokes : -1);
+        long invokes = getTotalInvokes();
+        long time = getTotalTime();
+        return "Invocations: " + invokes + " total time: "
+                + StatisticsHandler.formatNsAsMs(time) + " mean: "
+                + StatisticsHandler.formatNsAsMs(invokes > 0 ? time / invokes : -1)
+                + " p95: " + StatisticsHandler.formatNsAsMs(getTimeAtPercentile(95))
+                + " p99: " + StatisticsHandler.formatNsAsMs(getTimeAtPercentile(99))
+                + " max: " + StatisticsHandler.formatNsAsMs(getMaxTime());
     }
 }
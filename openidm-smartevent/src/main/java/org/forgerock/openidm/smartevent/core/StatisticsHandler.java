@@ -21,9 +21,10 @@ package org.forgerock.openidm.smartevent.core;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -39,8 +40,8 @@ import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.dsl.Disruptor;
 
 /**
- * Event handler for monitoring and statistics Expects a single thread assigned
- * to gather the statistics
+ * Event handler for monitoring and statistics. The statistics are kept per
+ * event Name and may be gathered from any number of threads.
  */
 public class StatisticsHandler implements EventHandler<DisruptorReferringEventEntry>,
         StatisticsHandlerMBean {
@@ -57,9 +58,9 @@ public class StatisticsHandler implements EventHandler<DisruptorReferringEventEn
     Disruptor<DisruptorReferringEventEntry> disruptor;
 
     /**
-     * Keep track of monitoring data per event Name
+     * Keep track of monitoring data per event Name, safe to update from the threads of all publishers
      */
-    public Map<String, MonitoringInfo> map = new HashMap<>();
+    private final ConcurrentMap<Name, MonitoringInfo> map = new ConcurrentHashMap<>();
 
     // Regular statistics logging option
     private ScheduledExecutorService logScheduler;
@@ -132,8 +133,16 @@ public class StatisticsHandler implements EventHandler<DisruptorReferringEventEn
 
     public Map<String, String> getTotals() {
         Map<String, String> stats = new TreeMap<>();
-        for (Map.Entry<String, MonitoringInfo> entry : map.entrySet()) {
-            stats.put(entry.getKey(), entry.getValue().toString());
+        for (Map.Entry<Name, MonitoringInfo> entry : map.entrySet()) {
+            stats.put(entry.getKey().asString(), entry.getValue().toString());
+        }
+        return stats;
+    }
+
+    public Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        for (Map.Entry<Name, MonitoringInfo> entry : map.entrySet()) {
+            stats.put(entry.getKey().asString(), entry.getValue().toMap());
         }
         return stats;
     }
@@ -168,7 +177,12 @@ public class StatisticsHandler implements EventHandler<DisruptorReferringEventEn
     }
 
     public void resetStatistics(String eventName) {
-        MonitoringInfo entry = map.get(eventName);
+        MonitoringInfo entry = null;
+        for (Map.Entry<Name, MonitoringInfo> candidate : map.entrySet()) {
+            if (candidate.getKey().asString().equals(eventName)) {
+                entry = candidate.getValue();
+            }
+        }
         if (entry != null) {
             entry.reset();
         } else {
@@ -235,13 +249,7 @@ public class StatisticsHandler implements EventHandler<DisruptorReferringEventEn
          * += diff; ++info.totalInvokes;
          */
 
-        MonitoringInfo entry = map.get(eventEntry.eventName.asString());
-        if (entry == null) {
-            entry = new MonitoringInfo();
-            map.put(eventEntry.eventName.asString(), entry);
-        }
-        entry.totalTime += diff;
-        entry.totalInvokes++;
+        getMonitoringInfo(eventEntry.eventName).record(diff);
     }
 
     // TODO: more research on latency of batched end time option
@@ -274,13 +282,7 @@ public class StatisticsHandler implements EventHandler<DisruptorReferringEventEn
         EventEntryImpl eventEntry = (EventEntryImpl) eventEntryParam;
         long diff = eventEntry.endTime - eventEntry.startTime;
 
-        MonitoringInfo entry = map.get(eventEntry.eventName.asString());
-        if (entry == null) {
-            entry = new MonitoringInfo();
-            map.put(eventEntry.eventName.asString(), entry);
-        }
-        entry.totalTime += diff;
-        entry.totalInvokes++;
+        getMonitoringInfo(eventEntry.eventName).record(diff);
         if (endOfBatch) {
             newBatch = true;
         } else {
@@ -288,6 +290,21 @@ public class StatisticsHandler implements EventHandler<DisruptorReferringEventEn
         }
     }
 
+    /**
+     * Gets the monitoring data of an event name, creating it on its first event
+     */
+    private MonitoringInfo getMonitoringInfo(Name eventName) {
+        MonitoringInfo entry = map.get(eventName);
+        if (entry == null) {
+            MonitoringInfo created = new MonitoringInfo();
+            entry = map.putIfAbsent(eventName, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        return entry;
+    }
+
     /**
      * Helper to format nanosecond difference in human readable ms if a negative
      * value is passed, returns "N/A"
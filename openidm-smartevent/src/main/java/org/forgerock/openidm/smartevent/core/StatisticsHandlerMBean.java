@@ -32,6 +32,14 @@ public interface StatisticsHandlerMBean {
      */
     Map<String, String> getTotals();
 
+    /**
+     * @return the statistics per event name: the "invocations", the
+     *         "totalTime", "mean", "max" and "p50", "p95", "p99" percentile
+     *         durations in milliseconds, and the "recentRate" of invocations
+     *         per second over the last minute
+     */
+    Map<String, Map<String, Object>> getStatistics();
+
     /**
      * @return the recent history of events, mapping from start time to the
      *         event detail
@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.smartevent.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+/**
+ * Testing of the statistics kept per event name
+ */
+public class MonitoringInfoTest {
+
+    @Test
+    public void testBucketsCoverValuesWithinRelativeError() {
+        for (long value : new long[] { 0, 1, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE }) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+            assertThat(highest).isGreaterThanOrEqualTo(value);
+            assertThat(highest - value).isLessThanOrEqualTo(value / 16);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        MonitoringInfo info = new MonitoringInfo();
+        assertThat(info.getTimeAtPercentile(50)).isEqualTo(-1);
+        for (long i = 1; i <= 1000; i++) {
+            info.record(i * 1000);
+        }
+
+        assertThat(info.getTotalInvokes()).isEqualTo(1000);
+        assertThat(info.getMaxTime()).isEqualTo(1000000);
+        assertThat((double) info.getTimeAtPercentile(50)).isCloseTo(500000, within(500000 / 16d));
+        assertThat((double) info.getTimeAtPercentile(99)).isCloseTo(990000, within(990000 / 16d));
+        assertThat(info.getRecentRate()).isGreaterThan(0);
+
+        info.reset();
+        assertThat(info.getTotalInvokes()).isEqualTo(0);
+        assertThat(info.getMaxTime()).isEqualTo(-1);
+        assertThat(info.getRecentRate()).isEqualTo(0);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final MonitoringInfo info = new MonitoringInfo();
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        info.record(i);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        assertThat(info.getTotalInvokes()).isEqualTo(40000);
+        assertThat(info.getTotalTime()).isEqualTo(4L * 9999 * 10000 / 2);
+        assertThat(info.getMaxTime()).isEqualTo(9999);
+    }
+}
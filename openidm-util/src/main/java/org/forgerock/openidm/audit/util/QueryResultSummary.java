@@ -0,0 +1,126 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.audit.util;
+
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.object;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.openidm.core.IdentityServer;
+import org.forgerock.util.encode.Base64;
+
+/**
+ * A summary of the results of a query for the activity log, built as the results are streamed.
+ * <p>
+ * Rather than the results themselves, the summary holds their count, a digest of their ids in result order and
+ * the first few results as a sample, so that logging a query takes the same memory however many results it
+ * returns. Query results are only logged with full objects, and are summarized if
+ * {@value #OPENIDM_AUDIT_SUMMARIZE_QUERY_RESULTS} is set.
+ */
+public final class QueryResultSummary {
+
+    /** The property enabling the summary of logged query results, false by default */
+    public static final String OPENIDM_AUDIT_SUMMARIZE_QUERY_RESULTS = "openidm.audit.summarizeQueryResults";
+
+    /** The property setting the number of results sampled, 10 by default */
+    public static final String OPENIDM_AUDIT_QUERY_SAMPLE_SIZE = "openidm.audit.querySampleSize";
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final int sampleSize;
+    private final List<Map<String, Object>> sample = new ArrayList<>();
+    private final MessageDigest idsDigest;
+    private int count;
+
+    /**
+     * Creates an empty summary sampling the number of results set by {@value #OPENIDM_AUDIT_QUERY_SAMPLE_SIZE}.
+     */
+    public QueryResultSummary() {
+        this(Integer.parseInt(IdentityServer.getInstance().getProperty(OPENIDM_AUDIT_QUERY_SAMPLE_SIZE, "10")));
+    }
+
+    /**
+     * Creates an empty summary.
+     *
+     * @param sampleSize the number of results to keep as a sample
+     */
+    public QueryResultSummary(int sampleSize) {
+        this.sampleSize = Math.max(0, sampleSize);
+        try {
+            this.idsDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * Adds a result to the summary.
+     *
+     * @param id the id of the result
+     * @param content the content of the result
+     */
+    public void add(String id, Map<String, Object> content) {
+        count++;
+        if (id != null) {
+            idsDigest.update(id.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separate the ids, so that the digest does not depend on where one id ends
+        idsDigest.update((byte) 0);
+        if (sample.size() < sampleSize) {
+            sample.add(content);
+        }
+    }
+
+    /**
+     * @return the number of results added
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the summary, as logged in place of the results.
+     * <pre>
+     *     {
+     *         "count": 1000,
+     *         "idsDigest": "base64 SHA-256 of the result ids",
+     *         "sample": [ ...the first results... ]
+     *     }
+     * </pre>
+     *
+     * @return the summary
+     */
+    public JsonValue toJsonValue() {
+        try {
+            // Digest a copy, so that results can still be added
+            final MessageDigest digest = (MessageDigest) idsDigest.clone();
+            return json(object(
+                    field("count", count),
+                    field("idsDigest", Base64.encode(digest.digest())),
+                    field("sample", new ArrayList<>(sample))));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " digest can not be copied", e);
+        }
+    }
+}
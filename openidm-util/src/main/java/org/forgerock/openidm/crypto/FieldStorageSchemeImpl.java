@@ -26,7 +26,9 @@
  */
 package org.forgerock.openidm.crypto;
 
+import java.nio.charset.Charset;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Arrays;
 
@@ -40,6 +42,9 @@ import org.slf4j.LoggerFactory;
  * value.  The values that it generates are also salted, which protects against dictionary attacks. It 
  * does this by generating a random salt which is appended to the  clear-text value.  A hash is then 
  * generated based on this, the salt is appended to the hash, and  then the entire value is base64-encoded.
+ * <p>
+ * The message digests are kept per thread and algorithm, so that instances are thread safe without locking and
+ * cheap to create.
  */
 public class FieldStorageSchemeImpl implements FieldStorageScheme {
 
@@ -54,24 +59,38 @@ public class FieldStorageSchemeImpl implements FieldStorageScheme {
     private static final int NUM_SALT_BYTES = 16;
 
     /**
-     * The message digest that will actually be used to generate the hashes.
+     * Whether the default charset encodes the ASCII characters as single bytes of the same value, so that ASCII
+     * text can be written to the digest without being encoded.
      */
-    private MessageDigest messageDigest;
+    private static final boolean ASCII_COMPATIBLE_DEFAULT_CHARSET = isAsciiCompatible(Charset.defaultCharset());
 
-    /** 
-     * The lock used to provide thread safe access to the message digest. 
+    /**
+     * The message digest of a thread, with a buffer to write the plain-text to the digest.
+     */
+    private static final class DigestState {
+        private final MessageDigest messageDigest;
+        private byte[] buffer = new byte[64];
+
+        private DigestState(MessageDigest messageDigest) {
+            this.messageDigest = messageDigest;
+        }
+    }
+
+    /**
+     * The message digests of the threads for the algorithm of this scheme. Held by the scheme rather than in a
+     * static map, so that the digests of the threads are released with the scheme and its class loader.
      */
-    private Object digestLock;
+    private final ThreadLocal<DigestState> digestState;
 
     /** 
      * The secure random number generator to use to generate the salt values. 
      */
-    private SecureRandom random;
+    private final SecureRandom random;
 
     /** 
      * Size of the digest in bytes.
      */
-    private int digestSize;
+    private final int digestSize;
 
     /**
      * Creates a new instance of this field storage scheme.
@@ -81,36 +100,18 @@ public class FieldStorageSchemeImpl implements FieldStorageScheme {
      * @throws Exception
      */
     public FieldStorageSchemeImpl(int digestSize, String algorithm) throws Exception {
-        this.messageDigest = MessageDigest.getInstance(algorithm);
-        this.digestLock = new Object();
+        this.digestState = getDigestState(algorithm);
         this.random     = new SecureRandom();
         this.digestSize = digestSize;
     }
 
     @Override
     public String hashField(String plaintext) {
-        int plainBytesLength = plaintext.length();
-        byte[] saltBytes     = new byte[NUM_SALT_BYTES];
-        byte[] plainPlusSalt = new byte[plainBytesLength + NUM_SALT_BYTES];
-
-        System.arraycopy(plaintext.getBytes(),0, plainPlusSalt, 0, plainBytesLength);
-        byte[] digestBytes;
-
-        synchronized (digestLock) {
-            try {
-                // Generate the salt and put in the plain+salt array.
-                random.nextBytes(saltBytes);
-                System.arraycopy(saltBytes,0, plainPlusSalt, plainBytesLength, NUM_SALT_BYTES);
-
-                // Create the hash from the concatenated value.
-                digestBytes = messageDigest.digest(plainPlusSalt);
-            } catch (Exception e) {
-                logger.error("Cannot encode field: " + e.getMessage(), e);
-                throw e;
-            } finally {
-                Arrays.fill(plainPlusSalt, (byte) 0);
-            }
-        }
+        byte[] saltBytes = new byte[NUM_SALT_BYTES];
+        random.nextBytes(saltBytes);
+
+        // Create the hash from the concatenated plain-text and salt.
+        byte[] digestBytes = digest(plaintext, saltBytes, 0, NUM_SALT_BYTES);
 
         // Append the salt to the hashed value and base64-the whole thing.
         byte[] hashPlusSalt = new byte[digestBytes.length + NUM_SALT_BYTES];
@@ -123,22 +124,14 @@ public class FieldStorageSchemeImpl implements FieldStorageScheme {
 
     @Override
     public boolean fieldMatches(String plaintextfield, String storedField) {
-        // Base64-decode the stored value and take the first 256 bits (SHA256_LENGTH) as the digest.
-        byte[] saltBytes;
-        byte[] digestBytes = new byte[digestSize];
-        int saltLength = 0;
-
+        // Base64-decode the stored value, the digest is followed by the salt.
+        byte[] decodedBytes;
         try {
-            byte[] decodedBytes = Base64.decode(storedField);
-
-            saltLength = decodedBytes.length - digestSize;
-            if (saltLength <= 0) {
+            decodedBytes = Base64.decode(storedField);
+            if (decodedBytes.length - digestSize <= 0) {
                 logger.error("Invalid decoded stored field", storedField);
                 return false;
             }
-            saltBytes = new byte[saltLength];
-            System.arraycopy(decodedBytes, 0, digestBytes, 0, digestSize);
-            System.arraycopy(decodedBytes, digestSize, saltBytes, 0, saltLength);
         } catch (Exception e) {
             // May catch NPE if Base64.decode returns null on bad (non-base64) input
             logger.error("Cannot decode stored field", storedField, e);
@@ -146,26 +139,94 @@ public class FieldStorageSchemeImpl implements FieldStorageScheme {
         }
 
         // Use the salt to generate a digest based on the provided plain-text value.
-        int plainBytesLength = plaintextfield.length();
-        byte[] plainPlusSalt = new byte[plainBytesLength + saltLength];
+        byte[] userDigestBytes;
+        try {
+            userDigestBytes = digest(plaintextfield, decodedBytes, digestSize, decodedBytes.length - digestSize);
+        } catch (Exception e) {
+            logger.error("Cannot encode field", storedField, e);
+            return false;
+        }
 
-        System.arraycopy(plaintextfield.getBytes(),0, plainPlusSalt, 0, plainBytesLength);
-        System.arraycopy(saltBytes, 0,plainPlusSalt, plainBytesLength, saltLength);
+        return MessageDigest.isEqual(Arrays.copyOf(decodedBytes, digestSize), userDigestBytes);
+    }
 
-        byte[] userDigestBytes;
+    /**
+     * Digests the plain-text followed by the salt.
+     * <p>
+     * The plain-text is written as the first {@code plaintext.length()} bytes of its encoding with the default
+     * charset, as the hashes have always been computed, so that existing hashes still match.
+     *
+     * @param plaintext the plain-text
+     * @param salt the array holding the salt
+     * @param saltOffset the offset of the salt in the array
+     * @param saltLength the length of the salt
+     * @return the digest
+     */
+    private byte[] digest(String plaintext, byte[] salt, int saltOffset, int saltLength) {
+        DigestState state = digestState.get();
+        MessageDigest messageDigest = state.messageDigest;
+        int length = plaintext.length();
+        byte[] plainBytes;
+        if (ASCII_COMPATIBLE_DEFAULT_CHARSET && isAscii(plaintext)) {
+            if (state.buffer.length < length) {
+                state.buffer = new byte[Math.max(length, state.buffer.length * 2)];
+            }
+            plainBytes = state.buffer;
+            for (int i = 0; i < length; i++) {
+                plainBytes[i] = (byte) plaintext.charAt(i);
+            }
+        } else {
+            plainBytes = plaintext.getBytes();
+            length = Math.min(length, plainBytes.length);
+        }
+        try {
+            messageDigest.reset();
+            messageDigest.update(plainBytes, 0, length);
+            messageDigest.update(salt, saltOffset, saltLength);
+            return messageDigest.digest();
+        } finally {
+            Arrays.fill(plainBytes, 0, length, (byte) 0);
+        }
+    }
 
-        synchronized (digestLock) {
-            try {
-                userDigestBytes = messageDigest.digest(plainPlusSalt);
-            } catch (Exception e) {
-                logger.error("Cannot encode field", storedField, e);
+    private static ThreadLocal<DigestState> getDigestState(final String algorithm) throws NoSuchAlgorithmException {
+        // Fails here if the algorithm is not available, rather than on first use
+        MessageDigest.getInstance(algorithm);
+        return new ThreadLocal<DigestState>() {
+            @Override
+            protected DigestState initialValue() {
+                try {
+                    return new DigestState(MessageDigest.getInstance(algorithm));
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
                 return false;
-            } finally {
-                Arrays.fill(plainPlusSalt, (byte) 0);
             }
         }
+        return true;
+    }
 
-        return Arrays.equals(digestBytes, userDigestBytes);
+    private static boolean isAsciiCompatible(Charset charset) {
+        char[] ascii = new char[0x80];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (char) i;
+        }
+        byte[] encoded = new String(ascii).getBytes(charset);
+        if (encoded.length != ascii.length) {
+            return false;
+        }
+        for (int i = 0; i < encoded.length; i++) {
+            if (encoded[i] != i) {
+                return false;
+            }
+        }
+        return true;
     }
-    
 }
@@ -22,17 +22,26 @@ import java.util.Map;
 import javax.script.Bindings;
 import javax.script.ScriptException;
 
+import org.forgerock.openidm.smartevent.EventEntry;
+import org.forgerock.openidm.smartevent.Name;
+import org.forgerock.openidm.smartevent.Publisher;
 import org.forgerock.script.ScriptEntry;
+import org.forgerock.script.ScriptName;
 import org.forgerock.services.context.Context;
 
 /**
  * This class wraps a {@link ScriptEntry} object representing a script stored in the
  * {@link org.forgerock.script.ScriptRegistry} and provides a method for executing the script with
  * a given {@link Context} and scope variables.
+ *
+ * The time taken to compile and to evaluate the script is published as the {@code compile} and {@code eval}
+ * events of the script.
  */
 public class Script {
 
     private final ScriptEntry entry;
+    private final Name compileEvent;
+    private final Name evalEvent;
 
     /**
      * A constructor.
@@ -41,6 +50,25 @@ public class Script {
      */
     Script(ScriptEntry entry) {
         this.entry = entry;
+        ScriptName name = entry.getName();
+        String eventPrefix = "openidm/internal/script/" + (name != null ? name.getName() : "anonymous");
+        this.compileEvent = Name.get(eventPrefix + "/compile");
+        this.evalEvent = Name.get(eventPrefix + "/eval");
+    }
+
+    /**
+     * Compiles the script, if not compiled yet, so that the compiled form is shared by the later executions.
+     *
+     * @param context a {@link Context} associated with the script compilation.
+     * @throws ScriptException if the script failed to compile
+     */
+    public void compile(Context context) throws ScriptException {
+        EventEntry measure = Publisher.start(compileEvent, null, null);
+        try {
+            entry.getScript(context);
+        } finally {
+            measure.end();
+        }
     }
 
     /**
@@ -55,7 +83,12 @@ public class Script {
         org.forgerock.script.Script s = entry.getScript(context);
         Bindings b = s.createBindings();
         b.putAll(scope);
-        return s.eval(b);
+        EventEntry measure = Publisher.start(evalEvent, null, null);
+        try {
+            return s.eval(b);
+        } finally {
+            measure.end();
+        }
     };
 
 }
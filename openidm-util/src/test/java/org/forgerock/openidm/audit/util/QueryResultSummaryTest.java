@@ -0,0 +1,67 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openidm.audit.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.json.JsonValue.field;
+import static org.forgerock.json.JsonValue.object;
+
+import org.forgerock.json.JsonValue;
+import org.testng.annotations.Test;
+
+/**
+ * Test of the query result summary logged in place of the results
+ */
+public class QueryResultSummaryTest {
+
+    @Test
+    public void testKeepsCountAndSampleOnly() {
+        QueryResultSummary summary = new QueryResultSummary(2);
+        for (int i = 0; i < 5; i++) {
+            summary.add("id" + i, object(field("_id", "id" + i)));
+        }
+
+        JsonValue value = summary.toJsonValue();
+        assertThat(value.get("count").asInteger()).isEqualTo(5);
+        assertThat(value.get("sample").size()).isEqualTo(2);
+        assertThat(value.get("sample").get(1).get("_id").asString()).isEqualTo("id1");
+    }
+
+    @Test
+    public void testDigestDependsOnIdsAndOrder() {
+        assertThat(digest("a", "b")).isEqualTo(digest("a", "b"));
+        assertThat(digest("a", "b")).isNotEqualTo(digest("b", "a"));
+        assertThat(digest("ab", "c")).isNotEqualTo(digest("a", "bc"));
+    }
+
+    @Test
+    public void testSummaryCanBeTakenWhileAdding() {
+        QueryResultSummary summary = new QueryResultSummary(0);
+        summary.add("a", null);
+        String first = summary.toJsonValue().get("idsDigest").asString();
+        assertThat(summary.toJsonValue().get("idsDigest").asString()).isEqualTo(first);
+        summary.add("b", null);
+        assertThat(summary.toJsonValue().get("idsDigest").asString()).isEqualTo(digest("a", "b"));
+    }
+
+    private static String digest(String... ids) {
+        QueryResultSummary summary = new QueryResultSummary(0);
+        for (String id : ids) {
+            summary.add(id, null);
+        }
+        return summary.toJsonValue().get("idsDigest").asString();
+    }
+}
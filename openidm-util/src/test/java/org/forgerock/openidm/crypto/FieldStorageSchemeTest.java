@@ -18,6 +18,15 @@ package org.forgerock.openidm.crypto;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.forgerock.util.encode.Base64;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -50,4 +59,57 @@ public class FieldStorageSchemeTest {
         assertThat(fieldStorageScheme.fieldMatches(testField, hashedField)).isTrue();
         assertThat(fieldStorageScheme.fieldMatches(testField + " ", hashedField)).isFalse();
     }
+
+    @DataProvider
+    public Object[][] legacyHashData() {
+        return new Object[][] {
+                { "valueToHash" },
+                { "h\u00e9llo w\u00f6rld" },
+                { "" }
+        };
+    }
+
+    @Test(dataProvider = "legacyHashData")
+    public void testMatchesHashOfPreviousImplementation(String plaintext) throws Exception {
+        // The previous implementation digested the first length() bytes of the default encoding, then the salt
+        byte[] salt = new byte[16];
+        for (int i = 0; i < salt.length; i++) {
+            salt[i] = (byte) (i * 7);
+        }
+        byte[] plainPlusSalt = new byte[plaintext.length() + salt.length];
+        System.arraycopy(plaintext.getBytes(), 0, plainPlusSalt, 0, plaintext.length());
+        System.arraycopy(salt, 0, plainPlusSalt, plaintext.length(), salt.length);
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(plainPlusSalt);
+        byte[] hashPlusSalt = new byte[digest.length + salt.length];
+        System.arraycopy(digest, 0, hashPlusSalt, 0, digest.length);
+        System.arraycopy(salt, 0, hashPlusSalt, digest.length, salt.length);
+
+        FieldStorageScheme fieldStorageScheme = new SaltedSHA256FieldStorageScheme();
+        assertThat(fieldStorageScheme.fieldMatches(plaintext, Base64.encode(hashPlusSalt))).isTrue();
+        assertThat(fieldStorageScheme.fieldMatches(plaintext + "x", Base64.encode(hashPlusSalt))).isFalse();
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        final FieldStorageScheme fieldStorageScheme = new SaltedSHA256FieldStorageScheme();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final String value = "value" + i;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return fieldStorageScheme.fieldMatches(value, fieldStorageScheme.hashField(value))
+                                && !fieldStorageScheme.fieldMatches(value + "x", fieldStorageScheme.hashField(value));
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }